@@ -9,5 +9,10 @@ public class ApplicationConfig {
     public final static String BASE_URL = "http://storage.uat.link/clients/lemberg.co.uk";
     public final static String LOGIN_URL = "http://other.server.com/login";
     public static final int CACHE_DISK_USAGE_BYTES = 20 * 1024 * 1024;
+    public static final int CACHE_BLOB_USAGE_BYTES = 30 * 1024 * 1024;
+    public static final int CACHE_MEMORY_USAGE_BYTES = 2 * 1024 * 1024;
+    public static final int CACHE_PARSED_USAGE_BYTES = 2 * 1024 * 1024;
+    public static final int CACHE_SNAPSHOT_USAGE_BYTES = 1024 * 1024;
+    public static final int MICRO_CACHE_WINDOW_MILLIS = 3000;
 
 }
@@ -1,10 +1,12 @@
 package com.ls.templateproject.model.data.vo;
 
+import com.ls.annotations.GenerateTypeAdapter;
 import com.ls.templateproject.model.data.base.AbstractVO;
 
 /**
  * Created on 22.05.2015.
  */
+@GenerateTypeAdapter
 public class StubItemVO extends AbstractVO<String> {
 
     private String imageURL;
@@ -12,6 +14,20 @@ public class StubItemVO extends AbstractVO<String> {
     private Boolean isFavorite;
     private String pageId;
 
+    public StubItemVO() {
+    }
+
+    /**
+     * Creates a copy of the item, e.g. to modify item, shared by parsed response cache
+     */
+    public StubItemVO(StubItemVO source) {
+        this.id = source.id;
+        this.imageURL = source.imageURL;
+        this.description = source.description;
+        this.isFavorite = source.isFavorite;
+        this.pageId = source.pageId;
+    }
+
     public String getImageURL() {
         return imageURL;
     }
@@ -3,11 +3,14 @@ package com.ls.templateproject.model.drupal;
 import com.android.volley.Network;
 import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.BasicNetwork;
-import com.android.volley.toolbox.DiskBasedCache;
 import com.android.volley.toolbox.HttpStack;
 import com.ls.drupal.DrupalClient;
 import com.ls.http.base.BaseRequest;
 import com.ls.http.base.ResponseData;
+import com.ls.http.base.cache.BlobCache;
+import com.ls.http.base.cache.JournalDiskCache;
+import com.ls.http.base.cache.MemoryCache;
+import com.ls.http.base.cache.TwoTierCache;
 import com.ls.http.base.client.LSClient;
 import com.ls.templateproject.ApplicationConfig;
 import com.ls.templateproject.model.HURLCookieStore;
@@ -31,6 +34,8 @@ import java.net.CookieStore;
  */
 public class DrupalModel {
 
+    private static final String BLOB_DIR_NAME = "blobs";
+
     private static DrupalModel instance;
 
     @NonNull
@@ -138,8 +143,12 @@ public class DrupalModel {
         }
 
         final Network network = new BasicNetwork(stack);
-        final RequestQueue queue = new RequestQueue(
-                new DiskBasedCache(cacheDir, ApplicationConfig.CACHE_DISK_USAGE_BYTES), network, 1);
+        // Large media is stored separately, so it can't evict API responses from memory and disk tiers
+        final TwoTierCache tieredCache = new TwoTierCache(new MemoryCache(ApplicationConfig.CACHE_MEMORY_USAGE_BYTES),
+                new JournalDiskCache(cacheDir, ApplicationConfig.CACHE_DISK_USAGE_BYTES));
+        final BlobCache cache = new BlobCache(tieredCache, new File(cacheDir, BLOB_DIR_NAME),
+                ApplicationConfig.CACHE_BLOB_USAGE_BYTES);
+        final RequestQueue queue = new RequestQueue(cache, network, 1);
         queue.start();
         return queue;
     }
@@ -3,9 +3,17 @@ package com.ls.templateproject.model.plain;
 import com.android.volley.Network;
 import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.BasicNetwork;
-import com.android.volley.toolbox.DiskBasedCache;
 import com.android.volley.toolbox.HttpStack;
 import com.ls.http.base.ResponseData;
+import com.ls.http.base.StringPool;
+import com.ls.http.base.cache.BlobCache;
+import com.ls.http.base.cache.JournalDiskCache;
+import com.ls.http.base.cache.MemoryCache;
+import com.ls.http.base.cache.MicroCache;
+import com.ls.http.base.cache.ParsedResponseCache;
+import com.ls.http.base.cache.SnapshotStore;
+import com.ls.http.base.cache.TwoTierCache;
+import com.ls.http.base.cache.VaryRegistry;
 import com.ls.http.base.client.LSClient;
 import com.ls.templateproject.ApplicationConfig;
 import com.ls.templateproject.model.HURLCookieStore;
@@ -28,6 +36,10 @@ import java.net.CookieStore;
  */
 public class Model {
 
+    private static final String SNAPSHOT_DIR_NAME = "snapshots";
+    private static final String BLOB_DIR_NAME = "blobs";
+    private static final String VARY_REGISTRY_FILE_NAME = "vary_registry";
+
     private static Model instance;
 
     public static Model instance(Context theContext) {
@@ -90,6 +102,12 @@ public class Model {
         client = new LSClient.Builder(context)
                 .setRequestQueue(queue)
                 .setLoginManager(loginManager)
+                .setParsedResponseCache(new ParsedResponseCache(ApplicationConfig.CACHE_PARSED_USAGE_BYTES))
+                .setSnapshotStore(new SnapshotStore(new File(context.getCacheDir(), SNAPSHOT_DIR_NAME),
+                        ApplicationConfig.CACHE_SNAPSHOT_USAGE_BYTES))
+                .setVaryRegistry(new VaryRegistry(new File(context.getCacheDir(), VARY_REGISTRY_FILE_NAME)))
+                .setMicroCache(new MicroCache(ApplicationConfig.MICRO_CACHE_WINDOW_MILLIS))
+                .setStringPool(new StringPool())
                 .build();
 
         stubManager = new StubItemManager(client);
@@ -121,8 +139,12 @@ public class Model {
         }
 
         final Network network = new BasicNetwork(stack);
-        final RequestQueue queue = new RequestQueue(
-                new DiskBasedCache(cacheDir, ApplicationConfig.CACHE_DISK_USAGE_BYTES), network, 1);
+        // Large media is stored separately, so it can't evict API responses from memory and disk tiers
+        final TwoTierCache tieredCache = new TwoTierCache(new MemoryCache(ApplicationConfig.CACHE_MEMORY_USAGE_BYTES),
+                new JournalDiskCache(cacheDir, ApplicationConfig.CACHE_DISK_USAGE_BYTES));
+        final BlobCache cache = new BlobCache(tieredCache, new File(cacheDir, BLOB_DIR_NAME),
+                ApplicationConfig.CACHE_BLOB_USAGE_BYTES);
+        final RequestQueue queue = new RequestQueue(cache, network, 1);
         queue.start();
         return queue;
     }
@@ -65,6 +65,34 @@ public abstract class BaseItemManager<ClassToManage, ParametersClass, TagClass>
         return tag;
     }
 
+    /**
+     * Restores data, received by previous fetch, without network access and response parsing. Snapshot is read in
+     * background, listener is called on the main thread with restored data or null if there is no snapshot. Snapshots have
+     * to be enabled for the fetch request.
+     */
+    public void readSnapshot(final ParametersClass requestParams,
+            @NonNull final OnSnapshotReadListener<ClassToManage> listener) {
+        new AsyncTask<Void, Void, ClassToManage>() {
+
+            @Override
+            protected ClassToManage doInBackground(Void... params) {
+                BaseRequest request = getFetchRequest(client, requestParams);
+                Object snapshot = client.readSnapshot(request);
+                if (snapshot == null) {
+                    return null;
+                }
+                ResponseData data = new ResponseData();
+                data.setData(snapshot);
+                return readResponseFromRequest(request, data, getEntityRequestTag(requestParams));
+            }
+
+            @Override
+            protected void onPostExecute(ClassToManage classToManage) {
+                listener.onSnapshotRead(classToManage);
+            }
+        }.execute();
+    }
+
     public void addDataFetchCompleteListener(OnDataFetchCompleteListener<ClassToManage, TagClass> listener) {
         this.listeners.registerObserver(listener);
     }
@@ -133,4 +161,9 @@ public abstract class BaseItemManager<ClassToManage, ParametersClass, TagClass>
         void onDataFetchFailed(ResultClass result, ResponseData data, TagClass requestTag);
     }
 
+    public interface OnSnapshotReadListener<ResultClass> {
+
+        void onSnapshotRead(@Nullable ResultClass result);
+    }
+
 }
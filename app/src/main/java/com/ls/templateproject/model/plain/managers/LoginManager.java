@@ -4,13 +4,14 @@ import com.android.volley.RequestQueue;
 import com.ls.http.base.BaseRequest;
 import com.ls.http.base.RequestConfig;
 import com.ls.http.base.ResponseData;
+import com.ls.http.base.login.ICachePartitionProvider;
 import com.ls.http.base.login.ILoginManager;
 import com.ls.templateproject.ApplicationConfig;
 
 /**
  * Created on 22.05.2015.
  */
-public class LoginManager implements ILoginManager {
+public class LoginManager implements ILoginManager, ICachePartitionProvider {
 
     public ResponseData login(String userName, String password, RequestQueue queue) {
         RequestConfig config = new RequestConfig();
@@ -41,6 +42,12 @@ public class LoginManager implements ILoginManager {
         //apply some session-dependent data to request
     }
 
+    @Override
+    public String getCachePartition(BaseRequest request) {
+        //return logged in user id here in order to cache responses for different users separately
+        return null;
+    }
+
     @Override
     public boolean restoreLoginData(RequestQueue queue) {
         return false;
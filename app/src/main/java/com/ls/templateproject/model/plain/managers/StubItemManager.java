@@ -33,6 +33,14 @@ public class StubItemManager extends SynchronizedDatabaseManager<List<StubItemVO
         return fetchData(getBundleForId(id));
     }
 
+    /**
+     * Reads page items, restored from snapshot of the previous page fetch, listener receives null if there is no snapshot.
+     * Snapshots are enabled for the first page only, see {@link StubItemRequestBuilder}.
+     */
+    public void readPageSnapshot(String id, OnSnapshotReadListener<List<StubItemVO>> listener) {
+        readSnapshot(getBundleForId(id), listener);
+    }
+
     @Override
     protected BaseRequest getFetchRequest(LSClient client, Bundle requestParams) {
         String requestId = getIdFromBundle(requestParams);
@@ -50,10 +58,15 @@ public class StubItemManager extends SynchronizedDatabaseManager<List<StubItemVO
     protected List<StubItemVO> readResponseFromRequest(BaseRequest request, ResponseData data, String tag) {
         List<StubItemVO> items = (List<StubItemVO>) data.getData();
         if (request != null && !items.isEmpty()) {
+            // Parsed items are shared by the parsed response cache, so they are copied before modification
+            String pageId = getReqeustIdFromTag(tag);
+            List<StubItemVO> result = new ArrayList<>(items.size());
             for (StubItemVO item : items) {
-                item.setPageId(getReqeustIdFromTag(tag));
+                StubItemVO pageItem = new StubItemVO(item);
+                pageItem.setPageId(pageId);
+                result.add(pageItem);
             }
-            return items;
+            return result;
         } else {
             return null;
         }
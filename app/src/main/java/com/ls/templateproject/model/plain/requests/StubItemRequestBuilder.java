@@ -15,6 +15,8 @@ import java.util.List;
  */
 public class StubItemRequestBuilder extends BaseRequestBuilder {
 
+    public final static String FIRST_PAGE_ID = "0";
+
     private String pageId;
 
     public StubItemRequestBuilder(String pageId) {
@@ -24,6 +26,8 @@ public class StubItemRequestBuilder extends BaseRequestBuilder {
         Type listType = new TypeToken<List<StubItemVO>>() {
         }.getType();
         setResponseClassSpecifier(listType);
+        // Only first page is shown before it's fetched, so other pages don't take snapshot store space
+        setSnapshotEnabled(FIRST_PAGE_ID.equals(pageId));
         setRequestURL(getPath());
     }
 
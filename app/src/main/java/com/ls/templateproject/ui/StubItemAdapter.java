@@ -5,6 +5,7 @@ import com.ls.templateproject.R;
 import com.ls.templateproject.model.data.vo.StubItemVO;
 import com.ls.templateproject.model.plain.Model;
 import com.ls.templateproject.model.plain.managers.BaseItemManager;
+import com.ls.templateproject.model.plain.requests.StubItemRequestBuilder;
 import com.ls.util.image.LSImageView;
 
 import android.content.Context;
@@ -31,6 +32,7 @@ public final class StubItemAdapter extends BaseAdapter {
     private int mPagesLoaded;
     private boolean mCanLoadMore;
     private boolean mOnLoad;
+    private boolean mShowingSnapshot;
 
     private final BaseItemManager.OnDataFetchCompleteListener<List<StubItemVO>, String> listener
             = new BaseItemManager.OnDataFetchCompleteListener<List<StubItemVO>, String>() {
@@ -50,8 +52,26 @@ public final class StubItemAdapter extends BaseAdapter {
         }
     };
 
+    private final BaseItemManager.OnSnapshotReadListener<List<StubItemVO>> snapshotListener
+            = new BaseItemManager.OnSnapshotReadListener<List<StubItemVO>>() {
+
+        @Override
+        public void onSnapshotRead(List<StubItemVO> result) {
+            // Snapshot is shown only if first page wasn't loaded while it was read
+            if (result != null && !result.isEmpty() && mPagesLoaded == 0 && mItems.isEmpty()) {
+                mItems.addAll(result);
+                mShowingSnapshot = true;
+                notifyDataSetChanged();
+            }
+        }
+    };
+
     private void applyDataUpdate(List<StubItemVO> result) {
         if (result != null && !result.isEmpty()) {
+            if (mShowingSnapshot) {
+                // First page snapshot is replaced by actual data
+                mItems.clear();
+            }
             mCanLoadMore = true;
             mItems.addAll(result);
             mPagesLoaded++;
@@ -59,6 +79,7 @@ public final class StubItemAdapter extends BaseAdapter {
         } else {
             mCanLoadMore = false;
         }
+        mShowingSnapshot = false;
     }
 
     public StubItemAdapter(@NonNull final Context theContext) {
@@ -117,9 +138,16 @@ public final class StubItemAdapter extends BaseAdapter {
 
     public void enableDataLoad() {
         Model.instance().getStubManager().addDataFetchCompleteListener(listener);
+        if (mPagesLoaded == 0 && mItems.isEmpty()) {
+            showFirstPageSnapshot();
+        }
         loadNextPage();
     }
 
+    private void showFirstPageSnapshot() {
+        Model.instance().getStubManager().readPageSnapshot(StubItemRequestBuilder.FIRST_PAGE_ID, snapshotListener);
+    }
+
     public void disableDataLoad() {
         Model.instance().getStubManager().removeDataFetchCompleteListener(listener);
     }
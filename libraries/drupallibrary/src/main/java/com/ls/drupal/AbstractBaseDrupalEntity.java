@@ -268,6 +268,7 @@ public abstract class AbstractBaseDrupalEntity implements DrupalClient.OnRespons
         config.setRequestFormat(getItemRequestFormat(method));
         config.setResponseFormat(getItemResponseFormat(method));
         config.setErrorResponseClassSpecifier(getItemErrorResponseClassSpecifier(method));
+        config.setIdempotentPost(isItemRequestIdempotent(method));
         return config;
     }
 
@@ -344,6 +345,16 @@ public abstract class AbstractBaseDrupalEntity implements DrupalClient.OnRespons
 
     ;
 
+    /**
+     * @param method is instance of {@link BaseRequest.RequestMethod} enum, this method is called for.
+     * @return true if request doesn't modify server data. You can override this method in order to make "POST" queries
+     * (performed by {@link #pullFromServer(boolean, Object, OnEntityRequestListener)} if post parameters are provided) cacheable.
+     * Response will be cached according to server cache headers, using url and post body digest as a key.
+     */
+    protected boolean isItemRequestIdempotent(RequestMethod method) {
+        return false;
+    }
+
     public DrupalClient getDrupalClient() {
         return drupalClient;
     }
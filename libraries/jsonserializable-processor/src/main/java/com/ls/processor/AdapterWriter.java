@@ -0,0 +1,284 @@
+package com.ls.processor;
+
+import java.util.List;
+
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Writes source of a generated adapter. Strings, booleans, ints and longs are read and written inline, other
+ * field types use adapters obtained from Gson once, in the adapter constructor.
+ */
+class AdapterWriter {
+
+    private enum Kind {
+        STRING, BOOLEAN, BOXED_BOOLEAN, INT, BOXED_INT, LONG, BOXED_LONG, PRIMITIVE, OBJECT
+    }
+
+    private static final String INDENT = "    ";
+
+    private final String packageName;
+    private final String adapterName;
+    private final String modelName;
+    private final List<ModelField> fields;
+    private final StringBuilder out = new StringBuilder();
+
+    AdapterWriter(String packageName, String adapterName, String modelName, List<ModelField> fields) {
+        this.packageName = packageName;
+        this.adapterName = adapterName;
+        this.modelName = modelName;
+        this.fields = fields;
+    }
+
+    String write() {
+        if (!packageName.isEmpty()) {
+            line(0, "package " + packageName + ";");
+            line(0, "");
+        }
+        line(0, "import com.google.gson.Gson;");
+        line(0, "import com.google.gson.TypeAdapter;");
+        line(0, "import com.google.gson.reflect.TypeToken;");
+        line(0, "import com.google.gson.stream.JsonReader;");
+        line(0, "import com.google.gson.stream.JsonToken;");
+        line(0, "import com.google.gson.stream.JsonWriter;");
+        line(0, "import com.ls.adapters.GeneratedAdapters;");
+        line(0, "");
+        line(0, "import java.io.IOException;");
+        line(0, "");
+        line(0, "/**");
+        line(0, " * Generated by jsonserializable-processor for {@link " + modelName + "}, do not edit.");
+        line(0, " */");
+        line(0, "public final class " + adapterName + " extends TypeAdapter<" + modelName + "> {");
+        line(0, "");
+
+        writeConstructor();
+        writeWrite();
+        writeRead();
+
+        line(0, "}");
+        return out.toString();
+    }
+
+    private void writeConstructor() {
+        boolean hasAdapters = false;
+        for (ModelField field : fields) {
+            if (usesAdapter(field)) {
+                line(1, "private final TypeAdapter<" + boxedName(field.type) + "> " + adapterField(field) + ";");
+                hasAdapters = true;
+            }
+        }
+        if (hasAdapters) {
+            line(0, "");
+        }
+
+        line(1, "public " + adapterName + "(Gson gson) {");
+        for (ModelField field : fields) {
+            if (usesAdapter(field)) {
+                line(2, adapterField(field) + " = " + adapterLookup(field.type) + ";");
+            }
+        }
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeWrite() {
+        line(1, "@Override");
+        line(1, "public void write(JsonWriter out, " + modelName + " value) throws IOException {");
+        line(2, "if (value == null) {");
+        line(3, "out.nullValue();");
+        line(3, "return;");
+        line(2, "}");
+        line(2, "out.beginObject();");
+        for (ModelField field : fields) {
+            if (!field.serialize) {
+                continue;
+            }
+            line(2, "out.name(" + literal(field.jsonName) + ");");
+            String value = field.readExpression;
+            switch (kind(field.type)) {
+                case BOXED_BOOLEAN:
+                    line(2, "GeneratedAdapters.writeBoolean(out, " + value + ");");
+                    break;
+                case PRIMITIVE:
+                case OBJECT:
+                    line(2, adapterField(field) + ".write(out, " + value + ");");
+                    break;
+                default:
+                    line(2, "out.value(" + value + ");");
+                    break;
+            }
+        }
+        line(2, "out.endObject();");
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeRead() {
+        line(1, "@Override");
+        line(1, "public " + modelName + " read(JsonReader in) throws IOException {");
+        line(2, "if (in.peek() == JsonToken.NULL) {");
+        line(3, "in.nextNull();");
+        line(3, "return null;");
+        line(2, "}");
+        line(2, modelName + " result = new " + modelName + "();");
+        line(2, "in.beginObject();");
+        line(2, "while (in.hasNext()) {");
+        line(3, "switch (in.nextName()) {");
+        for (ModelField field : fields) {
+            if (!field.deserialize) {
+                continue;
+            }
+            line(4, "case " + literal(field.jsonName) + ":");
+            for (String alternate : field.alternateNames) {
+                line(4, "case " + literal(alternate) + ":");
+            }
+            writeReadField(field);
+            line(5, "break;");
+        }
+        line(4, "default:");
+        line(5, "in.skipValue();");
+        line(5, "break;");
+        line(3, "}");
+        line(2, "}");
+        line(2, "in.endObject();");
+        line(2, "return result;");
+        line(1, "}");
+    }
+
+    private void writeReadField(ModelField field) {
+        switch (kind(field.type)) {
+            case STRING:
+                assign(5, field, "GeneratedAdapters.readString(in)");
+                break;
+            case BOOLEAN:
+                line(5, "if (!GeneratedAdapters.skipNull(in)) {");
+                assign(6, field, "GeneratedAdapters.nextBoolean(in)");
+                line(5, "}");
+                break;
+            case BOXED_BOOLEAN:
+                assign(5, field, "GeneratedAdapters.skipNull(in) ? null : "
+                        + "Boolean.valueOf(GeneratedAdapters.nextBoolean(in))");
+                break;
+            case INT:
+                line(5, "if (!GeneratedAdapters.skipNull(in)) {");
+                assign(6, field, "GeneratedAdapters.nextInt(in)");
+                line(5, "}");
+                break;
+            case BOXED_INT:
+                assign(5, field, "GeneratedAdapters.skipNull(in) ? null : "
+                        + "Integer.valueOf(GeneratedAdapters.nextInt(in))");
+                break;
+            case LONG:
+                line(5, "if (!GeneratedAdapters.skipNull(in)) {");
+                assign(6, field, "GeneratedAdapters.nextLong(in)");
+                line(5, "}");
+                break;
+            case BOXED_LONG:
+                assign(5, field, "GeneratedAdapters.skipNull(in) ? null : "
+                        + "Long.valueOf(GeneratedAdapters.nextLong(in))");
+                break;
+            case PRIMITIVE:
+                // Gson leaves primitive fields untouched when JSON value is null
+                line(5, "if (!GeneratedAdapters.skipNull(in)) {");
+                assign(6, field, adapterField(field) + ".read(in)");
+                line(5, "}");
+                break;
+            default:
+                assign(5, field, adapterField(field) + ".read(in)");
+                break;
+        }
+    }
+
+    private void assign(int depth, ModelField field, String value) {
+        line(depth, String.format(field.assignment, value) + ";");
+    }
+
+    private static Kind kind(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case INT:
+                return Kind.INT;
+            case LONG:
+                return Kind.LONG;
+            case DECLARED:
+                String name = type.toString();
+                if ("java.lang.String".equals(name)) {
+                    return Kind.STRING;
+                } else if ("java.lang.Boolean".equals(name)) {
+                    return Kind.BOXED_BOOLEAN;
+                } else if ("java.lang.Integer".equals(name)) {
+                    return Kind.BOXED_INT;
+                } else if ("java.lang.Long".equals(name)) {
+                    return Kind.BOXED_LONG;
+                }
+                return Kind.OBJECT;
+            default:
+                return type.getKind().isPrimitive() ? Kind.PRIMITIVE : Kind.OBJECT;
+        }
+    }
+
+    private static boolean usesAdapter(ModelField field) {
+        Kind kind = kind(field.type);
+        return kind == Kind.PRIMITIVE || kind == Kind.OBJECT;
+    }
+
+    private static String adapterField(ModelField field) {
+        return field.name + "Adapter";
+    }
+
+    private static String adapterLookup(TypeMirror type) {
+        String name = type.toString();
+        if (type.getKind().isPrimitive() || (type.getKind() != TypeKind.TYPEVAR && name.indexOf('<') < 0)) {
+            return "gson.getAdapter(" + name + ".class)";
+        }
+        return "gson.getAdapter(new TypeToken<" + name + ">() {})";
+    }
+
+    private static String boxedName(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "java.lang.Boolean";
+            case BYTE:
+                return "java.lang.Byte";
+            case SHORT:
+                return "java.lang.Short";
+            case INT:
+                return "java.lang.Integer";
+            case LONG:
+                return "java.lang.Long";
+            case CHAR:
+                return "java.lang.Character";
+            case FLOAT:
+                return "java.lang.Float";
+            case DOUBLE:
+                return "java.lang.Double";
+            default:
+                return type.toString();
+        }
+    }
+
+    private static String literal(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private void line(int depth, String text) {
+        if (!text.isEmpty()) {
+            for (int i = 0; i < depth; i++) {
+                out.append(INDENT);
+            }
+        }
+        out.append(text).append('\n');
+    }
+}
@@ -0,0 +1,38 @@
+package com.ls.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Serialized field of a model class together with the code used to access it from the generated adapter.
+ */
+class ModelField {
+
+    final String name;
+    final TypeMirror type;
+    final boolean serialize;
+    final boolean deserialize;
+
+    String jsonName;
+    final List<String> alternateNames = new ArrayList<>();
+
+    /**
+     * Expression reading the field of a model instance named "value".
+     */
+    String readExpression;
+
+    /**
+     * Format of the statement assigning "%s" to the field of a model instance named "result".
+     */
+    String assignment;
+
+    ModelField(String name, TypeMirror type, boolean serialize, boolean deserialize) {
+        this.name = name;
+        this.type = type;
+        this.serialize = serialize;
+        this.deserialize = deserialize;
+        this.jsonName = name;
+    }
+}
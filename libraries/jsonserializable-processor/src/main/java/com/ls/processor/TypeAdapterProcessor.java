@@ -0,0 +1,246 @@
+package com.ls.processor;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.ls.adapters.GeneratedTypeAdapterFactory;
+import com.ls.annotations.GenerateTypeAdapter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a streaming {@link com.google.gson.TypeAdapter} for every class annotated with
+ * {@link GenerateTypeAdapter}. See the annotation for the rules fields have to follow.
+ */
+public class TypeAdapterProcessor extends AbstractProcessor {
+
+    private Elements elements;
+    private Types types;
+    private Filer filer;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(GenerateTypeAdapter.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateTypeAdapter.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateTypeAdapter can only be applied to classes");
+                continue;
+            }
+
+            TypeElement model = (TypeElement) element;
+            boolean valid = checkModel(model);
+            List<ModelField> fields = collectFields(model);
+            if (valid && fields != null) {
+                writeAdapter(model, fields);
+            }
+        }
+        return true;
+    }
+
+    private boolean checkModel(TypeElement model) {
+        if (model.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(model, "@GenerateTypeAdapter class can't be abstract");
+            return false;
+        }
+        if (!model.getTypeParameters().isEmpty()) {
+            error(model, "@GenerateTypeAdapter class can't declare type parameters");
+            return false;
+        }
+        if (model.getNestingKind().isNested() && !model.getModifiers().contains(Modifier.STATIC)) {
+            error(model, "@GenerateTypeAdapter nested class has to be static");
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(model.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error(model, "@GenerateTypeAdapter class needs a non-private no-arg constructor");
+        return false;
+    }
+
+    /**
+     * @return serialized fields in Gson order (class fields first, then superclass fields), null on error
+     */
+    private List<ModelField> collectFields(TypeElement model) {
+        DeclaredType modelType = (DeclaredType) model.asType();
+        PackageElement modelPackage = elements.getPackageOf(model);
+        List<ModelField> fields = new ArrayList<>();
+        Map<String, ModelField> fieldsByJsonName = new HashMap<>();
+        boolean valid = true;
+
+        TypeElement current = model;
+        while (current != null && !Object.class.getName().contentEquals(current.getQualifiedName())) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+
+                Expose expose = field.getAnnotation(Expose.class);
+                boolean serialize = expose == null || expose.serialize();
+                boolean deserialize = expose == null || expose.deserialize();
+                if (!serialize && !deserialize) {
+                    continue;
+                }
+
+                ModelField modelField = new ModelField(field.getSimpleName().toString(),
+                        types.asMemberOf(modelType, field), serialize, deserialize);
+                SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                if (serializedName != null) {
+                    modelField.jsonName = serializedName.value();
+                    Collections.addAll(modelField.alternateNames, serializedName.alternate());
+                }
+
+                if (modelField.type.getKind() == TypeKind.TYPEVAR) {
+                    error(field, "Can't resolve type of field " + modelField.name + " for " + model);
+                    valid = false;
+                    continue;
+                }
+                if (!resolveAccess(modelType, modelPackage, field, modelField)) {
+                    error(field, "Field " + modelField.name + " has to be visible from " + modelPackage
+                            + " or have a getter and a setter");
+                    valid = false;
+                    continue;
+                }
+
+                ModelField existing = fieldsByJsonName.put(modelField.jsonName, modelField);
+                if (existing != null) {
+                    error(field, model + " declares multiple JSON fields named " + modelField.jsonName);
+                    valid = false;
+                    continue;
+                }
+                fields.add(modelField);
+            }
+
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement(superclass) : null;
+        }
+        return valid ? fields : null;
+    }
+
+    private boolean resolveAccess(DeclaredType modelType, PackageElement modelPackage, VariableElement field,
+            ModelField modelField) {
+        if (isVisible(field, modelPackage)) {
+            modelField.readExpression = "value." + modelField.name;
+            modelField.assignment = "result." + modelField.name + " = %s";
+            return true;
+        }
+
+        String capitalized = Character.toUpperCase(modelField.name.charAt(0)) + modelField.name.substring(1);
+        String getter = null;
+        String setter = null;
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(
+                (TypeElement) modelType.asElement()))) {
+            if (method.getModifiers().contains(Modifier.STATIC) || !isVisible(method, modelPackage)) {
+                continue;
+            }
+
+            String name = method.getSimpleName().toString();
+            ExecutableType methodType = (ExecutableType) types.asMemberOf(modelType, method);
+            List<? extends TypeMirror> parameters = methodType.getParameterTypes();
+            if (parameters.isEmpty() && types.isSameType(methodType.getReturnType(), modelField.type)
+                    && (name.equals("get" + capitalized) || name.equals("is" + capitalized)
+                    || (name.equals(modelField.name) && name.startsWith("is")))) {
+                getter = name;
+            } else if (parameters.size() == 1 && types.isSameType(parameters.get(0), modelField.type)
+                    && (name.equals("set" + capitalized) || (modelField.name.startsWith("is")
+                    && name.equals("set" + modelField.name.substring(2))))) {
+                setter = name;
+            }
+        }
+
+        if (getter == null || setter == null) {
+            return false;
+        }
+        modelField.readExpression = "value." + getter + "()";
+        modelField.assignment = "result." + setter + "(%s)";
+        return true;
+    }
+
+    private boolean isVisible(Element member, PackageElement modelPackage) {
+        Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        TypeElement owner = (TypeElement) member.getEnclosingElement();
+        if (modifiers.contains(Modifier.PUBLIC) && owner.getModifiers().contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        return elements.getPackageOf(owner).equals(modelPackage);
+    }
+
+    private void writeAdapter(TypeElement model, List<ModelField> fields) {
+        String packageName = elements.getPackageOf(model).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(model).toString();
+        String adapterName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+                .replace('$', '_') + GeneratedTypeAdapterFactory.ADAPTER_SUFFIX;
+        String qualifiedAdapterName = packageName.isEmpty() ? adapterName : packageName + "." + adapterName;
+
+        String source = new AdapterWriter(packageName, adapterName, model.getQualifiedName().toString(), fields)
+                .write();
+        try {
+            JavaFileObject file = filer.createSourceFile(qualifiedAdapterName, model);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(source);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(model, "Can't write " + qualifiedAdapterName + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
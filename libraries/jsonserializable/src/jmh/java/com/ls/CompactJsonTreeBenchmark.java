@@ -0,0 +1,117 @@
+package com.ls;
+
+import com.ls.types.CompactJsonTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link JsonSerializable#toMap(String)} with {@link JsonSerializable#toCompactMap(String)} for parsing and
+ * member lookup on a config-like document. Retained size of both trees is printed once on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompactJsonTreeBenchmark {
+
+    private static final int SECTIONS = 50;
+    private static final int KEYS_PER_SECTION = 20;
+
+    private String json;
+    private Map<String, Object> hashMap;
+    private CompactJsonTree.ObjectView compactMap;
+    private String[] sectionKeys;
+    private String[] valueKeys;
+
+    @Setup
+    public void setUp() {
+        json = config();
+        sectionKeys = new String[SECTIONS];
+        for (int i = 0; i < SECTIONS; i++) {
+            sectionKeys[i] = "section" + i;
+        }
+        valueKeys = new String[KEYS_PER_SECTION];
+        for (int i = 0; i < KEYS_PER_SECTION; i++) {
+            valueKeys[i] = "key" + i;
+        }
+
+        long before = usedMemory();
+        hashMap = JsonSerializable.toMap(json);
+        long hashMapSize = usedMemory() - before;
+
+        before = usedMemory();
+        compactMap = JsonSerializable.toCompactTreeUnsafe(json).asMap();
+        long compactSize = usedMemory() - before;
+
+        System.out.println("json chars: " + json.length() + ", HashMap tree: " + hashMapSize / 1024
+                + " KB, compact tree: " + compactSize / 1024 + " KB");
+    }
+
+    @Benchmark
+    public Map<String, Object> parseHashMap() {
+        return JsonSerializable.toMap(json);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseCompact() {
+        return JsonSerializable.toCompactMap(json);
+    }
+
+    @Benchmark
+    public double lookupHashMap() {
+        double sum = 0;
+        for (String section : sectionKeys) {
+            Map<?, ?> values = (Map<?, ?>) hashMap.get(section);
+            for (String key : valueKeys) {
+                sum += (Double) values.get(key);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double lookupCompact() {
+        double sum = 0;
+        for (String section : sectionKeys) {
+            CompactJsonTree.ObjectView values = compactMap.getObject(section);
+            for (String key : valueKeys) {
+                sum += values.getDouble(key, 0);
+            }
+        }
+        return sum;
+    }
+
+    private static String config() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < SECTIONS; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("\"section").append(i).append("\":{");
+            for (int j = 0; j < KEYS_PER_SECTION; j++) {
+                if (j > 0) {
+                    builder.append(',');
+                }
+                builder.append("\"key").append(j).append("\":").append(i * 1000 + j);
+            }
+            builder.append('}');
+        }
+        return builder.append('}').toString();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,131 @@
+package com.ls;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.Expose;
+import com.ls.exceptions.JsonDeserializationException;
+import com.ls.types.ListOfJson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of {@link JsonSerializable} conversions. "legacy" benchmarks build a new Gson for every call the
+ * way JsonSerializable did before {@link JsonCodec}; "codec" benchmarks go through the shared codec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonCodecBenchmark {
+
+    public static class Article {
+
+        long id;
+        String title;
+        String author;
+        List<String> tags;
+
+        @Expose(serialize = false)
+        String localPath;
+    }
+
+    private Article article;
+    private String articleJson;
+    private String articlesJson;
+
+    @Setup
+    public void setUp() {
+        article = article(1);
+        articleJson = JsonSerializable.toJson(article);
+
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            articles.add(article(i));
+        }
+        articlesJson = JsonSerializable.toJson(articles);
+    }
+
+    @Benchmark
+    public String toJsonLegacy() {
+        return createLegacyGson().toJson(article);
+    }
+
+    @Benchmark
+    public String toJsonCodec() {
+        return JsonSerializable.toJson(article);
+    }
+
+    @Benchmark
+    public Article fromJsonLegacy() {
+        return createLegacyGson().fromJson(articleJson, Article.class);
+    }
+
+    @Benchmark
+    public Article fromJsonCodec() throws JsonDeserializationException {
+        return JsonSerializable.fromJson(Article.class, articleJson);
+    }
+
+    @Benchmark
+    public List<Article> toListLegacy() {
+        return createLegacyGson().fromJson(articlesJson, new ListOfJson<>(Article.class));
+    }
+
+    @Benchmark
+    public List<Article> toListCodec() {
+        return JsonSerializable.toList(articlesJson, Article.class);
+    }
+
+    private static Article article(int index) {
+        Article article = new Article();
+        article.id = index;
+        article.title = "Article " + index;
+        article.author = "Author " + index % 5;
+        article.tags = Arrays.asList("news", "drupal", "tag" + index % 3);
+        article.localPath = "/sdcard/articles/" + index;
+        return article;
+    }
+
+    /**
+     * Copy of the Gson setup JsonSerializable used to create on every call.
+     */
+    private static Gson createLegacyGson() {
+        return new GsonBuilder()
+                .addSerializationExclusionStrategy(new ExclusionStrategy() {
+                    @Override
+                    public boolean shouldSkipField(FieldAttributes fieldAttributes) {
+                        Expose expose = fieldAttributes.getAnnotation(Expose.class);
+                        return expose != null && !expose.serialize();
+                    }
+
+                    @Override
+                    public boolean shouldSkipClass(Class<?> aClass) {
+                        return false;
+                    }
+                })
+                .addDeserializationExclusionStrategy(new ExclusionStrategy() {
+                    @Override
+                    public boolean shouldSkipField(FieldAttributes fieldAttributes) {
+                        Expose expose = fieldAttributes.getAnnotation(Expose.class);
+                        return expose != null && !expose.deserialize();
+                    }
+
+                    @Override
+                    public boolean shouldSkipClass(Class<?> aClass) {
+                        return false;
+                    }
+                })
+                .create();
+    }
+}
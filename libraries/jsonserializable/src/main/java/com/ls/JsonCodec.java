@@ -0,0 +1,236 @@
+package com.ls;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.Expose;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.ls.adapters.GeneratedTypeAdapterFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe JSON codec wrapping one immutable {@link Gson} instance. Codecs are shared per configuration, so
+ * reflective adapters built by Gson survive between calls instead of being rebuilt for every conversion.
+ * Classes annotated with {@link com.ls.annotations.GenerateTypeAdapter} use their generated adapters.
+ * Adapters resolved by the codec are kept in its own registry and can be computed ahead of time with
+ * {@link #preload(Type...)}.
+ */
+public final class JsonCodec {
+
+    private static final int FLAG_SERIALIZE_NULLS = 1;
+    private static final int FLAG_PRETTY_PRINTING = 1 << 1;
+    private static final int FLAG_DISABLE_HTML_ESCAPING = 1 << 2;
+
+    private static final ConcurrentMap<Integer, JsonCodec> CODECS = new ConcurrentHashMap<>();
+
+    private static final ExclusionStrategy SERIALIZATION_EXCLUSION = new ExclusionStrategy() {
+        @Override
+        public boolean shouldSkipField(FieldAttributes fieldAttributes) {
+            Expose expose = fieldAttributes.getAnnotation(Expose.class);
+            return expose != null && !expose.serialize();
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> aClass) {
+            return false;
+        }
+    };
+
+    private static final ExclusionStrategy DESERIALIZATION_EXCLUSION = new ExclusionStrategy() {
+        @Override
+        public boolean shouldSkipField(FieldAttributes fieldAttributes) {
+            Expose expose = fieldAttributes.getAnnotation(Expose.class);
+            return expose != null && !expose.deserialize();
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> aClass) {
+            return false;
+        }
+    };
+
+    private final int flags;
+    private final Gson gson;
+    private final ConcurrentMap<Type, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
+
+    private JsonCodec(int flags) {
+        this.flags = flags;
+
+        GsonBuilder builder = new GsonBuilder()
+                .registerTypeAdapterFactory(GeneratedTypeAdapterFactory.getInstance())
+                .addSerializationExclusionStrategy(SERIALIZATION_EXCLUSION)
+                .addDeserializationExclusionStrategy(DESERIALIZATION_EXCLUSION);
+        if ((flags & FLAG_SERIALIZE_NULLS) != 0) {
+            builder.serializeNulls();
+        }
+        if ((flags & FLAG_PRETTY_PRINTING) != 0) {
+            builder.setPrettyPrinting();
+        }
+        if ((flags & FLAG_DISABLE_HTML_ESCAPING) != 0) {
+            builder.disableHtmlEscaping();
+        }
+        this.gson = builder.create();
+    }
+
+    /**
+     * @return codec with the configuration {@link JsonSerializable} has always used: fields annotated with
+     * {@code @Expose(serialize = false)} or {@code @Expose(deserialize = false)} are skipped in that direction.
+     */
+    public static JsonCodec getDefault() {
+        return forFlags(0);
+    }
+
+    private static JsonCodec forFlags(int flags) {
+        JsonCodec codec = CODECS.get(flags);
+        if (codec == null) {
+            JsonCodec created = new JsonCodec(flags);
+            codec = CODECS.putIfAbsent(flags, created);
+            if (codec == null) {
+                codec = created;
+            }
+        }
+        return codec;
+    }
+
+    /**
+     * @return shared gson instance. It is immutable and may be used from any thread.
+     */
+    public Gson getGson() {
+        return gson;
+    }
+
+    /**
+     * @return adapter for given type, taken from codec registry or resolved once and registered
+     */
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> getAdapter(Type type) {
+        TypeAdapter<?> adapter = adapters.get(type);
+        if (adapter == null) {
+            adapter = gson.getAdapter(TypeToken.get(type));
+            TypeAdapter<?> registered = adapters.putIfAbsent(type, adapter);
+            if (registered != null) {
+                adapter = registered;
+            }
+        }
+        return (TypeAdapter<T>) adapter;
+    }
+
+    /**
+     * Resolves adapters for given types in advance, so the first conversion doesn't pay for reflection.
+     */
+    public JsonCodec preload(Type... types) {
+        for (Type type : types) {
+            getAdapter(type);
+        }
+        return this;
+    }
+
+    public String toJson(Object object) {
+        return gson.toJson(object);
+    }
+
+    public JsonElement toJsonTree(Object object) {
+        return gson.toJsonTree(object);
+    }
+
+    public <T> T fromJson(String json, Type type) throws JsonSyntaxException {
+        if (json == null) {
+            return null;
+        }
+        return fromJson(new StringReader(json), type);
+    }
+
+    public <T> T fromJson(Reader json, Type type) throws JsonSyntaxException, JsonIOException {
+        JsonReader reader = new JsonReader(json);
+        T result = fromJson(reader, type);
+        try {
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonIOException("JSON document was not fully consumed.");
+            }
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Reads one value from given reader leniently, the same way {@link Gson#fromJson(JsonReader, Type)} does,
+     * but with adapter taken from codec registry.
+     */
+    public <T> T fromJson(JsonReader reader, Type type) throws JsonSyntaxException, JsonIOException {
+        boolean wasLenient = reader.isLenient();
+        boolean empty = true;
+        reader.setLenient(true);
+        try {
+            reader.peek();
+            empty = false;
+            TypeAdapter<T> adapter = getAdapter(type);
+            return adapter.read(reader);
+        } catch (EOFException e) {
+            // Empty document is read as null, same as gson does
+            if (empty) {
+                return null;
+            }
+            throw new JsonSyntaxException(e);
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        } finally {
+            reader.setLenient(wasLenient);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JsonCodec{flags=" + flags + ", adapters=" + adapters.size() + "}";
+    }
+
+    /**
+     * Selects shared codec for non-default configuration. Codecs with equal settings are the same instance.
+     */
+    public static final class Builder {
+
+        private int flags;
+
+        public Builder setSerializeNulls(boolean serializeNulls) {
+            flags = setFlag(flags, FLAG_SERIALIZE_NULLS, serializeNulls);
+            return this;
+        }
+
+        public Builder setPrettyPrinting(boolean prettyPrinting) {
+            flags = setFlag(flags, FLAG_PRETTY_PRINTING, prettyPrinting);
+            return this;
+        }
+
+        public Builder setHtmlEscaping(boolean htmlEscaping) {
+            flags = setFlag(flags, FLAG_DISABLE_HTML_ESCAPING, !htmlEscaping);
+            return this;
+        }
+
+        public JsonCodec build() {
+            return forFlags(flags);
+        }
+
+        private static int setFlag(int flags, int flag, boolean value) {
+            return value ? flags | flag : flags & ~flag;
+        }
+    }
+}
@@ -1,34 +1,41 @@
 package com.ls;
 
-import com.google.gson.*;
-import com.google.gson.annotations.Expose;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.ls.exceptions.JsonDeserializationException;
+import com.ls.types.CompactJsonTree;
 import com.ls.types.ListOfJson;
 import com.ls.types.MapOfJson;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public final class JsonSerializable {
 
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private static final Type STRING_OBJECT_MAP_TYPE = new TypeToken<HashMap<String, Object>>() {
+    }.getType();
+
     public String toJson() {
         return toJson(this);
     }
 
     public static String toJson(Object object) {
-        Gson gson = createGson();
-        return gson.toJson(object);
+        return JsonCodec.getDefault().toJson(object);
     }
 
     public static <T> List<T> toList(String json, Class<T> typeClazz) {
 
-        List<T> list = fromJsonUnsafe(new ListOfJson<>(typeClazz), json);
+        List<T> list = fromJsonUnsafe(ListOfJson.of(typeClazz), json);
         if (list == null) {
             list = new ArrayList<>();
         }
@@ -38,7 +45,7 @@ public final class JsonSerializable {
 
     public static <K, V> Map<K, V> toMap(String json, Class<K> typeKeyClass, Class<V> typeValueClass) {
 
-        Map<K, V> map = fromJsonUnsafe(new MapOfJson<>(typeKeyClass, typeValueClass), json);
+        Map<K, V> map = fromJsonUnsafe(MapOfJson.of(typeKeyClass, typeValueClass), json);
         if (map == null) {
             map = new HashMap<>();
         }
@@ -47,9 +54,7 @@ public final class JsonSerializable {
     }
 
     public static Map<String, Object> toMap(String json) {
-        Type type = new TypeToken<HashMap<String, Object>>() {
-        }.getType();
-        HashMap<String, Object> map = fromJsonUnsafe(type, json);
+        HashMap<String, Object> map = fromJsonUnsafe(STRING_OBJECT_MAP_TYPE, json);
 
         if (map == null) {
             map = new HashMap<>();
@@ -58,9 +63,56 @@ public final class JsonSerializable {
         return map;
     }
 
+    /**
+     * Same as {@link #toMap(String)}, but backed by {@link CompactJsonTree}: numbers are kept as primitives, member
+     * names are stored once, nested maps and lists are read-only views created on access. Integral numbers are
+     * returned as Long, others as Double.
+     *
+     * @return read-only map, empty if json doesn't contain an object
+     */
+    public static Map<String, Object> toCompactMap(String json) {
+        CompactJsonTree tree = toCompactTreeUnsafe(json);
+        if (tree == null || !tree.isObject()) {
+            return Collections.emptyMap();
+        }
+        return tree.asMap();
+    }
+
+    public static CompactJsonTree toCompactTreeUnsafe(String json) {
+        try {
+            return toCompactTree(json);
+        } catch (JsonDeserializationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the first JSON value of given string into {@link CompactJsonTree}, skipping the same noise as
+     * {@link #fromJson(Type, String)}.
+     *
+     * @return tree or null if string contains no JSON value
+     */
+    public static CompactJsonTree toCompactTree(String json) throws JsonDeserializationException {
+        if (json == null || json.length() == 0) {
+            return null;
+        }
+
+        int start = findValueStart(json);
+        if (start < 0) {
+            return null;
+        }
+
+        try {
+            JsonReader jsonReader = newReader(json, start);
+            jsonReader.setLenient(true);
+            return CompactJsonTree.parse(jsonReader);
+        } catch (IOException | JsonParseException e) {
+            throw new JsonDeserializationException(e);
+        }
+    }
+
     public JsonElement toJsonTree() {
-        Gson gson = createGson();
-        return gson.toJsonTree(this);
+        return JsonCodec.getDefault().toJsonTree(this);
     }
 
     public static <T> T fromJson(Class<T> classOfT, String json) throws JsonDeserializationException {
@@ -75,91 +127,130 @@ public final class JsonSerializable {
         }
     }
 
+    /**
+     * Reads the first JSON value found in given string in a single pass. Byte order mark, whitespace and
+     * non-JSON prefix before the first object or array ("for(;;);" guard, "200 OK" status line) are skipped,
+     * anything after object or array is ignored. Top-level scalar is read only if nothing but whitespace
+     * follows it, so such prefix is never taken for a value.
+     *
+     * @return parsed value or null if string contains no JSON value
+     * @throws JsonDeserializationException if value is malformed or doesn't match given type
+     */
     public static <T> T fromJson(Type type, String json) throws JsonDeserializationException {
 
         if (json == null || json.length() == 0) {
             return null;
         }
 
-        String jsonInner = json.trim();
-
-        T result = null;
-
-        Gson gson = createGson();
+        int start = findValueStart(json);
+        if (start < 0) {
+            return null;
+        }
 
         try {
-            result = gson.fromJson(jsonInner, type);
-        } catch (Exception e) {
-            e.printStackTrace();
-            //json string can include extra BOM symbol, we trying to exclude this symbol
-
-            //get starting position of json object
-            int jBeginPosition = jsonInner.indexOf("{");
-
-            //+1 - method substring returns string containing the characters from start to end - 1
-            int jLastPosition = jsonInner.lastIndexOf("}") + 1;
-
-            if (jBeginPosition >= 0 && jLastPosition >= 0) {
-                if (jBeginPosition <= jLastPosition && jLastPosition <= jsonInner.length()) {
-                    jsonInner = jsonInner.substring(jBeginPosition, jLastPosition);
-
-                    try {
-                        result = gson.fromJson(jsonInner, type);
-                    } catch (Exception eIn1) {
-                        eIn1.printStackTrace();
-
-                        try {
-                            JsonReader lenientJsonReader = createLenientJsonReader(jsonInner);
-                            result = gson.fromJson(lenientJsonReader, type);
-                        } catch (Exception eIn2) {
-                            eIn2.printStackTrace();
-
-                            throw new JsonDeserializationException();
-                        }
-                    }
-                }
-            }
+            // Reading stops right after the value, so trailing noise is never looked at
+            return JsonCodec.getDefault().fromJson(newReader(json, start), type);
+        } catch (IOException | JsonParseException e) {
+            throw new JsonDeserializationException(e);
         }
+    }
 
-        return result;
+    private static JsonReader newReader(String json, int start) throws IOException {
+        StringReader reader = new StringReader(json);
+        reader.skip(start);
+        return new JsonReader(reader);
     }
 
+    /**
+     * Decides where the value starts without reading it. Leading whitespace and byte order marks are skipped.
+     * Object or array starts right there; scalar does only if nothing but whitespace follows it. Otherwise
+     * remaining text is a prefix and the value starts at the first '{' or '['.
+     *
+     * @return position of the first character of JSON value, -1 if there is no value at all
+     */
+    private static int findValueStart(String json) {
+        int length = json.length();
+        int position = 0;
+        while (position < length) {
+            char c = json.charAt(position);
+            if (c != BYTE_ORDER_MARK && !Character.isWhitespace(c)) {
+                break;
+            }
+            position++;
+        }
 
-    private static Gson createGson() {
-        return new GsonBuilder()
-                .addSerializationExclusionStrategy(new ExclusionStrategy() {
-                    @Override
-                    public boolean shouldSkipField(FieldAttributes fieldAttributes) {
-                        Expose expose = fieldAttributes.getAnnotation(Expose.class);
-                        return expose != null && !expose.serialize();
-                    }
+        if (position == length) {
+            return -1;
+        }
+        char c = json.charAt(position);
+        if (c == '{' || c == '[') {
+            return position;
+        }
+        if (isValueStart(c) && isBlank(json, findScalarEnd(json, position))) {
+            return position;
+        }
+        return findBracket(json, position);
+    }
 
-                    @Override
-                    public boolean shouldSkipClass(Class<?> aClass) {
-                        return false;
-                    }
-                })
-                .addDeserializationExclusionStrategy(new ExclusionStrategy() {
-                    @Override
-                    public boolean shouldSkipField(FieldAttributes fieldAttributes) {
-                        Expose expose = fieldAttributes.getAnnotation(Expose.class);
-                        return expose != null && !expose.deserialize();
-                    }
+    /**
+     * @return position after string literal or literal (number, true, false, null), starting at given position.
+     * Unterminated string ends with the input, so it's reported as malformed by the reader.
+     */
+    private static int findScalarEnd(String json, int start) {
+        int length = json.length();
+        int position = start + 1;
+        if (json.charAt(start) == '"') {
+            while (position < length) {
+                char c = json.charAt(position++);
+                if (c == '\\') {
+                    position++;
+                } else if (c == '"') {
+                    return position;
+                }
+            }
+            return length;
+        }
+        while (position < length && isLiteralPart(json.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
 
-                    @Override
-                    public boolean shouldSkipClass(Class<?> aClass) {
-                        return false;
-                    }
-                })
-                .create();
+    private static boolean isLiteralPart(char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '.' || c == '+' || c == '-';
     }
 
-    private static JsonReader createLenientJsonReader(String json) {
-        StringReader reader = new StringReader(json);
+    private static boolean isBlank(String json, int from) {
+        for (int position = from; position < json.length(); position++) {
+            if (!Character.isWhitespace(json.charAt(position))) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        JsonReader jsonReader = new JsonReader(reader);
-        jsonReader.setLenient(true);
+    private static int findBracket(String json, int from) {
+        for (int position = from; position < json.length(); position++) {
+            char c = json.charAt(position);
+            if (c == '{' || c == '[') {
+                return position;
+            }
+        }
+        return -1;
+    }
 
-        return jsonReader;
+    private static boolean isValueStart(char c) {
+        switch (c) {
+            case '{':
+            case '[':
+            case '"':
+            case '-':
+            case 't':
+            case 'f':
+            case 'n':
+                return true;
+            default:
+                return c >= '0' && c <= '9';
+        }
     }
 }
@@ -0,0 +1,78 @@
+package com.ls.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.ls.annotations.GenerateTypeAdapter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Supplies adapters generated for classes annotated with {@link GenerateTypeAdapter}. Returns null for any other
+ * type, so Gson falls back to its own (reflective) adapters.
+ */
+public final class GeneratedTypeAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * Generated adapter of {@code com.example.Outer$Model} is {@code com.example.Outer_Model_TypeAdapter}.
+     */
+    public static final String ADAPTER_SUFFIX = "_TypeAdapter";
+
+    private static final GeneratedTypeAdapterFactory INSTANCE = new GeneratedTypeAdapterFactory();
+
+    private final ConcurrentMap<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<>();
+
+    private GeneratedTypeAdapterFactory() {
+    }
+
+    public static GeneratedTypeAdapterFactory getInstance() {
+        return INSTANCE;
+    }
+
+    public static String getAdapterClassName(Class<?> modelClass) {
+        String name = modelClass.getName();
+        int packageLength = name.lastIndexOf('.') + 1;
+        return name.substring(0, packageLength) + name.substring(packageLength).replace('$', '_') + ADAPTER_SUFFIX;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (type.getType() != rawType || !rawType.isAnnotationPresent(GenerateTypeAdapter.class)) {
+            return null;
+        }
+
+        try {
+            return (TypeAdapter<T>) getConstructor(rawType).newInstance(gson);
+        } catch (InstantiationException e) {
+            throw new JsonIOException("Can't create generated adapter for " + rawType, e);
+        } catch (IllegalAccessException e) {
+            throw new JsonIOException("Can't create generated adapter for " + rawType, e);
+        } catch (InvocationTargetException e) {
+            throw new JsonIOException("Can't create generated adapter for " + rawType, e.getCause());
+        }
+    }
+
+    private Constructor<?> getConstructor(Class<?> modelClass) {
+        Constructor<?> constructor = constructors.get(modelClass);
+        if (constructor == null) {
+            String adapterName = getAdapterClassName(modelClass);
+            try {
+                constructor = Class.forName(adapterName, true, modelClass.getClassLoader()).getConstructor(Gson.class);
+            } catch (ClassNotFoundException e) {
+                throw new JsonIOException(adapterName + " not found, is jsonserializable-processor enabled for "
+                        + modelClass.getName() + "?", e);
+            } catch (NoSuchMethodException e) {
+                throw new JsonIOException(adapterName + " has no (Gson) constructor", e);
+            }
+            constructors.putIfAbsent(modelClass, constructor);
+        }
+        return constructor;
+    }
+}
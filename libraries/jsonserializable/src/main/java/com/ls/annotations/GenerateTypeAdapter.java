@@ -0,0 +1,23 @@
+package com.ls.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class for which the jsonserializable-processor module generates a streaming
+ * {@link com.google.gson.TypeAdapter} at compile time. Generated adapters are picked up by
+ * {@link com.ls.adapters.GeneratedTypeAdapterFactory}, classes without this annotation keep using Gson reflection.
+ * <p/>
+ * Serialized fields follow Gson rules: static and transient fields are skipped, {@code @SerializedName} renames
+ * a field and {@code @Expose(serialize = false)} / {@code @Expose(deserialize = false)} exclude it in that
+ * direction. Fields must be visible from the class package or have a getter and setter. The class needs a
+ * no-arg constructor visible from its package and can't declare type parameters.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateTypeAdapter {
+}
@@ -0,0 +1,593 @@
+package com.ls.types;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Read-only JSON tree stored in flat arrays instead of nested maps and lists. Every value is a node, nodes are
+ * laid out in document order: a container is followed by its children and remembers the index where its subtree
+ * ends. Numbers are stored as primitive {@code long} or {@code double}, member names are kept once in a key table
+ * shared by all objects of the tree.
+ * <p/>
+ * {@link ObjectView} and {@link ArrayView} expose containers as {@link Map} and {@link java.util.List} without
+ * copying; nested views and boxed numbers are only created when a value is requested. Instances are immutable
+ * and may be shared between threads.
+ */
+public final class CompactJsonTree {
+
+    private static final byte TYPE_OBJECT = 1;
+    private static final byte TYPE_ARRAY = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_BOOLEAN = 6;
+    private static final byte TYPE_NULL = 7;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Objects with more members than this get a hash index on first lookup, smaller ones are scanned.
+     */
+    private static final int LINEAR_LOOKUP_LIMIT = 8;
+
+    private static final int NO_KEY = -1;
+
+    private byte[] types;
+
+    /**
+     * Child count for containers, index in {@link #strings} for strings, raw bits for numbers, 0/1 for booleans.
+     */
+    private long[] values;
+
+    /**
+     * Index of the first node after the subtree of each node.
+     */
+    private int[] ends;
+
+    /**
+     * Index in {@link #keyTable} of the member name for object members, {@link #NO_KEY} otherwise.
+     */
+    private int[] keys;
+    private int nodeCount;
+
+    private String[] strings;
+    private int stringCount;
+
+    private String[] keyTable;
+    private int keyCount;
+    private final HashMap<String, Integer> keyIds;
+
+    private final HashMap<Integer, int[]> memberIndexes = new HashMap<>();
+
+    private CompactJsonTree() {
+        types = new byte[INITIAL_CAPACITY];
+        values = new long[INITIAL_CAPACITY];
+        ends = new int[INITIAL_CAPACITY];
+        keys = new int[INITIAL_CAPACITY];
+        strings = new String[INITIAL_CAPACITY];
+        keyTable = new String[INITIAL_CAPACITY];
+        keyIds = new HashMap<>();
+    }
+
+    /**
+     * Reads one JSON value from given reader.
+     *
+     * @throws IOException         if reader fails
+     * @throws JsonSyntaxException if JSON is malformed
+     */
+    public static CompactJsonTree parse(JsonReader reader) throws IOException {
+        CompactJsonTree tree = new CompactJsonTree();
+        tree.read(reader);
+        tree.trim();
+        return tree;
+    }
+
+    private void read(JsonReader reader) throws IOException {
+        int[] stack = new int[INITIAL_CAPACITY];
+        int depth = 0;
+        int key = NO_KEY;
+        try {
+            do {
+                JsonToken token = reader.peek();
+                switch (token) {
+                    case BEGIN_OBJECT:
+                        reader.beginObject();
+                        int object = addNode(TYPE_OBJECT, 0, key, parent(stack, depth));
+                        if (depth == stack.length) {
+                            stack = grow(stack, depth << 1);
+                        }
+                        stack[depth++] = object;
+                        break;
+                    case BEGIN_ARRAY:
+                        reader.beginArray();
+                        int array = addNode(TYPE_ARRAY, 0, key, parent(stack, depth));
+                        if (depth == stack.length) {
+                            stack = grow(stack, depth << 1);
+                        }
+                        stack[depth++] = array;
+                        break;
+                    case END_OBJECT:
+                        reader.endObject();
+                        ends[stack[--depth]] = nodeCount;
+                        break;
+                    case END_ARRAY:
+                        reader.endArray();
+                        ends[stack[--depth]] = nodeCount;
+                        break;
+                    case NAME:
+                        key = keyId(reader.nextName());
+                        continue;
+                    case STRING:
+                        addNode(TYPE_STRING, addString(reader.nextString()), key, parent(stack, depth));
+                        break;
+                    case NUMBER:
+                        addNumber(reader.nextString(), key, parent(stack, depth));
+                        break;
+                    case BOOLEAN:
+                        addNode(TYPE_BOOLEAN, reader.nextBoolean() ? 1 : 0, key, parent(stack, depth));
+                        break;
+                    case NULL:
+                        reader.nextNull();
+                        addNode(TYPE_NULL, 0, key, parent(stack, depth));
+                        break;
+                    default:
+                        throw new JsonSyntaxException("Unexpected " + token + " at " + reader.getPath());
+                }
+                key = NO_KEY;
+            } while (depth > 0);
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static int parent(int[] stack, int depth) {
+        return depth == 0 ? -1 : stack[depth - 1];
+    }
+
+    private void addNumber(String number, int key, int parent) {
+        if (isIntegral(number)) {
+            try {
+                addNode(TYPE_LONG, Long.parseLong(number), key, parent);
+                return;
+            } catch (NumberFormatException e) {
+                // Doesn't fit in long, stored as double below
+            }
+        }
+        addNode(TYPE_DOUBLE, Double.doubleToRawLongBits(Double.parseDouble(number)), key, parent);
+    }
+
+    private static boolean isIntegral(String number) {
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int addNode(byte type, long value, int key, int parent) {
+        if (nodeCount == types.length) {
+            int capacity = nodeCount + (nodeCount >> 1);
+            types = grow(types, capacity);
+            values = grow(values, capacity);
+            ends = grow(ends, capacity, nodeCount);
+            keys = grow(keys, capacity, nodeCount);
+        }
+        int node = nodeCount++;
+        types[node] = type;
+        values[node] = value;
+        ends[node] = nodeCount;
+        keys[node] = key;
+        if (parent >= 0) {
+            values[parent]++;
+        }
+        return node;
+    }
+
+    private int addString(String value) {
+        if (stringCount == strings.length) {
+            strings = grow(strings, stringCount + (stringCount >> 1));
+        }
+        strings[stringCount] = value;
+        return stringCount++;
+    }
+
+    private int keyId(String name) {
+        Integer id = keyIds.get(name);
+        if (id == null) {
+            if (keyCount == keyTable.length) {
+                keyTable = grow(keyTable, keyCount + (keyCount >> 1));
+            }
+            id = keyCount;
+            keyTable[keyCount++] = name;
+            keyIds.put(name, id);
+        }
+        return id;
+    }
+
+    private void trim() {
+        if (types.length != nodeCount) {
+            types = grow(types, nodeCount);
+            values = grow(values, nodeCount);
+            ends = grow(ends, nodeCount, nodeCount);
+            keys = grow(keys, nodeCount, nodeCount);
+        }
+        if (strings.length != stringCount) {
+            strings = grow(strings, stringCount);
+        }
+        if (keyTable.length != keyCount) {
+            keyTable = grow(keyTable, keyCount);
+        }
+    }
+
+    /**
+     * @return number of values in the tree, containers included
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return number of distinct member names
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * @return root value: {@link ObjectView}, {@link ArrayView}, String, Long, Double, Boolean or null
+     */
+    public Object getRoot() {
+        return valueAt(0);
+    }
+
+    public boolean isObject() {
+        return types[0] == TYPE_OBJECT;
+    }
+
+    public boolean isArray() {
+        return types[0] == TYPE_ARRAY;
+    }
+
+    /**
+     * @return root object view
+     * @throws IllegalStateException if root value isn't an object
+     */
+    public ObjectView asMap() {
+        if (!isObject()) {
+            throw new IllegalStateException("Root value is not an object");
+        }
+        return new ObjectView(this, 0);
+    }
+
+    /**
+     * @return root array view
+     * @throws IllegalStateException if root value isn't an array
+     */
+    public ArrayView asList() {
+        if (!isArray()) {
+            throw new IllegalStateException("Root value is not an array");
+        }
+        return new ArrayView(this, 0);
+    }
+
+    private Object valueAt(int node) {
+        switch (types[node]) {
+            case TYPE_OBJECT:
+                return new ObjectView(this, node);
+            case TYPE_ARRAY:
+                return new ArrayView(this, node);
+            case TYPE_STRING:
+                return strings[(int) values[node]];
+            case TYPE_LONG:
+                return values[node];
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(values[node]);
+            case TYPE_BOOLEAN:
+                return values[node] != 0;
+            default:
+                return null;
+        }
+    }
+
+    private int findMember(int object, Object name) {
+        Integer id = keyIds.get(name);
+        if (id == null) {
+            return -1;
+        }
+        int key = id;
+
+        int count = (int) values[object];
+        if (count <= LINEAR_LOOKUP_LIMIT) {
+            for (int child = object + 1, end = ends[object]; child < end; child = ends[child]) {
+                if (keys[child] == key) {
+                    return child;
+                }
+            }
+            return -1;
+        }
+
+        int[] index = getMemberIndex(object, count);
+        int mask = index.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int child = index[slot];
+            if (child == 0 || keys[child] == key) {
+                return child == 0 ? -1 : child;
+            }
+        }
+    }
+
+    /**
+     * @return open addressing table of member nodes, 0 marks an empty slot since no member can be the root
+     */
+    private int[] getMemberIndex(int object, int count) {
+        synchronized (memberIndexes) {
+            int[] index = memberIndexes.get(object);
+            if (index == null) {
+                int capacity = Integer.highestOneBit(count) << 2;
+                int mask = capacity - 1;
+                index = new int[capacity];
+                for (int child = object + 1, end = ends[object]; child < end; child = ends[child]) {
+                    int slot = hash(keys[child]) & mask;
+                    while (index[slot] != 0 && keys[index[slot]] != keys[child]) {
+                        slot = (slot + 1) & mask;
+                    }
+                    // First member wins for duplicate names, same as linear scan
+                    if (index[slot] == 0) {
+                        index[slot] = child;
+                    }
+                }
+                memberIndexes.put(object, index);
+            }
+            return index;
+        }
+    }
+
+    private static int hash(int key) {
+        return key * 0x9E3779B9 >>> 7;
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        return grow(array, capacity, array.length);
+    }
+
+    private static int[] grow(int[] array, int capacity, int count) {
+        int[] result = new int[capacity];
+        System.arraycopy(array, 0, result, 0, Math.min(count, capacity));
+        return result;
+    }
+
+    private static byte[] grow(byte[] array, int capacity) {
+        byte[] result = new byte[capacity];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, capacity));
+        return result;
+    }
+
+    private static long[] grow(long[] array, int capacity) {
+        long[] result = new long[capacity];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, capacity));
+        return result;
+    }
+
+    private static String[] grow(String[] array, int capacity) {
+        String[] result = new String[capacity];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, capacity));
+        return result;
+    }
+
+    /**
+     * Read-only map over an object node. Typed getters read numbers without boxing.
+     */
+    public static final class ObjectView extends AbstractMap<String, Object> {
+
+        private final CompactJsonTree tree;
+        private final int node;
+        private Set<Entry<String, Object>> entrySet;
+
+        private ObjectView(CompactJsonTree tree, int node) {
+            this.tree = tree;
+            this.node = node;
+        }
+
+        @Override
+        public int size() {
+            return (int) tree.values[node];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return tree.findMember(node, key) >= 0;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int member = tree.findMember(node, key);
+            return member < 0 ? null : tree.valueAt(member);
+        }
+
+        public long getLong(String key, long defaultValue) {
+            int member = tree.findMember(node, key);
+            if (member < 0) {
+                return defaultValue;
+            }
+            switch (tree.types[member]) {
+                case TYPE_LONG:
+                    return tree.values[member];
+                case TYPE_DOUBLE:
+                    return (long) Double.longBitsToDouble(tree.values[member]);
+                default:
+                    return defaultValue;
+            }
+        }
+
+        public double getDouble(String key, double defaultValue) {
+            int member = tree.findMember(node, key);
+            if (member < 0) {
+                return defaultValue;
+            }
+            switch (tree.types[member]) {
+                case TYPE_LONG:
+                    return tree.values[member];
+                case TYPE_DOUBLE:
+                    return Double.longBitsToDouble(tree.values[member]);
+                default:
+                    return defaultValue;
+            }
+        }
+
+        public boolean getBoolean(String key, boolean defaultValue) {
+            int member = tree.findMember(node, key);
+            if (member < 0 || tree.types[member] != TYPE_BOOLEAN) {
+                return defaultValue;
+            }
+            return tree.values[member] != 0;
+        }
+
+        /**
+         * @return string value or null if member is missing or isn't a string
+         */
+        public String getString(String key) {
+            int member = tree.findMember(node, key);
+            if (member < 0 || tree.types[member] != TYPE_STRING) {
+                return null;
+            }
+            return tree.strings[(int) tree.values[member]];
+        }
+
+        /**
+         * @return nested object or null if member is missing or isn't an object
+         */
+        public ObjectView getObject(String key) {
+            int member = tree.findMember(node, key);
+            if (member < 0 || tree.types[member] != TYPE_OBJECT) {
+                return null;
+            }
+            return new ObjectView(tree, member);
+        }
+
+        /**
+         * @return nested array or null if member is missing or isn't an array
+         */
+        public ArrayView getArray(String key) {
+            int member = tree.findMember(node, key);
+            if (member < 0 || tree.types[member] != TYPE_ARRAY) {
+                return null;
+            }
+            return new ArrayView(tree, member);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Entry<String, Object>>() {
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator() {
+                        return new MemberIterator(tree, node);
+                    }
+
+                    @Override
+                    public int size() {
+                        return ObjectView.this.size();
+                    }
+                };
+            }
+            return entrySet;
+        }
+    }
+
+    private static final class MemberIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private final CompactJsonTree tree;
+        private final int end;
+        private int next;
+
+        MemberIterator(CompactJsonTree tree, int object) {
+            this.tree = tree;
+            this.end = tree.ends[object];
+            this.next = object + 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            int member = next;
+            next = tree.ends[member];
+            return new AbstractMap.SimpleImmutableEntry<>(tree.keyTable[tree.keys[member]], tree.valueAt(member));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Read-only list over an array node. Element offsets are resolved on first indexed access.
+     */
+    public static final class ArrayView extends AbstractList<Object> implements RandomAccess {
+
+        private final CompactJsonTree tree;
+        private final int node;
+        private int[] elements;
+
+        private ArrayView(CompactJsonTree tree, int node) {
+            this.tree = tree;
+            this.node = node;
+        }
+
+        @Override
+        public int size() {
+            return (int) tree.values[node];
+        }
+
+        @Override
+        public Object get(int location) {
+            return tree.valueAt(elementNode(location));
+        }
+
+        /**
+         * @return nested object or null if element isn't an object
+         */
+        public ObjectView getObject(int location) {
+            int element = elementNode(location);
+            return tree.types[element] == TYPE_OBJECT ? new ObjectView(tree, element) : null;
+        }
+
+        private int elementNode(int location) {
+            int size = size();
+            if (location < 0 || location >= size) {
+                throw new IndexOutOfBoundsException("Index: " + location + ", size: " + size);
+            }
+            if (elements == null) {
+                int[] offsets = new int[size];
+                for (int i = 0, child = node + 1; i < size; i++, child = tree.ends[child]) {
+                    offsets[i] = child;
+                }
+                elements = offsets;
+            }
+            return elements[location];
+        }
+    }
+}
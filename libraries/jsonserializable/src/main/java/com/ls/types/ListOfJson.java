@@ -2,16 +2,37 @@ package com.ls.types;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ListOfJson<T> implements ParameterizedType {
 
+    private static final ConcurrentMap<Class<?>, ListOfJson<?>> CANONICAL = new ConcurrentHashMap<>();
+
     private Class<?> wrapper;
 
     public ListOfJson(Class<T> wrapper) {
         this.wrapper = wrapper;
     }
 
+    /**
+     * @return shared instance describing {@code List<wrapper>}, so repeated lookups hit the same cache entries
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ListOfJson<T> of(Class<T> wrapper) {
+        ListOfJson<?> type = CANONICAL.get(wrapper);
+        if (type == null) {
+            ListOfJson<T> created = new ListOfJson<>(wrapper);
+            type = CANONICAL.putIfAbsent(wrapper, created);
+            if (type == null) {
+                type = created;
+            }
+        }
+        return (ListOfJson<T>) type;
+    }
+
     @Override
     public Type[] getActualTypeArguments() {
         return new Type[]{wrapper};
@@ -26,4 +47,29 @@ public class ListOfJson<T> implements ParameterizedType {
     public Type getRawType() {
         return List.class;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType that = (ParameterizedType) o;
+        return that.getOwnerType() == null
+                && List.class.equals(that.getRawType())
+                && Arrays.equals(getActualTypeArguments(), that.getActualTypeArguments());
+    }
+
+    @Override
+    public int hashCode() {
+        // Same formula as ParameterizedType implementations of the JDK and Gson
+        return Arrays.hashCode(getActualTypeArguments()) ^ List.class.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return List.class.getName() + "<" + wrapper.getName() + ">";
+    }
 }
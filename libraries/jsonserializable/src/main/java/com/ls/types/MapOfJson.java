@@ -2,13 +2,19 @@ package com.ls.types;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by vverbytskyy on 12/22/15.
  */
 public class MapOfJson<K, V> implements ParameterizedType {
 
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, MapOfJson<?, ?>>> CANONICAL =
+            new ConcurrentHashMap<>();
+
     private Class<? extends K> wrapper1;
     private Class<? extends V> wrapper2;
 
@@ -18,6 +24,31 @@ public class MapOfJson<K, V> implements ParameterizedType {
         this.wrapper2 = clazz2;
     }
 
+    /**
+     * @return shared instance describing {@code HashMap<clazz1, clazz2>}, so repeated lookups hit the same cache entries
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> MapOfJson<K, V> of(Class<K> clazz1, Class<V> clazz2) {
+        ConcurrentMap<Class<?>, MapOfJson<?, ?>> byValue = CANONICAL.get(clazz1);
+        if (byValue == null) {
+            ConcurrentMap<Class<?>, MapOfJson<?, ?>> created = new ConcurrentHashMap<>();
+            byValue = CANONICAL.putIfAbsent(clazz1, created);
+            if (byValue == null) {
+                byValue = created;
+            }
+        }
+
+        MapOfJson<?, ?> type = byValue.get(clazz2);
+        if (type == null) {
+            MapOfJson<K, V> created = new MapOfJson<>(clazz1, clazz2);
+            type = byValue.putIfAbsent(clazz2, created);
+            if (type == null) {
+                type = created;
+            }
+        }
+        return (MapOfJson<K, V>) type;
+    }
+
     @Override
     public Type[] getActualTypeArguments() {
         return new Type[]{wrapper1, wrapper2};
@@ -32,4 +63,29 @@ public class MapOfJson<K, V> implements ParameterizedType {
     public Type getOwnerType() {
         return null;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType that = (ParameterizedType) o;
+        return that.getOwnerType() == null
+                && HashMap.class.equals(that.getRawType())
+                && Arrays.equals(getActualTypeArguments(), that.getActualTypeArguments());
+    }
+
+    @Override
+    public int hashCode() {
+        // Same formula as ParameterizedType implementations of the JDK and Gson
+        return Arrays.hashCode(getActualTypeArguments()) ^ HashMap.class.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return HashMap.class.getName() + "<" + wrapper1.getName() + ", " + wrapper2.getName() + ">";
+    }
 }
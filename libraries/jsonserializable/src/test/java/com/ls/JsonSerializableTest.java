@@ -0,0 +1,90 @@
+package com.ls;
+
+import com.ls.exceptions.JsonDeserializationException;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+
+public final class JsonSerializableTest extends TestCase {
+
+    private static final String ITEM = "{\"id\":7,\"name\":\"first\"}";
+
+    public void testByteOrderMarkSkipped() throws Exception {
+        assertItem(JsonSerializable.fromJson(Item.class, "\uFEFF \n" + ITEM));
+    }
+
+    public void testXssiGuardSkipped() throws Exception {
+        assertItem(JsonSerializable.fromJson(Item.class, "for(;;);" + ITEM));
+        assertItem(JsonSerializable.fromJson(Item.class, ")]}',\n" + ITEM));
+        assertEquals(2, JsonSerializable.toList("for(;;);[" + ITEM + "," + ITEM + "]", Item.class).size());
+    }
+
+    public void testStatusLineSkipped() throws Exception {
+        assertItem(JsonSerializable.fromJson(Item.class, "200 OK\n" + ITEM));
+        assertEquals(7L, JsonSerializable.toCompactMap("200 OK\n" + ITEM).get("id"));
+    }
+
+    public void testTrailingGarbageIgnored() throws Exception {
+        assertItem(JsonSerializable.fromJson(Item.class, ITEM + "\n<!-- served in 3ms -->"));
+        assertItem(JsonSerializable.fromJson(Item.class, ITEM + "}]"));
+    }
+
+    public void testTopLevelArray() throws Exception {
+        final List<Item> items = JsonSerializable.toList("[" + ITEM + ",{\"id\":8}]", Item.class);
+        assertEquals(2, items.size());
+        assertItem(items.get(0));
+        assertEquals(8, items.get(1).id);
+    }
+
+    public void testTopLevelScalar() throws Exception {
+        assertEquals(Integer.valueOf(42), JsonSerializable.fromJson(Integer.class, " 42 "));
+        assertEquals("text", JsonSerializable.fromJson(String.class, "\"text\""));
+    }
+
+    public void testPrefixNotTakenForValue() throws Exception {
+        assertMalformed(String.class, "for(;;);{\"a\":1}");
+        assertMalformed(Integer.class, "200 OK\n" + ITEM);
+        assertNull(JsonSerializable.fromJson(Integer.class, "200 OK"));
+        assertEquals("a b", JsonSerializable.fromJson(String.class, "\"a b\" \n"));
+    }
+
+    public void testNoValue() throws Exception {
+        assertNull(JsonSerializable.fromJson(Item.class, ""));
+        assertNull(JsonSerializable.fromJson(Item.class, " \uFEFF "));
+        assertNull(JsonSerializable.fromJson(Item.class, "<html>Not found</html>"));
+        assertTrue(JsonSerializable.toMap("Internal error").isEmpty());
+    }
+
+    public void testMalformedValueFails() {
+        assertMalformed(Item.class, "{\"id\":\"seven\"}");
+        assertMalformed(String.class, "\"unterminated");
+    }
+
+    public void testStringMap() {
+        final Map<String, Object> map = JsonSerializable.toMap("for(;;);" + ITEM);
+        assertEquals("first", map.get("name"));
+    }
+
+    private static void assertMalformed(final Class<?> type, final String json) {
+        try {
+            JsonSerializable.fromJson(type, json);
+            fail("Exception expected");
+        } catch (JsonDeserializationException e) {
+            // Expected
+        }
+    }
+
+    private static void assertItem(final Item item) {
+        assertNotNull(item);
+        assertEquals(7, item.id);
+        assertEquals("first", item.name);
+    }
+
+    public static final class Item {
+
+        int id;
+        String name;
+    }
+}
@@ -0,0 +1,171 @@
+package com.ls.http;
+
+import com.android.volley.Cache;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+import com.ls.http.base.cache.BlobCache;
+import com.ls.http.base.cache.MemoryCache;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public final class BlobCacheTest extends AndroidTestCase {
+
+    private static final int THRESHOLD = 1024;
+
+    private File mCacheDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCacheDir = new File(getContext().getCacheDir(), "blob_cache_test");
+        deleteCacheDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteCacheDir();
+        super.tearDown();
+    }
+
+    public void testLargeBinaryBodyStoredAsBlob() throws Exception {
+        final MemoryCache main = new MemoryCache(1024 * 1024, 1024 * 1024);
+        final BlobCache cache = new BlobCache(main, mCacheDir, 10 * THRESHOLD, THRESHOLD);
+        cache.initialize();
+
+        final Cache.Entry image = newEntry(2 * THRESHOLD, "image/png");
+        cache.put("image", image);
+        cache.put("small", newEntry(THRESHOLD / 2, "image/png"));
+        cache.put("json", newEntry(2 * THRESHOLD, "application/json"));
+
+        assertNull(main.get("image"));
+        assertNotNull(main.get("small"));
+        assertNotNull(main.get("json"));
+        assertEquals(1, cache.getBlobCount());
+
+        final Cache.Entry stored = cache.get("image");
+        assertEquals(0, stored.data.length);
+        assertEquals(image.etag, stored.etag);
+        final File blobFile = BlobCache.getBlobFile(stored.data);
+        assertNotNull(blobFile);
+        final ByteBuffer buffer = BlobCache.mapBlob(blobFile);
+        final byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        assertTrue(Arrays.equals(image.data, data));
+
+        // Replaced by small body
+        cache.put("image", newEntry(THRESHOLD / 2, "image/png"));
+        assertEquals(0, cache.getBlobCount());
+        assertFalse(blobFile.exists());
+    }
+
+    public void testOwnBudget() throws Exception {
+        final MemoryCache main = new MemoryCache(1024 * 1024, 1024 * 1024);
+        final BlobCache cache = new BlobCache(main, mCacheDir, 3 * THRESHOLD, THRESHOLD);
+        cache.initialize();
+        cache.put("api", newEntry(THRESHOLD / 2, "application/json"));
+        for (int counter = 0; counter < 5; counter++) {
+            cache.put("image" + counter, newEntry(THRESHOLD, "image/jpeg"));
+        }
+
+        assertEquals(3, cache.getBlobCount());
+        assertNull(cache.get("image0"));
+        assertNotNull(cache.get("image4"));
+        assertNotNull(cache.get("api"));
+    }
+
+    public void testRestoredAndRevalidated() throws Exception {
+        final BlobCache cache = new BlobCache(new MemoryCache(1024 * 1024), mCacheDir, 10 * THRESHOLD, THRESHOLD);
+        cache.initialize();
+        final Cache.Entry image = newEntry(2 * THRESHOLD, "image/png");
+        cache.put("image", image);
+
+        final BlobCache restored = new BlobCache(new MemoryCache(1024 * 1024), mCacheDir, 10 * THRESHOLD, THRESHOLD);
+        restored.initialize();
+        final Cache.Entry stored = restored.get("image");
+        assertNotNull(stored);
+
+        // Entry, put after "304 Not Modified" response contains data array of the cached entry
+        stored.ttl = image.ttl + 1000;
+        restored.put("image", stored);
+        final Cache.Entry revalidated = restored.get("image");
+        assertEquals(image.ttl + 1000, revalidated.ttl);
+        assertEquals(2 * THRESHOLD, BlobCache.mapBlob(BlobCache.getBlobFile(revalidated.data)).remaining());
+    }
+
+    public void testByteHandlerMapsBlob() throws Exception {
+        final BlobCache cache = new BlobCache(new MemoryCache(1024 * 1024), mCacheDir, 10 * THRESHOLD, THRESHOLD);
+        cache.initialize();
+        final Cache.Entry file = newEntry(2 * THRESHOLD, "application/octet-stream");
+        cache.put("file", file);
+        final Cache.Entry stored = cache.get("file");
+
+        final ResponseData bytes = parse(ByteBuffer.class, stored);
+        assertTrue(bytes.getData() instanceof ByteBuffer);
+        assertEquals(file.data.length, ((ByteBuffer) bytes.getData()).remaining());
+
+        final ResponseData array = parse(null, stored);
+        assertTrue(Arrays.equals(file.data, (byte[]) array.getData()));
+    }
+
+    public void testBlobHeaderOfNetworkResponseIgnored() throws Exception {
+        final BlobCache cache = new BlobCache(new MemoryCache(1024 * 1024), mCacheDir, 10 * THRESHOLD, THRESHOLD);
+        cache.initialize();
+        cache.put("file", newEntry(2 * THRESHOLD, "application/octet-stream"));
+        final File blobFile = BlobCache.getBlobFile(cache.get("file").data);
+
+        final Cache.Entry network = newEntry(0, "application/octet-stream");
+        network.responseHeaders.put(BlobCache.HEADER_BLOB_FILE, blobFile.getAbsolutePath());
+        final ResponseData result = parse(null, network);
+        assertNull(result.getData());
+        assertNull(result.getHeaders().get(BlobCache.HEADER_BLOB_FILE));
+    }
+
+    private static ResponseData parse(final Object specifier, final Cache.Entry entry) {
+        final TestRequest request = new TestRequest(specifier);
+        return request.parse(new NetworkResponse(200, entry.data, entry.responseHeaders, false)).result;
+    }
+
+    private static Cache.Entry newEntry(final int size, final String contentType) {
+        final Cache.Entry entry = new Cache.Entry();
+        entry.data = new byte[size];
+        for (int counter = 0; counter < size; counter++) {
+            entry.data[counter] = (byte) counter;
+        }
+        entry.etag = "etag" + size;
+        entry.serverDate = System.currentTimeMillis();
+        entry.ttl = entry.serverDate + 60000;
+        entry.softTtl = entry.serverDate + 30000;
+        entry.responseHeaders = new HashMap<String, String>();
+        entry.responseHeaders.put("Content-Type", contentType);
+        return entry;
+    }
+
+    private void deleteCacheDir() {
+        final File[] files = mCacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mCacheDir.delete();
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final Object specifier) {
+            super(RequestMethod.GET, "http://example.com/file", new RequestConfig(specifier, RequestFormat.JSON, ResponseFormat.BYTE));
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+}
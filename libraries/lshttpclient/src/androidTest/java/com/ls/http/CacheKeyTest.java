@@ -0,0 +1,211 @@
+package com.ls.http;
+
+import com.android.volley.Cache;
+import com.android.volley.Network;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+import com.ls.http.base.cache.VaryRegistry;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class CacheKeyTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/items";
+
+    public void testResponseFormatChangesKey() {
+        final TestRequest json = new TestRequest(BaseRequest.ResponseFormat.JSON);
+        final TestRequest xml = new TestRequest(BaseRequest.ResponseFormat.XML);
+        assertFalse(json.getCacheKey().equals(xml.getCacheKey()));
+    }
+
+    public void testVaryHeadersIncludedAfterResponse() {
+        final VaryRegistry registry = new VaryRegistry();
+        final TestRequest english = new TestRequest(BaseRequest.ResponseFormat.JSON);
+        english.setVaryRegistry(registry);
+        english.addRequestHeader("Accept-Language", "en");
+        final TestRequest german = new TestRequest(BaseRequest.ResponseFormat.JSON);
+        german.setVaryRegistry(registry);
+        german.addRequestHeader("Accept-Language", "de");
+        assertEquals(english.getCacheKey(), german.getCacheKey());
+
+        final Response<ResponseData> response = english.parse(newResponse("Accept-Language, Accept"));
+        assertNotNull(response.cacheEntry);
+        assertFalse(english.getCacheKey().equals(german.getCacheKey()));
+        assertTrue(english.getCacheKey().contains("accept-language: en"));
+    }
+
+    public void testQueuedRequestKeyFixed() {
+        final MemoryCache cache = new MemoryCache();
+        final VaryRegistry registry = new VaryRegistry();
+        final TestRequest request = new TestRequest(BaseRequest.ResponseFormat.JSON);
+        request.setVaryRegistry(registry);
+        request.addRequestHeader("Accept-Language", "en");
+        request.setRequestQueue(newQueue(cache));
+        final String queuedKey = request.getCacheKey();
+
+        final Response<ResponseData> response = request.parse(newResponse("Accept-Language"));
+        assertEquals(queuedKey, request.getCacheKey());
+
+        // Response is stored under the key with vary headers, not the one volley would use
+        assertNull(response.cacheEntry);
+        final TestRequest next = new TestRequest(BaseRequest.ResponseFormat.JSON);
+        next.setVaryRegistry(registry);
+        next.addRequestHeader("Accept-Language", "en");
+        assertFalse(queuedKey.equals(next.getCacheKey()));
+        assertNotNull(cache.entries.get(next.getCacheKey()));
+        assertNull(cache.entries.get(queuedKey));
+    }
+
+    public void testVaryRegistryRestoredFromFile() {
+        final File file = new File(getContext().getCacheDir(), "vary_registry_test");
+        file.delete();
+        try {
+            final VaryRegistry registry = new VaryRegistry(file);
+            registry.update(URL + "?page=1", newResponse("Accept-Language, Accept-Encoding").headers);
+            registry.update("http://example.com/any", newResponse("*").headers);
+            registry.flush();
+
+            final VaryRegistry restored = new VaryRegistry(file);
+            restored.flush();
+            assertTrue(Arrays.equals(new String[]{"accept-encoding", "accept-language"}, restored.getVaryHeaders(URL)));
+            assertTrue(VaryRegistry.isUncacheable(restored.getVaryHeaders("http://example.com/any")));
+            assertEquals(0, restored.getVaryHeaders("http://example.com/other").length);
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testVaryAnyIsNotCached() {
+        final TestRequest request = new TestRequest(BaseRequest.ResponseFormat.JSON);
+        request.setVaryRegistry(new VaryRegistry());
+        assertNull(request.parse(newResponse("*")).cacheEntry);
+    }
+
+    public void testPartitionChangesKey() {
+        final TestRequest first = new TestRequest(BaseRequest.ResponseFormat.JSON);
+        first.setCachePartition("user1");
+        final TestRequest second = new TestRequest(BaseRequest.ResponseFormat.JSON);
+        second.setCachePartition("user2");
+        final TestRequest anonymous = new TestRequest(BaseRequest.ResponseFormat.JSON);
+
+        assertFalse(first.getCacheKey().equals(second.getCacheKey()));
+        assertFalse(first.getCacheKey().equals(anonymous.getCacheKey()));
+        assertFalse(first.getCacheKey().contains("user1"));
+    }
+
+    public void testIdempotentPostKeyedByBody() {
+        final BaseRequest first = newPost(true);
+        first.addPostParameter("q", "drupal");
+        first.addPostParameter("page", "1");
+        final BaseRequest reordered = newPost(true);
+        reordered.addPostParameter("page", "1");
+        reordered.addPostParameter("q", "drupal");
+        final BaseRequest other = newPost(true);
+        other.addPostParameter("q", "android");
+
+        assertTrue(first.shouldCache());
+        assertEquals(first.getCacheKey(), reordered.getCacheKey());
+        assertFalse(first.getCacheKey().equals(other.getCacheKey()));
+
+        other.addPostParameter("q", "drupal");
+        other.addPostParameter("page", "1");
+        assertEquals(first.getCacheKey(), other.getCacheKey());
+    }
+
+    public void testIdempotentPostsCoalesced() {
+        final BaseRequest first = newPost(true);
+        first.setSmartComparisonEnabled(true);
+        first.addPostParameter("q", "drupal");
+        final BaseRequest second = newPost(true);
+        second.setSmartComparisonEnabled(true);
+        second.addPostParameter("q", "drupal");
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    public void testModifyingRequestsNotCached() {
+        assertFalse(newPost(false).shouldCache());
+        final RequestConfig config = new RequestConfig(null, BaseRequest.RequestFormat.JSON, null);
+        assertFalse(new BaseRequest(BaseRequest.RequestMethod.PUT, URL, config).shouldCache());
+        assertTrue(new BaseRequest(BaseRequest.RequestMethod.GET, URL, config).shouldCache());
+    }
+
+    private static BaseRequest newPost(final boolean idempotent) {
+        final RequestConfig config = new RequestConfig(null, BaseRequest.RequestFormat.JSON, null);
+        config.setIdempotentPost(idempotent);
+        return new BaseRequest(BaseRequest.RequestMethod.POST, URL, config);
+    }
+
+    private static RequestQueue newQueue(final Cache cache) {
+        return new RequestQueue(cache, new Network() {
+            @Override
+            public NetworkResponse performRequest(final Request<?> request) throws VolleyError {
+                throw new VolleyError("Queue isn't started");
+            }
+        });
+    }
+
+    private static NetworkResponse newResponse(final String vary) {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Cache-Control", "max-age=60");
+        headers.put("Vary", vary);
+        return new NetworkResponse(200, "{}".getBytes(), headers, false);
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final ResponseFormat responseFormat) {
+            super(RequestMethod.GET, URL, new RequestConfig(null, RequestFormat.JSON, responseFormat));
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    private static final class MemoryCache implements Cache {
+
+        final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+        @Override
+        public Entry get(final String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public void put(final String key, final Entry entry) {
+            entries.put(key, entry);
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void invalidate(final String key, final boolean fullExpire) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void remove(final String key) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ls.http;
+
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+
+import android.net.Uri;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares canonical memoised request url with url, rebuilt by {@link Uri.Builder} on every call (previous implementation):
+ * cache key hit rate for logically identical requests and CPU time, spent on repeated url calls.
+ */
+public final class CanonicalUrlBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "CanonicalUrlBenchmark";
+
+    private static final String BASE_URL = "http://example.com/api/items";
+
+    private static final int REQUEST_COUNT = 200;
+
+    /**
+     * Volley calls getUrl() several times per request: cache key, network, logging and duplicate filtering.
+     */
+    private static final int URL_CALLS_PER_REQUEST = 8;
+
+    public void testCacheKeyHitRate() {
+        final Set<String> legacyKeys = new HashSet<String>();
+        final Set<String> canonicalKeys = new HashSet<String>();
+        for (int counter = 0; counter < REQUEST_COUNT; counter++) {
+            final Map<String, Object> parameters = newParameters(counter);
+            legacyKeys.add(buildLegacyUrl(BASE_URL, parameters));
+            canonicalKeys.add(newRequest(parameters).getCacheKey());
+        }
+
+        Log.i(TAG, "Distinct cache keys for " + REQUEST_COUNT + " identical requests: legacy " + legacyKeys.size()
+                + " (hit rate " + hitRate(legacyKeys.size()) + "%), canonical " + canonicalKeys.size()
+                + " (hit rate " + hitRate(canonicalKeys.size()) + "%)");
+        assertEquals(1, canonicalKeys.size());
+        assertTrue(legacyKeys.size() >= canonicalKeys.size());
+    }
+
+    public void testUrlCpuTime() {
+        final Map<String, Object> parameters = newParameters(0);
+
+        // Warm up
+        runLegacy(parameters, REQUEST_COUNT / 4);
+        runCanonical(parameters, REQUEST_COUNT / 4);
+
+        long start = Debug.threadCpuTimeNanos();
+        runLegacy(parameters, REQUEST_COUNT);
+        final long legacyNanos = Debug.threadCpuTimeNanos() - start;
+
+        start = Debug.threadCpuTimeNanos();
+        runCanonical(parameters, REQUEST_COUNT);
+        final long canonicalNanos = Debug.threadCpuTimeNanos() - start;
+
+        Log.i(TAG, "CPU time for " + REQUEST_COUNT + " requests x " + URL_CALLS_PER_REQUEST + " url calls: legacy "
+                + legacyNanos / 1000 + "us, canonical " + canonicalNanos / 1000 + "us");
+        assertTrue(canonicalNanos < legacyNanos);
+    }
+
+    private static void runLegacy(final Map<String, Object> parameters, final int requestCount) {
+        for (int counter = 0; counter < requestCount; counter++) {
+            for (int call = 0; call < URL_CALLS_PER_REQUEST; call++) {
+                buildLegacyUrl(BASE_URL, parameters);
+            }
+        }
+    }
+
+    private static void runCanonical(final Map<String, Object> parameters, final int requestCount) {
+        for (int counter = 0; counter < requestCount; counter++) {
+            final BaseRequest request = newRequest(parameters);
+            for (int call = 0; call < URL_CALLS_PER_REQUEST; call++) {
+                request.getUrl();
+            }
+        }
+    }
+
+    /**
+     * @return the same parameters, placed to maps of different capacity and in different order
+     */
+    private static Map<String, Object> newParameters(final int variant) {
+        final Map<String, Object> parameters = new HashMap<String, Object>(4 << (variant % 6));
+        final String[] keys = {"page", "limit", "sort", "filter[status]", "fields", "include", "lang", "q"};
+        for (int counter = 0; counter < keys.length; counter++) {
+            final String key = keys[(counter + variant) % keys.length];
+            if ("fields".equals(key)) {
+                final Set<String> fields = new HashSet<String>(2 << (variant % 4));
+                fields.addAll(Arrays.asList("title", "body", "image", "created", "author"));
+                parameters.put(key, fields);
+            } else {
+                parameters.put(key, key + " value");
+            }
+        }
+        return parameters;
+    }
+
+    private static BaseRequest newRequest(final Map<String, Object> parameters) {
+        final BaseRequest request = new BaseRequest(BaseRequest.RequestMethod.GET, BASE_URL,
+                new RequestConfig(null, BaseRequest.RequestFormat.JSON, null));
+        request.setGetParameters(parameters);
+        return request;
+    }
+
+    /**
+     * Previous BaseRequest.getUrl() implementation
+     */
+    private static String buildLegacyUrl(final String url, final Map<String, Object> parameters) {
+        final Uri.Builder builder = Uri.parse(url).buildUpon();
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            final Object value = entry.getValue();
+            if (value instanceof Collection) {
+                for (Object item : (Collection<?>) value) {
+                    builder.appendQueryParameter(entry.getKey(), item != null ? item.toString() : null);
+                }
+            } else {
+                builder.appendQueryParameter(entry.getKey(), value != null ? value.toString() : null);
+            }
+        }
+        return builder.build().toString();
+    }
+
+    private static int hitRate(final int distinctKeys) {
+        return (REQUEST_COUNT - distinctKeys) * 100 / REQUEST_COUNT;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ls.http;
+
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.CanonicalUrlBuilder;
+import com.ls.http.base.RequestConfig;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class CanonicalUrlBuilderTest extends AndroidTestCase {
+
+    public void testKeysSortedAndEncoded() {
+        final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+        parameters.put("query", "a b&c/\u00e4");
+        parameters.put("page", 2);
+        parameters.put("flag", null);
+        parameters.put("ids", Arrays.asList(3, 1, 2));
+        parameters.put("tags", new HashSet<String>(Arrays.asList("z", "x", "y")));
+
+        assertEquals("http://example.com/items?flag&ids=3&ids=1&ids=2&page=2&query=a%20b%26c%2F%C3%A4&tags=x&tags=y&tags=z",
+                CanonicalUrlBuilder.buildUrl("http://example.com/items", parameters));
+    }
+
+    public void testExistingQueryAndFragmentPreserved() {
+        final Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("b", "2");
+
+        assertEquals("http://example.com/?a=1&b=2#top", CanonicalUrlBuilder.buildUrl("http://example.com/?a=1#top", parameters));
+        assertEquals("http://example.com/?b=2", CanonicalUrlBuilder.buildUrl("http://example.com/?", parameters));
+        assertEquals("http://example.com/", CanonicalUrlBuilder.buildUrl("http://example.com/", null));
+    }
+
+    public void testUrlDoesNotDependOnParameterOrder() {
+        final Map<String, Object> first = new HashMap<String, Object>(4);
+        final Map<String, Object> second = new HashMap<String, Object>(128);
+        for (int counter = 0; counter < 20; counter++) {
+            first.put("key" + counter, counter);
+            second.put("key" + (19 - counter), 19 - counter);
+        }
+
+        final BaseRequest firstRequest = newRequest();
+        firstRequest.setGetParameters(first);
+        final BaseRequest secondRequest = newRequest();
+        secondRequest.setGetParameters(second);
+
+        assertEquals(firstRequest.getUrl(), secondRequest.getUrl());
+        assertEquals(firstRequest.getCacheKey(), secondRequest.getCacheKey());
+        assertEquals(firstRequest, secondRequest);
+        assertEquals(firstRequest.hashCode(), secondRequest.hashCode());
+    }
+
+    public void testUrlUpdatedOnParameterChange() {
+        final BaseRequest request = newRequest();
+        assertEquals("http://example.com/items", request.getUrl());
+
+        request.addGetParameter("page", 1);
+        assertEquals("http://example.com/items?page=1", request.getUrl());
+
+        request.addGetParameter("page", null);
+        assertEquals("http://example.com/items", request.getUrl());
+    }
+
+    private static BaseRequest newRequest() {
+        final BaseRequest request = new BaseRequest(BaseRequest.RequestMethod.GET, "http://example.com/items",
+                new RequestConfig(null, BaseRequest.RequestFormat.JSON, null));
+        request.setSmartComparisonEnabled(true);
+        return request;
+    }
+}
@@ -0,0 +1,190 @@
+package com.ls.http;
+
+import com.android.volley.Cache;
+import com.android.volley.Network;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.HalResourceCache;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class HalResourceCacheTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/orders";
+
+    private static final String ORDERS = "{"
+            + "\"_links\":{\"self\":{\"href\":\"/orders\"},\"next\":{\"href\":\"/orders?page=2\"},"
+            + "\"find\":{\"href\":\"/orders{?id}\",\"templated\":true}},"
+            + "\"_embedded\":{\"orders\":["
+            + "{\"_links\":{\"self\":{\"href\":\"/orders/123\"}},\"total\":30,"
+            + "\"_embedded\":{\"customer\":{\"_links\":{\"self\":{\"href\":\"http://example.com/customers/7\"}},\"name\":\"Ann\"}}},"
+            + "{\"_links\":{\"self\":{\"href\":\"orders/124\"}},\"total\":20}]}}";
+
+    private MemoryCache mCache;
+    private RequestQueue mQueue;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCache = new MemoryCache();
+        mQueue = new RequestQueue(mCache, new Network() {
+            @Override
+            public NetworkResponse performRequest(final Request<?> request) throws VolleyError {
+                throw new VolleyError("Queue isn't started");
+            }
+        });
+    }
+
+    public void testEmbeddedResourcesStoredBySelfLink() throws Exception {
+        parse(newRequest(new HalResourceCache()), "max-age=60");
+
+        final Cache.Entry order = mCache.get(newRequest(null, "http://example.com/orders/123").getCacheKey());
+        assertNotNull(order);
+        assertTrue(new String(order.data, "UTF-8").contains("\"total\":30"));
+        assertFalse(order.refreshNeeded());
+        assertEquals("application/hal+json; charset=UTF-8", order.responseHeaders.get("Content-Type"));
+        assertNull(order.responseHeaders.get("ETag"));
+
+        assertNotNull(mCache.get(newRequest(null, "http://example.com/orders/124").getCacheKey()));
+        assertNotNull(mCache.get(newRequest(null, "http://example.com/customers/7").getCacheKey()));
+        assertNull(mCache.get(newRequest(null, "http://example.com/orders").getCacheKey()));
+    }
+
+    public void testFreshEntryNotReplaced() throws Exception {
+        final String key = newRequest(null, "http://example.com/orders/123").getCacheKey();
+        final Cache.Entry fresh = new Cache.Entry();
+        fresh.data = new byte[]{'{', '}'};
+        fresh.ttl = fresh.softTtl = System.currentTimeMillis() + 60000;
+        mCache.put(key, fresh);
+
+        parse(newRequest(new HalResourceCache()), "max-age=60");
+        assertSame(fresh, mCache.get(key));
+    }
+
+    public void testUncacheableResponseNotStored() throws Exception {
+        parse(newRequest(new HalResourceCache()), "no-store");
+        assertTrue(mCache.entries.isEmpty());
+    }
+
+    public void testSelectedRelationsPrefetched() throws Exception {
+        final HalResourceCache halCache = new HalResourceCache("next", "find");
+        parse(newRequest(halCache), "max-age=60");
+
+        final List<Request<?>> prefetched = getQueuedRequests();
+        assertEquals(1, prefetched.size());
+        assertEquals("http://example.com/orders?page=2", prefetched.get(0).getUrl());
+        assertEquals(Request.Priority.LOW, prefetched.get(0).getPriority());
+        assertSame(halCache, prefetched.get(0).getTag());
+        assertSame(halCache, ((BaseRequest) prefetched.get(0)).getHalResourceCache());
+
+        // Links of prefetched resource aren't followed
+        final BaseRequest prefetchRequest = (BaseRequest) prefetched.get(0);
+        prefetchRequest.setRequestQueue(mQueue);
+        assertFalse(halCache.prefetch(prefetchRequest, "/orders?page=3"));
+    }
+
+    public void testLinksToOtherOriginsIgnored() throws Exception {
+        final String body = "{\"_links\":{\"next\":{\"href\":\"https://example.com/orders?page=2\"},"
+                + "\"related\":{\"href\":\"http://example.com:8080/orders\"}},"
+                + "\"_embedded\":{\"orders\":[{\"_links\":{\"self\":{\"href\":\"http://evil.com/orders/1\"}}},"
+                + "{\"_links\":{\"self\":{\"href\":\"//evil.com/orders/2\"}}},"
+                + "{\"_links\":{\"self\":{\"href\":\"http://EXAMPLE.com:80/orders/3\"}}}]}}";
+        final HalResourceCache halCache = new HalResourceCache("next", "related");
+        ((TestRequest) newRequest(halCache)).parse(newResponse(body, "max-age=60"));
+
+        assertTrue(getQueuedRequests().isEmpty());
+        assertEquals(1, mCache.entries.size());
+        assertNotNull(mCache.get(newRequest(null, "http://EXAMPLE.com:80/orders/3").getCacheKey()));
+    }
+
+    private BaseRequest newRequest(final HalResourceCache halCache) {
+        return newRequest(halCache, URL);
+    }
+
+    private BaseRequest newRequest(final HalResourceCache halCache, final String url) {
+        final TestRequest request = new TestRequest(url);
+        request.setHalResourceCache(halCache);
+        request.setRequestQueue(mQueue);
+        return request;
+    }
+
+    private static void parse(final BaseRequest request, final String cacheControl) throws Exception {
+        ((TestRequest) request).parse(newResponse(ORDERS, cacheControl));
+    }
+
+    private static NetworkResponse newResponse(final String body, final String cacheControl) throws Exception {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/hal+json; charset=ISO-8859-1");
+        headers.put("Cache-Control", cacheControl);
+        headers.put("ETag", "\"v1\"");
+        return new NetworkResponse(200, body.getBytes("ISO-8859-1"), headers, false);
+    }
+
+    private List<Request<?>> getQueuedRequests() {
+        final List<Request<?>> requests = new ArrayList<Request<?>>();
+        mQueue.cancelAll(new RequestQueue.RequestFilter() {
+            @Override
+            public boolean apply(final Request<?> request) {
+                requests.add(request);
+                return false;
+            }
+        });
+        return requests;
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final String url) {
+            super(RequestMethod.GET, url, new RequestConfig(null, RequestFormat.JSON_HAL, null));
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    private static final class MemoryCache implements Cache {
+
+        final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+        @Override
+        public Entry get(final String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public void put(final String key, final Entry entry) {
+            entries.put(key, entry);
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void invalidate(final String key, final boolean fullExpire) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void remove(final String key) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+    }
+}
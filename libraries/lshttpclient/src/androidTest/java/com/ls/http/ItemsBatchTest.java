@@ -0,0 +1,165 @@
+package com.ls.http;
+
+import com.google.gson.reflect.TypeToken;
+
+import com.android.volley.Cache;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+import com.ls.http.base.cache.ParsedResponseCache;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ItemsBatchTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/items";
+
+    public void testListDeliveredInBatches() throws Exception {
+        final RecordingListener listener = new RecordingListener(-1);
+        final TestRequest request = newRequest(new TypeToken<List<Item>>() {
+        }.getType(), listener);
+
+        final ResponseData data = request.parse(newResponse(items(25))).result;
+        assertEquals(3, listener.batchSizes.size());
+        assertEquals(10, (int) listener.batchSizes.get(0));
+        assertEquals(10, (int) listener.batchSizes.get(1));
+        assertEquals(5, (int) listener.batchSizes.get(2));
+        assertEquals(24, listener.items.get(24).id);
+
+        final List<?> result = (List<?>) data.getData();
+        assertEquals(25, result.size());
+        assertSame(listener.items.get(0), result.get(0));
+        assertFalse(request.isCanceled());
+    }
+
+    public void testArrayDeliveredInBatches() throws Exception {
+        final RecordingListener listener = new RecordingListener(-1);
+        final TestRequest request = newRequest(Item[].class, listener);
+
+        final ResponseData data = request.parse(newResponse(items(12))).result;
+        assertEquals(2, listener.batchSizes.size());
+        assertEquals(12, ((Item[]) data.getData()).length);
+    }
+
+    public void testListenerStopsParsing() throws Exception {
+        final RecordingListener listener = new RecordingListener(1);
+        final TestRequest request = newRequest(new TypeToken<List<Item>>() {
+        }.getType(), listener);
+
+        request.parse(newResponse(items(100)));
+        assertEquals(1, listener.batchSizes.size());
+        assertTrue(request.isCanceled());
+    }
+
+    public void testParsedCacheHitDeliveredInBatches() throws Exception {
+        final ParsedResponseCache cache = new ParsedResponseCache(1024 * 1024);
+        final RecordingListener first = new RecordingListener(-1);
+        final TestRequest firstRequest = newRequest(Item[].class, first);
+        firstRequest.setParsedResponseCache(cache);
+        firstRequest.parse(newResponse(items(15)));
+
+        final RecordingListener second = new RecordingListener(-1);
+        final TestRequest secondRequest = newRequest(Item[].class, second);
+        secondRequest.setParsedResponseCache(cache);
+        secondRequest.parse(newResponse(items(15)));
+        assertEquals(2, second.batchSizes.size());
+        assertSame(first.items.get(0), second.items.get(0));
+    }
+
+    public void testSoftExpiredEntryBatchesDeliveredOnce() throws Exception {
+        final RecordingListener listener = new RecordingListener(-1);
+        final TestRequest request = newRequest(Item[].class, listener);
+
+        // Volley parses and delivers soft-expired entry, then the same request is performed to refresh it
+        final NetworkResponse cached = newResponse(items(15));
+        request.parse(cached);
+        final Cache.Entry entry = new Cache.Entry();
+        entry.data = cached.data;
+        entry.ttl = System.currentTimeMillis() + 60000;
+        request.setCacheEntry(entry);
+        request.markDelivered();
+        assertEquals(2, listener.batchSizes.size());
+
+        final ResponseData data = request.parse(newResponse(items(15))).result;
+        assertEquals(2, listener.batchSizes.size());
+        assertEquals(15, ((Item[]) data.getData()).length);
+
+        request.parse(newResponse(items(5)));
+        assertEquals(3, listener.batchSizes.size());
+        assertEquals(5, (int) listener.batchSizes.get(2));
+    }
+
+    public void testNonArrayResponseIgnoresListener() throws Exception {
+        final RecordingListener listener = new RecordingListener(-1);
+        final TestRequest request = newRequest(Item.class, listener);
+
+        final ResponseData data = request.parse(newResponse("{\"id\":7}")).result;
+        assertEquals(7, ((Item) data.getData()).id);
+        assertTrue(listener.batchSizes.isEmpty());
+    }
+
+    private static TestRequest newRequest(final Object specifier, final RecordingListener listener) {
+        final TestRequest request = new TestRequest(new RequestConfig(specifier, BaseRequest.RequestFormat.JSON, null));
+        request.setItemsBatchListener(10, listener);
+        return request;
+    }
+
+    private static String items(final int count) {
+        final StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"id\":").append(i).append('}');
+        }
+        return result.append(']').toString();
+    }
+
+    private static NetworkResponse newResponse(final String body) throws Exception {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        headers.put("etag", "\"v1\"");
+        return new NetworkResponse(200, body.getBytes("UTF-8"), headers, false);
+    }
+
+    private static final class RecordingListener implements BaseRequest.OnItemsBatchListener<Item> {
+
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        final List<Item> items = new ArrayList<Item>();
+        private final int mMaxBatches;
+
+        RecordingListener(final int maxBatches) {
+            mMaxBatches = maxBatches;
+        }
+
+        @Override
+        public boolean onItemsParsed(final List<Item> batch, final BaseRequest request) {
+            batchSizes.add(batch.size());
+            items.addAll(batch);
+            return mMaxBatches < 0 || batchSizes.size() < mMaxBatches;
+        }
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, URL, config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public static final class Item {
+
+        int id;
+    }
+}
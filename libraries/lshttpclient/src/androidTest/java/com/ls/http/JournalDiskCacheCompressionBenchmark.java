@@ -0,0 +1,122 @@
+package com.ls.http;
+
+import com.android.volley.Cache;
+import com.ls.http.base.cache.DiskCacheStats;
+import com.ls.http.base.cache.JournalDiskCache;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Compares {@link JournalDiskCache} with and without at-rest compression of typical JSON responses: effective capacity
+ * (logical body size to disk space used) and read latency.
+ */
+public final class JournalDiskCacheCompressionBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "DiskCompressionBenchmark";
+
+    private static final int ENTRY_COUNT = 50;
+
+    private static final int ITEMS_PER_RESPONSE = 40;
+
+    private static final int READ_ROUNDS = 5;
+
+    private File mCacheDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCacheDir = new File(getContext().getCacheDir(), "journal_cache_benchmark");
+        deleteCacheDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteCacheDir();
+        super.tearDown();
+    }
+
+    public void testCompression() throws Exception {
+        final Result plain = run(false);
+        deleteCacheDir();
+        final Result compressed = run(true);
+
+        Log.i(TAG, ENTRY_COUNT + " JSON responses: plain " + plain.stats.getStoredBodySize() + " bytes, "
+                + plain.readNanos / 1000 / (ENTRY_COUNT * READ_ROUNDS) + "us per read; compressed "
+                + compressed.stats.getStoredBodySize() + " bytes, "
+                + compressed.readNanos / 1000 / (ENTRY_COUNT * READ_ROUNDS) + "us per read; capacity gain x"
+                + compressed.stats.getCapacityGain());
+        assertTrue(compressed.stats.getStoredBodySize() < plain.stats.getStoredBodySize());
+    }
+
+    private Result run(final boolean compressionEnabled) {
+        final JournalDiskCache cache = new JournalDiskCache(mCacheDir, 20 * 1024 * 1024);
+        cache.setCompressionEnabled(compressionEnabled);
+        cache.initialize();
+        final Random random = new Random(0);
+        for (int counter = 0; counter < ENTRY_COUNT; counter++) {
+            cache.put("http://example.com/api/items?page=" + counter, newJsonEntry(random, counter));
+        }
+        cache.flush();
+
+        // Reads are performed by a new instance, so pending entries aren't returned from memory
+        final JournalDiskCache reader = new JournalDiskCache(mCacheDir, 20 * 1024 * 1024);
+        reader.initialize();
+        final long start = System.nanoTime();
+        for (int round = 0; round < READ_ROUNDS; round++) {
+            for (int counter = 0; counter < ENTRY_COUNT; counter++) {
+                assertNotNull(reader.get("http://example.com/api/items?page=" + counter));
+            }
+        }
+        final Result result = new Result();
+        result.readNanos = System.nanoTime() - start;
+        result.stats = cache.getStats();
+        return result;
+    }
+
+    private static Cache.Entry newJsonEntry(final Random random, final int page) {
+        final StringBuilder json = new StringBuilder("{\"page\":").append(page).append(",\"items\":[");
+        for (int counter = 0; counter < ITEMS_PER_RESPONSE; counter++) {
+            if (counter > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(random.nextInt(100000))
+                    .append(",\"title\":\"Item title ").append(random.nextInt(1000))
+                    .append("\",\"created\":").append(1400000000L + random.nextInt(100000000))
+                    .append(",\"status\":").append(random.nextBoolean())
+                    .append(",\"body\":\"Lorem ipsum dolor sit amet, consectetur adipiscing elit ").append(random.nextLong())
+                    .append("\"}");
+        }
+        json.append("]}");
+
+        final Cache.Entry entry = new Cache.Entry();
+        entry.data = json.toString().getBytes();
+        entry.serverDate = System.currentTimeMillis();
+        entry.ttl = entry.serverDate + 60000;
+        entry.softTtl = entry.ttl;
+        entry.responseHeaders = new HashMap<String, String>();
+        entry.responseHeaders.put("Content-Type", "application/json; charset=utf-8");
+        return entry;
+    }
+
+    private void deleteCacheDir() {
+        final File[] files = mCacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mCacheDir.delete();
+    }
+
+    private static final class Result {
+
+        long readNanos;
+
+        DiskCacheStats stats;
+    }
+}
@@ -0,0 +1,201 @@
+package com.ls.http;
+
+import com.android.volley.Cache;
+import com.ls.http.base.cache.DiskCacheStats;
+import com.ls.http.base.cache.JournalDiskCache;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public final class JournalDiskCacheTest extends AndroidTestCase {
+
+    private File mCacheDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCacheDir = new File(getContext().getCacheDir(), "journal_cache_test");
+        deleteCacheDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteCacheDir();
+        super.tearDown();
+    }
+
+    public void testPutGet() throws Exception {
+        final JournalDiskCache cache = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        cache.initialize();
+
+        final Cache.Entry entry = newEntry(100, (byte) 1);
+        cache.put("key", entry);
+        // Entry is readable right away, whether background writer has stored it already or not
+        final Cache.Entry pending = cache.get("key");
+        assertNotNull(pending);
+        assertTrue(Arrays.equals(entry.data, pending.data));
+
+        cache.flush();
+        final Cache.Entry stored = cache.get("key");
+        assertNotNull(stored);
+        assertTrue(Arrays.equals(entry.data, stored.data));
+        assertEquals(entry.etag, stored.etag);
+        assertEquals(entry.ttl, stored.ttl);
+        assertEquals(entry.softTtl, stored.softTtl);
+        assertEquals(entry.responseHeaders, stored.responseHeaders);
+    }
+
+    public void testIndexRestoredFromJournal() throws Exception {
+        final JournalDiskCache cache = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        cache.initialize();
+        cache.put("first", newEntry(10, (byte) 1));
+        cache.put("second", newEntry(20, (byte) 2));
+        cache.put("third", newEntry(30, (byte) 3));
+        cache.remove("second");
+        cache.flush();
+
+        final JournalDiskCache restored = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        restored.initialize();
+        assertEquals(cache.getSize(), restored.getSize());
+        assertNotNull(restored.get("first"));
+        assertNull(restored.get("second"));
+        assertEquals(30, restored.get("third").data.length);
+    }
+
+    public void testLruEviction() throws Exception {
+        final JournalDiskCache cache = new JournalDiskCache(mCacheDir, 4096);
+        // Entry sizes on disk have to be predictable
+        cache.setCompressionEnabled(false);
+        cache.initialize();
+        cache.put("first", newEntry(1024, (byte) 1));
+        cache.put("second", newEntry(1024, (byte) 2));
+        cache.put("third", newEntry(1024, (byte) 3));
+        cache.flush();
+
+        // Make "first" the most recently used one
+        assertNotNull(cache.get("first"));
+        cache.put("fourth", newEntry(1024, (byte) 4));
+        cache.flush();
+
+        assertTrue(cache.getSize() <= cache.getMaxSize());
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("fourth"));
+    }
+
+    public void testClear() throws Exception {
+        final JournalDiskCache cache = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        cache.initialize();
+        cache.put("key", newEntry(100, (byte) 1));
+        cache.flush();
+        cache.clear();
+        cache.flush();
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.getSize());
+
+        final JournalDiskCache restored = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        restored.initialize();
+        assertNull(restored.get("key"));
+    }
+
+    public void testIdenticalBodiesStoredOnce() throws Exception {
+        final JournalDiskCache cache = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        cache.initialize();
+        cache.put("http://cdn1.example.com/image.png", newEntry(1000, (byte) 1));
+        cache.put("http://cdn2.example.com/image.png", newEntry(1000, (byte) 1));
+        cache.put("other", newEntry(500, (byte) 2));
+        cache.flush();
+
+        DiskCacheStats stats = cache.getStats();
+        assertEquals(3, stats.getEntryCount());
+        assertEquals(2, stats.getBodyCount());
+        assertEquals(1000, stats.getDedupSavedBytes());
+        assertEquals(1, stats.getDedupWriteCount());
+        assertEquals(1000, cache.get("http://cdn2.example.com/image.png").data.length);
+
+        // Shared body is kept until the last entry, referring it, is removed
+        cache.remove("http://cdn1.example.com/image.png");
+        cache.flush();
+        assertEquals(1000, cache.get("http://cdn2.example.com/image.png").data.length);
+
+        final JournalDiskCache restored = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        restored.initialize();
+        assertEquals(cache.getSize(), restored.getSize());
+        assertEquals(2, restored.getStats().getBodyCount());
+
+        cache.remove("http://cdn2.example.com/image.png");
+        cache.flush();
+        stats = cache.getStats();
+        assertEquals(1, stats.getBodyCount());
+        assertEquals(500, stats.getUniqueBodySize());
+    }
+
+    public void testTextBodiesCompressed() throws Exception {
+        final JournalDiskCache cache = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        cache.initialize();
+        final Cache.Entry json = newEntry(10000, (byte) 'a');
+        final Cache.Entry image = newEntry(10000, (byte) 'b');
+        image.responseHeaders.put("Content-Type", "image/png");
+        cache.put("json", json);
+        cache.put("image", image);
+        cache.flush();
+
+        final DiskCacheStats stats = cache.getStats();
+        assertEquals(20000, stats.getUniqueBodySize());
+        assertTrue(stats.getStoredBodySize() < 11000);
+        assertTrue(stats.getCompressionSavedBytes() > 9000);
+        assertTrue(Arrays.equals(json.data, cache.get("json").data));
+        assertTrue(Arrays.equals(image.data, cache.get("image").data));
+
+        final JournalDiskCache restored = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        restored.initialize();
+        assertEquals(cache.getSize(), restored.getSize());
+        assertTrue(Arrays.equals(json.data, restored.get("json").data));
+    }
+
+    public void testTooLongKeyDoesNotBreakJournal() throws Exception {
+        final JournalDiskCache cache = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        cache.initialize();
+        final char[] chars = new char[30000];
+        Arrays.fill(chars, '\u4e2d');
+        final String longKey = new String(chars);
+        cache.put("first", newEntry(10, (byte) 1));
+        cache.put(longKey, newEntry(10, (byte) 2));
+        cache.remove(longKey);
+        cache.put("second", newEntry(20, (byte) 3));
+        cache.flush();
+        assertNull(cache.get(longKey));
+
+        final JournalDiskCache restored = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        restored.initialize();
+        assertNotNull(restored.get("first"));
+        assertNotNull(restored.get("second"));
+    }
+
+    private static Cache.Entry newEntry(final int size, final byte value) {
+        final Cache.Entry entry = new Cache.Entry();
+        entry.data = new byte[size];
+        Arrays.fill(entry.data, value);
+        entry.etag = "etag" + value;
+        entry.serverDate = System.currentTimeMillis();
+        entry.ttl = entry.serverDate + 60000;
+        entry.softTtl = entry.serverDate + 30000;
+        entry.responseHeaders = new HashMap<String, String>();
+        entry.responseHeaders.put("Content-Type", "application/json");
+        return entry;
+    }
+
+    private void deleteCacheDir() {
+        final File[] files = mCacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mCacheDir.delete();
+    }
+}
@@ -0,0 +1,108 @@
+package com.ls.http;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.IResponseItem;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+
+import android.test.AndroidTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class JsonStreamingParseTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/items";
+    private static final String NAME = "\u017b\u00f3\u0142w \u00fcn\u00efcode";
+
+    public void testUtf8WithoutCharsetHeader() throws Exception {
+        final Item item = (Item) parse(Item.class, newResponse(json().getBytes("UTF-8"), "application/json"));
+        assertEquals(NAME, item.name);
+    }
+
+    public void testCharsetFromHeader() throws Exception {
+        final String name = "caf\u00e9";
+        final byte[] body = ("{\"name\":\"" + name + "\"}").getBytes("ISO-8859-1");
+        final Item item = (Item) parse(Item.class, newResponse(body, "application/json; charset=\"ISO-8859-1\""));
+        assertEquals(name, item.name);
+    }
+
+    public void testUtf8ByteOrderMarkSkipped() throws Exception {
+        final byte[] json = json().getBytes("UTF-8");
+        final byte[] body = new byte[json.length + 3];
+        body[0] = (byte) 0xef;
+        body[1] = (byte) 0xbb;
+        body[2] = (byte) 0xbf;
+        System.arraycopy(json, 0, body, 3, json.length);
+        final Item item = (Item) parse(Item.class, newResponse(body, null));
+        assertEquals(NAME, item.name);
+    }
+
+    public void testUtf16ByteOrderMarkDetected() throws Exception {
+        final Item item = (Item) parse(Item.class, newResponse(json().getBytes("UTF-16"), null));
+        assertEquals(NAME, item.name);
+    }
+
+    public void testResponseItemUsesStringFallback() throws Exception {
+        final StringItem item = (StringItem) parse(StringItem.class, newResponse(json().getBytes("UTF-8"), "application/json"));
+        assertEquals(json(), item.json);
+    }
+
+    public void testEmptyBodyHasNoData() throws Exception {
+        assertNull(parse(Item.class, newResponse(new byte[0], "application/json")));
+    }
+
+    private static String json() {
+        return "{\"name\":\"" + NAME + "\"}";
+    }
+
+    private static Object parse(final Class<?> theClass, final NetworkResponse response) {
+        final RequestConfig config = new RequestConfig(theClass, BaseRequest.RequestFormat.JSON, null);
+        final ResponseData data = new TestRequest(config).parse(response).result;
+        return data.getData();
+    }
+
+    private static NetworkResponse newResponse(final byte[] body, final String contentType) {
+        final Map<String, String> headers = new HashMap<String, String>();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        return new NetworkResponse(200, body, headers, false);
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, URL, config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public static final class Item {
+
+        String name;
+    }
+
+    public static final class StringItem implements IResponseItem {
+
+        String json;
+
+        @Override
+        public void initWithJSON(final String theJSON) {
+            json = theJSON;
+        }
+
+        @Override
+        public void initWithXML(final String theXML) {
+        }
+
+        @Override
+        public void initWithText(final String theText) {
+        }
+    }
+}
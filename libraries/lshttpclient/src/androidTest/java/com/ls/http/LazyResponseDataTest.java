@@ -0,0 +1,124 @@
+package com.ls.http;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Response;
+import com.google.gson.JsonParseException;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+
+import android.test.AndroidTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+public final class LazyResponseDataTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/items";
+
+    public void testDataParsedOnFirstAccess() throws Exception {
+        final ResponseData data = parse(lazyConfig(), "{\"id\":3}");
+        assertEquals(200, data.getStatusCode());
+        assertFalse(data.isDataParsed());
+
+        final Item item = (Item) data.getData();
+        assertEquals(3, item.id);
+        assertTrue(data.isDataParsed());
+        assertSame(item, data.getData());
+    }
+
+    public void testEagerParsingByDefault() throws Exception {
+        final ResponseData data = parse(new RequestConfig(Item.class, BaseRequest.RequestFormat.JSON, null), "{\"id\":3}");
+        assertTrue(data.isDataParsed());
+        assertEquals(3, ((Item) data.getData()).id);
+    }
+
+    public void testClonesShareParsedData() throws Exception {
+        final ResponseData data = parse(lazyConfig(), "{\"id\":3}");
+        final ResponseData clone = new ResponseData();
+        data.cloneTo(clone);
+        assertSame(data.getData(), clone.getData());
+    }
+
+    public void testConcurrentAccessParsesOnce() throws Exception {
+        final ResponseData data = parse(lazyConfig(), "{\"id\":3}");
+        final Object[] results = new Object[4];
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    results[index] = data.getData();
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Object result : results) {
+            assertSame(results[0], result);
+        }
+    }
+
+    public void testParseErrorReported() throws Exception {
+        final ResponseData data = parse(lazyConfig(), "{\"id\":");
+        assertNull(data.getError());
+        assertNull(data.getData());
+        assertTrue(data.getError() instanceof ParseError);
+    }
+
+    public void testEagerParseErrorThrown() throws Exception {
+        // Volley delivers exceptions, thrown by parsing, to error listener
+        try {
+            parse(new RequestConfig(Item.class, BaseRequest.RequestFormat.JSON, null), "{\"id\":");
+            fail("Parse error expected");
+        } catch (JsonParseException e) {
+            // expected
+        }
+    }
+
+    public void testSetDataReplacesLazyData() throws Exception {
+        final ResponseData data = parse(lazyConfig(), "{\"id\":3}");
+        data.setData("replaced");
+        assertEquals("replaced", data.getData());
+    }
+
+    private static RequestConfig lazyConfig() {
+        final RequestConfig config = new RequestConfig(Item.class, BaseRequest.RequestFormat.JSON, null);
+        config.setLazyParsingEnabled(true);
+        return config;
+    }
+
+    private static ResponseData parse(final RequestConfig config, final String body) throws Exception {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        return new TestRequest(config).parse(new NetworkResponse(200, body.getBytes("UTF-8"), headers, false)).result;
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, URL, config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public static final class Item {
+
+        int id;
+    }
+}
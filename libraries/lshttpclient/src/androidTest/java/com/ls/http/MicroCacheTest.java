@@ -0,0 +1,57 @@
+package com.ls.http;
+
+import com.ls.http.base.ResponseData;
+import com.ls.http.base.cache.MicroCache;
+
+import android.test.AndroidTestCase;
+
+public final class MicroCacheTest extends AndroidTestCase {
+
+    public void testResponseServedWithinWindow() {
+        final MicroCache cache = new MicroCache(60 * 1000);
+        final ResponseData data = newData("first");
+        cache.put("key", String.class, data, 100);
+
+        final ResponseData cached = cache.get("key", String.class);
+        assertNotNull(cached);
+        assertNotSame(data, cached);
+        assertEquals("first", cached.getData());
+        assertNull(cache.get("key", Integer.class));
+        assertNull(cache.get("other", String.class));
+    }
+
+    public void testExpiredResponseNotServed() throws InterruptedException {
+        final MicroCache cache = new MicroCache(20);
+        cache.put("key", null, newData("first"), 100);
+        Thread.sleep(50);
+        assertNull(cache.get("key", null));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    public void testBoundedByEntries() {
+        final MicroCache cache = new MicroCache(60 * 1000, 2, 1024 * 1024);
+        cache.put("1", null, newData("1"), 10);
+        cache.put("2", null, newData("2"), 10);
+        cache.put("3", null, newData("3"), 10);
+        assertEquals(2, cache.getEntryCount());
+        assertNull(cache.get("1", null));
+        assertNotNull(cache.get("3", null));
+    }
+
+    public void testBoundedBySize() {
+        final MicroCache cache = new MicroCache(60 * 1000, 10, 1024);
+        cache.put("1", null, newData("1"), 600);
+        cache.put("2", null, newData("2"), 600);
+        assertEquals(1, cache.getEntryCount());
+        assertNotNull(cache.get("2", null));
+
+        cache.put("3", null, newData("3"), 4096);
+        assertNull(cache.get("3", null));
+    }
+
+    private static ResponseData newData(final Object data) {
+        final ResponseData responseData = new ResponseData();
+        responseData.setData(data);
+        return responseData;
+    }
+}
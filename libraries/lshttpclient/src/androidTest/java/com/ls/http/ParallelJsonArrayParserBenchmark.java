@@ -0,0 +1,81 @@
+package com.ls.http;
+
+import com.google.gson.reflect.TypeToken;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.ParallelJsonArrayParser;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares parsing time of a multi-megabyte JSON array by request handler and by {@link ParallelJsonArrayParser} with
+ * different thread counts.
+ */
+public final class ParallelJsonArrayParserBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "ParallelParserBenchmark";
+
+    private static final int ITEM_COUNT = 20000;
+
+    private static final int ROUNDS = 5;
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+    private static final Type LIST_TYPE = new TypeToken<List<ParallelJsonArrayParserTest.Item>>() {
+    }.getType();
+
+    public void testThreadCounts() throws Exception {
+        final NetworkResponse response = newResponse(ParallelJsonArrayParserTest.items(ITEM_COUNT));
+        Log.i(TAG, ITEM_COUNT + " items, " + response.data.length / 1024 + "KB, " + Runtime.getRuntime().availableProcessors() + " cores");
+
+        final long sequential = run(null, response);
+        Log.i(TAG, "handler: " + sequential / 1000000 + "ms per response");
+        for (int threadCount : THREAD_COUNTS) {
+            final long parallel = run(new ParallelJsonArrayParser(0, threadCount), response);
+            Log.i(TAG, threadCount + " threads: " + parallel / 1000000 + "ms per response, speedup x" + (float) sequential / parallel);
+        }
+    }
+
+    private static long run(final ParallelJsonArrayParser parser, final NetworkResponse response) {
+        // Warm up
+        parse(parser, response);
+        final long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            assertEquals(ITEM_COUNT, parse(parser, response).size());
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private static List<?> parse(final ParallelJsonArrayParser parser, final NetworkResponse response) {
+        final TestRequest request = new TestRequest(new RequestConfig(LIST_TYPE, BaseRequest.RequestFormat.JSON, null));
+        request.setParallelArrayParser(parser);
+        return (List<?>) request.parse(response).result.getData();
+    }
+
+    private static NetworkResponse newResponse(final String body) throws Exception {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json; charset=utf-8");
+        return new NetworkResponse(200, body.getBytes("UTF-8"), headers, false);
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, "http://example.com/items", config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ls.http;
+
+import com.google.gson.reflect.TypeToken;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.ParallelJsonArrayParser;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+
+import android.test.AndroidTestCase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ParallelJsonArrayParserTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/items";
+
+    private static final String TRICKY_NAME = "a, [b] {c} \\\"d\\\" \\u00e9";
+
+    public void testOrderPreserved() throws Exception {
+        final ParallelJsonArrayParser parser = new ParallelJsonArrayParser(0, 3);
+        final List<?> items = (List<?>) parse(parser, new TypeToken<List<Item>>() {
+        }.getType(), items(1000));
+        assertEquals(1000, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            final Item item = (Item) items.get(i);
+            assertEquals(i, item.id);
+            assertEquals("a, [b] {c} \"d\" \u00e9", item.name);
+            assertEquals(2, item.tags.length);
+        }
+    }
+
+    public void testArrayResult() throws Exception {
+        final ParallelJsonArrayParser parser = new ParallelJsonArrayParser(0, 2);
+        final Item[] items = (Item[]) parse(parser, Item[].class, items(7));
+        assertEquals(7, items.length);
+        assertEquals(6, items[6].id);
+    }
+
+    public void testEmptyArray() throws Exception {
+        final ParallelJsonArrayParser parser = new ParallelJsonArrayParser(0, 2);
+        assertEquals(0, ((List<?>) parse(parser, new TypeToken<List<Item>>() {
+        }.getType(), " [ ] ")).size());
+    }
+
+    public void testResponsesBelowThresholdParsedByHandler() throws Exception {
+        final ParallelJsonArrayParser parser = new ParallelJsonArrayParser(1024 * 1024, 2);
+        final Item[] items = (Item[]) parse(parser, Item[].class, items(3));
+        assertEquals(3, items.length);
+    }
+
+    public void testNonArrayResponseParsedByHandler() throws Exception {
+        final ParallelJsonArrayParser parser = new ParallelJsonArrayParser(0, 2);
+        assertNull(parse(parser, Item[].class, "null"));
+        assertEquals(5, ((Item) parse(parser, Item.class, "{\"id\":5}")).id);
+    }
+
+    private static Object parse(final ParallelJsonArrayParser parser, final Object specifier, final String body) throws Exception {
+        final TestRequest request = new TestRequest(new RequestConfig(specifier, BaseRequest.RequestFormat.JSON, null));
+        request.setParallelArrayParser(parser);
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json; charset=utf-8");
+        final ResponseData data = request.parse(new NetworkResponse(200, body.getBytes("UTF-8"), headers, false)).result;
+        return data.getData();
+    }
+
+    static String items(final int count) {
+        final StringBuilder result = new StringBuilder("[\n");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                result.append(",\n");
+            }
+            result.append("{\"id\":").append(i).append(",\"name\":\"").append(TRICKY_NAME)
+                    .append("\",\"tags\":[\"x\",\"y\"],\"nested\":{\"value\":[1,{\"a\":\"]\"}]}}");
+        }
+        return result.append("\n]").toString();
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, URL, config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public static final class Item {
+
+        int id;
+        String name;
+        String[] tags;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ls.http;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+import com.ls.http.base.cache.ParsedResponseCache;
+
+import android.test.AndroidTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class ParsedResponseCacheTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/items";
+
+    private static int sResponseCount;
+
+    public void testParsedObjectReusedForSameVersion() throws Exception {
+        final ParsedResponseCache cache = new ParsedResponseCache(1024 * 1024);
+
+        final ResponseData first = parse(cache, newResponse("{\"id\":1}", "\"v1\""));
+        final ResponseData second = parse(cache, newResponse("{\"id\":1}", "\"v1\""));
+        assertNotNull(first.getData());
+        assertSame(first.getData(), second.getData());
+        assertEquals(200, second.getStatusCode());
+
+        final ResponseData updated = parse(cache, newResponse("{\"id\":2}", "\"v2\""));
+        assertNotSame(first.getData(), updated.getData());
+        assertEquals(2, ((Item) updated.getData()).id);
+    }
+
+    public void testResponseWithoutVersionIsNotCached() throws Exception {
+        final ParsedResponseCache cache = new ParsedResponseCache(1024 * 1024);
+
+        final ResponseData first = parse(cache, newResponse("{\"id\":1}", null));
+        final ResponseData second = parse(cache, newResponse("{\"id\":1}", null));
+        assertNotSame(first.getData(), second.getData());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static ResponseData parse(final ParsedResponseCache cache, final NetworkResponse response) {
+        final RequestConfig config = new RequestConfig(Item.class, BaseRequest.RequestFormat.JSON, null);
+        final TestRequest request = new TestRequest(config);
+        request.setParsedResponseCache(cache);
+        return request.parse(response).result;
+    }
+
+    private static NetworkResponse newResponse(final String body, final String etag) throws Exception {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json; charset=UTF-8");
+        // Date changes with every response, so it doesn't identify response version
+        headers.put("Date", "Thu, 01 Jan 2015 00:00:" + (10 + sResponseCount++) + " GMT");
+        if (etag != null) {
+            headers.put("etag", etag);
+        }
+        return new NetworkResponse(200, body.getBytes("UTF-8"), headers, false);
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, URL, config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public static final class Item {
+
+        int id;
+    }
+}
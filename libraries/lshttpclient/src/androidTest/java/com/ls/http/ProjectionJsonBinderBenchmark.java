@@ -0,0 +1,128 @@
+package com.ls.http;
+
+import com.google.gson.reflect.TypeToken;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares parse time and allocations of Gson binding and projection binding for Drupal-shaped node lists, bound to
+ * a value object with a few fields.
+ */
+public final class ProjectionJsonBinderBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "ProjectionBenchmark";
+
+    private static final int NODE_COUNT = 500;
+
+    private static final int ROUNDS = 10;
+
+    private static final Type LIST_TYPE = new TypeToken<List<NodeVO>>() {
+    }.getType();
+
+    @SuppressWarnings("deprecation")
+    public void testProjection() throws Exception {
+        final NetworkResponse response = newResponse(drupalNodes(NODE_COUNT));
+        Log.i(TAG, NODE_COUNT + " nodes, " + response.data.length / 1024 + "KB");
+
+        for (boolean projection : new boolean[]{false, true}) {
+            // Warm up
+            parse(response, projection);
+            Debug.startAllocCounting();
+            Debug.resetThreadAllocSize();
+            final long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                assertEquals(NODE_COUNT, parse(response, projection).size());
+            }
+            final long nanos = (System.nanoTime() - start) / ROUNDS;
+            final int allocated = Debug.getThreadAllocSize() / ROUNDS;
+            Debug.stopAllocCounting();
+            Log.i(TAG, (projection ? "projection: " : "gson: ") + nanos / 1000 + "us, " + allocated / 1024 + "KB allocated per response");
+        }
+
+        final NodeVO gsonNode = (NodeVO) parse(response, false).get(7);
+        final NodeVO projectedNode = (NodeVO) parse(response, true).get(7);
+        assertEquals(gsonNode.title, projectedNode.title);
+        assertEquals(gsonNode.created, projectedNode.created);
+    }
+
+    private static List<?> parse(final NetworkResponse response, final boolean projection) {
+        final RequestConfig config = new RequestConfig(LIST_TYPE, BaseRequest.RequestFormat.JSON, null);
+        config.setProjectionBindingEnabled(projection);
+        return (List<?>) new TestRequest(config).parse(response).result.getData();
+    }
+
+    /**
+     * @return node list the way Drupal REST export renders it: every field is an array of value objects
+     */
+    private static String drupalNodes(final int count) {
+        final StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"nid\":[{\"value\":").append(i).append("}],")
+                    .append("\"uuid\":[{\"value\":\"6f1c2a3e-").append(i).append("-4b7d-9c1e-2a3f4b5c6d7e\"}],")
+                    .append("\"vid\":[{\"value\":").append(i * 3).append("}],")
+                    .append("\"langcode\":[{\"value\":\"en\"}],")
+                    .append("\"type\":[{\"target_id\":\"article\",\"target_type\":\"node_type\",\"target_uuid\":\"0d1e2f3a\"}],")
+                    .append("\"revision_timestamp\":[{\"value\":\"2016-03-1").append(i % 10).append("T10:00:00+00:00\",\"format\":\"Y-m-d\\\\TH:i:sP\"}],")
+                    .append("\"revision_uid\":[{\"target_id\":1,\"target_type\":\"user\",\"url\":\"\\/user\\/1\"}],")
+                    .append("\"status\":[{\"value\":true}],")
+                    .append("\"title\":\"Article number ").append(i).append("\",")
+                    .append("\"uid\":[{\"target_id\":1,\"target_type\":\"user\",\"target_uuid\":\"9a8b7c6d\",\"url\":\"\\/user\\/1\"}],")
+                    .append("\"created\":").append(1450000000L + i).append(',')
+                    .append("\"changed\":[{\"value\":").append(1460000000L + i).append("}],")
+                    .append("\"promote\":[{\"value\":true}],\"sticky\":[{\"value\":false}],")
+                    .append("\"body\":[{\"value\":\"<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor ")
+                    .append("incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation.</p>\",")
+                    .append("\"format\":\"basic_html\",\"summary\":\"\"}],")
+                    .append("\"comment\":[{\"status\":2,\"cid\":0,\"last_comment_timestamp\":1460000000,\"last_comment_name\":null,")
+                    .append("\"last_comment_uid\":1,\"comment_count\":0}],")
+                    .append("\"field_image\":[{\"target_id\":").append(i + 100).append(",\"alt\":\"Image\",\"title\":\"\",\"width\":640,")
+                    .append("\"height\":480,\"url\":\"http:\\/\\/example.com\\/files\\/image").append(i).append(".jpg\"}],")
+                    .append("\"image\":\"http://example.com/files/image").append(i).append(".jpg\",")
+                    .append("\"field_tags\":[{\"target_id\":4,\"target_type\":\"taxonomy_term\"},{\"target_id\":7,\"target_type\":\"taxonomy_term\"}],")
+                    .append("\"path\":[{\"alias\":\"\\/article-").append(i).append("\",\"pid\":").append(i).append(",\"langcode\":\"en\"}],")
+                    .append("\"_links\":{\"self\":{\"href\":\"http://example.com/node/").append(i).append("?_format=json\"}}}");
+        }
+        return result.append(']').toString();
+    }
+
+    private static NetworkResponse newResponse(final String body) throws Exception {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        return new NetworkResponse(200, body.getBytes("UTF-8"), headers, false);
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, "http://example.com/node", config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public static final class NodeVO {
+
+        String title;
+        long created;
+        String image;
+        boolean isFavorite;
+    }
+}
@@ -0,0 +1,142 @@
+package com.ls.http;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.annotations.GenerateTypeAdapter;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+
+import android.test.AndroidTestCase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ProjectionJsonBinderTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/node";
+
+    private static final String NODE = "{\"nid\":[{\"value\":\"12\"}],\"id\":\"n12\",\"uuid\":[{\"value\":\"a-b\"}],"
+            + "\"title\":\"T\\u00edtle \\\"quoted\\\"\\n\",\"body\":{\"value\":\"<p>{not, [json]}</p>\",\"summary\":null},"
+            + "\"count\":\"42\",\"weight\":-7,\"ratio\":1.5e2,\"flag\":true,\"boxedFlag\":\"true\",\"missing\":null,"
+            + "\"image_url\":\"http://x/y.png\",\"tags\":[\"a\",\"b\"],\"author\":{\"name\":\"Ann\",\"uid\":3},"
+            + "\"big\":12345678901234,\"ti\\u0074leCopy\":\"escaped name\",\"_links\":{\"self\":{\"href\":\"http://x\"}}}";
+
+    public void testFieldsMatchGson() throws Exception {
+        final Node node = (Node) parse(Node.class, NODE, true);
+        assertEquals("n12", node.id);
+        assertEquals("T\u00edtle \"quoted\"\n", node.title);
+        assertEquals(42, node.count);
+        assertEquals(-7, (int) node.weight);
+        assertEquals(150.0, node.ratio);
+        assertTrue(node.flag);
+        assertEquals(Boolean.TRUE, node.boxedFlag);
+        assertNull(node.missing);
+        assertEquals("http://x/y.png", node.imageUrl);
+        assertEquals(2, node.tags.size());
+        assertEquals("Ann", node.author.name);
+        assertEquals(12345678901234L, node.big);
+        assertEquals("escaped name", node.titleCopy);
+
+        final Node gsonNode = (Node) parse(Node.class, NODE, false);
+        assertEquals(gsonNode.title, node.title);
+        assertEquals(gsonNode.ratio, node.ratio);
+        assertEquals(gsonNode.tags, node.tags);
+    }
+
+    public void testListOfItems() throws Exception {
+        final List<?> nodes = (List<?>) parse(new TypeToken<List<Node>>() {
+        }.getType(), "[" + NODE + ",null, " + NODE + "]", true);
+        assertEquals(3, nodes.size());
+        assertNull(nodes.get(1));
+        assertEquals("n12", ((Node) nodes.get(2)).id);
+    }
+
+    public void testGenericSuperclassField() throws Exception {
+        final Child child = (Child) parse(Child.class, "{\"id\":\"c1\",\"other\":[1,2]}", true);
+        assertEquals("c1", child.id);
+    }
+
+    public void testGeneratedAdapterUsed() throws Exception {
+        final Generated generated = (Generated) parse(Generated.class, NODE, true);
+        assertEquals("n12", generated.id);
+        assertTrue(generated.boundByAdapter);
+    }
+
+    public void testNullDocument() throws Exception {
+        assertNull(parse(Node.class, " null ", true));
+    }
+
+    public void testMalformedDocument() throws Exception {
+        try {
+            parse(Node.class, "{\"id\":\"n12\",", true);
+            fail("Syntax error expected");
+        } catch (JsonSyntaxException e) {
+            // expected
+        }
+    }
+
+    private static Object parse(final Object specifier, final String body, final boolean projection) throws Exception {
+        final RequestConfig config = new RequestConfig(specifier, BaseRequest.RequestFormat.JSON, null);
+        config.setProjectionBindingEnabled(projection);
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        final NetworkResponse response = new NetworkResponse(200, body.getBytes("UTF-8"), headers, false);
+        return new TestRequest(config).parse(response).result.getData();
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, URL, config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public static class Base<T> {
+
+        T id;
+    }
+
+    public static final class Child extends Base<String> {
+    }
+
+    @GenerateTypeAdapter
+    public static final class Generated {
+
+        String id;
+        transient boolean boundByAdapter;
+    }
+
+    public static final class Author {
+
+        String name;
+    }
+
+    public static final class Node {
+
+        String id;
+        String title;
+        @SerializedName("titleCopy")
+        String titleCopy;
+        int count;
+        Integer weight;
+        double ratio;
+        boolean flag;
+        Boolean boxedFlag;
+        String missing = "default";
+        @SerializedName(value = "imageUrl", alternate = {"image_url"})
+        String imageUrl;
+        List<String> tags;
+        Author author;
+        long big;
+    }
+}
@@ -0,0 +1,49 @@
+package com.ls.http;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Stands in for the adapter, jsonserializable-processor generates for {@link ProjectionJsonBinderTest.Generated}
+ */
+public final class ProjectionJsonBinderTest_Generated_TypeAdapter extends TypeAdapter<ProjectionJsonBinderTest.Generated> {
+
+    public ProjectionJsonBinderTest_Generated_TypeAdapter(final Gson gson) {
+    }
+
+    @Override
+    public void write(final JsonWriter out, final ProjectionJsonBinderTest.Generated value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(value.id);
+        out.endObject();
+    }
+
+    @Override
+    public ProjectionJsonBinderTest.Generated read(final JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        final ProjectionJsonBinderTest.Generated result = new ProjectionJsonBinderTest.Generated();
+        result.boundByAdapter = true;
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("id".equals(in.nextName())) {
+                result.id = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return result;
+    }
+}
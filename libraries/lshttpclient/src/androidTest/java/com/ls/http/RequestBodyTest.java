@@ -0,0 +1,73 @@
+package com.ls.http;
+
+import com.google.gson.Gson;
+
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.SharedGson;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+
+public final class RequestBodyTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/items";
+
+    public void testBodyMatchesGson() throws Exception {
+        final Item item = new Item("caf\u00e9 \"quoted\"", 7);
+        final BaseRequest request = newRequest();
+        request.setObjectToPost(item);
+        assertEquals(new Gson().toJson(item), new String(request.getBody(), "UTF-8"));
+    }
+
+    public void testBodyUsesSharedGsonSettings() throws Exception {
+        final Item item = new Item("<b>a & b</b> = 'c'", 7);
+        final BaseRequest request = newRequest();
+        request.setObjectToPost(item);
+        assertEquals(SharedGson.getGson().toJson(item), new String(request.getBody(), "UTF-8"));
+    }
+
+    public void testBodySerializedOnce() throws Exception {
+        final BaseRequest request = newRequest();
+        request.setObjectToPost(new Item("first", 1));
+        final byte[] body = request.getBody();
+        assertSame(body, request.getBody());
+
+        final String digest = request.getBodyDigest();
+        assertSame(body, request.getBody());
+        assertEquals(digest, request.getBodyDigest());
+    }
+
+    public void testSetObjectResetsBody() throws Exception {
+        final BaseRequest request = newRequest();
+        final Item item = new Item("first", 1);
+        request.setObjectToPost(item);
+        final byte[] first = request.getBody();
+        final String firstDigest = request.getBodyDigest();
+
+        item.name = "second";
+        assertSame(first, request.getBody());
+
+        request.setObjectToPost(item);
+        final byte[] second = request.getBody();
+        assertFalse(Arrays.equals(first, second));
+        assertFalse(firstDigest.equals(request.getBodyDigest()));
+    }
+
+    private static BaseRequest newRequest() {
+        return new BaseRequest(BaseRequest.RequestMethod.POST, URL,
+                new RequestConfig(Item.class, BaseRequest.RequestFormat.JSON, null));
+    }
+
+    private static final class Item {
+
+        String name;
+        int count;
+
+        Item(final String name, final int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+}
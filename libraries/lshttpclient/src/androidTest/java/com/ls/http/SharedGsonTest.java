@@ -0,0 +1,72 @@
+package com.ls.http;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import com.ls.http.base.SharedGson;
+
+import android.support.annotation.NonNull;
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class SharedGsonTest extends AndroidTestCase {
+
+    public void testUpdatePublishesNewInstance() {
+        final Gson before = SharedGson.getGson();
+        SharedGson.update(new CountingUpdate(new AtomicInteger()));
+        final Gson after = SharedGson.getGson();
+        assertNotSame(before, after);
+        assertSame(after, SharedGson.getGson());
+    }
+
+    public void testRegisteredTypesWarmedBeforePublish() {
+        SharedGson.registerTypes(Item.class);
+        final AtomicInteger created = new AtomicInteger();
+        SharedGson.update(new CountingUpdate(created));
+        assertEquals(1, created.get());
+
+        SharedGson.getGson().getAdapter(Item.class);
+        assertEquals(1, created.get());
+    }
+
+    public void testAdapterTypesRemembered() {
+        SharedGson.getAdapter(Item.class);
+        final AtomicInteger created = new AtomicInteger();
+        SharedGson.update(new CountingUpdate(created));
+        assertEquals(1, created.get());
+    }
+
+    private static final class Item {
+
+        String name;
+    }
+
+    /**
+     * Registers a factory, which counts adapters created for {@link Item} and leaves them to Gson
+     */
+    private static final class CountingUpdate implements SharedGson.Update {
+
+        private final AtomicInteger mCreated;
+
+        CountingUpdate(@NonNull final AtomicInteger created) {
+            mCreated = created;
+        }
+
+        @Override
+        public void apply(@NonNull final GsonBuilder builder) {
+            builder.registerTypeAdapterFactory(new TypeAdapterFactory() {
+                @Override
+                public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+                    if (type.getRawType() == Item.class) {
+                        mCreated.incrementAndGet();
+                    }
+                    return null;
+                }
+            });
+        }
+    }
+}
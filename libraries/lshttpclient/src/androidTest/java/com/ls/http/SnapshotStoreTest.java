@@ -0,0 +1,183 @@
+package com.ls.http;
+
+import com.google.gson.reflect.TypeToken;
+
+import com.android.volley.NetworkResponse;
+import com.ls.http.base.cache.SnapshotStore;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class SnapshotStoreTest extends AndroidTestCase {
+
+    private static final String KEY = "http://example.com/items";
+
+    private File mSnapshotDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mSnapshotDir = new File(getContext().getCacheDir(), "snapshot_store_test");
+        deleteSnapshotDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteSnapshotDir();
+        super.tearDown();
+    }
+
+    public void testRoundTrip() throws Exception {
+        final Type type = new TypeToken<List<Item>>() {
+        }.getType();
+        final SnapshotStore store = new SnapshotStore(mSnapshotDir);
+        assertTrue(store.isSupported(type));
+
+        final List<Item> items = new ArrayList<Item>();
+        items.add(newItem("first", 1));
+        items.add(null);
+        items.add(newItem("second", 2));
+        store.save(KEY, type, newResponse("\"v1\""), items);
+        store.flush();
+
+        final List<?> restored = (List<?>) new SnapshotStore(mSnapshotDir).read(KEY, type);
+        assertNotNull(restored);
+        assertEquals(3, restored.size());
+        assertNull(restored.get(1));
+
+        final Item item = (Item) restored.get(2);
+        assertEquals("second", item.getId());
+        assertEquals(2, item.count);
+        assertEquals(Boolean.TRUE, item.favorite);
+        assertEquals(State.ACTIVE, item.state);
+        assertTrue(Arrays.equals(new long[]{2, 3}, item.values));
+        assertEquals(Arrays.asList("a", "b"), item.tags);
+        assertEquals(Integer.valueOf(2), item.counters.get("count"));
+        assertNull(item.cached);
+        assertNull(store.read("http://example.com/other", type));
+    }
+
+    public void testSnapshotOfAnotherTypeIgnored() throws Exception {
+        final SnapshotStore store = new SnapshotStore(mSnapshotDir);
+        store.save(KEY, Item.class, newResponse("\"v1\""), newItem("first", 1));
+        store.flush();
+
+        assertNotNull(store.read(KEY, Item.class));
+        assertNull(store.read(KEY, OtherItem.class));
+    }
+
+    public void testUnsupportedType() throws Exception {
+        final SnapshotStore store = new SnapshotStore(mSnapshotDir);
+        assertFalse(store.isSupported(Object.class));
+        assertFalse(store.isSupported(new TypeToken<List<Object>>() {
+        }.getType()));
+
+        store.save(KEY, Object.class, newResponse("\"v1\""), new Object());
+        store.flush();
+        assertNull(store.read(KEY, Object.class));
+    }
+
+    public void testLeastRecentlyUsedSnapshotEvicted() throws Exception {
+        SnapshotStore store = new SnapshotStore(mSnapshotDir);
+        store.save(KEY + 1, Item.class, newResponse("\"v1\""), newItem("first", 1));
+        store.flush();
+        final long snapshotSize = store.getSize();
+        assertTrue(snapshotSize > 0);
+
+        store = new SnapshotStore(mSnapshotDir, snapshotSize * 2);
+        store.flush();
+        assertEquals(snapshotSize, store.getSize());
+
+        store.save(KEY + 2, Item.class, newResponse("\"v1\""), newItem("other", 1));
+        store.flush();
+        assertNotNull(store.read(KEY + 1, Item.class));
+
+        store.save(KEY + 3, Item.class, newResponse("\"v1\""), newItem("third", 1));
+        store.flush();
+        assertEquals(snapshotSize * 2, store.getSize());
+        assertNotNull(store.read(KEY + 1, Item.class));
+        assertNull(store.read(KEY + 2, Item.class));
+        assertNotNull(store.read(KEY + 3, Item.class));
+
+        // Evicted snapshot is written again, since stored version is forgotten
+        store.save(KEY + 2, Item.class, newResponse("\"v1\""), newItem("other", 1));
+        store.flush();
+        assertNotNull(store.read(KEY + 2, Item.class));
+    }
+
+    public void testSnapshotLargerThanStoreNotKept() throws Exception {
+        final SnapshotStore store = new SnapshotStore(mSnapshotDir, 1);
+        store.save(KEY, Item.class, newResponse("\"v1\""), newItem("first", 1));
+        store.flush();
+
+        assertEquals(0, store.getSize());
+        assertNull(store.read(KEY, Item.class));
+    }
+
+    private static Item newItem(final String id, final int count) {
+        final Item item = new Item();
+        item.id = id;
+        item.count = count;
+        item.favorite = count > 1;
+        item.state = State.ACTIVE;
+        item.values = new long[]{count, count + 1};
+        item.tags = Arrays.asList("a", "b");
+        item.counters = new LinkedHashMap<String, Integer>();
+        item.counters.put("count", count);
+        item.cached = "cached";
+        return item;
+    }
+
+    private static NetworkResponse newResponse(final String etag) {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("ETag", etag);
+        return new NetworkResponse(200, new byte[0], headers, false);
+    }
+
+    private void deleteSnapshotDir() {
+        final File[] files = mSnapshotDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mSnapshotDir.delete();
+    }
+
+    public enum State {
+        ACTIVE, DELETED
+    }
+
+    public static class BaseItem<Id> {
+
+        protected Id id;
+
+        public Id getId() {
+            return id;
+        }
+    }
+
+    public static class Item extends BaseItem<String> {
+
+        int count;
+        Boolean favorite;
+        State state;
+        long[] values;
+        List<String> tags;
+        Map<String, Integer> counters;
+        transient String cached;
+    }
+
+    public static class OtherItem extends BaseItem<String> {
+
+        int count;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ls.http;
+
+import com.ls.http.base.StringPool;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Measures heap, retained by a large parsed list with repeated string values, with and without {@link StringPool}.
+ */
+public final class StringPoolBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "StringPoolBenchmark";
+
+    private static final int ITEM_COUNT = 20000;
+
+    private static final String[] STATUSES = {"published", "draft", "archived"};
+
+    public void testRetainedHeap() throws Exception {
+        final String body = items(ITEM_COUNT);
+        for (boolean projection : new boolean[]{false, true}) {
+            final long plain = retainedBytes(null, projection, body);
+            final long pooled = retainedBytes(new StringPool(), projection, body);
+            Log.i(TAG, (projection ? "projection" : "gson") + ", " + ITEM_COUNT + " items: " + plain / 1024 + "KB retained, "
+                    + pooled / 1024 + "KB with string pool");
+            assertTrue(pooled < plain);
+        }
+    }
+
+    private static long retainedBytes(final StringPool pool, final boolean projection, final String body) throws Exception {
+        final long before = usedMemory();
+        final List<?> items = StringPoolTest.parse(pool, projection, body);
+        final long after = usedMemory();
+        assertEquals(ITEM_COUNT, items.size());
+        return after - before;
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String items(final int count) {
+        final StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"status\":\"").append(STATUSES[i % STATUSES.length])
+                    .append("\",\"title\":\"Item ").append(i)
+                    .append("\",\"image\":\"http://cdn.example.com/img/\",\"pageId\":\"page_").append(i % 20).append("\"}");
+        }
+        return result.append(']').toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.ls.http;
+
+import com.google.gson.reflect.TypeToken;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+import com.ls.http.base.StringPool;
+
+import android.test.AndroidTestCase;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class StringPoolTest extends AndroidTestCase {
+
+    private static final Type LIST_TYPE = new TypeToken<List<Item>>() {
+    }.getType();
+
+    public void testEqualStringsShared() {
+        final StringPool pool = new StringPool();
+        final String first = pool.intern(new String("published"));
+        final String second = pool.intern(new String("published"));
+        assertSame(first, second);
+        assertEquals(1, pool.getHitCount());
+    }
+
+    public void testLongStringsNotPooled() {
+        final StringPool pool = new StringPool(16, 4);
+        final String value = new String("longer than four");
+        assertSame(value, pool.intern(value));
+        assertNotSame(value, pool.intern(new String("longer than four")));
+        assertEquals(0, pool.getHitCount());
+    }
+
+    public void testPoolIsBounded() {
+        final StringPool pool = new StringPool(4, 32);
+        for (int i = 0; i < 1000; i++) {
+            pool.intern("value" + i);
+        }
+        assertEquals(4, pool.getCapacity());
+    }
+
+    public void testGsonResponseValuesShared() throws Exception {
+        assertValuesShared(false);
+    }
+
+    public void testProjectedResponseValuesShared() throws Exception {
+        assertValuesShared(true);
+    }
+
+    private static void assertValuesShared(final boolean projection) throws Exception {
+        final StringPool pool = new StringPool();
+        final List<?> items = parse(pool, projection, "[{\"status\":\"published\",\"title\":\"T\\u00e9st\"},"
+                + "{\"status\":\"published\",\"title\":\"T\\u00e9st\"}]");
+        final Item first = (Item) items.get(0);
+        final Item second = (Item) items.get(1);
+        assertEquals("published", first.status);
+        assertEquals("T\u00e9st", first.title);
+        assertSame(first.status, second.status);
+        assertSame(first.title, second.title);
+    }
+
+    static List<?> parse(final StringPool pool, final boolean projection, final String body) throws Exception {
+        final RequestConfig config = new RequestConfig(LIST_TYPE, BaseRequest.RequestFormat.JSON, null);
+        config.setProjectionBindingEnabled(projection);
+        final TestRequest request = new TestRequest(config);
+        if (pool != null) {
+            request.setStringPool(pool);
+        }
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        return (List<?>) request.parse(new NetworkResponse(200, body.getBytes("UTF-8"), headers, false)).result.getData();
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, "http://example.com/items", config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public static final class Item {
+
+        String status;
+        String title;
+        String image;
+        String pageId;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ls.http;
+
+import com.android.volley.Cache;
+import com.ls.http.base.cache.CacheStats;
+import com.ls.http.base.cache.JournalDiskCache;
+import com.ls.http.base.cache.MemoryCache;
+import com.ls.http.base.cache.TwoTierCache;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public final class TwoTierCacheTest extends AndroidTestCase {
+
+    private File mCacheDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCacheDir = new File(getContext().getCacheDir(), "two_tier_cache_test");
+        deleteCacheDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteCacheDir();
+        super.tearDown();
+    }
+
+    public void testDiskHitPromotedToMemory() throws Exception {
+        final JournalDiskCache disk = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        final MemoryCache memory = new MemoryCache(64 * 1024);
+        final TwoTierCache cache = new TwoTierCache(memory, disk);
+        cache.initialize();
+
+        disk.put("key", newEntry(100, (byte) 1));
+        disk.flush();
+
+        assertNotNull(cache.get("key"));
+        assertNotNull(memory.get("key"));
+        assertNotNull(cache.get("key"));
+        assertNull(cache.get("missing"));
+
+        final CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getMemoryHitCount());
+        assertEquals(2, stats.getMemoryMissCount());
+        assertEquals(1, stats.getDiskHitCount());
+        assertEquals(1, stats.getDiskMissCount());
+    }
+
+    public void testMemoryTierBoundedBySize() throws Exception {
+        final MemoryCache memory = new MemoryCache(4096, 4096);
+        memory.put("first", newEntry(1500, (byte) 1));
+        memory.put("second", newEntry(1500, (byte) 2));
+        assertNotNull(memory.get("first"));
+        memory.put("third", newEntry(1500, (byte) 3));
+
+        assertTrue(memory.getSize() <= 4096);
+        assertNotNull(memory.get("first"));
+        assertNull(memory.get("second"));
+        assertNotNull(memory.get("third"));
+
+        memory.put("big", newEntry(8192, (byte) 4));
+        assertNull(memory.get("big"));
+    }
+
+    public void testWriteBackOnEvictionAndFlush() throws Exception {
+        final JournalDiskCache disk = new JournalDiskCache(mCacheDir, 1024 * 1024);
+        final MemoryCache memory = new MemoryCache(4096, 4096);
+        final TwoTierCache cache = new TwoTierCache(memory, disk, TwoTierCache.WritePolicy.WRITE_BACK);
+        cache.initialize();
+
+        cache.put("first", newEntry(1500, (byte) 1));
+        cache.put("second", newEntry(1500, (byte) 2));
+        disk.flush();
+        assertNull(disk.get("first"));
+
+        // Evicts "first" from memory
+        cache.put("third", newEntry(1500, (byte) 3));
+        disk.flush();
+        assertNotNull(disk.get("first"));
+        assertNull(disk.get("second"));
+
+        cache.flush();
+        assertNotNull(disk.get("second"));
+        assertNotNull(disk.get("third"));
+        assertEquals(3, cache.getStats().getWriteBackCount());
+    }
+
+    private static Cache.Entry newEntry(final int size, final byte value) {
+        final Cache.Entry entry = new Cache.Entry();
+        entry.data = new byte[size];
+        Arrays.fill(entry.data, value);
+        entry.etag = "etag" + value;
+        entry.serverDate = System.currentTimeMillis();
+        entry.ttl = entry.serverDate + 60000;
+        entry.softTtl = entry.serverDate + 30000;
+        entry.responseHeaders = new HashMap<String, String>();
+        return entry;
+    }
+
+    private void deleteCacheDir() {
+        final File[] files = mCacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mCacheDir.delete();
+    }
+}
@@ -0,0 +1,185 @@
+package com.ls.http;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.RequestConfig;
+import com.ls.http.base.ResponseData;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class XmlStreamingBindTest extends AndroidTestCase {
+
+    private static final String URL = "http://example.com/feed";
+
+    public void testAttributesAndElementsBound() throws Exception {
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<entry id=\"7\" state=\"PUBLISHED\">"
+                + "<title>caf\u00e9 &amp; <![CDATA[<bar>]]></title>"
+                + "<rating> 4.5 </rating>"
+                + "<published>true</published>"
+                + "<unknown><title>ignored</title></unknown>"
+                + "<author name=\"Ann\"><email>ann@example.com</email></author>"
+                + "<category>news</category><category>sport</category>"
+                + "<link href=\"/a\"/><link href=\"/b\"/>"
+                + "</entry>";
+        final Entry entry = (Entry) parse(Entry.class, xml, null);
+
+        assertEquals(7L, entry.id);
+        assertEquals(State.PUBLISHED, entry.state);
+        assertEquals("caf\u00e9 & <bar>", entry.title);
+        assertEquals(4.5, entry.rating);
+        assertEquals(Boolean.TRUE, entry.published);
+        assertEquals("Ann", entry.author.name);
+        assertEquals("ann@example.com", entry.author.email);
+        assertEquals(2, entry.categories.size());
+        assertEquals("sport", entry.categories.get(1));
+        assertEquals(2, entry.links.length);
+        assertEquals("/b", entry.links[1].href);
+    }
+
+    public void testSuperclassTypeArgumentResolved() throws Exception {
+        final Entry entry = (Entry) parse(Entry.class, "<entry><key>abc</key></entry>", null);
+        assertEquals("abc", entry.key);
+    }
+
+    public void testPrefixedNameFallsBackToLocalName() throws Exception {
+        final String xml = "<entry xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>Title</dc:title></entry>";
+        final Entry entry = (Entry) parse(Entry.class, xml, null);
+        assertEquals("Title", entry.title);
+    }
+
+    public void testListDeliveredIncrementally() throws Exception {
+        final RecordingListener listener = new RecordingListener();
+        final List<?> result = (List<?>) parse(new TypeToken<List<Author>>() {
+        }.getType(), authors(25), listener);
+
+        assertEquals(25, result.size());
+        assertEquals(3, listener.batchSizes.size());
+        assertEquals(5, (int) listener.batchSizes.get(2));
+        assertSame(listener.items.get(0), result.get(0));
+        assertEquals("author24", ((Author) result.get(24)).name);
+    }
+
+    public void testArrayResponse() throws Exception {
+        final Author[] result = (Author[]) parse(Author[].class, authors(3), null);
+        assertEquals(3, result.length);
+        assertEquals("author2@example.com", result[2].email);
+    }
+
+    public void testDeclaredEncodingUsed() throws Exception {
+        final String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><entry><title>caf\u00e9</title></entry>";
+        final Entry entry = (Entry) parse(Entry.class, xml.getBytes("ISO-8859-1"), "application/xml", null);
+        assertEquals("caf\u00e9", entry.title);
+    }
+
+    public void testHeaderCharsetUsed() throws Exception {
+        final String xml = "<entry><title>caf\u00e9</title></entry>";
+        final Entry entry = (Entry) parse(Entry.class, xml.getBytes("ISO-8859-1"), "text/xml; charset=ISO-8859-1", null);
+        assertEquals("caf\u00e9", entry.title);
+    }
+
+    public void testUnsupportedTypeNotBound() throws Exception {
+        final String xml = "<entry><title>Title</title></entry>";
+        assertNull(parse(Map.class, xml, null));
+        assertNull(parse(Object.class, xml, null));
+        assertNull(parse(new TypeToken<List<Map<String, String>>>() {
+        }.getType(), xml, null));
+    }
+
+    private static Object parse(final Object specifier, final String xml, final RecordingListener listener)
+            throws Exception {
+        return parse(specifier, xml.getBytes("UTF-8"), "application/xml; charset=UTF-8", listener);
+    }
+
+    private static Object parse(final Object specifier, final byte[] body, final String contentType,
+            final RecordingListener listener) throws Exception {
+        final TestRequest request = new TestRequest(new RequestConfig(specifier, BaseRequest.RequestFormat.XML, null));
+        if (listener != null) {
+            request.setItemsBatchListener(10, listener);
+        }
+
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", contentType);
+        final NetworkResponse response = new NetworkResponse(200, body, headers, false);
+        final ResponseData data = request.parse(response).result;
+        return data.getData();
+    }
+
+    private static String authors(final int count) {
+        final StringBuilder result = new StringBuilder("<authors>");
+        for (int i = 0; i < count; i++) {
+            result.append("<author name=\"author").append(i).append("\"><email>author").append(i)
+                    .append("@example.com</email></author>");
+        }
+        return result.append("</authors>").toString();
+    }
+
+    private static final class RecordingListener implements BaseRequest.OnItemsBatchListener<Author> {
+
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        final List<Author> items = new ArrayList<Author>();
+
+        @Override
+        public boolean onItemsParsed(final List<Author> batch, final BaseRequest request) {
+            batchSizes.add(batch.size());
+            items.addAll(batch);
+            return true;
+        }
+    }
+
+    private static final class TestRequest extends BaseRequest {
+
+        TestRequest(final RequestConfig config) {
+            super(RequestMethod.GET, URL, config);
+        }
+
+        Response<ResponseData> parse(final NetworkResponse response) {
+            return parseNetworkResponse(response);
+        }
+    }
+
+    public enum State {
+        DRAFT, PUBLISHED
+    }
+
+    public static class Keyed<K> {
+
+        K key;
+    }
+
+    public static final class Entry extends Keyed<String> {
+
+        long id;
+        State state;
+        String title;
+        double rating;
+        Boolean published;
+        Author author;
+
+        @SerializedName("category")
+        List<String> categories;
+
+        @SerializedName("link")
+        Link[] links;
+    }
+
+    public static final class Author {
+
+        String name;
+        String email;
+    }
+
+    public static final class Link {
+
+        String href;
+    }
+}
@@ -25,23 +25,56 @@ package com.ls.http.base;
 import com.android.volley.NetworkResponse;
 import com.android.volley.Response;
 import com.android.volley.toolbox.HttpHeaderParser;
+import com.ls.http.base.cache.BlobCache;
+import com.ls.util.L;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 
 
 public abstract class BaseByteResponseHandler extends ResponseHandler {
 
     /**
-     * No specifier class supported yet. Just byte[] is returned
+     * byte[] is returned by default. In case if {@link ByteBuffer} class is specified - read-only buffer is returned, it's memory
+     * mapped to the file for responses, restored from {@link BlobCache}.
      */
     protected Object itemFromResponseWithSpecifier(NetworkResponse response, Object theSpecifier) {
         Object result = null;
-        if (response != null && response.data != null && response.data.length > 0) {
-            result = response.data;
+        if (response == null) {
+            return null;
+        }
+        final File blobFile = BlobCache.getBlobFile(response.data);
+        if (blobFile != null) {
+            final ByteBuffer buffer = mapBlob(blobFile);
+            if (buffer != null && buffer.hasRemaining()) {
+                if (ByteBuffer.class.equals(theSpecifier)) {
+                    result = buffer;
+                } else {
+                    final byte[] data = new byte[buffer.remaining()];
+                    buffer.get(data);
+                    result = data;
+                }
+            }
+        } else if (response.data != null && response.data.length > 0) {
+            result = ByteBuffer.class.equals(theSpecifier) ? ByteBuffer.wrap(response.data).asReadOnlyBuffer() : response.data;
         }
         return result;
     }
 
+    /**
+     * @return buffer, mapped to the blob file or null if blob can't be read
+     */
+    protected static ByteBuffer mapBlob(File blobFile) {
+        try {
+            return BlobCache.mapBlob(blobFile);
+        } catch (IOException e) {
+            L.w("Failed to map blob " + blobFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
     protected Response<ResponseData> parseNetworkResponse(NetworkResponse response, Object responseClassSpecifier) {
         ResponseData responseData = new ResponseData();
 
@@ -23,23 +23,35 @@
 package com.ls.http.base;
 
 import com.android.volley.AuthFailureError;
+import com.android.volley.Cache;
 import com.android.volley.NetworkResponse;
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response;
 import com.android.volley.VolleyError;
+import com.android.volley.toolbox.HttpHeaderParser;
 import com.android.volley.toolbox.RequestFuture;
+import com.ls.http.base.cache.BlobCache;
+import com.ls.http.base.cache.ParsedResponseCache;
+import com.ls.http.base.cache.SnapshotStore;
+import com.ls.http.base.cache.VaryRegistry;
 import com.ls.http.base.handler.Handler;
 import com.ls.util.L;
 
 import org.apache.http.Header;
 
-import android.net.Uri;
 import android.text.TextUtils;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.util.Collection;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 public class BaseRequest extends Request<ResponseData> {
@@ -90,6 +102,13 @@ public class BaseRequest extends Request<ResponseData> {
     private Map<String, String> postParameters;
     private Map<String, Object> getParameters;
     private Object objectToPost;
+    private String canonicalUrl;
+    private String bodyDigest;
+
+    /**
+     * Serialized {@link #objectToPost}, kept until object or charset is changed
+     */
+    private byte[] objectBody;
 
     //Do not use during comparison
 
@@ -101,6 +120,22 @@ public class BaseRequest extends Request<ResponseData> {
     private ResponseData result;
     private OnResponseListener responseListener;
     private boolean smartComparisonEnabled = false;
+    private ParsedResponseCache parsedResponseCache;
+    private final boolean snapshotEnabled;
+    private SnapshotStore snapshotStore;
+    private VaryRegistry varyRegistry;
+    private String cachePartition;
+    private final boolean idempotentPost;
+    private int responseSize;
+    private OnItemsBatchListener itemsBatchListener;
+    private int itemsBatchSize;
+    private final boolean lazyParsing;
+    private final boolean projectionBinding;
+    private ParallelJsonArrayParser parallelArrayParser;
+    private StringPool stringPool;
+    private HalResourceCache halResourceCache;
+    private RequestQueue requestQueue;
+    private String cacheKey;
 
     private Priority priority = Priority.NORMAL;
 
@@ -130,6 +165,14 @@ public class BaseRequest extends Request<ResponseData> {
         this.initRequestHeaders();
         this.responseClasSpecifier = requestConfig.getResponseClassSpecifier();
         this.errorResponseClasSpecifier = requestConfig.getErrorResponseClassSpecifier();
+        this.snapshotEnabled = requestConfig.isSnapshotEnabled();
+        this.lazyParsing = requestConfig.isLazyParsingEnabled();
+        this.projectionBinding = requestConfig.isProjectionBindingEnabled();
+        this.idempotentPost = requestMethod == RequestMethod.POST && requestConfig.isIdempotentPost();
+        if (!this.idempotentPost && !isSafeMethod(requestMethod)) {
+            // Volley caches everything by default, so state modifying request could get response from cache
+            this.setShouldCache(false);
+        }
         this.result = new ResponseData();
     }
 
@@ -163,11 +206,222 @@ public class BaseRequest extends Request<ResponseData> {
 
     @Override
     protected Response<ResponseData> parseNetworkResponse(NetworkResponse response) {
-        Response<ResponseData> result = this.responseHandler.parseNetworkResponse(response, responseClasSpecifier);
+        final Cache.Entry cacheEntry = getCacheEntry();
+        final boolean fromCache = cacheEntry != null && response.data == cacheEntry.data;
+        response = restoreCachedResponse(response);
+        this.responseSize = response.data != null ? response.data.length : 0;
+        if (!fromCache) {
+            this.responseHandler.onNetworkResponse(this, response);
+        }
+
+        // Vary headers are learned before response is stored. Cache key of the request is fixed once it's queued, so key
+        // with headers, response varies on, is built separately.
+        boolean cacheable = true;
+        if (this.varyRegistry != null) {
+            cacheable = !VaryRegistry.isUncacheable(this.varyRegistry.update(getUrl(), response.headers));
+        }
+        final String variantCacheKey = buildCacheKey();
+
+        Response<ResponseData> result = null;
+        ParsedResponseCache.Key parsedCacheKey = null;
+        if (this.parsedResponseCache != null && this.responseClasSpecifier != null) {
+            parsedCacheKey = ParsedResponseCache.keyFor(variantCacheKey, this.responseClasSpecifier, response);
+            if (parsedCacheKey != null) {
+                Object data = this.parsedResponseCache.get(parsedCacheKey);
+                if (data != null) {
+                    ResponseData responseData = new ResponseData();
+                    responseData.data = data;
+                    responseData.statusCode = response.statusCode;
+                    responseData.headers = new HashMap<String, String>(response.headers);
+                    result = Response.success(responseData, HttpHeaderParser.parseCacheHeaders(response));
+                    parsedCacheKey = null;
+                }
+            }
+        }
+
+        ItemsBatchDispatcher batchDispatcher = null;
+        if (this.itemsBatchListener != null && !isUnchangedRefresh(response)) {
+            batchDispatcher = ItemsBatchDispatcher.create(this, this.itemsBatchListener, this.itemsBatchSize, this.responseClasSpecifier);
+        }
+
+        // Parsed objects are required right away to be cached, stored or dispatched
+        final boolean lazy = result == null && this.lazyParsing && parsedCacheKey == null && batchDispatcher == null
+                && (this.snapshotStore == null || !this.snapshotEnabled) && this.responseHandler instanceof BaseStringResponseHandler;
+
+        if (lazy) {
+            result = parseLazily(response);
+        } else if (result == null) {
+            result = parseData(response, batchDispatcher);
+            if (parsedCacheKey != null && result.isSuccess() && result.result.data != null && !isCanceled()) {
+                this.parsedResponseCache.put(parsedCacheKey, result.result.data, response);
+            }
+        } else if (batchDispatcher != null) {
+            batchDispatcher.dispatchAll(result.result.data);
+        }
+
+        if (this.snapshotStore != null && this.snapshotEnabled && result.isSuccess() && result.result.data != null && !isCanceled()) {
+            this.snapshotStore.save(variantCacheKey, this.responseClasSpecifier, response, result.result.data);
+        }
+
+        if (result.cacheEntry != null && (!cacheable || storeVariant(variantCacheKey, result.cacheEntry, fromCache))) {
+            // Volley mustn't store the response under request cache key
+            result = Response.success(result.result, null);
+        }
+
         this.result = result.result;
         return result;
     }
 
+    /**
+     * @return true if response is a refresh of soft-expired cache entry, which was already delivered with its batches,
+     * and response body didn't change
+     */
+    private boolean isUnchangedRefresh(final NetworkResponse response) {
+        final Cache.Entry cacheEntry = getCacheEntry();
+        return hasHadResponseDelivered() && cacheEntry != null && Arrays.equals(cacheEntry.data, response.data);
+    }
+
+    /**
+     * Stores network response under the key with headers, response varies on, if they weren't known when request was queued,
+     * so the response isn't returned for requests with other values of these headers.
+     *
+     * @return true if entry was stored
+     */
+    private boolean storeVariant(final String variantCacheKey, final Cache.Entry entry, final boolean fromCache) {
+        final String cacheKey = getCacheKey();
+        if (fromCache || this.requestQueue == null || variantCacheKey == null || variantCacheKey.equals(cacheKey)) {
+            return false;
+        }
+        this.requestQueue.getCache().put(variantCacheKey, entry);
+        return true;
+    }
+
+    private Response<ResponseData> parseData(final NetworkResponse response, final ItemsBatchDispatcher batchDispatcher) {
+        if (batchDispatcher != null) {
+            return this.responseHandler.parseNetworkResponse(response, responseClasSpecifier, batchDispatcher);
+        }
+        if (this.responseFormat == ResponseFormat.JSON || this.responseFormat == ResponseFormat.JSON_HAL) {
+            Response<ResponseData> result = null;
+            if (this.projectionBinding) {
+                result = ProjectionJsonBinder.parse(response, responseClasSpecifier, this.stringPool);
+            }
+            if (result == null && this.parallelArrayParser != null) {
+                result = this.parallelArrayParser.parse(response, responseClasSpecifier, this.stringPool);
+            }
+            if (result != null) {
+                return result;
+            }
+        }
+        return this.responseHandler.parseNetworkResponse(response, responseClasSpecifier);
+    }
+
+    /**
+     * @return response with status and headers, data is parsed from the body on the first {@link ResponseData#getData()} call
+     */
+    private Response<ResponseData> parseLazily(final NetworkResponse response) {
+        ResponseData responseData = new ResponseData();
+        responseData.statusCode = response.statusCode;
+        responseData.headers = new HashMap<String, String>(response.headers);
+        responseData.setDataParser(new ResponseData.DataParser() {
+            @Override
+            public Object parse() {
+                return parseData(response, null).result.getData();
+            }
+        });
+        return Response.success(responseData, HttpHeaderParser.parseCacheHeaders(response));
+    }
+
+    /**
+     * Volley passes cached body with headers of "304 Not Modified" response only, so cached headers are restored here.
+     * Bodies, stored in {@link BlobCache}, are loaded for handlers, which can't map them.
+     */
+    private NetworkResponse restoreCachedResponse(NetworkResponse response) {
+        Map<String, String> headers = response.headers;
+        final Cache.Entry cacheEntry = getCacheEntry();
+        if (response.notModified && cacheEntry != null && cacheEntry.responseHeaders != null) {
+            headers = new HashMap<String, String>(cacheEntry.responseHeaders);
+            headers.putAll(response.headers);
+        }
+        headers = BlobCache.withoutBlobHeader(headers);
+
+        // Blob file is identified by data array of the cached entry only, response headers are never trusted
+        byte[] data = response.data;
+        final File blobFile = BlobCache.getBlobFile(data);
+        if (blobFile != null && !(this.responseHandler instanceof BaseByteResponseHandler)) {
+            try {
+                final ByteBuffer buffer = BlobCache.mapBlob(blobFile);
+                data = new byte[buffer.remaining()];
+                buffer.get(data);
+            } catch (IOException e) {
+                L.w("Failed to read blob " + blobFile.getAbsolutePath(), e);
+            }
+        }
+
+        if (headers == response.headers && data == response.data) {
+            return response;
+        }
+        return new NetworkResponse(response.statusCode, data, headers, response.notModified);
+    }
+
+    /**
+     * @return cache key, containing request url, Accept header, request headers, response varies on (see {@link VaryRegistry}),
+     * body digest (for idempotent POST requests only) and cache partition digest. Key is fixed once request is added to the
+     * queue, since volley tracks duplicate requests by it until request is finished.
+     */
+    @Override
+    public String getCacheKey() {
+        if (this.cacheKey != null) {
+            return this.cacheKey;
+        }
+        final String key = buildCacheKey();
+        if (this.requestQueue != null) {
+            this.cacheKey = key;
+        }
+        return key;
+    }
+
+    private String buildCacheKey() {
+        final String url = getUrl();
+        if (url == null) {
+            return null;
+        }
+
+        final StringBuilder key = new StringBuilder(url.length() + 64).append(url);
+        appendHeaderToCacheKey(key, ACCEPT_HEADER_KEY);
+        if (this.varyRegistry != null) {
+            for (String headerName : this.varyRegistry.getVaryHeaders(url)) {
+                if (!ACCEPT_HEADER_KEY.equalsIgnoreCase(headerName)) {
+                    appendHeaderToCacheKey(key, headerName);
+                }
+            }
+        }
+        if (this.idempotentPost) {
+            key.append("\nbody: ").append(getBodyDigest());
+        }
+        if (this.cachePartition != null) {
+            key.append("\n#").append(this.cachePartition);
+        }
+        return key.toString();
+    }
+
+    private void appendHeaderToCacheKey(StringBuilder key, String headerName) {
+        String value = null;
+        if (this.requestHeaders != null) {
+            value = this.requestHeaders.get(headerName);
+            if (value == null) {
+                for (Map.Entry<String, String> header : this.requestHeaders.entrySet()) {
+                    if (headerName.equalsIgnoreCase(header.getKey())) {
+                        value = header.getValue();
+                        break;
+                    }
+                }
+            }
+        }
+        if (value != null) {
+            key.append('\n').append(headerName.toLowerCase(Locale.US)).append(": ").append(value);
+        }
+    }
+
     @Override
     protected VolleyError parseNetworkError(VolleyError volleyError) {
         VolleyError error = super.parseNetworkError(volleyError);
@@ -209,6 +463,96 @@ public class BaseRequest extends Request<ResponseData> {
         void onError(ResponseData data, BaseRequest request);
     }
 
+    /**
+     * Receives elements of list or array response while it's being parsed
+     */
+    public interface OnItemsBatchListener<T> {
+
+        /**
+         * Called on the parsing thread; parsing is suspended until this method returns.
+         * <p/>
+         * Soft-expired cache entry is delivered with its batches before it's refreshed. Batches of the refreshed response are
+         * delivered only if it differs from the cached one: {@link BaseRequest#hasHadResponseDelivered()} is true for them
+         * and items, received before, have to be replaced.
+         *
+         * @param items next batch of parsed elements, in response order
+         * @return false to stop parsing and cancel the request
+         */
+        boolean onItemsParsed(List<T> items, BaseRequest request);
+    }
+
+    public OnItemsBatchListener getItemsBatchListener() {
+        return itemsBatchListener;
+    }
+
+    public int getItemsBatchSize() {
+        return itemsBatchSize;
+    }
+
+    /**
+     * Batches are produced while the body is parsed, not while it's downloaded: volley passes the response to parsing only
+     * after the whole body is received, so the first batch comes after the download completes. Batching saves time to the
+     * first items compared to parsing the whole list, not the network transfer time.
+     *
+     * @param batchSize          number of elements, passed to the listener at once
+     * @param itemsBatchListener listener, receiving elements of list or array response as soon as they are parsed. Complete
+     *                           response is delivered as usual after that. Ignored for responses of other types.
+     */
+    public void setItemsBatchListener(int batchSize, OnItemsBatchListener itemsBatchListener) {
+        this.itemsBatchSize = batchSize;
+        this.itemsBatchListener = itemsBatchListener;
+    }
+
+    public ParallelJsonArrayParser getParallelArrayParser() {
+        return parallelArrayParser;
+    }
+
+    /**
+     * @param parallelArrayParser parser, used to bind elements of large JSON array responses on several threads
+     */
+    public void setParallelArrayParser(ParallelJsonArrayParser parallelArrayParser) {
+        this.parallelArrayParser = parallelArrayParser;
+    }
+
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * @param stringPool pool, used to share repeated short string values of the parsed response. Create new pool for
+     *                   response-scoped deduplication or use one, shared by client, to share strings between responses.
+     */
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+        this.responseHandler.setStringPool(stringPool);
+    }
+
+    public HalResourceCache getHalResourceCache() {
+        return halResourceCache;
+    }
+
+    /**
+     * @param halResourceCache cache, resources embedded into HAL response are stored to. Used for {@link ResponseFormat#JSON_HAL}
+     *                         responses only.
+     */
+    public void setHalResourceCache(HalResourceCache halResourceCache) {
+        this.halResourceCache = halResourceCache;
+    }
+
+    /**
+     * @return queue, request was added to, or null if it wasn't added yet
+     */
+    RequestQueue getRequestQueue() {
+        return requestQueue;
+    }
+
+    @Override
+    public Request<?> setRequestQueue(RequestQueue requestQueue) {
+        this.requestQueue = requestQueue;
+        this.cacheKey = null;
+        return super.setRequestQueue(requestQueue);
+    }
+
     public OnResponseListener getResponseListener() {
         return responseListener;
     }
@@ -281,6 +625,7 @@ public class BaseRequest extends Request<ResponseData> {
 
     public void setPostParameters(Map<String, String> postParameters) {
         this.postParameters = postParameters;
+        this.bodyDigest = null;
     }
 
     public void addPostParameters(Map<String, String> postParameters) {
@@ -289,6 +634,7 @@ public class BaseRequest extends Request<ResponseData> {
         } else {
             this.postParameters.putAll(postParameters);
         }
+        this.bodyDigest = null;
     }
 
     public void addPostParameter(String key, String value) {
@@ -300,21 +646,30 @@ public class BaseRequest extends Request<ResponseData> {
         } else {
             this.postParameters.put(key, value);
         }
+        this.bodyDigest = null;
     }
 
     // Post Body handling
 
+    /**
+     * Object to post is serialized once, the same bytes are returned for retries and used for {@link #getBodyDigest()}.
+     */
     @SuppressWarnings("null")
     @Override
     public byte[] getBody() throws AuthFailureError {
         if (this.objectToPost != null && this.postParameters == null) {
 
-            try {
-                return requestHandler.getBody(this.defaultCharset);
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
-                return new byte[0];
+            byte[] body = this.objectBody;
+            if (body == null) {
+                try {
+                    body = requestHandler.getBody(this.defaultCharset);
+                } catch (UnsupportedEncodingException e) {
+                    e.printStackTrace();
+                    return new byte[0];
+                }
+                this.objectBody = body;
             }
+            return body;
         } else {
             return super.getBody();
         }
@@ -335,44 +690,75 @@ public class BaseRequest extends Request<ResponseData> {
         return objectToPost;
     }
 
+    /**
+     * @param objectToPost object, serialized as request body. If object is modified after body was requested, it has to be
+     *                     set again to be serialized anew.
+     */
     public void setObjectToPost(Object objectToPost) {
         this.objectToPost = objectToPost;
         this.requestHandler.setObject(this.objectToPost);
+        this.objectBody = null;
+        this.bodyDigest = null;
+    }
+
+    /**
+     * @return SHA-1 digest of canonical request body: post parameters are sorted by key and object is serialized with request handler.
+     * Digest is cached until body is changed using setters of this class.
+     */
+    public String getBodyDigest() {
+        String digest = this.bodyDigest;
+        if (digest == null) {
+            byte[] body;
+            try {
+                if (this.postParameters != null) {
+                    body = CanonicalUrlBuilder.buildQuery(this.postParameters).getBytes("UTF-8");
+                } else {
+                    body = getBody();
+                }
+            } catch (AuthFailureError e) {
+                throw new IllegalStateException(e);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            digest = digest(body != null ? body : new byte[0]);
+            this.bodyDigest = digest;
+        }
+        return digest;
+    }
+
+    /**
+     * @return size of raw response, received for this request, in bytes. 0 if response wasn't received yet.
+     */
+    public int getResponseSize() {
+        return responseSize;
+    }
+
+    /**
+     * @return true if POST request was marked as idempotent (see {@link RequestConfig#setIdempotentPost(boolean)})
+     */
+    public boolean isIdempotentPost() {
+        return idempotentPost;
     }
 
     // Get parameters handling
 
+    /**
+     * @return request url with canonical query, built from get parameters (see {@link CanonicalUrlBuilder}). Url is cached
+     * until parameters are changed using setters of this class.
+     */
     @Override
     public String getUrl() {
-        if (this.getParameters != null && !this.getParameters.isEmpty()) {
-            Uri.Builder builder = Uri.parse(super.getUrl()).buildUpon();
-            for (Map.Entry<String, Object> entry : this.getParameters.entrySet()) {
-                Object entryValue = entry.getValue();
-                String entryKey = entry.getKey();
-                if (entryValue == null) {
-                    builder.appendQueryParameter(entryKey, null);
-                    break;
-                }
-                if (entryValue instanceof Collection) {
-                    Collection items = (Collection) entryValue;
-                    for (Object item : items) {
-                        if (item == null) {
-                            builder.appendQueryParameter(entryKey, null);
-                        } else {
-                            builder.appendQueryParameter(entryKey, item.toString());
-                        }
-                    }
-                } else {
-                    builder.appendQueryParameter(entryKey, entryValue.toString());
-                }
-            }
-            String urlString = builder.build().toString();
-            return urlString;
-        } else {
-            return super.getUrl();
+        String url = this.canonicalUrl;
+        if (url == null) {
+            url = CanonicalUrlBuilder.buildUrl(super.getUrl(), this.getParameters);
+            this.canonicalUrl = url;
         }
+        return url;
     }
 
+    /**
+     * @return get parameters map. Note: in case if it's modified directly - {@link #setGetParameters(Map)} has to be called in order to update request url.
+     */
     public Map<String, Object> getGetParameters() {
         return getParameters;
     }
@@ -382,6 +768,7 @@ public class BaseRequest extends Request<ResponseData> {
      */
     public void setGetParameters(Map<String, Object> getParameters) {
         this.getParameters = getParameters;
+        this.canonicalUrl = null;
     }
 
     /**
@@ -393,6 +780,7 @@ public class BaseRequest extends Request<ResponseData> {
         } else {
             this.getParameters.putAll(getParameters);
         }
+        this.canonicalUrl = null;
     }
 
     /**
@@ -407,6 +795,7 @@ public class BaseRequest extends Request<ResponseData> {
         } else {
             this.getParameters.put(key, value);
         }
+        this.canonicalUrl = null;
     }
 
     public String getDefaultCharset() {
@@ -418,6 +807,8 @@ public class BaseRequest extends Request<ResponseData> {
      */
     public void setDefaultCharset(String defaultCharset) {
         this.defaultCharset = defaultCharset;
+        this.objectBody = null;
+        this.bodyDigest = null;
     }
 
     /**
@@ -434,17 +825,90 @@ public class BaseRequest extends Request<ResponseData> {
         this.smartComparisonEnabled = smartComparisonEnabled;
     }
 
+    public ParsedResponseCache getParsedResponseCache() {
+        return parsedResponseCache;
+    }
+
+    /**
+     * @param parsedResponseCache cache, used to skip response deserialization if the same response was already parsed.
+     *                            Note: cached objects are shared between requests so they mustn't be modified.
+     */
+    public void setParsedResponseCache(ParsedResponseCache parsedResponseCache) {
+        this.parsedResponseCache = parsedResponseCache;
+    }
+
+    /**
+     * @return true if parsed response has to be stored to {@link SnapshotStore}
+     */
+    public boolean isSnapshotEnabled() {
+        return snapshotEnabled;
+    }
+
+    /**
+     * @return true if response is parsed on the first {@link ResponseData#getData()} call, false if it's parsed on the network thread
+     */
+    public boolean isLazyParsingEnabled() {
+        return lazyParsing;
+    }
+
+    /**
+     * @return true if JSON response is bound to declared fields of response class only
+     */
+    public boolean isProjectionBindingEnabled() {
+        return projectionBinding;
+    }
+
+    public SnapshotStore getSnapshotStore() {
+        return snapshotStore;
+    }
+
+    /**
+     * @param snapshotStore store, parsed response will be saved to, if snapshots are enabled for this request.
+     */
+    public void setSnapshotStore(SnapshotStore snapshotStore) {
+        this.snapshotStore = snapshotStore;
+    }
+
+    public VaryRegistry getVaryRegistry() {
+        return varyRegistry;
+    }
+
+    /**
+     * @param varyRegistry registry, used to include request headers, response varies on, to the cache key
+     */
+    public void setVaryRegistry(VaryRegistry varyRegistry) {
+        this.varyRegistry = varyRegistry;
+    }
+
+    /**
+     * @return digest of the cache partition or null if request belongs to shared partition
+     */
+    public String getCachePartition() {
+        return cachePartition;
+    }
+
+    /**
+     * @param cachePartition value, identifying cache partition (e.g. user id) or null for shared partition. Only digest of
+     *                       the value is kept, so it's safe to use session tokens.
+     */
+    public void setCachePartition(String cachePartition) {
+        this.cachePartition = cachePartition != null ? digest(cachePartition) : null;
+    }
+
+    /**
+     * Copies settings, cache key depends on, except request headers, so that request of another url shares cache key rules
+     */
+    void copyCacheKeySettings(BaseRequest request) {
+        this.varyRegistry = request.varyRegistry;
+        this.cachePartition = request.cachePartition;
+    }
+
     @Override
     public void cancel() {
         this.syncLock.onResponse(null);
         super.cancel();
     }
 
-
-    private String getUnparameterizedURL() {
-        return super.getUrl();
-    }
-
     @Override
     public String toString() {
         return "BaseRequest{" +
@@ -475,21 +939,28 @@ public class BaseRequest extends Request<ResponseData> {
 
         BaseRequest that = (BaseRequest) o;
 
-        String url = getUnparameterizedURL();
-        String otherUrl = that.getUnparameterizedURL();
+        String url = getUrl();
+        String otherUrl = that.getUrl();
 
+        // Canonical url contains get parameters and doesn't depend on their order
         if (url != null ? !url.equals(otherUrl) : otherUrl != null) {
             return false;
         }
-
-        if (getParameters != null ? !getParameters.equals(that.getParameters) : that.getParameters != null) {
-            return false;
-        }
-        if (objectToPost != null ? !objectToPost.equals(that.objectToPost) : that.objectToPost != null) {
+        if (idempotentPost != that.idempotentPost) {
             return false;
         }
-        if (postParameters != null ? !postParameters.equals(that.postParameters) : that.postParameters != null) {
-            return false;
+        if (idempotentPost) {
+            // Digest lets equal bodies match even if posted object doesn't override equals
+            if (!getBodyDigest().equals(that.getBodyDigest())) {
+                return false;
+            }
+        } else {
+            if (objectToPost != null ? !objectToPost.equals(that.objectToPost) : that.objectToPost != null) {
+                return false;
+            }
+            if (postParameters != null ? !postParameters.equals(that.postParameters) : that.postParameters != null) {
+                return false;
+            }
         }
         if (requestHeaders != null ? !requestHeaders.equals(that.requestHeaders) : that.requestHeaders != null) {
             return false;
@@ -501,6 +972,9 @@ public class BaseRequest extends Request<ResponseData> {
         if (defaultCharset != null ? !defaultCharset.equals(that.defaultCharset) : that.defaultCharset != null) {
             return false;
         }
+        if (cachePartition != null ? !cachePartition.equals(that.cachePartition) : that.cachePartition != null) {
+            return false;
+        }
         if (requestFormat != that.requestFormat) {
             return false;
         }
@@ -522,14 +996,44 @@ public class BaseRequest extends Request<ResponseData> {
         result = 31 * result + (responseFormat != null ? responseFormat.hashCode() : 0);
         result = 31 * result + (responseClasSpecifier != null ? responseClasSpecifier.hashCode() : 0);
         result = 31 * result + (defaultCharset != null ? defaultCharset.hashCode() : 0);
+        result = 31 * result + (cachePartition != null ? cachePartition.hashCode() : 0);
         result = 31 * result + (requestHeaders != null ? requestHeaders.hashCode() : 0);
-        result = 31 * result + (postParameters != null ? postParameters.hashCode() : 0);
-        result = 31 * result + (getParameters != null ? getParameters.hashCode() : 0);
-        result = 31 * result + (objectToPost != null ? objectToPost.hashCode() : 0);
-        result = 31 * result + (getUnparameterizedURL() != null ? getUnparameterizedURL().hashCode() : 0);
+        if (idempotentPost) {
+            result = 31 * result + getBodyDigest().hashCode();
+        } else {
+            result = 31 * result + (postParameters != null ? postParameters.hashCode() : 0);
+            result = 31 * result + (objectToPost != null ? objectToPost.hashCode() : 0);
+        }
+        result = 31 * result + (getUrl() != null ? getUrl().hashCode() : 0);
         return result;
     }
 
+    private static boolean isSafeMethod(RequestMethod method) {
+        return method == RequestMethod.GET || method == RequestMethod.HEAD || method == RequestMethod.OPTIONS || method == RequestMethod.TRACE;
+    }
+
+    private static String digest(String value) {
+        try {
+            return digest(value.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String digest(byte[] value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(value);
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private static RequestFuture<ResponseData> getRequestLock() {
         RequestFuture<ResponseData> lock = RequestFuture.newFuture();
         return lock;
@@ -29,6 +29,19 @@ public class BaseRequestBuilder {
     private Object mResponseClassSpecifier;
     private Object mErrorResponseClassSpecifier;
 
+    private boolean mSnapshotEnabled;
+
+    private boolean mIdempotentPost;
+
+    private boolean mLazyParsingEnabled;
+
+    private boolean mProjectionBindingEnabled;
+
+    private BaseRequest.OnItemsBatchListener mItemsBatchListener;
+    private int mItemsBatchSize;
+
+    private StringPool mStringPool;
+
     private Request.Priority priority = Request.Priority.NORMAL;
 
     @NonNull
@@ -45,6 +58,10 @@ public class BaseRequestBuilder {
         config.setErrorResponseClassSpecifier(mErrorResponseClassSpecifier);
         config.setRequestFormat(mRequestFormat);
         config.setResponseClassSpecifier(mResponseClassSpecifier);
+        config.setSnapshotEnabled(mSnapshotEnabled);
+        config.setIdempotentPost(mIdempotentPost);
+        config.setLazyParsingEnabled(mLazyParsingEnabled);
+        config.setProjectionBindingEnabled(mProjectionBindingEnabled);
 
         final BaseRequest request = new BaseRequest(mRequestMethod, mRequestUri, config);
         request.setObjectToPost(mObjectToPost);
@@ -53,6 +70,10 @@ public class BaseRequestBuilder {
         request.setPostParameters(mPostParameters);
         request.setRequestHeaders(mRequestHeaders);
         request.setPriority(this.priority);
+        request.setItemsBatchListener(mItemsBatchSize, mItemsBatchListener);
+        if (mStringPool != null) {
+            request.setStringPool(mStringPool);
+        }
 
         return request;
 
@@ -186,6 +207,59 @@ public class BaseRequestBuilder {
         return this;
     }
 
+    /**
+     * @param snapshotEnabled if true - parsed response will be stored to client's {@link com.ls.http.base.cache.SnapshotStore}
+     */
+    public BaseRequestBuilder setSnapshotEnabled(boolean snapshotEnabled) {
+        this.mSnapshotEnabled = snapshotEnabled;
+        return this;
+    }
+
+    /**
+     * @param idempotentPost if true - POST response will be cached, using url and body digest as a key
+     */
+    public BaseRequestBuilder setIdempotentPost(boolean idempotentPost) {
+        this.mIdempotentPost = idempotentPost;
+        return this;
+    }
+
+    /**
+     * @param lazyParsingEnabled if true - response is parsed on the first data access, parse errors are reported by
+     *                           {@link ResponseData#getError()} only. Otherwise (default) - on the network thread.
+     */
+    public BaseRequestBuilder setLazyParsingEnabled(boolean lazyParsingEnabled) {
+        this.mLazyParsingEnabled = lazyParsingEnabled;
+        return this;
+    }
+
+    /**
+     * @param projectionBindingEnabled if true - JSON fields, response class doesn't declare, are skipped without decoding.
+     *                                 Ignored for classes with generated type adapters.
+     */
+    public BaseRequestBuilder setProjectionBindingEnabled(boolean projectionBindingEnabled) {
+        this.mProjectionBindingEnabled = projectionBindingEnabled;
+        return this;
+    }
+
+    /**
+     * @param stringPool pool, used to deduplicate repeated short strings of the parsed response
+     */
+    public BaseRequestBuilder setStringPool(StringPool stringPool) {
+        this.mStringPool = stringPool;
+        return this;
+    }
+
+    /**
+     * @param batchSize          number of elements, passed to the listener at once
+     * @param itemsBatchListener listener, receiving elements of list or array response on the parsing thread as soon as they are parsed.
+     *                           Parsing starts after the whole body is downloaded, see {@link BaseRequest#setItemsBatchListener}
+     */
+    public BaseRequestBuilder setItemsBatchListener(int batchSize, BaseRequest.OnItemsBatchListener itemsBatchListener) {
+        this.mItemsBatchSize = batchSize;
+        this.mItemsBatchListener = itemsBatchListener;
+        return this;
+    }
+
     /**
      * @param errorResponseClassSpecifier Class or Type, returned as error field of ResultData object, can be null if you don't need one.
      * @deprecated use {@link #setErrorResponseClassSpecifier(Object)}
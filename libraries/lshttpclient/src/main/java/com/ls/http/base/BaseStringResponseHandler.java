@@ -29,17 +29,74 @@ import com.android.volley.toolbox.HttpHeaderParser;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
 import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 
 public abstract class BaseStringResponseHandler extends ResponseHandler {
 
+    private static final String DEFAULT_STREAM_CHARSET = "UTF-8";
+    private static final String CHARSET_PARAMETER = "charset=";
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+
     protected abstract Object itemFromResponse(@NonNull String response, @NonNull Class<?> theClass);
 
     protected abstract Object itemFromResponse(@NonNull String response, @NonNull Type theType);
 
+    /**
+     * @return true if response of the type specified can be deserialized from the body stream directly, without creating
+     * body string. {@link #itemFromResponse(Reader, Type)} is used in this case.
+     */
+    protected boolean isStreamingSupported(@NonNull Object theSpecifier) {
+        return false;
+    }
+
+    /**
+     * Called only if {@link #isStreamingSupported(Object)} returned true
+     *
+     * @param response body reader, decoding bytes lazily
+     * @param theType  Class or Type of result
+     */
+    protected Object itemFromResponse(@NonNull Reader response, @NonNull Type theType) {
+        throw new UnsupportedOperationException("Streaming isn't supported by " + getClass().getName());
+    }
+
+    /**
+     * Called only if {@link #isStreamingSupported(Object)} returned true for array response, requested to be delivered in
+     * batches. Parsed elements have to be passed to {@link ItemsBatchDispatcher#add(Object)} one by one and parsing has to be
+     * stopped once it returned false.
+     *
+     * @param response body reader, decoding bytes lazily
+     */
+    protected void itemsFromResponse(@NonNull Reader response, @NonNull ItemsBatchDispatcher dispatcher) {
+        throw new UnsupportedOperationException("Streaming isn't supported by " + getClass().getName());
+    }
+
+    /**
+     * Called only if {@link #isStreamingSupported(Object)} returned true. Reads the body with
+     * {@link #itemFromResponse(Reader, Type)} by default, handlers, which detect charset themselves, can read the bytes.
+     *
+     * @param theType Class or Type of result
+     */
+    protected Object itemFromResponse(@NonNull NetworkResponse response, @NonNull Type theType) {
+        return itemFromResponse(newResponseReader(response), theType);
+    }
+
+    /**
+     * Called only if {@link #isStreamingSupported(Object)} returned true for array response, requested to be delivered in
+     * batches. Reads the body with {@link #itemsFromResponse(Reader, ItemsBatchDispatcher)} by default.
+     */
+    protected void itemsFromResponse(@NonNull NetworkResponse response, @NonNull ItemsBatchDispatcher dispatcher) {
+        itemsFromResponse(newResponseReader(response), dispatcher);
+    }
+
     protected Object itemFromResponseWithSpecifier(String response, Object theSpecifier) {
         Object result = null;
         if (response != null && theSpecifier != null) {
@@ -55,14 +112,21 @@ public abstract class BaseStringResponseHandler extends ResponseHandler {
     }
 
     protected Response<ResponseData> parseNetworkResponse(NetworkResponse response, Object responseClassSpecifier) {
-        String resultStr = parseResponseString(response);
         ResponseData responseData = new ResponseData();
 
         responseData.statusCode = response.statusCode;
         responseData.headers = new HashMap<String, String>(response.headers);
 
-        if (!TextUtils.isEmpty(resultStr)) {
-            responseData.data = this.itemFromResponseWithSpecifier(resultStr, responseClassSpecifier);
+        if (responseClassSpecifier instanceof Type && isStreamingSupported(responseClassSpecifier)) {
+            // Body string isn't created: it takes twice the body size and is discarded right after parsing
+            if (response.data != null && response.data.length > 0) {
+                responseData.data = this.itemFromResponse(response, (Type) responseClassSpecifier);
+            }
+        } else {
+            String resultStr = parseResponseString(response);
+            if (!TextUtils.isEmpty(resultStr)) {
+                responseData.data = this.itemFromResponseWithSpecifier(resultStr, responseClassSpecifier);
+            }
         }
 
         Response<ResponseData> result = Response.success(responseData, HttpHeaderParser.parseCacheHeaders(response));
@@ -72,8 +136,89 @@ public abstract class BaseStringResponseHandler extends ResponseHandler {
         return result;
     }
 
+    @Override
+    protected Response<ResponseData> parseNetworkResponse(NetworkResponse response, Object responseClassSpecifier,
+            ItemsBatchDispatcher dispatcher) {
+        if (!isStreamingSupported(responseClassSpecifier)) {
+            return super.parseNetworkResponse(response, responseClassSpecifier, dispatcher);
+        }
+
+        ResponseData responseData = new ResponseData();
+        responseData.statusCode = response.statusCode;
+        responseData.headers = new HashMap<String, String>(response.headers);
+
+        if (response.data != null && response.data.length > 0) {
+            this.itemsFromResponse(response, dispatcher);
+            dispatcher.finish();
+            responseData.data = dispatcher.getResult();
+        }
+
+        Response<ResponseData> result = Response.success(responseData, HttpHeaderParser.parseCacheHeaders(response));
+        responseData.error = result.error;
+        return result;
+    }
+
     ;
 
+    /**
+     * @return reader of response body. Charset is taken from Content-Type header, detected by byte order mark or UTF-8 is used.
+     */
+    @NonNull
+    protected static Reader newResponseReader(@NonNull NetworkResponse response) {
+        final byte[] data = response.data != null ? response.data : new byte[0];
+        int offset = 0;
+        String charsetName = getHeaderCharset(response);
+        if (charsetName == null) {
+            if (data.length >= 3 && (data[0] & 0xff) == 0xef && (data[1] & 0xff) == 0xbb && (data[2] & 0xff) == 0xbf) {
+                charsetName = "UTF-8";
+                offset = 3;
+            } else if (data.length >= 2 && ((data[0] & 0xff) == 0xfe && (data[1] & 0xff) == 0xff
+                    || (data[0] & 0xff) == 0xff && (data[1] & 0xff) == 0xfe)) {
+                // UTF-16 decoder consumes byte order mark itself
+                charsetName = "UTF-16";
+            } else {
+                charsetName = DEFAULT_STREAM_CHARSET;
+            }
+        }
+
+        Charset charset;
+        try {
+            charset = Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {
+            charset = Charset.forName(DEFAULT_STREAM_CHARSET);
+        }
+        return new InputStreamReader(new ByteArrayInputStream(data, offset, data.length - offset), charset);
+    }
+
+    /**
+     * @return charset, specified in Content-Type header or null if there is no such
+     */
+    protected static String getHeaderCharset(@NonNull NetworkResponse response) {
+        if (response.headers == null) {
+            return null;
+        }
+        String contentType = response.headers.get(HEADER_CONTENT_TYPE);
+        if (contentType == null) {
+            for (Map.Entry<String, String> header : response.headers.entrySet()) {
+                if (HEADER_CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+                    contentType = header.getValue();
+                    break;
+                }
+            }
+        }
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            final String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.US).startsWith(CHARSET_PARAMETER)) {
+                final String charset = trimmed.substring(CHARSET_PARAMETER.length()).trim();
+                return charset.replace("\"", "");
+            }
+        }
+        return null;
+    }
+
     protected String parseResponseString(NetworkResponse response) {
         String parsed = null;
         if (response.data != null) {
@@ -0,0 +1,195 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds request URL with query, which doesn't depend on parameter map iteration order: keys are sorted, {@link Set} values
+ * are sorted too, while other collections keep their order. Keys and values are percent-encoded the same way as
+ * {@link android.net.Uri#encode(String)} does, so URLs match ones, built with {@link android.net.Uri.Builder}, up to
+ * parameter order.
+ */
+public final class CanonicalUrlBuilder {
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final Comparator<String> NULL_FIRST_COMPARATOR = new Comparator<String>() {
+        @Override
+        public int compare(final String lhs, final String rhs) {
+            if (lhs == null) {
+                return rhs == null ? 0 : -1;
+            }
+            return rhs == null ? 1 : lhs.compareTo(rhs);
+        }
+    };
+
+    private CanonicalUrlBuilder() {
+    }
+
+    /**
+     * @param baseUrl    url, parameters have to be appended to. Existing query and fragment are preserved.
+     * @param parameters in case if collection is passed as map entry value - all entities will be added under corresponding
+     *                   key. Object.toString will be called otherwise. Key without value is added for null values.
+     * @return url with canonical query appended
+     */
+    @NonNull
+    public static String buildUrl(@NonNull final String baseUrl, @Nullable final Map<String, ?> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return baseUrl;
+        }
+
+        final String query = buildQuery(parameters);
+        if (query.length() == 0) {
+            return baseUrl;
+        }
+
+        final int fragmentStart = baseUrl.indexOf('#');
+        final String url = fragmentStart >= 0 ? baseUrl.substring(0, fragmentStart) : baseUrl;
+        final StringBuilder builder = new StringBuilder(baseUrl.length() + query.length() + 1);
+        builder.append(url);
+        final int queryStart = url.indexOf('?');
+        if (queryStart < 0) {
+            builder.append('?');
+        } else if (queryStart < url.length() - 1 && !url.endsWith("&")) {
+            builder.append('&');
+        }
+        builder.append(query);
+        if (fragmentStart >= 0) {
+            builder.append(baseUrl, fragmentStart, baseUrl.length());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return encoded query string without leading '?'
+     */
+    @NonNull
+    public static String buildQuery(@NonNull final Map<String, ?> parameters) {
+        final String[] keys = new String[parameters.size()];
+        int keyCount = 0;
+        for (String key : parameters.keySet()) {
+            if (key != null) {
+                keys[keyCount++] = key;
+            }
+        }
+        Arrays.sort(keys, 0, keyCount);
+
+        final StringBuilder builder = new StringBuilder();
+        for (int counter = 0; counter < keyCount; counter++) {
+            final String encodedKey = encode(keys[counter]);
+            final Object value = parameters.get(keys[counter]);
+            if (value instanceof Collection) {
+                for (String encodedValue : encodeCollection((Collection<?>) value)) {
+                    appendParameter(builder, encodedKey, encodedValue);
+                }
+            } else {
+                appendParameter(builder, encodedKey, value != null ? encode(value.toString()) : null);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Percent-encodes all characters, except unreserved ones: letters, digits and "_-!.~'()*".
+     */
+    @NonNull
+    public static String encode(@NonNull final String value) {
+        final int length = value.length();
+        int firstEncoded = 0;
+        while (firstEncoded < length && isAllowed(value.charAt(firstEncoded))) {
+            firstEncoded++;
+        }
+        if (firstEncoded == length) {
+            return value;
+        }
+
+        final StringBuilder builder = new StringBuilder(length + 16);
+        builder.append(value, 0, firstEncoded);
+        int current = firstEncoded;
+        while (current < length) {
+            int next = current;
+            while (next < length && !isAllowed(value.charAt(next))) {
+                next++;
+            }
+            final byte[] bytes;
+            try {
+                bytes = value.substring(current, next).getBytes(CHARSET);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            for (byte b : bytes) {
+                builder.append('%').append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+            }
+
+            current = next;
+            while (current < length && isAllowed(value.charAt(current))) {
+                builder.append(value.charAt(current));
+                current++;
+            }
+        }
+        return builder.toString();
+    }
+
+    @NonNull
+    private static List<String> encodeCollection(@NonNull final Collection<?> values) {
+        final List<String> result = new ArrayList<String>(values.size());
+        for (Object item : values) {
+            result.add(item != null ? encode(item.toString()) : null);
+        }
+        if (values instanceof Set && result.size() > 1) {
+            // Sets have no stable iteration order
+            Collections.sort(result, NULL_FIRST_COMPARATOR);
+        }
+        return result;
+    }
+
+    private static void appendParameter(@NonNull final StringBuilder builder, @NonNull final String encodedKey,
+            @Nullable final String encodedValue) {
+        if (builder.length() > 0) {
+            builder.append('&');
+        }
+        builder.append(encodedKey);
+        if (encodedValue != null) {
+            builder.append('=').append(encodedValue);
+        }
+    }
+
+    private static boolean isAllowed(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || "_-!.~'()*".indexOf(c) != -1;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base;
+
+import com.android.volley.Cache;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.HttpHeaderParser;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores resources, embedded into HAL responses, to the cache of the request queue, keyed by their self links, so following
+ * requests of these resources are served from cache. Link relations, listed on creation, are prefetched with low priority.
+ * <p/>
+ * Embedded resource gets the cache lifetime of the response it was embedded into and never replaces a fresh cache entry, since
+ * embedded representation could be partial. Relative links are resolved against the request url, templated links and links to other origins are ignored.
+ * Prefetch requests are tagged with this object, so they can be cancelled with {@link RequestQueue#cancelAll(Object)}; their
+ * own embedded resources are stored, but their links aren't followed.
+ */
+public class HalResourceCache {
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String CHARSET_UTF_8 = "charset=UTF-8";
+
+    /**
+     * Headers, describing representation of the whole response, not the embedded resource
+     */
+    private static final String[] RESPONSE_ONLY_HEADERS = {"ETag", "Last-Modified", "Content-Length", "Content-Encoding"};
+
+    @NonNull
+    private final Set<String> mPrefetchRelations;
+
+    /**
+     * @param prefetchRelations link relations (e.g. "next"), resources of which have to be prefetched
+     */
+    public HalResourceCache(@NonNull final String... prefetchRelations) {
+        final Set<String> relations = new HashSet<String>();
+        Collections.addAll(relations, prefetchRelations);
+        mPrefetchRelations = Collections.unmodifiableSet(relations);
+    }
+
+    @NonNull
+    public Set<String> getPrefetchRelations() {
+        return mPrefetchRelations;
+    }
+
+    /**
+     * @param request  request, response was received for
+     * @param selfHref self link of the embedded resource
+     * @param resource serialized resource, encoded in UTF-8
+     * @param response response, resource was embedded into
+     * @return true if resource was stored
+     */
+    public boolean putEmbedded(@NonNull final BaseRequest request, @NonNull final String selfHref, @NonNull final byte[] resource,
+            @NonNull final NetworkResponse response) {
+        final RequestQueue queue = request.getRequestQueue();
+        if (queue == null) {
+            return false;
+        }
+        final Cache.Entry responseEntry = HttpHeaderParser.parseCacheHeaders(response);
+        if (responseEntry == null || responseEntry.isExpired()) {
+            // Response mustn't be cached, so resources it contains mustn't be either
+            return false;
+        }
+        final BaseRequest resourceRequest = newResourceRequest(request, selfHref);
+        if (resourceRequest == null) {
+            return false;
+        }
+
+        final Cache cache = queue.getCache();
+        final String cacheKey = resourceRequest.getCacheKey();
+        if (cacheKey == null || cacheKey.equals(request.getCacheKey()) || isFresh(cache, cacheKey)) {
+            return false;
+        }
+
+        final Cache.Entry entry = new Cache.Entry();
+        entry.data = resource;
+        entry.serverDate = responseEntry.serverDate;
+        entry.ttl = responseEntry.ttl;
+        entry.softTtl = responseEntry.softTtl;
+        entry.responseHeaders = getResourceHeaders(response.headers);
+        cache.put(cacheKey, entry);
+        return true;
+    }
+
+    /**
+     * Adds low priority request of the resource to the request queue unless there is a fresh cache entry for it
+     *
+     * @param request request, response with the link was received for
+     * @param href    link to prefetch
+     * @return true if prefetch request was added
+     */
+    public boolean prefetch(@NonNull final BaseRequest request, @NonNull final String href) {
+        final RequestQueue queue = request.getRequestQueue();
+        if (queue == null || request.getTag() == this) {
+            // Links of prefetched resources aren't followed, otherwise e.g. all pages of collection would be loaded
+            return false;
+        }
+        final BaseRequest resourceRequest = newResourceRequest(request, href);
+        if (resourceRequest == null) {
+            return false;
+        }
+        final String cacheKey = resourceRequest.getCacheKey();
+        if (cacheKey == null || cacheKey.equals(request.getCacheKey()) || isFresh(queue.getCache(), cacheKey)) {
+            return false;
+        }
+
+        resourceRequest.setPriority(Request.Priority.LOW);
+        resourceRequest.setTag(this);
+        resourceRequest.setHalResourceCache(this);
+        queue.add(resourceRequest);
+        return true;
+    }
+
+    /**
+     * @return GET request of the resource, cache key of which matches one, resource is requested with later, or null if link
+     * can't be resolved or points to another origin. Request headers (e.g. authorization) are copied, so links to other
+     * hosts are never followed, neither their resources are stored.
+     */
+    @Nullable
+    private static BaseRequest newResourceRequest(@NonNull final BaseRequest request, @NonNull final String href) {
+        final String url;
+        try {
+            final URI requestUri = URI.create(request.getUrl());
+            final URI resourceUri = requestUri.resolve(href);
+            if (!isSameOrigin(requestUri, resourceUri)) {
+                return null;
+            }
+            url = resourceUri.toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        final BaseRequest resourceRequest = new BaseRequest(BaseRequest.RequestMethod.GET, url,
+                new RequestConfig(null, BaseRequest.RequestFormat.JSON_HAL, null));
+        if (request.getRequestHeaders() != null) {
+            resourceRequest.setRequestHeaders(new HashMap<String, String>(request.getRequestHeaders()));
+        }
+        resourceRequest.copyCacheKeySettings(request);
+        return resourceRequest;
+    }
+
+    private static boolean isSameOrigin(@NonNull final URI base, @NonNull final URI uri) {
+        final String scheme = base.getScheme();
+        final String host = base.getHost();
+        return scheme != null && host != null && scheme.equalsIgnoreCase(uri.getScheme()) && host.equalsIgnoreCase(uri.getHost())
+                && getPort(base) == getPort(uri);
+    }
+
+    private static int getPort(@NonNull final URI uri) {
+        final int port = uri.getPort();
+        if (port != -1) {
+            return port;
+        }
+        if ("http".equalsIgnoreCase(uri.getScheme())) {
+            return 80;
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : -1;
+    }
+
+    private static boolean isFresh(@NonNull final Cache cache, @NonNull final String cacheKey) {
+        final Cache.Entry entry = cache.get(cacheKey);
+        return entry != null && !entry.refreshNeeded();
+    }
+
+    @NonNull
+    private static Map<String, String> getResourceHeaders(@NonNull final Map<String, String> responseHeaders) {
+        final Map<String, String> headers = new HashMap<String, String>(responseHeaders.size());
+        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+            if (!isResponseOnlyHeader(header.getKey())) {
+                headers.put(header.getKey(), header.getValue());
+            }
+        }
+
+        // Resource is serialized in UTF-8, whatever charset response was encoded in
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (HEADER_CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+                final String contentType = header.getValue();
+                final int parametersStart = contentType.indexOf(';');
+                final String mediaType = parametersStart >= 0 ? contentType.substring(0, parametersStart) : contentType;
+                header.setValue(mediaType.trim() + "; " + CHARSET_UTF_8);
+            }
+        }
+        return headers;
+    }
+
+    private static boolean isResponseOnlyHeader(@Nullable final String name) {
+        for (String header : RESPONSE_ONLY_HEADERS) {
+            if (header.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
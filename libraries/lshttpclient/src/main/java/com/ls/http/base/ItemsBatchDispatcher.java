@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base;
+
+import com.google.gson.reflect.TypeToken;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects array elements while response is being parsed and passes them to {@link BaseRequest.OnItemsBatchListener}
+ * in batches. Listener is called on the parsing thread and parsing is suspended until it returns, so slow consumer
+ * throttles the parser.
+ */
+public final class ItemsBatchDispatcher {
+
+    private final BaseRequest mRequest;
+    private final BaseRequest.OnItemsBatchListener mListener;
+    private final int mBatchSize;
+    private final Type mElementType;
+    private final Class<?> mResultClass;
+
+    private final List<Object> mItems;
+    private int mDeliveredCount;
+    private boolean mStopped;
+
+    /**
+     * @return dispatcher for the response of type given or null if response type isn't a list or an array
+     */
+    @Nullable
+    static ItemsBatchDispatcher create(@NonNull final BaseRequest request, @NonNull final BaseRequest.OnItemsBatchListener listener,
+            final int batchSize, @Nullable final Object responseClassSpecifier) {
+        if (!(responseClassSpecifier instanceof Type)) {
+            return null;
+        }
+        final Type type = (Type) responseClassSpecifier;
+        final Type elementType = getElementType(type);
+        if (elementType == null) {
+            return null;
+        }
+        return new ItemsBatchDispatcher(request, listener, batchSize, elementType, TypeToken.get(type).getRawType());
+    }
+
+    /**
+     * @return element type of array or list type, which can be instantiated as {@link ArrayList}, null for other types
+     */
+    @Nullable
+    static Type getElementType(@NonNull final Type type) {
+        final Class<?> rawType = TypeToken.get(type).getRawType();
+        Type elementType = null;
+        if (rawType.isArray()) {
+            elementType = type instanceof GenericArrayType ? ((GenericArrayType) type).getGenericComponentType() : rawType.getComponentType();
+        } else if (type instanceof ParameterizedType && rawType.isAssignableFrom(ArrayList.class)) {
+            elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (elementType instanceof WildcardType) {
+                elementType = ((WildcardType) elementType).getUpperBounds()[0];
+            }
+        }
+        return elementType;
+    }
+
+    /**
+     * @param resultClass array class or list class, {@link #getElementType(Type)} returned element type for
+     * @param items       array elements
+     * @return items as an instance of result class
+     */
+    @NonNull
+    static Object toResult(@NonNull final Class<?> resultClass, @NonNull final List<Object> items) {
+        if (resultClass.isArray()) {
+            final Object result = Array.newInstance(resultClass.getComponentType(), items.size());
+            for (int i = 0; i < items.size(); i++) {
+                Array.set(result, i, items.get(i));
+            }
+            return result;
+        }
+        return items;
+    }
+
+    private ItemsBatchDispatcher(@NonNull final BaseRequest request, @NonNull final BaseRequest.OnItemsBatchListener listener,
+            final int batchSize, @NonNull final Type elementType, @NonNull final Class<?> resultClass) {
+        mRequest = request;
+        mListener = listener;
+        mBatchSize = Math.max(1, batchSize);
+        mElementType = elementType;
+        mResultClass = resultClass;
+        mItems = new ArrayList<Object>();
+    }
+
+    /**
+     * @return type of the array elements, parser has to produce
+     */
+    @NonNull
+    public Type getElementType() {
+        return mElementType;
+    }
+
+    /**
+     * @param item parsed array element
+     * @return false if parsing has to be stopped: request was canceled or listener refused further items
+     */
+    public boolean add(@Nullable final Object item) {
+        if (mStopped) {
+            return false;
+        }
+        mItems.add(item);
+        if (mItems.size() - mDeliveredCount >= mBatchSize) {
+            return deliverPending();
+        }
+        return !isStopped();
+    }
+
+    /**
+     * Delivers the last incomplete batch, should be called after array end was reached.
+     *
+     * @return false if parsing was stopped
+     */
+    public boolean finish() {
+        if (mStopped) {
+            return false;
+        }
+        if (mItems.size() > mDeliveredCount) {
+            return deliverPending();
+        }
+        return !isStopped();
+    }
+
+    /**
+     * Delivers all elements of the list or array, parsed earlier (e.g. restored from cache), in batches
+     */
+    void dispatchAll(@Nullable final Object data) {
+        if (data instanceof Collection) {
+            for (Object item : (Collection<?>) data) {
+                if (!add(item)) {
+                    return;
+                }
+            }
+        } else if (data != null && data.getClass().isArray()) {
+            for (int i = 0, length = Array.getLength(data); i < length; i++) {
+                if (!add(Array.get(data, i))) {
+                    return;
+                }
+            }
+        }
+        finish();
+    }
+
+    /**
+     * @return true if request was canceled or listener refused further items. Response is incomplete in this case.
+     */
+    public boolean isStopped() {
+        if (!mStopped && mRequest.isCanceled()) {
+            mStopped = true;
+        }
+        return mStopped;
+    }
+
+    /**
+     * @return all the elements, collected so far, as an instance of response type
+     */
+    @NonNull
+    public Object getResult() {
+        return toResult(mResultClass, mItems);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean deliverPending() {
+        if (isStopped()) {
+            return false;
+        }
+        final List<Object> batch = Collections.unmodifiableList(new ArrayList<Object>(mItems.subList(mDeliveredCount, mItems.size())));
+        mDeliveredCount = mItems.size();
+        if (!mListener.onItemsParsed(batch, mRequest)) {
+            mStopped = true;
+            mRequest.cancel();
+        }
+        return !mStopped;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Binds elements of large top-level JSON arrays on several threads. Response bytes are scanned once to find element
+ * boundaries, then contiguous ranges of elements are deserialized in parallel and merged in the original order.
+ * Used for list and array responses of JSON formats, which are larger than the threshold and encoded in UTF-8.
+ */
+public class ParallelJsonArrayParser {
+
+    public static final int DEFAULT_THRESHOLD_BYTES = 512 * 1024;
+
+    /**
+     * Ranges per thread: more ranges level out elements of different size
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] ARRAY_END = {']'};
+
+    private final int mThresholdBytes;
+    private final int mThreadCount;
+    private final ExecutorService mExecutor;
+
+    /**
+     * Creates parser with {@link #DEFAULT_THRESHOLD_BYTES} threshold and thread per processor core
+     */
+    public ParallelJsonArrayParser() {
+        this(DEFAULT_THRESHOLD_BYTES, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param thresholdBytes minimal size of response body, parsed in parallel. Smaller responses are parsed by request handler.
+     * @param threadCount    number of parsing threads
+     */
+    public ParallelJsonArrayParser(@IntRange(from = 0) final int thresholdBytes, @IntRange(from = 1) final int threadCount) {
+        mThresholdBytes = thresholdBytes;
+        mThreadCount = Math.max(1, threadCount);
+        mExecutor = Executors.newFixedThreadPool(mThreadCount, new ParserThreadFactory());
+    }
+
+    public int getThresholdBytes() {
+        return mThresholdBytes;
+    }
+
+    public int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /**
+     * @return parsed response or null if it can't be parsed in parallel, so request handler has to be used
+     */
+    @Nullable
+    Response<ResponseData> parse(@NonNull final NetworkResponse response, @Nullable final Object responseClassSpecifier,
+            @Nullable final StringPool stringPool) {
+        final byte[] data = response.data;
+        if (data == null || data.length < mThresholdBytes || !(responseClassSpecifier instanceof Type)) {
+            return null;
+        }
+        final Type type = (Type) responseClassSpecifier;
+        final Type elementType = ItemsBatchDispatcher.getElementType(type);
+        if (elementType == null || !isUtf8Compatible(response)) {
+            return null;
+        }
+
+        final int[] bounds = findElementBounds(data);
+        if (bounds == null) {
+            // Not an array or malformed JSON: handler will report the error
+            return null;
+        }
+
+        final List<Object> items;
+        try {
+            items = bindElements(data, bounds, elementType, stringPool);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        ResponseData responseData = new ResponseData();
+        responseData.statusCode = response.statusCode;
+        responseData.headers = new HashMap<String, String>(response.headers);
+        responseData.data = ItemsBatchDispatcher.toResult(TypeToken.get(type).getRawType(), items);
+        return Response.success(responseData, HttpHeaderParser.parseCacheHeaders(response));
+    }
+
+    @NonNull
+    private List<Object> bindElements(@NonNull final byte[] data, @NonNull final int[] bounds, @NonNull final Type elementType,
+            @Nullable final StringPool stringPool) throws InterruptedException {
+        final TypeAdapter<?> adapter = SharedGson.getAdapter(elementType);
+        final int elementCount = bounds.length / 2;
+        final Object[] results = new Object[elementCount];
+        final int rangeCount = Math.max(1, Math.min(elementCount, mThreadCount * RANGES_PER_THREAD));
+
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(rangeCount);
+        for (int range = 0; range < rangeCount; range++) {
+            final int from = (int) ((long) elementCount * range / rangeCount);
+            final int to = (int) ((long) elementCount * (range + 1) / rangeCount);
+            if (from < to) {
+                tasks.add(new BindTask(data, bounds, from, to, adapter, results, stringPool));
+            }
+        }
+
+        for (Future<Void> future : mExecutor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new JsonSyntaxException(cause);
+            }
+        }
+        return new ArrayList<Object>(Arrays.asList(results));
+    }
+
+    static boolean isUtf8Compatible(@NonNull final NetworkResponse response) {
+        final String charset = BaseStringResponseHandler.getHeaderCharset(response);
+        if (charset != null) {
+            return "UTF-8".equalsIgnoreCase(charset) || "UTF8".equalsIgnoreCase(charset) || "US-ASCII".equalsIgnoreCase(charset);
+        }
+        // UTF-16 byte order mark
+        final byte[] data = response.data;
+        return !(data.length >= 2 && ((data[0] & 0xff) == 0xfe && (data[1] & 0xff) == 0xff
+                || (data[0] & 0xff) == 0xff && (data[1] & 0xff) == 0xfe));
+    }
+
+    /**
+     * Finds elements of the top level array. Structural characters are ASCII, so UTF-8 multi-byte sequences never match them.
+     *
+     * @return start and end offsets of every element or null if data isn't a well-formed array
+     */
+    @Nullable
+    static int[] findElementBounds(@NonNull final byte[] data) {
+        int position = 0;
+        if (data.length >= 3 && (data[0] & 0xff) == 0xef && (data[1] & 0xff) == 0xbb && (data[2] & 0xff) == 0xbf) {
+            position = 3;
+        }
+        position = skipWhitespace(data, position);
+        if (position >= data.length || data[position] != '[') {
+            return null;
+        }
+        position = skipWhitespace(data, position + 1);
+
+        int[] bounds = new int[64];
+        int count = 0;
+        if (position < data.length && data[position] == ']') {
+            position++;
+        } else {
+            while (true) {
+                final int start = position;
+                int depth = 0;
+                boolean inString = false;
+                for (; position < data.length; position++) {
+                    final byte current = data[position];
+                    if (inString) {
+                        if (current == '\\') {
+                            position++;
+                        } else if (current == '"') {
+                            inString = false;
+                        }
+                    } else if (current == '"') {
+                        inString = true;
+                    } else if (current == '[' || current == '{') {
+                        depth++;
+                    } else if (current == ']' || current == '}') {
+                        if (depth == 0) {
+                            break;
+                        }
+                        depth--;
+                    } else if (current == ',' && depth == 0) {
+                        break;
+                    }
+                }
+                if (position >= data.length || position == start) {
+                    return null;
+                }
+                if (count + 2 > bounds.length) {
+                    bounds = copyOf(bounds, bounds.length * 2);
+                }
+                bounds[count++] = start;
+                bounds[count++] = position;
+
+                final byte delimiter = data[position];
+                position = skipWhitespace(data, position + 1);
+                if (delimiter == ']') {
+                    break;
+                } else if (delimiter != ',') {
+                    return null;
+                }
+            }
+        }
+        if (skipWhitespace(data, position) != data.length) {
+            return null;
+        }
+        return copyOf(bounds, count);
+    }
+
+    private static int[] copyOf(@NonNull final int[] source, final int length) {
+        final int[] result = new int[length];
+        System.arraycopy(source, 0, result, 0, Math.min(source.length, length));
+        return result;
+    }
+
+    private static int skipWhitespace(@NonNull final byte[] data, int position) {
+        while (position < data.length) {
+            final byte current = data[position];
+            if (current != ' ' && current != '\n' && current != '\r' && current != '\t') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    private static final class BindTask implements Callable<Void> {
+
+        private final byte[] mData;
+        private final int[] mBounds;
+        private final int mFrom;
+        private final int mTo;
+        private final TypeAdapter<?> mAdapter;
+        private final Object[] mResults;
+        private final StringPool mStringPool;
+
+        BindTask(final byte[] data, final int[] bounds, final int from, final int to, final TypeAdapter<?> adapter, final Object[] results,
+                final StringPool stringPool) {
+            mStringPool = stringPool;
+            mData = data;
+            mBounds = bounds;
+            mFrom = from;
+            mTo = to;
+            mAdapter = adapter;
+            mResults = results;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            // Elements of the range are read as an array, so single decoder and reader are used for all of them
+            final int start = mBounds[mFrom * 2];
+            final int end = mBounds[mTo * 2 - 1];
+            final List<InputStream> parts = Arrays.<InputStream>asList(new ByteArrayInputStream(ARRAY_START),
+                    new ByteArrayInputStream(mData, start, end - start), new ByteArrayInputStream(ARRAY_END));
+            final Reader source = new InputStreamReader(new SequenceInputStream(Collections.enumeration(parts)), UTF_8);
+            final JsonReader reader = mStringPool != null ? mStringPool.newJsonReader(source) : new JsonReader(source);
+            reader.setLenient(true);
+            reader.beginArray();
+            for (int index = mFrom; index < mTo; index++) {
+                mResults[index] = mAdapter.read(reader);
+            }
+            reader.endArray();
+            return null;
+        }
+    }
+
+    private static final class ParserThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCounter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "ParallelJsonArrayParser-" + mCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,823 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.ls.annotations.GenerateTypeAdapter;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds JSON objects to classes, reading only fields, declared by the class. Field names are matched against a byte
+ * trie right in the response bytes, so names of other fields aren't decoded and their values are skipped without any
+ * allocation. Primitive, boxed and String fields are read directly, other field types are delegated to Gson adapters.
+ * <p/>
+ * Supported response types are classes, bound by Gson reflectively, and lists or arrays of them. Other responses, non
+ * UTF-8 bodies and classes with custom adapters or without no-arg constructor are parsed by request handler.
+ * Classes, annotated with {@link GenerateTypeAdapter}, are always bound by their generated adapters: they stream fields
+ * without reflection already, so projection is ignored for them.
+ * Fields are matched the way default Gson configuration does: by name or {@link SerializedName}, static and transient
+ * fields are excluded, so projection mustn't be used with custom field naming or exclusion policies.
+ */
+final class ProjectionJsonBinder {
+
+    private static final String UTF_8 = "UTF-8";
+
+    /**
+     * Reflective adapter is the only one, which binds class fields by their names
+     */
+    private static final String REFLECTIVE_ADAPTER_PREFIX = "com.google.gson.internal.bind.ReflectiveTypeAdapterFactory";
+
+    private static final Map<Class<?>, ClassPlan> PLANS = new ConcurrentHashMap<Class<?>, ClassPlan>();
+
+    private static final ClassPlan UNSUPPORTED = new ClassPlan(null, null, null);
+
+    private ProjectionJsonBinder() {
+    }
+
+    /**
+     * @return parsed response or null if response type isn't supported, so request handler has to be used
+     */
+    @Nullable
+    static Response<ResponseData> parse(@NonNull final NetworkResponse response, @Nullable final Object responseClassSpecifier,
+            @Nullable final StringPool stringPool) {
+        if (response.data == null || !(responseClassSpecifier instanceof Type) || !ParallelJsonArrayParser.isUtf8Compatible(response)) {
+            return null;
+        }
+        final Type type = (Type) responseClassSpecifier;
+        final Type elementType = ItemsBatchDispatcher.getElementType(type);
+        final Type boundType = elementType != null ? elementType : type;
+        if (!(boundType instanceof Class)) {
+            return null;
+        }
+        final ClassPlan plan = getPlan((Class<?>) boundType, SharedGson.getGson());
+        if (plan == null) {
+            return null;
+        }
+
+        final Cursor cursor = new Cursor(response.data, stringPool);
+        cursor.skipByteOrderMark();
+        cursor.skipWhitespace();
+        Object data = null;
+        if (!cursor.isAtEnd() && !cursor.skipNull()) {
+            if (elementType != null) {
+                data = ItemsBatchDispatcher.toResult(TypeToken.get(type).getRawType(), bindArray(cursor, plan));
+            } else {
+                data = plan.bind(cursor);
+            }
+        }
+        cursor.skipWhitespace();
+        if (!cursor.isAtEnd()) {
+            throw cursor.syntaxError("End of document expected");
+        }
+
+        ResponseData responseData = new ResponseData();
+        responseData.statusCode = response.statusCode;
+        responseData.headers = new HashMap<String, String>(response.headers);
+        responseData.data = data;
+        return Response.success(responseData, HttpHeaderParser.parseCacheHeaders(response));
+    }
+
+    @NonNull
+    private static List<Object> bindArray(@NonNull final Cursor cursor, @NonNull final ClassPlan plan) {
+        final List<Object> items = new ArrayList<Object>();
+        cursor.expect('[');
+        cursor.skipWhitespace();
+        if (cursor.peek() == ']') {
+            cursor.position++;
+            return items;
+        }
+        while (true) {
+            cursor.skipWhitespace();
+            items.add(cursor.skipNull() ? null : plan.bind(cursor));
+            cursor.skipWhitespace();
+            final byte delimiter = cursor.next();
+            if (delimiter == ']') {
+                return items;
+            } else if (delimiter != ',') {
+                throw cursor.syntaxError("Unterminated array");
+            }
+        }
+    }
+
+    /**
+     * @return plan for the class or null if it has to be bound by Gson
+     */
+    @Nullable
+    private static ClassPlan getPlan(@NonNull final Class<?> theClass, @NonNull final Gson gson) {
+        if (theClass.isAnnotationPresent(GenerateTypeAdapter.class)) {
+            return null;
+        }
+        if (!gson.getAdapter(theClass).getClass().getName().startsWith(REFLECTIVE_ADAPTER_PREFIX)) {
+            return null;
+        }
+        ClassPlan plan = PLANS.get(theClass);
+        if (plan == null) {
+            plan = createPlan(theClass);
+            PLANS.put(theClass, plan);
+        }
+        return plan != UNSUPPORTED ? plan : null;
+    }
+
+    @NonNull
+    private static ClassPlan createPlan(@NonNull final Class<?> theClass) {
+        if (theClass.isInterface() || Modifier.isAbstract(theClass.getModifiers()) || theClass.isArray() || theClass.isEnum()
+                || theClass.isPrimitive() || (theClass.isMemberClass() && !Modifier.isStatic(theClass.getModifiers()))) {
+            return UNSUPPORTED;
+        }
+        final Constructor<?> constructor;
+        try {
+            constructor = theClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            return UNSUPPORTED;
+        }
+
+        final Node root = new Node();
+        final Map<String, BoundField> fieldsByName = new HashMap<String, BoundField>();
+        final Map<TypeVariable<?>, Type> typeArguments = new HashMap<TypeVariable<?>, Type>();
+        Class<?> current = theClass;
+        while (current != null && current != Object.class) {
+            for (Field field : current.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                if (field.getAnnotation(JsonAdapter.class) != null) {
+                    return UNSUPPORTED;
+                }
+                final Type fieldType = resolve(field.getGenericType(), typeArguments);
+                if (fieldType == null) {
+                    return UNSUPPORTED;
+                }
+                field.setAccessible(true);
+                final BoundField boundField = new BoundField(field, fieldType);
+                for (String name : getNames(field)) {
+                    // Field of subclass hides the one of superclass
+                    if (!fieldsByName.containsKey(name)) {
+                        fieldsByName.put(name, boundField);
+                        root.insert(toUtf8(name), boundField);
+                    }
+                }
+            }
+            final Type superclass = current.getGenericSuperclass();
+            final Class<?> rawSuperclass = current.getSuperclass();
+            if (superclass instanceof ParameterizedType && rawSuperclass != null) {
+                final Type[] arguments = ((ParameterizedType) superclass).getActualTypeArguments();
+                final TypeVariable<?>[] variables = rawSuperclass.getTypeParameters();
+                for (int i = 0; i < variables.length; i++) {
+                    final Type argument = resolve(arguments[i], typeArguments);
+                    if (argument != null) {
+                        typeArguments.put(variables[i], argument);
+                    }
+                }
+            }
+            current = rawSuperclass;
+        }
+        return new ClassPlan(constructor, root, fieldsByName);
+    }
+
+    @NonNull
+    private static String[] getNames(@NonNull final Field field) {
+        final SerializedName annotation = field.getAnnotation(SerializedName.class);
+        if (annotation == null) {
+            return new String[]{field.getName()};
+        }
+        final String[] alternate = annotation.alternate();
+        final String[] result = new String[alternate.length + 1];
+        result[0] = annotation.value();
+        System.arraycopy(alternate, 0, result, 1, alternate.length);
+        return result;
+    }
+
+    /**
+     * @return type with type variables of superclasses replaced or null if it has unresolved variables
+     */
+    @Nullable
+    private static Type resolve(@NonNull final Type type, @NonNull final Map<TypeVariable<?>, Type> typeArguments) {
+        if (type instanceof Class) {
+            return type;
+        } else if (type instanceof TypeVariable) {
+            return typeArguments.get(type);
+        } else if (type instanceof ParameterizedType || type instanceof GenericArrayType || type instanceof WildcardType) {
+            // Generic field types are bound by Gson, which needs them to be fully specified
+            return hasTypeVariables(type) ? null : type;
+        }
+        return null;
+    }
+
+    private static boolean hasTypeVariables(@NonNull final Type type) {
+        if (type instanceof TypeVariable) {
+            return true;
+        } else if (type instanceof ParameterizedType) {
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (hasTypeVariables(argument)) {
+                    return true;
+                }
+            }
+        } else if (type instanceof GenericArrayType) {
+            return hasTypeVariables(((GenericArrayType) type).getGenericComponentType());
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                if (hasTypeVariables(bound)) {
+                    return true;
+                }
+            }
+            for (Type bound : ((WildcardType) type).getLowerBounds()) {
+                if (hasTypeVariables(bound)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private static byte[] toUtf8(@NonNull final String value) {
+        try {
+            return value.getBytes(UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class ClassPlan {
+
+        private final Constructor<?> mConstructor;
+        private final Node mRoot;
+        private final Map<String, BoundField> mFieldsByName;
+
+        ClassPlan(final Constructor<?> constructor, final Node root, final Map<String, BoundField> fieldsByName) {
+            mConstructor = constructor;
+            mRoot = root;
+            mFieldsByName = fieldsByName;
+        }
+
+        @NonNull
+        Object bind(@NonNull final Cursor cursor) {
+            final Object instance = newInstance();
+            cursor.expect('{');
+            cursor.skipWhitespace();
+            if (cursor.peek() == '}') {
+                cursor.position++;
+                return instance;
+            }
+            while (true) {
+                cursor.skipWhitespace();
+                final BoundField field = readName(cursor);
+                cursor.skipWhitespace();
+                cursor.expect(':');
+                cursor.skipWhitespace();
+                if (field != null) {
+                    field.read(cursor, instance);
+                } else {
+                    cursor.skipValue();
+                }
+                cursor.skipWhitespace();
+                final byte delimiter = cursor.next();
+                if (delimiter == '}') {
+                    return instance;
+                } else if (delimiter != ',') {
+                    throw cursor.syntaxError("Unterminated object");
+                }
+            }
+        }
+
+        @Nullable
+        private BoundField readName(@NonNull final Cursor cursor) {
+            final int nameStart = cursor.position;
+            cursor.expect('"');
+            Node node = mRoot;
+            while (true) {
+                final byte current = cursor.next();
+                if (current == '"') {
+                    return node != null ? node.field : null;
+                } else if (current == '\\') {
+                    // Escaped names are rare, so they are decoded and looked up by string
+                    cursor.position = nameStart;
+                    return mFieldsByName.get(cursor.readString());
+                }
+                if (node != null) {
+                    node = node.child(current);
+                }
+            }
+        }
+
+        @NonNull
+        private Object newInstance() {
+            try {
+                return mConstructor.newInstance();
+            } catch (InstantiationException e) {
+                throw new IllegalStateException(e);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Byte trie node of field names
+     */
+    private static final class Node {
+
+        private byte[] mKeys = new byte[0];
+        private Node[] mChildren = new Node[0];
+        BoundField field;
+
+        @Nullable
+        Node child(final byte key) {
+            final byte[] keys = mKeys;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return mChildren[i];
+                }
+            }
+            return null;
+        }
+
+        void insert(@NonNull final byte[] name, @NonNull final BoundField boundField) {
+            Node node = this;
+            for (byte key : name) {
+                Node next = node.child(key);
+                if (next == null) {
+                    next = new Node();
+                    final int length = node.mKeys.length;
+                    final byte[] keys = new byte[length + 1];
+                    final Node[] children = new Node[length + 1];
+                    System.arraycopy(node.mKeys, 0, keys, 0, length);
+                    System.arraycopy(node.mChildren, 0, children, 0, length);
+                    keys[length] = key;
+                    children[length] = next;
+                    node.mKeys = keys;
+                    node.mChildren = children;
+                }
+                node = next;
+            }
+            node.field = boundField;
+        }
+    }
+
+    private enum Kind {
+        BOOLEAN, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE, STRING, DELEGATE
+    }
+
+    private static final class BoundField {
+
+        private final Field mField;
+        private final Type mType;
+        private final Kind mKind;
+        private final boolean mPrimitive;
+
+        BoundField(@NonNull final Field field, @NonNull final Type type) {
+            mField = field;
+            mType = type;
+            mPrimitive = type instanceof Class && ((Class<?>) type).isPrimitive();
+            mKind = kindOf(type);
+        }
+
+        void read(@NonNull final Cursor cursor, @NonNull final Object instance) {
+            try {
+                if (mKind == Kind.DELEGATE) {
+                    mField.set(instance, readDelegated(cursor));
+                } else if (cursor.skipNull()) {
+                    // The same way Gson does: primitives keep default value
+                    if (!mPrimitive) {
+                        mField.set(instance, null);
+                    }
+                } else {
+                    readDirectly(cursor, instance);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void readDirectly(@NonNull final Cursor cursor, @NonNull final Object instance) throws IllegalAccessException {
+            switch (mKind) {
+                case STRING:
+                    if (cursor.peek() == '{' || cursor.peek() == '[') {
+                        throw cursor.syntaxError("Expected a string");
+                    }
+                    mField.set(instance, cursor.peek() == '"' ? cursor.readString() : cursor.readLiteral());
+                    break;
+                case BOOLEAN:
+                    final boolean booleanValue = cursor.peek() == '"' ? Boolean.parseBoolean(cursor.readString())
+                            : cursor.readBooleanLiteral();
+                    if (mPrimitive) {
+                        mField.setBoolean(instance, booleanValue);
+                    } else {
+                        mField.set(instance, booleanValue);
+                    }
+                    break;
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                    setInteger(instance, cursor.readLong());
+                    break;
+                default:
+                    final double doubleValue = cursor.readDouble();
+                    if (mKind == Kind.FLOAT) {
+                        if (mPrimitive) {
+                            mField.setFloat(instance, (float) doubleValue);
+                        } else {
+                            mField.set(instance, (float) doubleValue);
+                        }
+                    } else if (mPrimitive) {
+                        mField.setDouble(instance, doubleValue);
+                    } else {
+                        mField.set(instance, doubleValue);
+                    }
+                    break;
+            }
+        }
+
+        private void setInteger(@NonNull final Object instance, final long value) throws IllegalAccessException {
+            switch (mKind) {
+                case BYTE:
+                    // Gson accepts unsigned bytes as well
+                    if (value < Byte.MIN_VALUE || value > 255) {
+                        throw new JsonSyntaxException("Value " + value + " doesn't fit " + mField.getName());
+                    }
+                    mField.set(instance, (byte) value);
+                    break;
+                case SHORT:
+                    if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                        throw new JsonSyntaxException("Value " + value + " doesn't fit " + mField.getName());
+                    }
+                    mField.set(instance, (short) value);
+                    break;
+                case INT:
+                    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                        throw new JsonSyntaxException("Value " + value + " doesn't fit " + mField.getName());
+                    }
+                    mField.set(instance, (int) value);
+                    break;
+                default:
+                    mField.set(instance, value);
+                    break;
+            }
+        }
+
+        private Object readDelegated(@NonNull final Cursor cursor) {
+            final int start = cursor.position;
+            cursor.skipValue();
+            final TypeAdapter<?> adapter = SharedGson.getAdapter(mType);
+            final Utf8ByteReader source = new Utf8ByteReader(cursor.data, start, cursor.position);
+            final JsonReader reader = cursor.stringPool != null ? cursor.stringPool.newJsonReader(source) : new JsonReader(source);
+            reader.setLenient(true);
+            try {
+                return adapter.read(reader);
+            } catch (IOException e) {
+                throw new JsonSyntaxException(e);
+            }
+        }
+
+        @NonNull
+        private static Kind kindOf(@NonNull final Type type) {
+            if (type == String.class) {
+                return Kind.STRING;
+            } else if (type == boolean.class || type == Boolean.class) {
+                return Kind.BOOLEAN;
+            } else if (type == byte.class || type == Byte.class) {
+                return Kind.BYTE;
+            } else if (type == short.class || type == Short.class) {
+                return Kind.SHORT;
+            } else if (type == int.class || type == Integer.class) {
+                return Kind.INT;
+            } else if (type == long.class || type == Long.class) {
+                return Kind.LONG;
+            } else if (type == float.class || type == Float.class) {
+                return Kind.FLOAT;
+            } else if (type == double.class || type == Double.class) {
+                return Kind.DOUBLE;
+            }
+            return Kind.DELEGATE;
+        }
+    }
+
+    /**
+     * Position in UTF-8 JSON document
+     */
+    private static final class Cursor {
+
+        final byte[] data;
+        final StringPool stringPool;
+        int position;
+
+        Cursor(@NonNull final byte[] data, @Nullable final StringPool stringPool) {
+            this.data = data;
+            this.stringPool = stringPool;
+        }
+
+        boolean isAtEnd() {
+            return position >= data.length;
+        }
+
+        byte peek() {
+            if (position >= data.length) {
+                throw syntaxError("Unexpected end of document");
+            }
+            return data[position];
+        }
+
+        byte next() {
+            final byte result = peek();
+            position++;
+            return result;
+        }
+
+        void expect(final char expected) {
+            if (next() != expected) {
+                position--;
+                throw syntaxError("Expected '" + expected + "'");
+            }
+        }
+
+        void skipByteOrderMark() {
+            if (data.length >= 3 && (data[0] & 0xff) == 0xef && (data[1] & 0xff) == 0xbb && (data[2] & 0xff) == 0xbf) {
+                position = 3;
+            }
+        }
+
+        void skipWhitespace() {
+            while (position < data.length) {
+                final byte current = data[position];
+                if (current != ' ' && current != '\n' && current != '\r' && current != '\t') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        /**
+         * @return true if null literal was skipped
+         */
+        boolean skipNull() {
+            if (position + 4 <= data.length && data[position] == 'n' && data[position + 1] == 'u' && data[position + 2] == 'l'
+                    && data[position + 3] == 'l') {
+                position += 4;
+                return true;
+            }
+            return false;
+        }
+
+        void skipValue() {
+            final byte first = peek();
+            if (first == '"') {
+                skipString();
+            } else if (first == '{' || first == '[') {
+                int depth = 0;
+                do {
+                    final byte current = peek();
+                    if (current == '"') {
+                        skipString();
+                        continue;
+                    }
+                    if (current == '{' || current == '[') {
+                        depth++;
+                    } else if (current == '}' || current == ']') {
+                        depth--;
+                    }
+                    position++;
+                } while (depth > 0);
+            } else {
+                skipLiteral();
+            }
+        }
+
+        private void skipString() {
+            position++;
+            while (true) {
+                final byte current = next();
+                if (current == '"') {
+                    return;
+                } else if (current == '\\') {
+                    position++;
+                }
+            }
+        }
+
+        private int skipLiteral() {
+            final int start = position;
+            while (position < data.length) {
+                final byte current = data[position];
+                if (current == ',' || current == '}' || current == ']' || current == ' ' || current == '\n' || current == '\r'
+                        || current == '\t') {
+                    break;
+                }
+                position++;
+            }
+            if (position == start) {
+                throw syntaxError("Value expected");
+            }
+            return start;
+        }
+
+        @NonNull
+        String readLiteral() {
+            final int start = skipLiteral();
+            return decode(start, position);
+        }
+
+        boolean readBooleanLiteral() {
+            final int start = skipLiteral();
+            final int length = position - start;
+            if (length == 4 && data[start] == 't' && data[start + 1] == 'r' && data[start + 2] == 'u' && data[start + 3] == 'e') {
+                return true;
+            } else if (length == 5 && data[start] == 'f' && data[start + 1] == 'a' && data[start + 2] == 'l'
+                    && data[start + 3] == 's' && data[start + 4] == 'e') {
+                return false;
+            }
+            throw syntaxError("Expected a boolean");
+        }
+
+        long readLong() {
+            if (peek() == '"') {
+                return parseLong(readString());
+            }
+            final int start = skipLiteral();
+            int index = start;
+            final boolean negative = data[index] == '-';
+            if (negative) {
+                index++;
+            }
+            // Plain integers are parsed without allocation, everything else the same way JsonReader does
+            long value = 0;
+            boolean plain = index < position && position - index <= 18;
+            for (; plain && index < position; index++) {
+                final int digit = data[index] - '0';
+                if (digit < 0 || digit > 9) {
+                    plain = false;
+                } else {
+                    value = value * 10 + digit;
+                }
+            }
+            if (plain) {
+                return negative ? -value : value;
+            }
+            return parseLong(decode(start, position));
+        }
+
+        double readDouble() {
+            final String value = peek() == '"' ? readString() : readLiteral();
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+        }
+
+        private static long parseLong(@NonNull final String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                try {
+                    final double doubleValue = Double.parseDouble(value);
+                    final long result = (long) doubleValue;
+                    if (result != doubleValue) {
+                        throw new JsonSyntaxException("Expected a long but was " + value);
+                    }
+                    return result;
+                } catch (NumberFormatException doubleException) {
+                    throw new JsonSyntaxException(doubleException);
+                }
+            }
+        }
+
+        @NonNull
+        String readString() {
+            expect('"');
+            final int start = position;
+            // Strings without escapes are decoded at once
+            while (true) {
+                final byte current = next();
+                if (current == '"') {
+                    return decodeString(start, position - 1);
+                } else if (current == '\\') {
+                    break;
+                }
+            }
+
+            final StringBuilder result = new StringBuilder(decode(start, position - 1));
+            position--;
+            int segmentStart = position;
+            while (true) {
+                final byte current = next();
+                if (current == '"') {
+                    result.append(decode(segmentStart, position - 1));
+                    return stringPool != null ? stringPool.intern(result.toString()) : result.toString();
+                } else if (current == '\\') {
+                    result.append(decode(segmentStart, position - 1));
+                    final byte escaped = next();
+                    switch (escaped) {
+                        case 'u':
+                            if (position + 4 > data.length) {
+                                throw syntaxError("Unterminated escape sequence");
+                            }
+                            try {
+                                result.append((char) Integer.parseInt(decode(position, position + 4), 16));
+                            } catch (NumberFormatException e) {
+                                throw syntaxError("Malformed unicode escape");
+                            }
+                            position += 4;
+                            break;
+                        case 't':
+                            result.append('\t');
+                            break;
+                        case 'b':
+                            result.append('\b');
+                            break;
+                        case 'n':
+                            result.append('\n');
+                            break;
+                        case 'r':
+                            result.append('\r');
+                            break;
+                        case 'f':
+                            result.append('\f');
+                            break;
+                        default:
+                            result.append((char) escaped);
+                            break;
+                    }
+                    segmentStart = position;
+                }
+            }
+        }
+
+        @NonNull
+        private String decodeString(final int start, final int end) {
+            if (stringPool == null) {
+                return decode(start, end);
+            }
+            // Repeated ASCII values are found in the pool without decoding
+            final String pooled = stringPool.intern(data, start, end);
+            return pooled != null ? pooled : stringPool.intern(decode(start, end));
+        }
+
+        @NonNull
+        private String decode(final int start, final int end) {
+            try {
+                return new String(data, start, end - start, UTF_8);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @NonNull
+        JsonSyntaxException syntaxError(@NonNull final String message) {
+            return new JsonSyntaxException(message + " at byte " + position);
+        }
+    }
+}
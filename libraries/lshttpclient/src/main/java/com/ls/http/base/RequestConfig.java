@@ -31,6 +31,10 @@ public class RequestConfig {
     private BaseRequest.ResponseFormat responseFormat;
     private Object responseClassSpecifier;
     private Object errorResponseClassSpecifier;
+    private boolean snapshotEnabled;
+    private boolean idempotentPost;
+    private boolean lazyParsingEnabled;
+    private boolean projectionBindingEnabled;
 
     public RequestConfig() {
 
@@ -83,4 +87,68 @@ public class RequestConfig {
     public void setErrorResponseClassSpecifier(Object errorResponseClassSpecifier) {
         this.errorResponseClassSpecifier = errorResponseClassSpecifier;
     }
+
+    /**
+     * @return true if parsed response has to be stored to client's {@link com.ls.http.base.cache.SnapshotStore}
+     */
+    public boolean isSnapshotEnabled() {
+        return snapshotEnabled;
+    }
+
+    /**
+     * @param snapshotEnabled if true - parsed response will be stored to client's {@link com.ls.http.base.cache.SnapshotStore}, so
+     *                        it can be restored without network and parsing, using {@link com.ls.http.base.client.LSClient#readSnapshot(BaseRequest)}
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    /**
+     * @return true if response body has to be parsed on the first {@link ResponseData#getData()} call
+     */
+    public boolean isLazyParsingEnabled() {
+        return lazyParsingEnabled;
+    }
+
+    /**
+     * @param lazyParsingEnabled if true - response body is kept and parsed on the first {@link ResponseData#getData()} call,
+     *                           so responses nobody reads aren't parsed at all. Parse errors aren't delivered to error
+     *                           listeners then, they are available from {@link ResponseData#getError()} after data access
+     *                           only. Disabled by default: response is parsed on the network thread.
+     */
+    public void setLazyParsingEnabled(boolean lazyParsingEnabled) {
+        this.lazyParsingEnabled = lazyParsingEnabled;
+    }
+
+    /**
+     * @return true if JSON response has to be bound to declared fields of response class only
+     */
+    public boolean isProjectionBindingEnabled() {
+        return projectionBindingEnabled;
+    }
+
+    /**
+     * @param projectionBindingEnabled if true - JSON fields, response class (or list/array element class) doesn't declare,
+     *                                 are skipped in response bytes without decoding. Useful for large payloads, classes bind
+     *                                 small part of. Requires default Gson field naming and exclusion policies. Ignored
+     *                                 for classes with generated type adapters.
+     */
+    public void setProjectionBindingEnabled(boolean projectionBindingEnabled) {
+        this.projectionBindingEnabled = projectionBindingEnabled;
+    }
+
+    /**
+     * @return true if POST request doesn't modify server state, so it's response can be cached
+     */
+    public boolean isIdempotentPost() {
+        return idempotentPost;
+    }
+
+    /**
+     * @param idempotentPost if true - POST request is treated as query: it's response is cached according to server cache headers,
+     *                       using url and body digest as a key. Ignored for other request methods.
+     */
+    public void setIdempotentPost(boolean idempotentPost) {
+        this.idempotentPost = idempotentPost;
+    }
 }
@@ -22,6 +22,10 @@
 
 package com.ls.http.base;
 
+import com.android.volley.toolbox.ByteArrayPool;
+import com.android.volley.toolbox.PoolingByteArrayOutputStream;
+
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.io.UnsupportedEncodingException;
@@ -30,6 +34,14 @@ public abstract class RequestHandler {
 
     protected final String DEFAULT_CHARSET = "utf-8";
 
+    private static final int BODY_BUFFER_POOL_SIZE = 64 * 1024;
+    private static final int INITIAL_BODY_BUFFER_SIZE = 1024;
+
+    /**
+     * Buffers, used to serialize request bodies, shared by all requests
+     */
+    private static final ByteArrayPool BODY_BUFFER_POOL = new ByteArrayPool(BODY_BUFFER_POOL_SIZE);
+
     protected Object object;
 
     public abstract String stringBodyFromItem();
@@ -63,6 +75,14 @@ public abstract class RequestHandler {
         return charset;
     }
 
+    /**
+     * @return stream, collecting body bytes in a pooled buffer. It has to be closed to return the buffer to the pool.
+     */
+    @NonNull
+    protected static PoolingByteArrayOutputStream newBodyStream() {
+        return new PoolingByteArrayOutputStream(BODY_BUFFER_POOL, INITIAL_BODY_BUFFER_SIZE);
+    }
+
     public Object getObject() {
         return object;
     }
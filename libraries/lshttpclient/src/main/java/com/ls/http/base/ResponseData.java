@@ -22,7 +22,9 @@
 
 package com.ls.http.base;
 
+import com.android.volley.ParseError;
 import com.android.volley.VolleyError;
+import com.ls.util.L;
 
 import java.util.Map;
 
@@ -33,17 +35,37 @@ public class ResponseData {
     protected int statusCode;
     protected VolleyError error;
     protected Object parsedErrorResponse;
+    private volatile LazyData lazyData;
 
 
     /**
-     * @return Instance of class, specified in response or null if no such class was specified.
+     * @return Instance of class, specified in response or null if no such class was specified. Lazily parsed data is
+     * deserialized by the first call, which blocks concurrent callers until it's done.
      */
     public Object getData() {
-        return data;
+        final LazyData lazy = this.lazyData;
+        return lazy != null ? lazy.get() : data;
     }
 
     public void setData(Object data) {
         this.data = data;
+        this.lazyData = null;
+    }
+
+    /**
+     * @return true if data is already deserialized, so {@link #getData()} doesn't block
+     */
+    public boolean isDataParsed() {
+        final LazyData lazy = this.lazyData;
+        return lazy == null || lazy.isParsed();
+    }
+
+    /**
+     * @param parser parser of response body, called on the first {@link #getData()} call
+     */
+    void setDataParser(DataParser parser) {
+        this.data = null;
+        this.lazyData = new LazyData(parser);
     }
 
     public Map<String, String> getHeaders() {
@@ -54,7 +76,14 @@ public class ResponseData {
         return statusCode;
     }
 
+    /**
+     * @return request error or deserialization error of lazily parsed data, if {@link #getData()} was already called
+     */
     public VolleyError getError() {
+        final LazyData lazy = this.lazyData;
+        if (error == null && lazy != null) {
+            return lazy.getError();
+        }
         return error;
     }
 
@@ -67,10 +96,55 @@ public class ResponseData {
 
     public void cloneTo(ResponseData target) {
         target.data = data;
+        target.lazyData = lazyData;
         target.headers = headers;
         target.statusCode = statusCode;
         target.error = error;
         target.parsedErrorResponse = parsedErrorResponse;
     }
 
+    /**
+     * Deserializes response body, kept until data is requested
+     */
+    interface DataParser {
+
+        Object parse();
+    }
+
+    /**
+     * Shared by clones, so response is parsed once
+     */
+    private static final class LazyData {
+
+        private DataParser parser;
+        private Object data;
+        private VolleyError error;
+
+        LazyData(DataParser parser) {
+            this.parser = parser;
+        }
+
+        synchronized Object get() {
+            if (parser != null) {
+                try {
+                    data = parser.parse();
+                } catch (RuntimeException e) {
+                    L.e("Failed to parse response", e);
+                    error = new ParseError(e);
+                }
+                // Body is released with the parser
+                parser = null;
+            }
+            return data;
+        }
+
+        synchronized boolean isParsed() {
+            return parser == null;
+        }
+
+        synchronized VolleyError getError() {
+            return error;
+        }
+    }
+
 }
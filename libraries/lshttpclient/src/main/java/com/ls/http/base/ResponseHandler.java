@@ -28,7 +28,40 @@ import com.android.volley.Response;
 
 public abstract class ResponseHandler {
 
+    private StringPool stringPool;
+
     protected abstract String getAcceptValueType();
 
     protected abstract Response<ResponseData> parseNetworkResponse(NetworkResponse response, Object responseClassSpecifier);
+
+    /**
+     * @return pool, repeated string values have to be shared through, or null if they don't
+     */
+    protected StringPool getStringPool() {
+        return stringPool;
+    }
+
+    void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * Called on the network thread for every response, received from network, before it's parsed (including lazily parsed
+     * ones). Responses, served from cache, are skipped.
+     */
+    protected void onNetworkResponse(BaseRequest request, NetworkResponse response) {
+    }
+
+    /**
+     * Parses list or array response, passing elements to the dispatcher as soon as they are parsed. Handlers, which can't
+     * parse incrementally, parse the whole response and elements are dispatched after that.
+     */
+    protected Response<ResponseData> parseNetworkResponse(NetworkResponse response, Object responseClassSpecifier,
+            ItemsBatchDispatcher dispatcher) {
+        Response<ResponseData> result = parseNetworkResponse(response, responseClassSpecifier);
+        if (result.isSuccess() && result.result != null) {
+            dispatcher.dispatchAll(result.result.data);
+        }
+        return result;
+    }
 }
@@ -24,36 +24,136 @@ package com.ls.http.base;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.ls.adapters.GeneratedTypeAdapterFactory;
+import com.ls.util.L;
 
+import android.support.annotation.NonNull;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds gson instance shared by request and response handlers. Readers get the current immutable snapshot without
+ * locking. Updates are applied to the builder under a lock; the new instance is created and its adapters for
+ * registered types are resolved before it replaces the current one, so parsing never hits a cold adapter cache.
+ * <p/>
+ * The first instance is created on first use, so configuration, applied to {@link #getbuilder()} before that, doesn't
+ * require {@link #performUpdates()}.
+ */
 public class SharedGson {
 
-    static {
-        init();
+    /**
+     * Changes gson configuration, see {@link #update(Update)}
+     */
+    public interface Update {
+
+        void apply(@NonNull GsonBuilder builder);
     }
 
-    private static GsonBuilder builder;
-    private static Gson gson;
+    private static final Object LOCK = new Object();
+
+    private static final GsonBuilder builder = new GsonBuilder()
+            .registerTypeAdapterFactory(GeneratedTypeAdapterFactory.getInstance());
+
+    /**
+     * Types passed to {@link #getGson(Type)}, {@link #getAdapter(Type)} or {@link #registerTypes(Type...)}, warmed up on every update
+     */
+    private static final ConcurrentHashMap<Type, Boolean> warmTypes = new ConcurrentHashMap<Type, Boolean>();
 
-    private static void init() {
-        builder = new GsonBuilder();
+    private static volatile Gson gson;
+
+    public static Gson getGson() {
+        return getCurrent();
+    }
+
+    /**
+     * @return current gson instance, given type is remembered and its adapter is prepared on later updates
+     */
+    public static Gson getGson(@NonNull final Type type) {
+        if (!warmTypes.containsKey(type)) {
+            warmTypes.put(type, Boolean.TRUE);
+        }
+        return getCurrent();
+    }
+
+    /**
+     * @return adapter of current gson instance. Type is remembered and its adapter is prepared on later updates.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> TypeAdapter<T> getAdapter(@NonNull final Type type) {
+        return (TypeAdapter<T>) getGson(type).getAdapter(TypeToken.get(type));
+    }
 
+    /**
+     * Resolves adapters for given types now and after every update.
+     */
+    public static void registerTypes(@NonNull final Type... types) {
+        final Gson current = getCurrent();
+        for (Type type : types) {
+            warmTypes.put(type, Boolean.TRUE);
+            warmUp(current, type);
+        }
     }
 
-    public static synchronized Gson getGson() {
-        if (gson == null) {
-            gson = builder.create();
+    /**
+     * Applies update to gson configuration and publishes new gson instance once it is warmed up.
+     */
+    public static void update(@NonNull final Update update) {
+        synchronized (LOCK) {
+            update.apply(builder);
+            publish();
         }
-        return gson;
     }
 
     /**
-     * all following gson calls will use updated gson object.
+     * Publishes gson instance created from the current state of {@link #getbuilder()}. Until then all calls use the
+     * previous instance.
      */
-    public static synchronized void performUpdates() {
-        gson = null;
+    public static void performUpdates() {
+        synchronized (LOCK) {
+            publish();
+        }
     }
 
+    /**
+     * @return shared builder. It isn't thread safe, prefer {@link #update(Update)} when configuration can be changed
+     * while requests are running.
+     */
     public static GsonBuilder getbuilder() {
         return builder;
     }
+
+    @NonNull
+    private static Gson getCurrent() {
+        Gson current = gson;
+        if (current == null) {
+            synchronized (LOCK) {
+                current = gson;
+                if (current == null) {
+                    publish();
+                    current = gson;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static void publish() {
+        final Gson updated = builder.create();
+        for (Type type : warmTypes.keySet()) {
+            warmUp(updated, type);
+        }
+        gson = updated;
+    }
+
+    private static void warmUp(@NonNull final Gson target, @NonNull final Type type) {
+        try {
+            target.getAdapter(TypeToken.get(type));
+        } catch (RuntimeException e) {
+            // Gson will fail the same way when this type is parsed, nothing to prepare
+            L.e("Can't prepare gson adapter for " + type, e);
+        }
+    }
 }
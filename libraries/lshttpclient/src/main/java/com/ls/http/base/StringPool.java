@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base;
+
+import com.google.gson.stream.JsonReader;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.ref.SoftReference;
+
+/**
+ * Bounded table of short strings, used to share repeated values (e.g. host prefixes, taxonomy terms, statuses) between
+ * objects, bound from responses. Table is direct-mapped: string, colliding with another one, replaces it, so size never
+ * exceeds capacity. Table is softly referenced, so it's dropped under memory pressure, and can be shared between threads
+ * without locking, since strings are immutable.
+ */
+public class StringPool {
+
+    public static final int DEFAULT_CAPACITY = 2048;
+
+    public static final int DEFAULT_MAX_LENGTH = 48;
+
+    private final int mMask;
+    private final int mMaxLength;
+
+    private volatile SoftReference<String[]> mSlotsReference = new SoftReference<String[]>(null);
+
+    private int mHitCount;
+    private int mMissCount;
+
+    /**
+     * Creates pool of {@link #DEFAULT_CAPACITY} strings up to {@link #DEFAULT_MAX_LENGTH} characters long
+     */
+    public StringPool() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity  maximal number of pooled strings, rounded up to the power of two
+     * @param maxLength maximal length of pooled strings, longer ones are rarely repeated
+     */
+    public StringPool(@IntRange(from = 1) final int capacity, @IntRange(from = 0) final int maxLength) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mMask = size - 1;
+        mMaxLength = maxLength;
+    }
+
+    /**
+     * @return pooled string, equal to the value, or the value itself, which is pooled after that
+     */
+    @Nullable
+    public String intern(@Nullable final String value) {
+        if (value == null || value.length() > mMaxLength) {
+            return value;
+        }
+        final String[] slots = getSlots();
+        final int index = mix(value.hashCode()) & mMask;
+        final String pooled = slots[index];
+        if (pooled != null && pooled.equals(value)) {
+            mHitCount++;
+            return pooled;
+        }
+        mMissCount++;
+        slots[index] = value;
+        return value;
+    }
+
+    /**
+     * Interns ASCII string, encoded in the byte range. String is created only if there is no equal one in the pool.
+     *
+     * @return pooled string or null if range is too long or contains non-ASCII bytes, so it has to be decoded by caller
+     */
+    @Nullable
+    String intern(@NonNull final byte[] data, final int start, final int end) {
+        final int length = end - start;
+        if (length > mMaxLength) {
+            return null;
+        }
+        // The same hash String calculates for ASCII characters, so both intern methods use the same slot
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            final byte current = data[i];
+            if (current < 0) {
+                return null;
+            }
+            hash = 31 * hash + current;
+        }
+        final String[] slots = getSlots();
+        final int index = mix(hash) & mMask;
+        final String pooled = slots[index];
+        if (pooled != null && pooled.length() == length) {
+            int i = 0;
+            while (i < length && pooled.charAt(i) == data[start + i]) {
+                i++;
+            }
+            if (i == length) {
+                mHitCount++;
+                return pooled;
+            }
+        }
+        mMissCount++;
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) data[start + i];
+        }
+        final String result = new String(chars);
+        slots[index] = result;
+        return result;
+    }
+
+    /**
+     * @return JSON reader, interning string values and names it reads
+     */
+    @NonNull
+    public JsonReader newJsonReader(@NonNull final Reader reader) {
+        return new InterningJsonReader(reader, this);
+    }
+
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    public int getMaxLength() {
+        return mMaxLength;
+    }
+
+    /**
+     * @return approximate number of values, replaced with pooled ones. Counters aren't synchronized.
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return approximate number of values, added to the pool
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    public void clear() {
+        mSlotsReference = new SoftReference<String[]>(null);
+    }
+
+    @NonNull
+    private String[] getSlots() {
+        String[] slots = mSlotsReference.get();
+        if (slots == null) {
+            slots = new String[mMask + 1];
+            mSlotsReference = new SoftReference<String[]>(slots);
+        }
+        return slots;
+    }
+
+    private static int mix(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class InterningJsonReader extends JsonReader {
+
+        private final StringPool mPool;
+
+        InterningJsonReader(@NonNull final Reader reader, @NonNull final StringPool pool) {
+            super(reader);
+            mPool = pool;
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            return mPool.intern(super.nextString());
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            return mPool.intern(super.nextName());
+        }
+    }
+}
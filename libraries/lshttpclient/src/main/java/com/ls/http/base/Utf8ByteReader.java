@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base;
+
+import android.support.annotation.NonNull;
+
+import java.io.Reader;
+
+/**
+ * Reader, decoding UTF-8 bytes of array range. Unlike {@link java.io.InputStreamReader} it doesn't allocate decoding
+ * buffers, so it's cheap enough to be created for every value. Malformed sequences are replaced with U+FFFD.
+ */
+final class Utf8ByteReader extends Reader {
+
+    private static final char REPLACEMENT = '\ufffd';
+
+    private final byte[] mData;
+    private final int mEnd;
+    private int mPosition;
+    private int mPendingChar = -1;
+
+    Utf8ByteReader(@NonNull final byte[] data, final int start, final int end) {
+        mData = data;
+        mPosition = start;
+        mEnd = end;
+    }
+
+    @Override
+    public int read(@NonNull final char[] buffer, final int offset, final int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        if (mPendingChar >= 0) {
+            buffer[offset + count++] = (char) mPendingChar;
+            mPendingChar = -1;
+        }
+        while (count < length && mPosition < mEnd) {
+            final int first = mData[mPosition] & 0xff;
+            if (first < 0x80) {
+                buffer[offset + count++] = (char) first;
+                mPosition++;
+                continue;
+            }
+
+            final int sequenceLength;
+            int codePoint;
+            if ((first & 0xe0) == 0xc0) {
+                sequenceLength = 2;
+                codePoint = first & 0x1f;
+            } else if ((first & 0xf0) == 0xe0) {
+                sequenceLength = 3;
+                codePoint = first & 0x0f;
+            } else if ((first & 0xf8) == 0xf0) {
+                sequenceLength = 4;
+                codePoint = first & 0x07;
+            } else {
+                buffer[offset + count++] = REPLACEMENT;
+                mPosition++;
+                continue;
+            }
+
+            int index = 1;
+            for (; index < sequenceLength && mPosition + index < mEnd; index++) {
+                final int next = mData[mPosition + index] & 0xff;
+                if ((next & 0xc0) != 0x80) {
+                    break;
+                }
+                codePoint = (codePoint << 6) | (next & 0x3f);
+            }
+            mPosition += index;
+            if (index < sequenceLength) {
+                buffer[offset + count++] = REPLACEMENT;
+            } else if (codePoint >= 0x10000) {
+                final char high = (char) (((codePoint - 0x10000) >> 10) + 0xd800);
+                final char low = (char) (((codePoint - 0x10000) & 0x3ff) + 0xdc00);
+                buffer[offset + count++] = high;
+                if (count < length) {
+                    buffer[offset + count++] = low;
+                } else {
+                    mPendingChar = low;
+                }
+            } else {
+                buffer[offset + count++] = (char) codePoint;
+            }
+        }
+        return count > 0 ? count : -1;
+    }
+
+    @Override
+    public void close() {
+        mPosition = mEnd;
+        mPendingChar = -1;
+    }
+}
@@ -0,0 +1,558 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+package com.ls.http.base.cache;
+
+import com.android.volley.Cache;
+import com.ls.util.L;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Cache}, storing large binary bodies (images, files) as separate files with their own size budget, so large media
+ * can't evict hot API responses from the main cache. Smaller entries are passed to the main cache, which is usually
+ * {@link TwoTierCache}, so memory tier never holds large bodies either.
+ * <p/>
+ * Blob entries are returned with empty data array, which identifies body file (see {@link #getBlobFile(byte[])}). File is
+ * passed out of band, since response headers can come from the network. Byte and image response handlers read such bodies
+ * via memory mapping (see {@link #mapBlob(File)}), other handlers get data loaded by {@link com.ls.http.base.BaseRequest}.
+ */
+public class BlobCache implements Cache {
+
+    /**
+     * Response header, used by earlier versions to pass blob file path. It's never trusted and is stripped from stored and
+     * received responses.
+     */
+    public static final String HEADER_BLOB_FILE = "X-LS-Blob-File";
+
+    /**
+     * Default minimum body size, stored as blob
+     */
+    public static final int DEFAULT_BLOB_THRESHOLD_BYTES = 64 * 1024;
+
+    private static final String META_FILE_SUFFIX = ".meta";
+    private static final String BLOB_FILE_SUFFIX = ".blob";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final int META_MAGIC = 0x4c534231;
+
+    /**
+     * Blob files of returned entries by their data arrays. Arrays are compared by identity, so network responses can't
+     * reference blobs, and mappings are released with entries.
+     */
+    private static final Map<byte[], File> sBlobFiles = new WeakHashMap<byte[], File>();
+
+    @NonNull
+    private final Cache mMainCache;
+
+    @NonNull
+    private final File mRootDirectory;
+
+    private final int mThresholdBytes;
+
+    @NonNull
+    private final WeightedLruCache<String, BlobRecord> mRecords;
+
+    /**
+     * Used to give unique names to files of every blob version, so replaced blob can still be read by mappings, created before
+     */
+    private final AtomicLong mGeneration = new AtomicLong(System.currentTimeMillis());
+
+    private boolean mInitialized;
+
+    /**
+     * @param mainCache      cache for entries, smaller than threshold
+     * @param rootDirectory  directory to store blobs in, mustn't be shared with other caches
+     * @param maxBlobBytes   maximum total size of blobs
+     * @param thresholdBytes minimum size of non-text body, stored as blob
+     */
+    public BlobCache(@NonNull final Cache mainCache, @NonNull final File rootDirectory, final long maxBlobBytes,
+            final int thresholdBytes) {
+        mMainCache = mainCache;
+        mRootDirectory = rootDirectory;
+        mThresholdBytes = thresholdBytes;
+        mRecords = new WeightedLruCache<String, BlobRecord>(maxBlobBytes) {
+
+            @Override
+            protected long weightOf(@NonNull final String key, @NonNull final BlobRecord value) {
+                return value.mLength;
+            }
+
+            @Override
+            protected void entryRemoved(final boolean evicted, @NonNull final String key, @NonNull final BlobRecord value) {
+                deleteFiles(value);
+            }
+        };
+    }
+
+    /**
+     * @param mainCache     cache for entries, smaller than threshold
+     * @param rootDirectory directory to store blobs in, mustn't be shared with other caches
+     * @param maxBlobBytes  maximum total size of blobs
+     */
+    public BlobCache(@NonNull final Cache mainCache, @NonNull final File rootDirectory, final long maxBlobBytes) {
+        this(mainCache, rootDirectory, maxBlobBytes, DEFAULT_BLOB_THRESHOLD_BYTES);
+    }
+
+    /**
+     * Restores blob index from metadata files. Blob count is limited by budget and threshold, so directory scan is cheap.
+     */
+    @Override
+    public void initialize() {
+        mMainCache.initialize();
+        synchronized (this) {
+            if (mInitialized) {
+                return;
+            }
+            mInitialized = true;
+        }
+
+        if (!mRootDirectory.exists() && !mRootDirectory.mkdirs()) {
+            L.e("Unable to create blob cache dir " + mRootDirectory.getAbsolutePath());
+            return;
+        }
+        final File[] files = mRootDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        final List<BlobRecord> records = new ArrayList<BlobRecord>();
+        for (File file : files) {
+            if (!file.getName().endsWith(META_FILE_SUFFIX)) {
+                continue;
+            }
+            try {
+                records.add(readRecord(file));
+            } catch (IOException e) {
+                L.w("Failed to read blob metadata " + file.getAbsolutePath(), e);
+                file.delete();
+            }
+        }
+        // Meta file modification time is updated on access, so it defines LRU order
+        Collections.sort(records, new Comparator<BlobRecord>() {
+            @Override
+            public int compare(final BlobRecord lhs, final BlobRecord rhs) {
+                return lhs.mLastAccess < rhs.mLastAccess ? -1 : (lhs.mLastAccess == rhs.mLastAccess ? 0 : 1);
+            }
+        });
+        for (BlobRecord record : records) {
+            if (record.mBlobFile.length() == record.mLength) {
+                mRecords.put(record.mKey, record);
+            } else {
+                deleteFiles(record);
+            }
+        }
+
+        // Files, left after process was killed during write
+        for (File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(TEMP_FILE_SUFFIX) || name.endsWith(BLOB_FILE_SUFFIX) && !isReferenced(file)) {
+                file.delete();
+            }
+        }
+    }
+
+    @Override
+    @Nullable
+    public Entry get(@NonNull final String key) {
+        final BlobRecord record = mRecords.get(key);
+        if (record == null) {
+            return mMainCache.get(key);
+        }
+        if (!record.mBlobFile.exists()) {
+            mRecords.remove(key);
+            return null;
+        }
+        record.mMetaFile.setLastModified(System.currentTimeMillis());
+
+        final Entry entry = JournalDiskCache.copyEntry(record.mEntry);
+        entry.data = new byte[0];
+        entry.responseHeaders = new HashMap<String, String>(record.mEntry.responseHeaders);
+        synchronized (sBlobFiles) {
+            sBlobFiles.put(entry.data, record.mBlobFile);
+        }
+        return entry;
+    }
+
+    /**
+     * Non-text entries, larger than threshold are written to blob file synchronously, others are passed to the main cache.
+     */
+    @Override
+    public void put(@NonNull final String key, @NonNull final Entry entry) {
+        final int length = entry.data != null ? entry.data.length : 0;
+        final Map<String, String> headers = entry.responseHeaders != null ? entry.responseHeaders : new HashMap<String, String>();
+        if (length == 0 && getBlobFile(entry.data) != null) {
+            // Blob entry was revalidated (e.g. response 304), only metadata has to be updated
+            final BlobRecord record = mRecords.get(key);
+            if (record != null) {
+                storeBlob(key, entry, record.mBlobFile, record.mLength);
+            }
+            return;
+        }
+
+        if (length < mThresholdBytes || length > mRecords.maxWeight() || CacheHeaders.isTextContent(headers)) {
+            mRecords.remove(key);
+            mMainCache.put(key, withoutBlobHeader(entry));
+            return;
+        }
+
+        final File blobFile = newFile(key, BLOB_FILE_SUFFIX);
+        try {
+            writeFile(blobFile, entry.data);
+        } catch (IOException e) {
+            L.w("Failed to write blob " + blobFile.getAbsolutePath(), e);
+            remove(key);
+            return;
+        }
+        mMainCache.remove(key);
+        storeBlob(key, entry, blobFile, length);
+    }
+
+    @Override
+    public void invalidate(@NonNull final String key, final boolean fullExpire) {
+        final BlobRecord record = mRecords.get(key);
+        if (record == null) {
+            mMainCache.invalidate(key, fullExpire);
+            return;
+        }
+        final Entry invalidated = JournalDiskCache.copyEntry(record.mEntry);
+        invalidated.softTtl = 0;
+        if (fullExpire) {
+            invalidated.ttl = 0;
+        }
+        storeBlob(key, invalidated, record.mBlobFile, record.mLength);
+    }
+
+    @Override
+    public void remove(@NonNull final String key) {
+        mRecords.remove(key);
+        mMainCache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        mRecords.evictAll();
+        mMainCache.clear();
+    }
+
+    /**
+     * @return total size of stored blobs
+     */
+    public long getBlobSize() {
+        return mRecords.weight();
+    }
+
+    public int getBlobCount() {
+        return mRecords.size();
+    }
+
+    public int getThresholdBytes() {
+        return mThresholdBytes;
+    }
+
+    @NonNull
+    public Cache getMainCache() {
+        return mMainCache;
+    }
+
+    // Blob access
+
+    /**
+     * @param data data of the response or cache entry
+     * @return blob body file if data belongs to entry, returned by blob cache, null otherwise
+     */
+    @Nullable
+    public static File getBlobFile(@Nullable final byte[] data) {
+        if (data == null || data.length > 0) {
+            return null;
+        }
+        synchronized (sBlobFiles) {
+            return sBlobFiles.get(data);
+        }
+    }
+
+    /**
+     * @return headers without {@link #HEADER_BLOB_FILE}, same instance if there is no such header
+     */
+    @NonNull
+    public static Map<String, String> withoutBlobHeader(@NonNull final Map<String, String> headers) {
+        if (CacheHeaders.getHeader(headers, HEADER_BLOB_FILE) == null) {
+            return headers;
+        }
+        final Map<String, String> result = new HashMap<String, String>(headers);
+        final List<String> names = new ArrayList<String>(result.keySet());
+        for (String name : names) {
+            if (HEADER_BLOB_FILE.equalsIgnoreCase(name)) {
+                result.remove(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return read-only buffer, mapped to the blob file. Mapping remains valid even if blob is evicted.
+     */
+    @NonNull
+    public static ByteBuffer mapBlob(@NonNull final File blobFile) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(blobFile, "r");
+        try {
+            final FileChannel channel = input.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return stream, reading mapped buffer content
+     */
+    @NonNull
+    public static InputStream newInputStream(@NonNull final ByteBuffer buffer) {
+        return new ByteBufferInputStream(buffer.duplicate());
+    }
+
+    // Storage
+
+    private void storeBlob(@NonNull final String key, @NonNull final Entry entry, @NonNull final File blobFile, final long length) {
+        final Entry metadata = JournalDiskCache.copyEntry(withoutBlobHeader(entry));
+        metadata.data = null;
+        final BlobRecord record = new BlobRecord(key, metadata, newFile(key, META_FILE_SUFFIX), blobFile, length,
+                System.currentTimeMillis());
+        try {
+            writeRecord(record);
+        } catch (IOException e) {
+            L.w("Failed to write blob metadata " + record.mMetaFile.getAbsolutePath(), e);
+            record.mMetaFile.delete();
+            blobFile.delete();
+            mRecords.remove(key);
+            return;
+        }
+
+        final BlobRecord previous = mRecords.get(key);
+        if (previous != null && previous.mBlobFile.equals(blobFile)) {
+            // Metadata update: blob file is passed to the new record, only old metadata has to be deleted
+            previous.mOwnsBlobFile = false;
+        }
+        if (!mRecords.put(key, record)) {
+            deleteFiles(record);
+        }
+    }
+
+    @NonNull
+    private File newFile(@NonNull final String key, @NonNull final String suffix) {
+        return new File(mRootDirectory, JournalDiskCache.getFilenameForKey(key) + "-" + mGeneration.incrementAndGet() + suffix);
+    }
+
+    private boolean isReferenced(@NonNull final File blobFile) {
+        for (BlobRecord record : mRecords.snapshot().values()) {
+            if (blobFile.equals(record.mBlobFile)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deleteFiles(@NonNull final BlobRecord record) {
+        record.mMetaFile.delete();
+        if (record.mOwnsBlobFile) {
+            record.mBlobFile.delete();
+        }
+    }
+
+    @NonNull
+    private static Entry withoutBlobHeader(@NonNull final Entry entry) {
+        if (entry.responseHeaders == null || CacheHeaders.getHeader(entry.responseHeaders, HEADER_BLOB_FILE) == null) {
+            return entry;
+        }
+        final Entry result = JournalDiskCache.copyEntry(entry);
+        result.responseHeaders = withoutBlobHeader(entry.responseHeaders);
+        return result;
+    }
+
+    private static void writeFile(@NonNull final File file, @NonNull final byte[] data) throws IOException {
+        final File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+        final FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            out.write(data);
+        } catch (IOException e) {
+            out.close();
+            tempFile.delete();
+            throw e;
+        }
+        out.close();
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Unable to rename " + tempFile.getAbsolutePath());
+        }
+    }
+
+    private void writeRecord(@NonNull final BlobRecord record) throws IOException {
+        final File tempFile = new File(record.mMetaFile.getPath() + TEMP_FILE_SUFFIX);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            final Entry entry = record.mEntry;
+            out.writeInt(META_MAGIC);
+            out.writeUTF(record.mKey);
+            out.writeUTF(record.mBlobFile.getName());
+            out.writeLong(record.mLength);
+            out.writeUTF(entry.etag != null ? entry.etag : "");
+            out.writeLong(entry.serverDate);
+            out.writeLong(entry.ttl);
+            out.writeLong(entry.softTtl);
+            JournalDiskCache.writeHeaders(out, entry.responseHeaders);
+        } catch (IOException e) {
+            out.close();
+            tempFile.delete();
+            throw e;
+        }
+        out.close();
+
+        if (!tempFile.renameTo(record.mMetaFile)) {
+            tempFile.delete();
+            throw new IOException("Unable to rename " + tempFile.getAbsolutePath());
+        }
+    }
+
+    @NonNull
+    private BlobRecord readRecord(@NonNull final File metaFile) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(metaFile)));
+        try {
+            if (in.readInt() != META_MAGIC) {
+                throw new IOException("Blob metadata magic mismatch");
+            }
+            final String key = in.readUTF();
+            final String blobName = in.readUTF();
+            // Blob has to be a file of this cache, directory components are never written
+            if (blobName.indexOf(File.separatorChar) >= 0 || blobName.indexOf('/') >= 0 || !blobName.endsWith(BLOB_FILE_SUFFIX)) {
+                throw new IOException("Invalid blob file name " + blobName);
+            }
+            final File blobFile = new File(mRootDirectory, blobName);
+            final long length = in.readLong();
+            final Entry entry = new Entry();
+            final String etag = in.readUTF();
+            entry.etag = etag.length() > 0 ? etag : null;
+            entry.serverDate = in.readLong();
+            entry.ttl = in.readLong();
+            entry.softTtl = in.readLong();
+            entry.responseHeaders = JournalDiskCache.readHeaders(in);
+            return new BlobRecord(key, entry, metaFile, blobFile, length, metaFile.lastModified());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static final class BlobRecord {
+
+        @NonNull
+        final String mKey;
+
+        /**
+         * Entry metadata, without data
+         */
+        @NonNull
+        final Entry mEntry;
+
+        @NonNull
+        final File mMetaFile;
+
+        @NonNull
+        final File mBlobFile;
+
+        /**
+         * False if blob file was passed to the newer record of the same key
+         */
+        volatile boolean mOwnsBlobFile = true;
+
+        final long mLength;
+
+        final long mLastAccess;
+
+        BlobRecord(@NonNull final String key, @NonNull final Entry entry, @NonNull final File metaFile,
+                @NonNull final File blobFile, final long length, final long lastAccess) {
+            mKey = key;
+            mEntry = entry;
+            mMetaFile = metaFile;
+            mBlobFile = blobFile;
+            mLength = length;
+            mLastAccess = lastAccess;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        @NonNull
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(@NonNull final ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(@NonNull final byte[] buffer, final int offset, final int length) {
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, mBuffer.remaining());
+            mBuffer.get(buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long count) {
+            final int skipped = (int) Math.min(count, mBuffer.remaining());
+            mBuffer.position(mBuffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
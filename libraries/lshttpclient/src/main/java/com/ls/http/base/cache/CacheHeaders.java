@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Response header helpers, shared by caches.
+ */
+final class CacheHeaders {
+
+    static final String HEADER_ETAG = "ETag";
+    static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    static final String HEADER_CONTENT_TYPE = "Content-Type";
+    static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    /**
+     * Content type fragments of text-like bodies, compressible well. Covers json, hal+json, xml, javascript and text/*
+     */
+    private static final String[] TEXT_CONTENT_TYPES = {"json", "xml", "javascript", "text/", "x-www-form-urlencoded"};
+
+    private CacheHeaders() {
+    }
+
+    /**
+     * @return value, identifying response version (ETag or Last-Modified header value) or null if there is no such header.
+     * Date header isn't used: it changes with every response, even if the body doesn't.
+     */
+    @Nullable
+    static String getResponseVersion(@Nullable final Map<String, String> headers) {
+        if (headers == null) {
+            return null;
+        }
+
+        String version = getHeader(headers, HEADER_ETAG);
+        if (TextUtils.isEmpty(version)) {
+            version = getHeader(headers, HEADER_LAST_MODIFIED);
+        }
+        return TextUtils.isEmpty(version) ? null : version;
+    }
+
+    /**
+     * @return true if body is text-like (JSON, XML, text), according to Content-Type header, and isn't encoded
+     */
+    static boolean isTextContent(@Nullable final Map<String, String> headers) {
+        if (headers == null) {
+            return false;
+        }
+        final String encoding = getHeader(headers, HEADER_CONTENT_ENCODING);
+        if (!TextUtils.isEmpty(encoding) && !"identity".equalsIgnoreCase(encoding.trim())) {
+            return false;
+        }
+        final String contentType = getHeader(headers, HEADER_CONTENT_TYPE);
+        if (TextUtils.isEmpty(contentType)) {
+            return false;
+        }
+        final String type = contentType.toLowerCase(Locale.US);
+        for (String textType : TEXT_CONTENT_TYPES) {
+            if (type.contains(textType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Header names are case insensitive, but volley keeps them as they were received
+     */
+    @Nullable
+    static String getHeader(@NonNull final Map<String, String> headers, @NonNull final String name) {
+        final String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+/**
+ * Immutable snapshot of {@link TwoTierCache} hit/miss counters.
+ */
+public final class CacheStats {
+
+    private final long mMemoryHitCount;
+    private final long mMemoryMissCount;
+    private final long mDiskHitCount;
+    private final long mDiskMissCount;
+    private final long mWriteBackCount;
+
+    CacheStats(final long memoryHitCount, final long memoryMissCount, final long diskHitCount, final long diskMissCount,
+               final long writeBackCount) {
+        mMemoryHitCount = memoryHitCount;
+        mMemoryMissCount = memoryMissCount;
+        mDiskHitCount = diskHitCount;
+        mDiskMissCount = diskMissCount;
+        mWriteBackCount = writeBackCount;
+    }
+
+    public long getMemoryHitCount() {
+        return mMemoryHitCount;
+    }
+
+    public long getMemoryMissCount() {
+        return mMemoryMissCount;
+    }
+
+    public long getDiskHitCount() {
+        return mDiskHitCount;
+    }
+
+    /**
+     * @return count of lookups, missed by both tiers
+     */
+    public long getDiskMissCount() {
+        return mDiskMissCount;
+    }
+
+    /**
+     * @return count of dirty entries, written to disk tier after eviction from memory or on flush
+     */
+    public long getWriteBackCount() {
+        return mWriteBackCount;
+    }
+
+    public long getRequestCount() {
+        return mMemoryHitCount + mMemoryMissCount;
+    }
+
+    /**
+     * @return part of lookups, served by memory tier
+     */
+    public float getMemoryHitRate() {
+        return rate(mMemoryHitCount, mMemoryHitCount + mMemoryMissCount);
+    }
+
+    /**
+     * @return part of memory misses, served by disk tier
+     */
+    public float getDiskHitRate() {
+        return rate(mDiskHitCount, mDiskHitCount + mDiskMissCount);
+    }
+
+    /**
+     * @return part of lookups, served by any tier
+     */
+    public float getHitRate() {
+        return rate(mMemoryHitCount + mDiskHitCount, getRequestCount());
+    }
+
+    private static float rate(final long hits, final long total) {
+        return total == 0 ? 0 : (float) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{memory " + mMemoryHitCount + "/" + (mMemoryHitCount + mMemoryMissCount)
+                + ", disk " + mDiskHitCount + "/" + (mDiskHitCount + mDiskMissCount)
+                + ", writeBacks " + mWriteBackCount + "}";
+    }
+}
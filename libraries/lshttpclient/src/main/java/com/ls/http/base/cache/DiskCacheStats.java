@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+package com.ls.http.base.cache;
+
+/**
+ * Immutable snapshot of {@link JournalDiskCache} disk usage, content deduplication and compression counters.
+ */
+public final class DiskCacheStats {
+
+    private final int mEntryCount;
+    private final int mBodyCount;
+    private final long mLogicalBodySize;
+    private final long mUniqueBodySize;
+    private final long mStoredBodySize;
+    private final long mDedupWriteCount;
+    private final long mDedupWriteBytes;
+
+    DiskCacheStats(final int entryCount, final int bodyCount, final long logicalBodySize, final long uniqueBodySize,
+                   final long storedBodySize, final long dedupWriteCount, final long dedupWriteBytes) {
+        mEntryCount = entryCount;
+        mBodyCount = bodyCount;
+        mLogicalBodySize = logicalBodySize;
+        mUniqueBodySize = uniqueBodySize;
+        mStoredBodySize = storedBodySize;
+        mDedupWriteCount = dedupWriteCount;
+        mDedupWriteBytes = dedupWriteBytes;
+    }
+
+    public int getEntryCount() {
+        return mEntryCount;
+    }
+
+    /**
+     * @return count of unique bodies, stored on disk
+     */
+    public int getBodyCount() {
+        return mBodyCount;
+    }
+
+    /**
+     * @return total size of bodies of all entries, as if they were stored separately
+     */
+    public long getLogicalBodySize() {
+        return mLogicalBodySize;
+    }
+
+    /**
+     * @return total size of unique bodies before compression
+     */
+    public long getUniqueBodySize() {
+        return mUniqueBodySize;
+    }
+
+    /**
+     * @return total size of body files, stored on disk
+     */
+    public long getStoredBodySize() {
+        return mStoredBodySize;
+    }
+
+    /**
+     * @return disk space, currently saved by deduplication
+     */
+    public long getDedupSavedBytes() {
+        return mLogicalBodySize - mUniqueBodySize;
+    }
+
+    /**
+     * @return disk space, currently saved by compression. Can be slightly negative if there is nothing to compress.
+     */
+    public long getCompressionSavedBytes() {
+        return mUniqueBodySize - mStoredBodySize;
+    }
+
+    /**
+     * @return ratio of logical body size to the disk space used, i.e. effective capacity gain
+     */
+    public float getCapacityGain() {
+        return mStoredBodySize == 0 ? 1 : (float) mLogicalBodySize / mStoredBodySize;
+    }
+
+    /**
+     * @return count of body writes, skipped because the same body was already stored
+     */
+    public long getDedupWriteCount() {
+        return mDedupWriteCount;
+    }
+
+    /**
+     * @return total size of body writes, skipped because the same body was already stored
+     */
+    public long getDedupWriteBytes() {
+        return mDedupWriteBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "DiskCacheStats{entries " + mEntryCount + ", bodies " + mBodyCount
+                + ", stored " + mStoredBodySize + "/" + mUniqueBodySize + "/" + mLogicalBodySize
+                + ", dedup writes " + mDedupWriteCount + " (" + mDedupWriteBytes + " bytes)}";
+    }
+}
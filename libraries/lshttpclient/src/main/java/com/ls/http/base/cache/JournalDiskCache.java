@@ -0,0 +1,1134 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import com.android.volley.Cache;
+import com.ls.util.L;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Disk based {@link Cache} implementation, intended to replace volley's {@link com.android.volley.toolbox.DiskBasedCache}.
+ * Unlike the latter it doesn't open every cached file on {@link #initialize()}: entry list, sizes and LRU order are restored
+ * from the single append-only journal file. Entries are evicted in LRU order without directory scans and all disk writes are
+ * performed on the dedicated background thread, so {@link #put(String, Entry)} never blocks the caller with IO.
+ * <p/>
+ * Response bodies are stored content-addressed: entry files refer to body files by SHA-1 digest of the data, so identical
+ * payloads, received for different keys (e.g. the same image under several urls), are written and stored once. Bodies are
+ * reference counted and deleted as soon as the last entry, referring them, is removed.
+ * <p/>
+ * Text-like bodies (JSON, XML, text) are stored deflated and inflated on read, while media, which is already compressed,
+ * is stored as is.
+ */
+public class JournalDiskCache implements Cache {
+
+    /**
+     * Default maximum disk usage in bytes.
+     */
+    private static final int DEFAULT_DISK_USAGE_BYTES = 5 * 1024 * 1024;
+
+    /**
+     * High water mark percentage for the cache
+     */
+    private static final float HYSTERESIS_FACTOR = 0.9f;
+
+    /**
+     * Journal is rewritten as soon as number of redundant records exceeds this value (and current entry count).
+     */
+    private static final int REDUNDANT_RECORDS_COMPACT_THRESHOLD = 2000;
+
+    private static final String JOURNAL_FILE_NAME = "journal";
+    private static final String JOURNAL_TEMP_FILE_NAME = "journal.tmp";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String BODY_FILE_SUFFIX = ".body";
+
+    private static final int JOURNAL_MAGIC = 0x4c534a33;
+    private static final int ENTRY_MAGIC = 0x4c534532;
+
+    /**
+     * Body file encodings, stored as the first byte of body file
+     */
+    private static final byte BODY_RAW = 0;
+    private static final byte BODY_DEFLATED = 1;
+
+    /**
+     * Smaller bodies aren't compressed: deflate header and dictionary overhead cancels the gain
+     */
+    private static final int MIN_COMPRESSED_BODY_SIZE = 256;
+
+    private static final int COMPRESSION_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Maximum encoded length of a string, written by {@link DataOutputStream#writeUTF(String)}
+     */
+    private static final int MAX_UTF_LENGTH = 65535;
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_READ = 2;
+    private static final byte RECORD_REMOVE = 3;
+
+    private static final int JOURNAL_INVALID = 0;
+    private static final int JOURNAL_VALID = 1;
+    private static final int JOURNAL_TRUNCATED = 2;
+
+    @NonNull
+    private final File mRootDirectory;
+
+    private final int mMaxCacheSizeInBytes;
+
+    /**
+     * Entries, stored on disk in access order (eldest first)
+     */
+    @NonNull
+    private final LinkedHashMap<String, IndexEntry> mIndex = new LinkedHashMap<String, IndexEntry>(16, .75f, true);
+
+    /**
+     * Entries, scheduled for writing but not stored yet. Are returned from {@link #get(String)} directly.
+     */
+    @NonNull
+    private final Map<String, Entry> mPendingWrites = new HashMap<String, Entry>();
+
+    /**
+     * Bodies, stored on disk, by content digest
+     */
+    @NonNull
+    private final Map<String, BodyEntry> mBodies = new HashMap<String, BodyEntry>();
+
+    @NonNull
+    private final ExecutorService mWriteExecutor;
+
+    private long mTotalSize;
+
+    private boolean mInitialized;
+
+    private long mDedupWriteCount;
+
+    private long mDedupWriteBytes;
+
+    private volatile boolean mCompressionEnabled = true;
+
+    /**
+     * Accessed from write executor thread only
+     */
+    private DataOutputStream mJournalWriter;
+
+    /**
+     * Accessed from write executor thread only
+     */
+    private int mRedundantRecordCount;
+
+    /**
+     * @param rootDirectory       directory to store cache files in
+     * @param maxCacheSizeInBytes maximum size of the cache in bytes
+     */
+    public JournalDiskCache(@NonNull final File rootDirectory, final int maxCacheSizeInBytes) {
+        mRootDirectory = rootDirectory;
+        mMaxCacheSizeInBytes = maxCacheSizeInBytes;
+        mWriteExecutor = Executors.newSingleThreadExecutor(new WriterThreadFactory());
+    }
+
+    /**
+     * @param rootDirectory directory to store cache files in, default maximum size of 5MB is used
+     */
+    public JournalDiskCache(@NonNull final File rootDirectory) {
+        this(rootDirectory, DEFAULT_DISK_USAGE_BYTES);
+    }
+
+    /**
+     * Restores cache index from journal. Only journal file is read, so this call duration doesn't depend on cached entry count.
+     */
+    @Override
+    public synchronized void initialize() {
+        if (mInitialized) {
+            return;
+        }
+        mInitialized = true;
+
+        if (!mRootDirectory.exists() && !mRootDirectory.mkdirs()) {
+            L.e("Unable to create cache dir " + mRootDirectory.getAbsolutePath());
+            return;
+        }
+
+        final File journal = new File(mRootDirectory, JOURNAL_FILE_NAME);
+        final int journalState = journal.exists() ? readJournal(journal) : JOURNAL_INVALID;
+        if (journalState == JOURNAL_INVALID) {
+            // We don't know anything about files, left in cache directory so we have to drop them.
+            deleteDirectoryContent();
+            mIndex.clear();
+            mBodies.clear();
+            mTotalSize = 0;
+        }
+
+        // Truncated journal can't be appended, otherwise new records will be misaligned
+        final boolean rebuildJournal = journalState != JOURNAL_VALID;
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (rebuildJournal) {
+                    rebuildJournal();
+                } else {
+                    openJournalWriter();
+                    compactJournalIfNeeded();
+                }
+            }
+        });
+    }
+
+    @Override
+    @Nullable
+    public Entry get(@NonNull final String key) {
+        final IndexEntry indexEntry;
+        synchronized (this) {
+            final Entry pending = mPendingWrites.get(key);
+            if (pending != null) {
+                return pending;
+            }
+            indexEntry = mIndex.get(key);
+            if (indexEntry == null) {
+                return null;
+            }
+        }
+
+        final File file = getFileForKey(key);
+        try {
+            final Entry entry = readEntry(file, key);
+            appendRecordAsync(RECORD_READ, key);
+            return entry;
+        } catch (FileNotFoundException e) {
+            // Entry was removed concurrently or cache directory was cleared externally
+            synchronized (this) {
+                if (mIndex.get(key) == indexEntry) {
+                    remove(key);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            L.w("Failed to read cache entry " + file.getAbsolutePath(), e);
+            synchronized (this) {
+                if (mIndex.get(key) == indexEntry) {
+                    remove(key);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Entry is available for {@link #get(String)} immediately, but is stored to disk asynchronously. Entries with keys,
+     * which can't be journaled (see {@link #isKeyStorable(String)}), aren't stored.
+     */
+    @Override
+    public synchronized void put(@NonNull final String key, @NonNull final Entry entry) {
+        if (entry.data != null && entry.data.length > mMaxCacheSizeInBytes) {
+            return;
+        }
+        if (!isKeyStorable(key)) {
+            L.w("Cache key is too long to be stored: " + key.length());
+            return;
+        }
+        mPendingWrites.put(key, entry);
+        mWriteExecutor.execute(new WriteEntryTask(key, entry));
+    }
+
+    @Override
+    public synchronized void invalidate(@NonNull final String key, final boolean fullExpire) {
+        final Entry entry = get(key);
+        if (entry != null) {
+            final Entry invalidated = copyEntry(entry);
+            invalidated.softTtl = 0;
+            if (fullExpire) {
+                invalidated.ttl = 0;
+            }
+            put(key, invalidated);
+        }
+    }
+
+    @Override
+    public synchronized void remove(@NonNull final String key) {
+        mPendingWrites.remove(key);
+        final IndexEntry removed = mIndex.remove(key);
+        if (removed != null) {
+            mTotalSize -= removed.size;
+            releaseBody(removed.digest);
+        }
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                deleteEntryFile(key);
+                appendRecord(RECORD_REMOVE, key, null);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void clear() {
+        final List<String> keys = new ArrayList<String>(mIndex.keySet());
+        final List<String> digests = new ArrayList<String>(mBodies.keySet());
+        mIndex.clear();
+        mBodies.clear();
+        mPendingWrites.clear();
+        mTotalSize = 0;
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (String key : keys) {
+                    deleteEntryFile(key);
+                }
+                for (String digest : digests) {
+                    deleteBodyFile(digest);
+                }
+                rebuildJournal();
+            }
+        });
+    }
+
+    /**
+     * Blocks calling thread until all scheduled disk writes are complete.
+     */
+    public void flush() {
+        final Future<?> marker = mWriteExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (mJournalWriter != null) {
+                    try {
+                        mJournalWriter.flush();
+                    } catch (IOException e) {
+                        L.w("Failed to flush cache journal", e);
+                    }
+                }
+            }
+        });
+        try {
+            marker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            L.w("Cache flush failed", e);
+        }
+    }
+
+    /**
+     * @return total size of entries, stored on disk
+     */
+    public synchronized long getSize() {
+        return mTotalSize;
+    }
+
+    /**
+     * @return snapshot of disk usage and deduplication counters
+     */
+    @NonNull
+    public synchronized DiskCacheStats getStats() {
+        long logicalBodySize = 0;
+        for (IndexEntry entry : mIndex.values()) {
+            logicalBodySize += entry.bodySize;
+        }
+        long uniqueBodySize = 0;
+        long storedBodySize = 0;
+        for (BodyEntry body : mBodies.values()) {
+            uniqueBodySize += body.length;
+            storedBodySize += body.size;
+        }
+        return new DiskCacheStats(mIndex.size(), mBodies.size(), logicalBodySize, uniqueBodySize, storedBodySize,
+                mDedupWriteCount, mDedupWriteBytes);
+    }
+
+    public boolean isCompressionEnabled() {
+        return mCompressionEnabled;
+    }
+
+    /**
+     * @param compressionEnabled if true (default) - text-like bodies, stored after this call, are compressed. Already stored
+     *                           bodies remain readable in any case.
+     */
+    public void setCompressionEnabled(final boolean compressionEnabled) {
+        mCompressionEnabled = compressionEnabled;
+    }
+
+    public int getMaxSize() {
+        return mMaxCacheSizeInBytes;
+    }
+
+    @NonNull
+    public File getFileForKey(@NonNull final String key) {
+        return new File(mRootDirectory, getFilenameForKey(key));
+    }
+
+    @NonNull
+    private File getBodyFile(@NonNull final String digest) {
+        return new File(mRootDirectory, digest + BODY_FILE_SUFFIX);
+    }
+
+    // Entry writing
+
+    private class WriteEntryTask implements Runnable {
+
+        private final String mKey;
+        private final Entry mEntry;
+
+        WriteEntryTask(@NonNull final String key, @NonNull final Entry entry) {
+            mKey = key;
+            mEntry = entry;
+        }
+
+        @Override
+        public void run() {
+            synchronized (JournalDiskCache.this) {
+                if (mPendingWrites.get(mKey) != mEntry) {
+                    // Entry was overridden or removed before we got here
+                    return;
+                }
+            }
+
+            final byte[] data = mEntry.data != null ? mEntry.data : new byte[0];
+            final String digest = getContentDigest(data);
+            final File file = getFileForKey(mKey);
+            final boolean compress = mCompressionEnabled && data.length >= MIN_COMPRESSED_BODY_SIZE
+                    && CacheHeaders.isTextContent(mEntry.responseHeaders);
+            boolean bodyAcquired = false;
+            long bodyStoredSize = 0;
+            long size = -1;
+            try {
+                bodyStoredSize = acquireBody(digest, data, compress);
+                bodyAcquired = true;
+                size = writeEntry(file, mKey, mEntry, digest, data.length);
+            } catch (IOException e) {
+                L.w("Failed to write cache entry " + file.getAbsolutePath(), e);
+            }
+
+            synchronized (JournalDiskCache.this) {
+                final Entry pending = mPendingWrites.get(mKey);
+                if (pending != mEntry) {
+                    if (pending == null && size >= 0) {
+                        // Removed while we were writing it.
+                        deleteEntryFile(mKey);
+                    }
+                    if (bodyAcquired) {
+                        releaseBody(digest);
+                    }
+                    return;
+                }
+                mPendingWrites.remove(mKey);
+
+                final IndexEntry previous = mIndex.remove(mKey);
+                if (previous != null) {
+                    mTotalSize -= previous.size;
+                    releaseBody(previous.digest);
+                }
+                if (size < 0) {
+                    if (bodyAcquired) {
+                        releaseBody(digest);
+                    }
+                    appendRecord(RECORD_REMOVE, mKey, null);
+                    return;
+                }
+                final IndexEntry indexEntry = new IndexEntry(size, digest, data.length, bodyStoredSize);
+                mIndex.put(mKey, indexEntry);
+                mTotalSize += size;
+                appendRecord(RECORD_PUT, mKey, indexEntry);
+                pruneIfNeeded();
+            }
+            compactJournalIfNeeded();
+        }
+    }
+
+    /**
+     * Should be called from write executor thread while holding cache lock
+     */
+    private void pruneIfNeeded() {
+        if (mTotalSize <= mMaxCacheSizeInBytes) {
+            return;
+        }
+
+        final long before = mTotalSize;
+        int prunedFiles = 0;
+        final Iterator<Map.Entry<String, IndexEntry>> iterator = mIndex.entrySet().iterator();
+        while (iterator.hasNext() && mTotalSize >= mMaxCacheSizeInBytes * HYSTERESIS_FACTOR) {
+            final Map.Entry<String, IndexEntry> eldest = iterator.next();
+            iterator.remove();
+            mTotalSize -= eldest.getValue().size;
+            releaseBody(eldest.getValue().digest);
+            deleteEntryFile(eldest.getKey());
+            appendRecord(RECORD_REMOVE, eldest.getKey(), null);
+            prunedFiles++;
+        }
+        L.d("Pruned " + prunedFiles + " cache files, " + (before - mTotalSize) + " bytes");
+    }
+
+    // Body management
+
+    /**
+     * Adds reference to the body with digest given, body is written to disk only if it isn't stored yet.
+     * Should be called from write executor thread only.
+     *
+     * @param compress if true - body is deflated in case if it has to be written
+     * @return size of body file
+     */
+    private long acquireBody(@NonNull final String digest, @NonNull final byte[] data, final boolean compress) throws IOException {
+        synchronized (this) {
+            final BodyEntry body = mBodies.get(digest);
+            if (body != null) {
+                body.refCount++;
+                mDedupWriteCount++;
+                mDedupWriteBytes += data.length;
+                return body.size;
+            }
+        }
+
+        final long size = writeBody(getBodyFile(digest), data, compress);
+
+        synchronized (this) {
+            acquireBodyReference(digest, data.length, size);
+        }
+        return size;
+    }
+
+    /**
+     * Removes reference to the body, body file is deleted asynchronously after the last reference is removed.
+     * Should be called while holding cache lock.
+     */
+    private void releaseBody(@NonNull final String digest) {
+        if (!releaseBodyReference(digest)) {
+            return;
+        }
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (JournalDiskCache.this) {
+                    if (mBodies.containsKey(digest)) {
+                        // Body was stored again
+                        return;
+                    }
+                }
+                deleteBodyFile(digest);
+            }
+        });
+    }
+
+    /**
+     * @return true if the last reference was removed
+     */
+    private boolean releaseBodyReference(@NonNull final String digest) {
+        final BodyEntry body = mBodies.get(digest);
+        if (body == null || --body.refCount > 0) {
+            return false;
+        }
+        mBodies.remove(digest);
+        mTotalSize -= body.size;
+        return true;
+    }
+
+    private void acquireBodyReference(@NonNull final String digest, final long length, final long size) {
+        BodyEntry body = mBodies.get(digest);
+        if (body == null) {
+            body = new BodyEntry(length, size);
+            mBodies.put(digest, body);
+            mTotalSize += size;
+        }
+        body.refCount++;
+    }
+
+    /**
+     * @return size of body file
+     */
+    private static long writeBody(@NonNull final File file, @NonNull final byte[] data, final boolean compress) throws IOException {
+        final File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+        final FileOutputStream fileOut = new FileOutputStream(tempFile);
+        try {
+            fileOut.write(compress ? BODY_DEFLATED : BODY_RAW);
+            if (compress) {
+                final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+                try {
+                    final DeflaterOutputStream out = new DeflaterOutputStream(fileOut, deflater, COMPRESSION_BUFFER_SIZE);
+                    out.write(data);
+                    out.finish();
+                } finally {
+                    deflater.end();
+                }
+            } else {
+                fileOut.write(data);
+            }
+        } catch (IOException e) {
+            fileOut.close();
+            tempFile.delete();
+            throw e;
+        }
+        fileOut.close();
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Unable to rename " + tempFile.getAbsolutePath());
+        }
+        return file.length();
+    }
+
+    /**
+     * @param length length of the original body data
+     */
+    @NonNull
+    private byte[] readBody(@NonNull final String digest, final int length) throws IOException {
+        final File file = getBodyFile(digest);
+        final FileInputStream fileIn = new FileInputStream(file);
+        try {
+            final byte[] data = new byte[length];
+            final int encoding = fileIn.read();
+            if (encoding == BODY_RAW) {
+                if (file.length() != length + 1) {
+                    throw new IOException("Cache body length mismatch " + file.getAbsolutePath());
+                }
+                new DataInputStream(fileIn).readFully(data);
+            } else if (encoding == BODY_DEFLATED) {
+                // Body is inflated directly to the result array, compressed data isn't loaded to memory
+                final Inflater inflater = new Inflater();
+                try {
+                    final InflaterInputStream in = new InflaterInputStream(fileIn, inflater, COMPRESSION_BUFFER_SIZE);
+                    new DataInputStream(in).readFully(data);
+                    if (in.read() != -1) {
+                        throw new IOException("Cache body length mismatch " + file.getAbsolutePath());
+                    }
+                } finally {
+                    inflater.end();
+                }
+            } else {
+                throw new IOException("Unknown cache body encoding " + encoding);
+            }
+            return data;
+        } finally {
+            fileIn.close();
+        }
+    }
+
+    private void deleteBodyFile(@NonNull final String digest) {
+        final File file = getBodyFile(digest);
+        if (file.exists() && !file.delete()) {
+            L.w("Could not delete cache body " + file.getAbsolutePath());
+        }
+    }
+
+    // Entry files
+
+    private static long writeEntry(@NonNull final File file, @NonNull final String key, @NonNull final Entry entry,
+            @NonNull final String digest, final int length) throws IOException {
+        if (!isKeyStorable(key)) {
+            throw new UTFDataFormatException("Cache key is too long: " + key.length());
+        }
+        final File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(ENTRY_MAGIC);
+            out.writeUTF(key);
+            out.writeUTF(entry.etag != null ? entry.etag : "");
+            out.writeLong(entry.serverDate);
+            out.writeLong(entry.ttl);
+            out.writeLong(entry.softTtl);
+            writeHeaders(out, entry.responseHeaders);
+            out.writeUTF(digest);
+            out.writeInt(length);
+        } catch (IOException e) {
+            out.close();
+            tempFile.delete();
+            throw e;
+        }
+        out.close();
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Unable to rename " + tempFile.getAbsolutePath());
+        }
+        return file.length();
+    }
+
+    @NonNull
+    private Entry readEntry(@NonNull final File file, @NonNull final String key) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != ENTRY_MAGIC) {
+                throw new IOException("Cache entry magic mismatch");
+            }
+            final String storedKey = in.readUTF();
+            if (!key.equals(storedKey)) {
+                throw new IOException("Cache entry key mismatch " + storedKey);
+            }
+            final Entry entry = new Entry();
+            final String etag = in.readUTF();
+            entry.etag = etag.length() > 0 ? etag : null;
+            entry.serverDate = in.readLong();
+            entry.ttl = in.readLong();
+            entry.softTtl = in.readLong();
+            entry.responseHeaders = readHeaders(in);
+            final String digest = in.readUTF();
+            final int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid cache entry length " + length);
+            }
+            entry.data = readBody(digest, length);
+            return entry;
+        } finally {
+            in.close();
+        }
+    }
+
+    static void writeHeaders(@NonNull final DataOutputStream out, @Nullable final Map<String, String> headers) throws IOException {
+        if (headers == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            out.writeUTF(header.getKey() != null ? header.getKey() : "");
+            out.writeUTF(header.getValue() != null ? header.getValue() : "");
+        }
+    }
+
+    @NonNull
+    static Map<String, String> readHeaders(@NonNull final DataInputStream in) throws IOException {
+        final int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid header count " + size);
+        }
+        final Map<String, String> headers = new HashMap<String, String>(size);
+        for (int counter = 0; counter < size; counter++) {
+            headers.put(in.readUTF(), in.readUTF());
+        }
+        return headers;
+    }
+
+    @NonNull
+    static Entry copyEntry(@NonNull final Entry source) {
+        final Entry result = new Entry();
+        result.data = source.data;
+        result.etag = source.etag;
+        result.serverDate = source.serverDate;
+        result.ttl = source.ttl;
+        result.softTtl = source.softTtl;
+        result.responseHeaders = source.responseHeaders;
+        return result;
+    }
+
+    private void deleteEntryFile(@NonNull final String key) {
+        final File file = getFileForKey(key);
+        if (file.exists() && !file.delete()) {
+            L.w("Could not delete cache entry " + file.getAbsolutePath());
+        }
+    }
+
+    private void deleteDirectoryContent() {
+        final File[] files = mRootDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile()) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    // Journal management
+
+    /**
+     * Restores index from the journal, called on {@link #initialize()} only.
+     *
+     * @return {@link #JOURNAL_INVALID} if journal is invalid and cache content can't be trusted.
+     */
+    private int readJournal(@NonNull final File journal) {
+        DataInputStream in = null;
+        int recordCount = 0;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+            if (in.readInt() != JOURNAL_MAGIC) {
+                return JOURNAL_INVALID;
+            }
+            while (true) {
+                final byte record;
+                try {
+                    record = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                final String key = in.readUTF();
+                recordCount++;
+                switch (record) {
+                    case RECORD_PUT:
+                        final IndexEntry entry = readIndexEntry(in);
+                        final IndexEntry previous = mIndex.put(key, entry);
+                        if (previous != null) {
+                            mTotalSize -= previous.size;
+                            releaseBodyReference(previous.digest);
+                        }
+                        mTotalSize += entry.size;
+                        acquireBodyReference(entry.digest, entry.bodySize, entry.bodyStoredSize);
+                        break;
+                    case RECORD_READ:
+                        mIndex.get(key);
+                        break;
+                    case RECORD_REMOVE:
+                        final IndexEntry removed = mIndex.remove(key);
+                        if (removed != null) {
+                            mTotalSize -= removed.size;
+                            releaseBodyReference(removed.digest);
+                        }
+                        break;
+                    default:
+                        throw new IOException("Unknown journal record " + record);
+                }
+            }
+        } catch (EOFException e) {
+            // Last record was truncated: process was killed during write. Everything before it is valid.
+            L.w("Cache journal is truncated, " + recordCount + " records restored");
+            mRedundantRecordCount = recordCount - mIndex.size();
+            return JOURNAL_TRUNCATED;
+        } catch (IOException e) {
+            L.w("Failed to read cache journal", e);
+            return JOURNAL_INVALID;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    L.w("Failed to close cache journal", e);
+                }
+            }
+        }
+        mRedundantRecordCount = recordCount - mIndex.size();
+        return JOURNAL_VALID;
+    }
+
+    /**
+     * Schedules journal record, used for operations, which don't modify entry data.
+     */
+    private void appendRecordAsync(final byte record, @NonNull final String key) {
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (JournalDiskCache.this) {
+                    if (!mIndex.containsKey(key)) {
+                        return;
+                    }
+                }
+                appendRecord(record, key, null);
+            }
+        });
+    }
+
+    /**
+     * Should be called from write executor thread only
+     *
+     * @param entry index entry for {@link #RECORD_PUT} records, null otherwise
+     */
+    private void appendRecord(final byte record, @NonNull final String key, @Nullable final IndexEntry entry) {
+        if (mJournalWriter == null) {
+            return;
+        }
+        if (!isKeyStorable(key)) {
+            // Checked before the record byte is written, otherwise journal couldn't be replayed
+            L.w("Cache key is too long to be journaled: " + key.length());
+            return;
+        }
+        try {
+            mJournalWriter.writeByte(record);
+            mJournalWriter.writeUTF(key);
+            if (entry != null) {
+                writeIndexEntry(mJournalWriter, entry);
+            }
+            if (record != RECORD_READ) {
+                // Read records are only used to restore LRU order, so we can afford to lose some of them.
+                mJournalWriter.flush();
+            }
+            mRedundantRecordCount++;
+        } catch (IOException e) {
+            L.w("Failed to write cache journal", e);
+        }
+    }
+
+    /**
+     * Should be called from write executor thread only
+     */
+    private void openJournalWriter() {
+        try {
+            mJournalWriter = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(new File(mRootDirectory, JOURNAL_FILE_NAME), true)));
+        } catch (FileNotFoundException e) {
+            L.w("Failed to open cache journal", e);
+            mJournalWriter = null;
+        }
+    }
+
+    /**
+     * Should be called from write executor thread only
+     */
+    private void compactJournalIfNeeded() {
+        final int entryCount;
+        synchronized (this) {
+            entryCount = mIndex.size();
+        }
+        if (mRedundantRecordCount >= REDUNDANT_RECORDS_COMPACT_THRESHOLD && mRedundantRecordCount >= entryCount) {
+            rebuildJournal();
+        }
+    }
+
+    /**
+     * Writes new journal, containing current index only. Should be called from write executor thread only
+     */
+    private void rebuildJournal() {
+        closeJournalWriter();
+
+        final List<String> keys;
+        final List<IndexEntry> entries;
+        synchronized (this) {
+            keys = new ArrayList<String>(mIndex.keySet());
+            entries = new ArrayList<IndexEntry>(mIndex.values());
+        }
+
+        final File journal = new File(mRootDirectory, JOURNAL_FILE_NAME);
+        final File tempJournal = new File(mRootDirectory, JOURNAL_TEMP_FILE_NAME);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempJournal)));
+            out.writeInt(JOURNAL_MAGIC);
+            for (int counter = 0; counter < keys.size(); counter++) {
+                if (!isKeyStorable(keys.get(counter))) {
+                    continue;
+                }
+                out.writeByte(RECORD_PUT);
+                out.writeUTF(keys.get(counter));
+                writeIndexEntry(out, entries.get(counter));
+            }
+            out.close();
+            out = null;
+            if (!tempJournal.renameTo(journal)) {
+                throw new IOException("Unable to rename " + tempJournal.getAbsolutePath());
+            }
+            mRedundantRecordCount = 0;
+        } catch (IOException e) {
+            L.w("Failed to rebuild cache journal", e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    L.w("Failed to close cache journal", e);
+                }
+            }
+        }
+        openJournalWriter();
+        deleteUnreferencedBodies();
+    }
+
+    /**
+     * Deletes body files, left after process was killed between body write and journal update.
+     * Should be called from write executor thread only
+     */
+    private void deleteUnreferencedBodies() {
+        final File[] files = mRootDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            final String name = file.getName();
+            if (!name.endsWith(BODY_FILE_SUFFIX)) {
+                continue;
+            }
+            final String digest = name.substring(0, name.length() - BODY_FILE_SUFFIX.length());
+            synchronized (this) {
+                if (mBodies.containsKey(digest)) {
+                    continue;
+                }
+            }
+            file.delete();
+        }
+    }
+
+    /**
+     * @return true if key fits {@link DataOutputStream#writeUTF(String)} limit of 65535 encoded bytes
+     */
+    static boolean isKeyStorable(@NonNull final String key) {
+        final int length = key.length();
+        if (length <= MAX_UTF_LENGTH / 3) {
+            return true;
+        }
+        int utfLength = 0;
+        for (int counter = 0; counter < length; counter++) {
+            final char c = key.charAt(counter);
+            if (c >= 0x0001 && c <= 0x007f) {
+                utfLength++;
+            } else if (c > 0x07ff) {
+                utfLength += 3;
+            } else {
+                utfLength += 2;
+            }
+            if (utfLength > MAX_UTF_LENGTH) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeIndexEntry(@NonNull final DataOutputStream out, @NonNull final IndexEntry entry) throws IOException {
+        out.writeLong(entry.size);
+        out.writeUTF(entry.digest);
+        out.writeLong(entry.bodySize);
+        out.writeLong(entry.bodyStoredSize);
+    }
+
+    @NonNull
+    private static IndexEntry readIndexEntry(@NonNull final DataInputStream in) throws IOException {
+        final long size = in.readLong();
+        final String digest = in.readUTF();
+        final long bodySize = in.readLong();
+        final long bodyStoredSize = in.readLong();
+        return new IndexEntry(size, digest, bodySize, bodyStoredSize);
+    }
+
+    private void closeJournalWriter() {
+        if (mJournalWriter != null) {
+            try {
+                mJournalWriter.close();
+            } catch (IOException e) {
+                L.w("Failed to close cache journal", e);
+            }
+            mJournalWriter = null;
+        }
+    }
+
+    // Utilities
+
+    @NonNull
+    static String getFilenameForKey(@NonNull final String key) {
+        try {
+            return toHex(MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NonNull
+    private static String getContentDigest(@NonNull final byte[] data) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-1").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NonNull
+    private static String toHex(@NonNull final byte[] hash) {
+        final StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+            builder.append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    private static final class IndexEntry {
+
+        /**
+         * Size of entry file
+         */
+        final long size;
+
+        /**
+         * Digest of the body, entry refers to
+         */
+        @NonNull
+        final String digest;
+
+        final long bodySize;
+
+        /**
+         * Size of body file, body can be compressed
+         */
+        final long bodyStoredSize;
+
+        IndexEntry(final long size, @NonNull final String digest, final long bodySize, final long bodyStoredSize) {
+            this.size = size;
+            this.digest = digest;
+            this.bodySize = bodySize;
+            this.bodyStoredSize = bodyStoredSize;
+        }
+    }
+
+    private static final class BodyEntry {
+
+        /**
+         * Length of the original body data
+         */
+        final long length;
+
+        /**
+         * Size of body file
+         */
+        final long size;
+
+        int refCount;
+
+        BodyEntry(final long length, final long size) {
+            this.length = length;
+            this.size = size;
+        }
+    }
+
+    private static final class WriterThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "JournalDiskCache-writer");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import com.android.volley.Cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * In-memory {@link Cache} implementation, bounded by total size of stored entries in bytes. Least recently used entries are
+ * evicted first.
+ */
+public class MemoryCache implements Cache {
+
+    /**
+     * Approximate memory, used by entry object itself and its header fields.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    @NonNull
+    private final WeightedLruCache<String, Entry> mEntries;
+
+    private final int mMaxEntrySizeInBytes;
+
+    /**
+     * Can be used in order to react on entry eviction (e.g. in order to store it to slower cache).
+     */
+    public interface OnEntryEvictedListener {
+
+        void onEntryEvicted(@NonNull String key, @NonNull Entry entry);
+    }
+
+    @Nullable
+    private volatile OnEntryEvictedListener mEvictedListener;
+
+    /**
+     * @param maxCacheSizeInBytes maximum total size of entries
+     */
+    public MemoryCache(final int maxCacheSizeInBytes) {
+        this(maxCacheSizeInBytes, maxCacheSizeInBytes / 8);
+    }
+
+    /**
+     * @param maxCacheSizeInBytes maximum total size of entries
+     * @param maxEntrySizeInBytes entries, bigger than this value aren't stored in order to keep memory for small hot ones
+     */
+    public MemoryCache(final int maxCacheSizeInBytes, final int maxEntrySizeInBytes) {
+        mMaxEntrySizeInBytes = maxEntrySizeInBytes;
+        mEntries = new WeightedLruCache<String, Entry>(maxCacheSizeInBytes) {
+
+            @Override
+            protected long weightOf(@NonNull final String key, @NonNull final Entry value) {
+                return sizeOf(key, value);
+            }
+
+            @Override
+            protected void entryRemoved(final boolean evicted, @NonNull final String key, @NonNull final Entry value) {
+                final OnEntryEvictedListener listener = mEvictedListener;
+                if (evicted && listener != null) {
+                    listener.onEntryEvicted(key, value);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void initialize() {
+        // Nothing to restore
+    }
+
+    @Override
+    @Nullable
+    public Entry get(@NonNull final String key) {
+        return mEntries.get(key);
+    }
+
+    /**
+     * Entries, bigger than maximum entry size are ignored.
+     */
+    @Override
+    public void put(@NonNull final String key, @NonNull final Entry entry) {
+        if (sizeOf(key, entry) > mMaxEntrySizeInBytes) {
+            mEntries.remove(key);
+            return;
+        }
+        mEntries.put(key, entry);
+    }
+
+    /**
+     * @return true if entry is small enough to be stored in this cache.
+     */
+    public boolean accepts(@NonNull final String key, @NonNull final Entry entry) {
+        return sizeOf(key, entry) <= mMaxEntrySizeInBytes;
+    }
+
+    @Override
+    public void invalidate(@NonNull final String key, final boolean fullExpire) {
+        final Entry entry = mEntries.get(key);
+        if (entry != null) {
+            // Entry instances can be used by requests at the moment, so we are modifying a copy.
+            final Entry invalidated = new Entry();
+            invalidated.data = entry.data;
+            invalidated.etag = entry.etag;
+            invalidated.serverDate = entry.serverDate;
+            invalidated.ttl = fullExpire ? 0 : entry.ttl;
+            invalidated.softTtl = 0;
+            invalidated.responseHeaders = entry.responseHeaders;
+            mEntries.put(key, invalidated);
+        }
+    }
+
+    @Override
+    public void remove(@NonNull final String key) {
+        mEntries.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        final OnEntryEvictedListener listener = mEvictedListener;
+        mEvictedListener = null;
+        mEntries.evictAll();
+        mEvictedListener = listener;
+    }
+
+    /**
+     * @return snapshot of stored entries, least recently used first
+     */
+    @NonNull
+    public Map<String, Entry> snapshot() {
+        return mEntries.snapshot();
+    }
+
+    /**
+     * @return total size of stored entries in bytes
+     */
+    public long getSize() {
+        return mEntries.weight();
+    }
+
+    public void setOnEntryEvictedListener(@Nullable final OnEntryEvictedListener listener) {
+        mEvictedListener = listener;
+    }
+
+    protected long sizeOf(@NonNull final String key, @NonNull final Entry entry) {
+        long size = ENTRY_OVERHEAD_BYTES + key.length() * 2;
+        if (entry.data != null) {
+            size += entry.data.length;
+        }
+        if (entry.etag != null) {
+            size += entry.etag.length() * 2;
+        }
+        if (entry.responseHeaders != null) {
+            for (Map.Entry<String, String> header : entry.responseHeaders.entrySet()) {
+                size += ENTRY_OVERHEAD_BYTES / 2;
+                size += header.getKey() != null ? header.getKey().length() * 2 : 0;
+                size += header.getValue() != null ? header.getValue().length() * 2 : 0;
+            }
+        }
+        return size;
+    }
+}
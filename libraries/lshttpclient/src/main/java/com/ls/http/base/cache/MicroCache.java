@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import com.ls.http.base.ResponseData;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Short living in-memory cache of completed responses. Used to serve identical requests, performed within a few seconds
+ * one after another (e.g. by list and details screens), without network access, even if server forbids response caching.
+ * Complements duplicate request policy, which merges simultaneous requests only.
+ * <p/>
+ * Cache is bounded by number of entries and by total size of raw responses. Note: response objects are shared between
+ * all requests, served from cache, so they have to be treated as immutable.
+ */
+public class MicroCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 32;
+
+    public static final long DEFAULT_MAX_SIZE_BYTES = 256 * 1024;
+
+    /**
+     * Approximate memory, used by cache record itself
+     */
+    private static final int RECORD_OVERHEAD_BYTES = 64;
+
+    private final long mWindowMillis;
+
+    private final int mMaxEntries;
+
+    @NonNull
+    private final WeightedLruCache<Key, Record> mRecords;
+
+    /**
+     * @param windowMillis time, response is served from cache after it was received, usually 1-5 seconds
+     */
+    public MicroCache(final long windowMillis) {
+        this(windowMillis, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_SIZE_BYTES);
+    }
+
+    /**
+     * @param windowMillis   time, response is served from cache after it was received, usually 1-5 seconds
+     * @param maxEntries     maximum number of responses stored
+     * @param maxSizeInBytes maximum total size of raw responses stored
+     */
+    public MicroCache(final long windowMillis, final int maxEntries, final long maxSizeInBytes) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis <= 0");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries <= 0");
+        }
+        mWindowMillis = windowMillis;
+        mMaxEntries = maxEntries;
+        mRecords = new WeightedLruCache<Key, Record>(maxSizeInBytes) {
+
+            @Override
+            protected long weightOf(@NonNull final Key key, @NonNull final Record value) {
+                return value.mWeight;
+            }
+        };
+    }
+
+    /**
+     * @return copy of response data, received for the same request within cache window, null otherwise
+     */
+    @Nullable
+    public ResponseData get(@NonNull final String cacheKey, @Nullable final Object responseClassSpecifier) {
+        final Key key = new Key(cacheKey, responseClassSpecifier);
+        final Record record = mRecords.get(key);
+        if (record == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() - record.mTimestamp > mWindowMillis) {
+            mRecords.remove(key);
+            return null;
+        }
+
+        final ResponseData result = new ResponseData();
+        record.mData.cloneTo(result);
+        return result;
+    }
+
+    /**
+     * @param data         successful response data, it mustn't be modified after this call
+     * @param responseSize size of raw response, data was parsed from
+     */
+    public void put(@NonNull final String cacheKey, @Nullable final Object responseClassSpecifier, @NonNull final ResponseData data,
+            final int responseSize) {
+        final ResponseData copy = new ResponseData();
+        data.cloneTo(copy);
+        final Record record = new Record(copy, SystemClock.elapsedRealtime(), responseSize + RECORD_OVERHEAD_BYTES);
+        if (mRecords.put(new Key(cacheKey, responseClassSpecifier), record)) {
+            mRecords.trimToSize(mMaxEntries);
+        }
+    }
+
+    public void clear() {
+        mRecords.evictAll();
+    }
+
+    public long getWindowMillis() {
+        return mWindowMillis;
+    }
+
+    public int getMaxEntries() {
+        return mMaxEntries;
+    }
+
+    /**
+     * @return number of responses stored, including expired ones, which weren't evicted yet
+     */
+    public int getEntryCount() {
+        return mRecords.size();
+    }
+
+    /**
+     * @return total size of stored responses in bytes
+     */
+    public long getSize() {
+        return mRecords.weight();
+    }
+
+    private static final class Key {
+
+        @NonNull
+        private final String mCacheKey;
+
+        @Nullable
+        private final Object mResponseClassSpecifier;
+
+        private final int mHashCode;
+
+        Key(@NonNull final String cacheKey, @Nullable final Object responseClassSpecifier) {
+            mCacheKey = cacheKey;
+            mResponseClassSpecifier = responseClassSpecifier;
+            mHashCode = 31 * cacheKey.hashCode() + (responseClassSpecifier != null ? responseClassSpecifier.hashCode() : 0);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) o;
+            return mHashCode == that.mHashCode
+                    && mCacheKey.equals(that.mCacheKey)
+                    && (mResponseClassSpecifier != null ? mResponseClassSpecifier.equals(that.mResponseClassSpecifier)
+                    : that.mResponseClassSpecifier == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+
+    private static final class Record {
+
+        @NonNull
+        private final ResponseData mData;
+
+        private final long mTimestamp;
+
+        private final long mWeight;
+
+        Record(@NonNull final ResponseData data, final long timestamp, final long weight) {
+            mData = data;
+            mTimestamp = timestamp;
+            mWeight = weight;
+        }
+    }
+}
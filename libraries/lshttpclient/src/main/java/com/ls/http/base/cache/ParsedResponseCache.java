@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import com.android.volley.NetworkResponse;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Cache of deserialized response objects, placed between volley cache and response handlers. Allows to skip response
+ * decoding and deserialization in case if the same response (identified by request cache key, response class specifier
+ * and response version - ETag or Last-Modified header) is received again, e.g. from volley cache.
+ * <p/>
+ * Note: cached objects are shared between all requests, receiving the same response, so they have to be treated as
+ * immutable.
+ */
+public class ParsedResponseCache {
+
+    /**
+     * Approximate memory, used by cache record itself
+     */
+    private static final int RECORD_OVERHEAD_BYTES = 64;
+
+    @NonNull
+    private final WeightedLruCache<Key, Record> mRecords;
+
+    /**
+     * @param maxSizeInBytes maximum total size of raw responses, parsed objects are created from. Raw response size is used
+     *                       as an estimate of parsed object size.
+     */
+    public ParsedResponseCache(final int maxSizeInBytes) {
+        mRecords = new WeightedLruCache<Key, Record>(maxSizeInBytes) {
+
+            @Override
+            protected long weightOf(@NonNull final Key key, @NonNull final Record value) {
+                return value.mWeight;
+            }
+        };
+    }
+
+    /**
+     * @return cache key for the response or null if response can't be cached (it has no version headers)
+     */
+    @Nullable
+    public static Key keyFor(@NonNull final String cacheKey, @NonNull final Object responseClassSpecifier,
+            @NonNull final NetworkResponse response) {
+        final String version = CacheHeaders.getResponseVersion(response.headers);
+        if (version == null) {
+            return null;
+        }
+        return new Key(cacheKey, responseClassSpecifier, version);
+    }
+
+    /**
+     * @return parsed object or null if there is no object, parsed from the same response
+     */
+    @Nullable
+    public Object get(@NonNull final Key key) {
+        final Record record = mRecords.get(key);
+        return record != null ? record.mData : null;
+    }
+
+    /**
+     * @param data     parsed object, it mustn't be modified after this call
+     * @param response response, object was parsed from
+     */
+    public void put(@NonNull final Key key, @NonNull final Object data, @NonNull final NetworkResponse response) {
+        final int responseSize = response.data != null ? response.data.length : 0;
+        mRecords.put(key, new Record(data, responseSize + RECORD_OVERHEAD_BYTES));
+    }
+
+    /**
+     * Removes all objects, parsed for the request cache key given
+     */
+    public void remove(@NonNull final String cacheKey) {
+        for (Key key : mRecords.snapshot().keySet()) {
+            if (key.mCacheKey.equals(cacheKey)) {
+                mRecords.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        mRecords.evictAll();
+    }
+
+    /**
+     * @return estimated size of cached objects in bytes
+     */
+    public long getSize() {
+        return mRecords.weight();
+    }
+
+    public static final class Key {
+
+        @NonNull
+        private final String mCacheKey;
+
+        @NonNull
+        private final Object mResponseClassSpecifier;
+
+        @NonNull
+        private final String mVersion;
+
+        private final int mHashCode;
+
+        Key(@NonNull final String cacheKey, @NonNull final Object responseClassSpecifier, @NonNull final String version) {
+            mCacheKey = cacheKey;
+            mResponseClassSpecifier = responseClassSpecifier;
+            mVersion = version;
+
+            int hashCode = cacheKey.hashCode();
+            hashCode = 31 * hashCode + responseClassSpecifier.hashCode();
+            hashCode = 31 * hashCode + version.hashCode();
+            mHashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) o;
+            return mHashCode == that.mHashCode
+                    && mCacheKey.equals(that.mCacheKey)
+                    && mVersion.equals(that.mVersion)
+                    && mResponseClassSpecifier.equals(that.mResponseClassSpecifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "Key{" + mCacheKey + ", " + mResponseClassSpecifier + ", " + mVersion + "}";
+        }
+    }
+
+    private static final class Record {
+
+        @NonNull
+        private final Object mData;
+
+        private final long mWeight;
+
+        Record(@NonNull final Object data, final long weight) {
+            mData = data;
+            mWeight = weight;
+        }
+    }
+}
@@ -0,0 +1,787 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import android.support.annotation.NonNull;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary codec for deserialized response objects, used by {@link SnapshotStore}. Encoding is driven by declared
+ * types, so no type information is stored: primitives, their wrappers, strings, enums, arrays, lists, sets, maps and plain
+ * classes with no-argument constructor are supported. Fields are written in stable order and the whole type structure is
+ * reduced to {@link #getSchemaHash() schema hash}, so snapshot, written for a different class version, is never decoded.
+ * <p/>
+ * Note: runtime subclasses of declared field types are stored as declared types.
+ */
+final class SnapshotCodec {
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final byte NULL = 0;
+    private static final byte NOT_NULL = 1;
+
+    @NonNull
+    private final Map<Type, Binding> mBindings = new HashMap<Type, Binding>();
+
+    @NonNull
+    private final StringBuilder mSchema = new StringBuilder();
+
+    @NonNull
+    private final Binding mRootBinding;
+
+    private final long mSchemaHash;
+
+    /**
+     * @throws IllegalArgumentException if type, or any type, reachable from it isn't supported
+     */
+    SnapshotCodec(@NonNull final Type type) {
+        mRootBinding = getBinding(type);
+        mSchema.insert(0, mRootBinding.mDescriptor + ";");
+        mSchemaHash = hash(mSchema.toString());
+    }
+
+    long getSchemaHash() {
+        return mSchemaHash;
+    }
+
+    void write(@NonNull final DataOutputStream out, @NonNull final Object value) throws IOException {
+        mRootBinding.write(out, value);
+    }
+
+    @NonNull
+    Object read(@NonNull final ByteBuffer in) throws IOException {
+        try {
+            final Object result = mRootBinding.read(in);
+            if (result == null) {
+                throw new IOException("Snapshot contains no value");
+            }
+            return result;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot is truncated");
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Snapshot is corrupted: " + e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot is corrupted: " + e.getMessage());
+        }
+    }
+
+    // Binding creation
+
+    @NonNull
+    private Binding getBinding(@NonNull final Type type) {
+        Binding binding = mBindings.get(type);
+        if (binding == null) {
+            binding = createBinding(type);
+            mBindings.put(type, binding);
+        }
+        return binding;
+    }
+
+    @NonNull
+    private Binding createBinding(@NonNull final Type type) {
+        final Class<?> rawType = getRawType(type);
+        if (rawType.isPrimitive()) {
+            return new PrimitiveBinding(rawType, false);
+        }
+        if (isPrimitiveWrapper(rawType)) {
+            return new PrimitiveBinding(rawType, true);
+        }
+        if (rawType == String.class) {
+            return new StringBinding();
+        }
+        if (rawType.isEnum()) {
+            return new EnumBinding(rawType);
+        }
+        if (type instanceof GenericArrayType || rawType.isArray()) {
+            final Type componentType = type instanceof GenericArrayType
+                    ? ((GenericArrayType) type).getGenericComponentType() : rawType.getComponentType();
+            return new ArrayBinding(getRawType(componentType), getBinding(componentType));
+        }
+        if (Map.class.isAssignableFrom(rawType)) {
+            if (!rawType.isAssignableFrom(LinkedHashMap.class)) {
+                throw new IllegalArgumentException("Only Map, HashMap and LinkedHashMap are supported: " + type);
+            }
+            return new MapBinding(getBinding(getTypeArgument(type, 0)), getBinding(getTypeArgument(type, 1)));
+        }
+        if (Collection.class.isAssignableFrom(rawType)) {
+            final Type elementType = getTypeArgument(type, 0);
+            if (rawType.isAssignableFrom(ArrayList.class)) {
+                return new CollectionBinding(false, getBinding(elementType));
+            }
+            if (rawType.isAssignableFrom(LinkedHashSet.class)) {
+                return new CollectionBinding(true, getBinding(elementType));
+            }
+            throw new IllegalArgumentException("Only List, Set and Collection are supported: " + type);
+        }
+        if (rawType == Object.class || rawType.isInterface() || Modifier.isAbstract(rawType.getModifiers())) {
+            throw new IllegalArgumentException("Can't create snapshot for abstract type " + type);
+        }
+        return createObjectBinding(type, rawType);
+    }
+
+    @NonNull
+    private Binding createObjectBinding(@NonNull final Type type, @NonNull final Class<?> rawType) {
+        final Constructor<?> constructor;
+        try {
+            constructor = rawType.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("No-argument constructor required for " + type);
+        }
+
+        // Binding is registered before field bindings are created in order to support recursive types
+        final ObjectBinding binding = new ObjectBinding(type.toString(), constructor);
+        mBindings.put(type, binding);
+
+        final Map<Field, Type> fields = getSerializableFields(type, rawType);
+        final StringBuilder schema = new StringBuilder(binding.mDescriptor).append('{');
+        final FieldBinding[] fieldBindings = new FieldBinding[fields.size()];
+        int counter = 0;
+        for (Map.Entry<Field, Type> fieldEntry : fields.entrySet()) {
+            final Field field = fieldEntry.getKey();
+            field.setAccessible(true);
+            final Binding fieldBinding = getBinding(fieldEntry.getValue());
+            fieldBindings[counter++] = new FieldBinding(field, fieldBinding);
+            schema.append(field.getName()).append(':').append(fieldBinding.mDescriptor).append(',');
+        }
+        schema.append("};");
+        mSchema.append(schema);
+
+        binding.mFields = fieldBindings;
+        return binding;
+    }
+
+    /**
+     * @return non-static, non-transient fields of the class and its superclasses (superclass fields first), mapped to field
+     * types, resolved against type given
+     */
+    @NonNull
+    private static Map<Field, Type> getSerializableFields(@NonNull final Type type, @NonNull final Class<?> rawType) {
+        final List<Type> hierarchy = new ArrayList<Type>();
+        Type current = type;
+        while (current != null && getRawType(current) != Object.class) {
+            hierarchy.add(0, current);
+            current = getRawType(current).getGenericSuperclass();
+        }
+
+        // Type variables are resolved from the most specific type, superclass type arguments can refer to them
+        final Map<TypeVariable<?>, Type> variables = new HashMap<TypeVariable<?>, Type>();
+        for (int counter = hierarchy.size() - 1; counter >= 0; counter--) {
+            final Type item = hierarchy.get(counter);
+            if (item instanceof ParameterizedType) {
+                final TypeVariable<?>[] parameters = getRawType(item).getTypeParameters();
+                final Type[] arguments = ((ParameterizedType) item).getActualTypeArguments();
+                for (int index = 0; index < parameters.length && index < arguments.length; index++) {
+                    variables.put(parameters[index], resolve(arguments[index], variables));
+                }
+            }
+        }
+
+        final Map<Field, Type> result = new LinkedHashMap<Field, Type>();
+        for (Type item : hierarchy) {
+            final List<Field> declared = new ArrayList<Field>();
+            for (Field field : getRawType(item).getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    declared.add(field);
+                }
+            }
+            // Declared field order isn't guaranteed by reflection API
+            Collections.sort(declared, new Comparator<Field>() {
+                @Override
+                public int compare(final Field lhs, final Field rhs) {
+                    return lhs.getName().compareTo(rhs.getName());
+                }
+            });
+            for (Field field : declared) {
+                result.put(field, resolve(field.getGenericType(), variables));
+            }
+        }
+        return result;
+    }
+
+    // Type utilities
+
+    @NonNull
+    private static Class<?> getRawType(@NonNull final Type type) {
+        if (type instanceof Class<?>) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        } else if (type instanceof GenericArrayType) {
+            final Type componentType = ((GenericArrayType) type).getGenericComponentType();
+            return Array.newInstance(getRawType(componentType), 0).getClass();
+        } else if (type instanceof WildcardType) {
+            final Type[] upperBounds = ((WildcardType) type).getUpperBounds();
+            return upperBounds.length > 0 ? getRawType(upperBounds[0]) : Object.class;
+        } else if (type instanceof TypeVariable<?>) {
+            final Type[] bounds = ((TypeVariable<?>) type).getBounds();
+            return bounds.length > 0 ? getRawType(bounds[0]) : Object.class;
+        }
+        throw new IllegalArgumentException("Unsupported type " + type);
+    }
+
+    /**
+     * @return type argument of parameterized type or Object if type isn't parameterized
+     */
+    @NonNull
+    private static Type getTypeArgument(@NonNull final Type type, final int index) {
+        if (type instanceof ParameterizedType) {
+            final Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                final Type argument = arguments[index];
+                if (argument instanceof WildcardType) {
+                    final Type[] upperBounds = ((WildcardType) argument).getUpperBounds();
+                    return upperBounds.length > 0 ? upperBounds[0] : Object.class;
+                }
+                return argument;
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * Replaces type variables with their values, known from the declaring type context
+     */
+    @NonNull
+    private static Type resolve(@NonNull final Type type, @NonNull final Map<TypeVariable<?>, Type> variables) {
+        if (type instanceof TypeVariable<?>) {
+            final Type value = variables.get(type);
+            return value != null ? value : getRawType(type);
+        } else if (type instanceof ParameterizedType) {
+            final ParameterizedType parameterized = (ParameterizedType) type;
+            final Type[] arguments = parameterized.getActualTypeArguments().clone();
+            boolean changed = false;
+            for (int counter = 0; counter < arguments.length; counter++) {
+                final Type resolved = resolve(arguments[counter], variables);
+                changed |= resolved != arguments[counter];
+                arguments[counter] = resolved;
+            }
+            return changed ? new ResolvedParameterizedType(parameterized, arguments) : type;
+        } else if (type instanceof GenericArrayType) {
+            final Type componentType = ((GenericArrayType) type).getGenericComponentType();
+            final Type resolved = resolve(componentType, variables);
+            if (resolved == componentType) {
+                return type;
+            }
+            return Array.newInstance(getRawType(resolved), 0).getClass();
+        } else if (type instanceof WildcardType) {
+            final Type[] upperBounds = ((WildcardType) type).getUpperBounds();
+            return upperBounds.length > 0 ? resolve(upperBounds[0], variables) : Object.class;
+        }
+        return type;
+    }
+
+    private static boolean isPrimitiveWrapper(@NonNull final Class<?> type) {
+        return type == Integer.class || type == Long.class || type == Boolean.class || type == Double.class
+                || type == Float.class || type == Short.class || type == Byte.class || type == Character.class;
+    }
+
+    private static long hash(@NonNull final String schema) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(schema.getBytes(CHARSET));
+            long result = 0;
+            for (int counter = 0; counter < 8; counter++) {
+                result = (result << 8) | (digest[counter] & 0xff);
+            }
+            return result;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Shared encoding helpers
+
+    private static void writeString(@NonNull final DataOutputStream out, @NonNull final String value) throws IOException {
+        final byte[] bytes = value.getBytes(CHARSET);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull final ByteBuffer in) throws IOException {
+        final int length = readLength(in);
+        if (in.hasArray()) {
+            final int offset = in.arrayOffset() + in.position();
+            in.position(in.position() + length);
+            return new String(in.array(), offset, length, CHARSET);
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    private static int readLength(@NonNull final ByteBuffer in) throws IOException {
+        final int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Invalid snapshot length " + length);
+        }
+        return length;
+    }
+
+    private static boolean readNotNull(@NonNull final ByteBuffer in) throws IOException {
+        final byte marker = in.get();
+        if (marker != NULL && marker != NOT_NULL) {
+            throw new IOException("Invalid snapshot null marker " + marker);
+        }
+        return marker == NOT_NULL;
+    }
+
+    // Bindings
+
+    private abstract static class Binding {
+
+        @NonNull
+        final String mDescriptor;
+
+        Binding(@NonNull final String descriptor) {
+            mDescriptor = descriptor;
+        }
+
+        abstract void write(@NonNull DataOutputStream out, Object value) throws IOException;
+
+        abstract Object read(@NonNull ByteBuffer in) throws IOException;
+    }
+
+    /**
+     * Base class for reference type bindings, writes null marker before the value
+     */
+    private abstract static class NullableBinding extends Binding {
+
+        NullableBinding(@NonNull final String descriptor) {
+            super(descriptor);
+        }
+
+        @Override
+        final void write(@NonNull final DataOutputStream out, final Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else {
+                out.writeByte(NOT_NULL);
+                writeValue(out, value);
+            }
+        }
+
+        @Override
+        final Object read(@NonNull final ByteBuffer in) throws IOException {
+            return readNotNull(in) ? readValue(in) : null;
+        }
+
+        abstract void writeValue(@NonNull DataOutputStream out, @NonNull Object value) throws IOException;
+
+        @NonNull
+        abstract Object readValue(@NonNull ByteBuffer in) throws IOException;
+    }
+
+    private static final class PrimitiveBinding extends Binding {
+
+        @NonNull
+        private final Class<?> mType;
+
+        private final boolean mNullable;
+
+        PrimitiveBinding(@NonNull final Class<?> type, final boolean nullable) {
+            super(type.getName());
+            mType = type;
+            mNullable = nullable;
+        }
+
+        @Override
+        void write(@NonNull final DataOutputStream out, final Object value) throws IOException {
+            if (mNullable) {
+                if (value == null) {
+                    out.writeByte(NULL);
+                    return;
+                }
+                out.writeByte(NOT_NULL);
+            }
+
+            if (mType == int.class || mType == Integer.class) {
+                out.writeInt((Integer) value);
+            } else if (mType == long.class || mType == Long.class) {
+                out.writeLong((Long) value);
+            } else if (mType == boolean.class || mType == Boolean.class) {
+                out.writeBoolean((Boolean) value);
+            } else if (mType == double.class || mType == Double.class) {
+                out.writeDouble((Double) value);
+            } else if (mType == float.class || mType == Float.class) {
+                out.writeFloat((Float) value);
+            } else if (mType == short.class || mType == Short.class) {
+                out.writeShort((Short) value);
+            } else if (mType == byte.class || mType == Byte.class) {
+                out.writeByte((Byte) value);
+            } else {
+                out.writeChar((Character) value);
+            }
+        }
+
+        @Override
+        Object read(@NonNull final ByteBuffer in) throws IOException {
+            if (mNullable && !readNotNull(in)) {
+                return null;
+            }
+
+            if (mType == int.class || mType == Integer.class) {
+                return in.getInt();
+            } else if (mType == long.class || mType == Long.class) {
+                return in.getLong();
+            } else if (mType == boolean.class || mType == Boolean.class) {
+                return in.get() != 0;
+            } else if (mType == double.class || mType == Double.class) {
+                return in.getDouble();
+            } else if (mType == float.class || mType == Float.class) {
+                return in.getFloat();
+            } else if (mType == short.class || mType == Short.class) {
+                return in.getShort();
+            } else if (mType == byte.class || mType == Byte.class) {
+                return in.get();
+            } else {
+                return in.getChar();
+            }
+        }
+    }
+
+    private static final class StringBinding extends NullableBinding {
+
+        StringBinding() {
+            super("String");
+        }
+
+        @Override
+        void writeValue(@NonNull final DataOutputStream out, @NonNull final Object value) throws IOException {
+            writeString(out, (String) value);
+        }
+
+        @NonNull
+        @Override
+        Object readValue(@NonNull final ByteBuffer in) throws IOException {
+            return readString(in);
+        }
+    }
+
+    private static final class EnumBinding extends NullableBinding {
+
+        @NonNull
+        private final Object[] mConstants;
+
+        EnumBinding(@NonNull final Class<?> type) {
+            super(describeEnum(type));
+            mConstants = type.getEnumConstants();
+        }
+
+        @Override
+        void writeValue(@NonNull final DataOutputStream out, @NonNull final Object value) throws IOException {
+            out.writeInt(((Enum<?>) value).ordinal());
+        }
+
+        @NonNull
+        @Override
+        Object readValue(@NonNull final ByteBuffer in) throws IOException {
+            final int ordinal = in.getInt();
+            if (ordinal < 0 || ordinal >= mConstants.length) {
+                throw new IOException("Invalid enum ordinal " + ordinal);
+            }
+            return mConstants[ordinal];
+        }
+
+        @NonNull
+        private static String describeEnum(@NonNull final Class<?> type) {
+            final StringBuilder builder = new StringBuilder(type.getName()).append('(');
+            for (Object constant : type.getEnumConstants()) {
+                builder.append(((Enum<?>) constant).name()).append(',');
+            }
+            return builder.append(')').toString();
+        }
+    }
+
+    private static final class ArrayBinding extends NullableBinding {
+
+        @NonNull
+        private final Class<?> mComponentType;
+
+        @NonNull
+        private final Binding mComponentBinding;
+
+        ArrayBinding(@NonNull final Class<?> componentType, @NonNull final Binding componentBinding) {
+            super(componentBinding.mDescriptor + "[]");
+            mComponentType = componentType;
+            mComponentBinding = componentBinding;
+        }
+
+        @Override
+        void writeValue(@NonNull final DataOutputStream out, @NonNull final Object value) throws IOException {
+            if (mComponentType == byte.class) {
+                final byte[] bytes = (byte[]) value;
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                return;
+            }
+
+            final int length = Array.getLength(value);
+            out.writeInt(length);
+            for (int counter = 0; counter < length; counter++) {
+                mComponentBinding.write(out, Array.get(value, counter));
+            }
+        }
+
+        @NonNull
+        @Override
+        Object readValue(@NonNull final ByteBuffer in) throws IOException {
+            final int length = readLength(in);
+            if (mComponentType == byte.class) {
+                final byte[] bytes = new byte[length];
+                in.get(bytes);
+                return bytes;
+            }
+
+            final Object result = Array.newInstance(mComponentType, length);
+            for (int counter = 0; counter < length; counter++) {
+                Array.set(result, counter, mComponentBinding.read(in));
+            }
+            return result;
+        }
+    }
+
+    private static final class CollectionBinding extends NullableBinding {
+
+        private final boolean mSet;
+
+        @NonNull
+        private final Binding mElementBinding;
+
+        CollectionBinding(final boolean set, @NonNull final Binding elementBinding) {
+            super((set ? "Set<" : "List<") + elementBinding.mDescriptor + ">");
+            mSet = set;
+            mElementBinding = elementBinding;
+        }
+
+        @Override
+        void writeValue(@NonNull final DataOutputStream out, @NonNull final Object value) throws IOException {
+            final Collection<?> collection = (Collection<?>) value;
+            out.writeInt(collection.size());
+            for (Object item : collection) {
+                mElementBinding.write(out, item);
+            }
+        }
+
+        @NonNull
+        @Override
+        Object readValue(@NonNull final ByteBuffer in) throws IOException {
+            final int size = readLength(in);
+            final Collection<Object> result = mSet ? new LinkedHashSet<Object>(size) : new ArrayList<Object>(size);
+            for (int counter = 0; counter < size; counter++) {
+                result.add(mElementBinding.read(in));
+            }
+            return result;
+        }
+    }
+
+    private static final class MapBinding extends NullableBinding {
+
+        @NonNull
+        private final Binding mKeyBinding;
+
+        @NonNull
+        private final Binding mValueBinding;
+
+        MapBinding(@NonNull final Binding keyBinding, @NonNull final Binding valueBinding) {
+            super("Map<" + keyBinding.mDescriptor + "," + valueBinding.mDescriptor + ">");
+            mKeyBinding = keyBinding;
+            mValueBinding = valueBinding;
+        }
+
+        @Override
+        void writeValue(@NonNull final DataOutputStream out, @NonNull final Object value) throws IOException {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                mKeyBinding.write(out, entry.getKey());
+                mValueBinding.write(out, entry.getValue());
+            }
+        }
+
+        @NonNull
+        @Override
+        Object readValue(@NonNull final ByteBuffer in) throws IOException {
+            final int size = readLength(in);
+            final Map<Object, Object> result = new LinkedHashMap<Object, Object>(size);
+            for (int counter = 0; counter < size; counter++) {
+                result.put(mKeyBinding.read(in), mValueBinding.read(in));
+            }
+            return result;
+        }
+    }
+
+    private static final class ObjectBinding extends NullableBinding {
+
+        @NonNull
+        private final Constructor<?> mConstructor;
+
+        private FieldBinding[] mFields;
+
+        ObjectBinding(@NonNull final String descriptor, @NonNull final Constructor<?> constructor) {
+            super(descriptor);
+            mConstructor = constructor;
+        }
+
+        @Override
+        void writeValue(@NonNull final DataOutputStream out, @NonNull final Object value) throws IOException {
+            try {
+                for (FieldBinding field : mFields) {
+                    field.mBinding.write(out, field.mField.get(value));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IOException("Unable to read field: " + e.getMessage());
+            }
+        }
+
+        @NonNull
+        @Override
+        Object readValue(@NonNull final ByteBuffer in) throws IOException {
+            try {
+                final Object result = mConstructor.newInstance();
+                for (FieldBinding field : mFields) {
+                    final Object fieldValue = field.mBinding.read(in);
+                    if (fieldValue != null || !field.mField.getType().isPrimitive()) {
+                        field.mField.set(result, fieldValue);
+                    }
+                }
+                return result;
+            } catch (InstantiationException e) {
+                throw new IOException("Unable to create " + mDescriptor + ": " + e.getMessage());
+            } catch (IllegalAccessException e) {
+                throw new IOException("Unable to create " + mDescriptor + ": " + e.getMessage());
+            } catch (InvocationTargetException e) {
+                throw new IOException("Unable to create " + mDescriptor + ": " + e.getCause());
+            }
+        }
+    }
+
+    private static final class FieldBinding {
+
+        @NonNull
+        final Field mField;
+
+        @NonNull
+        final Binding mBinding;
+
+        FieldBinding(@NonNull final Field field, @NonNull final Binding binding) {
+            mField = field;
+            mBinding = binding;
+        }
+    }
+
+    private static final class ResolvedParameterizedType implements ParameterizedType {
+
+        @NonNull
+        private final Type mRawType;
+
+        private final Type mOwnerType;
+
+        @NonNull
+        private final Type[] mArguments;
+
+        ResolvedParameterizedType(@NonNull final ParameterizedType source, @NonNull final Type[] arguments) {
+            mRawType = source.getRawType();
+            mOwnerType = source.getOwnerType();
+            mArguments = arguments;
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return mArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return mRawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return mOwnerType;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof ParameterizedType)) {
+                return false;
+            }
+            final ParameterizedType that = (ParameterizedType) o;
+            return mRawType.equals(that.getRawType())
+                    && (mOwnerType != null ? mOwnerType.equals(that.getOwnerType()) : that.getOwnerType() == null)
+                    && Arrays.equals(mArguments, that.getActualTypeArguments());
+        }
+
+        /**
+         * Matches {@link ParameterizedType} implementation of the platform
+         */
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(mArguments) ^ (mOwnerType != null ? mOwnerType.hashCode() : 0) ^ mRawType.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder(((Class<?>) mRawType).getName()).append('<');
+            for (int counter = 0; counter < mArguments.length; counter++) {
+                if (counter > 0) {
+                    builder.append(", ");
+                }
+                builder.append(mArguments[counter] instanceof Class<?>
+                        ? ((Class<?>) mArguments[counter]).getName() : mArguments[counter].toString());
+            }
+            return builder.append('>').toString();
+        }
+    }
+}
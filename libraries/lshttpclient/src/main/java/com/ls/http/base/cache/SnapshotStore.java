@@ -0,0 +1,450 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import com.android.volley.NetworkResponse;
+import com.ls.util.L;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Persistent store of deserialized responses. Objects are kept in compact binary form (see {@link SnapshotCodec}), so they
+ * can be restored from memory mapped file without response parsing, e.g. in order to render first screen after application
+ * start before any network response is available.
+ * <p/>
+ * Snapshots are versioned by schema hash of the response class, so snapshot, written by previous application version with
+ * different class structure is ignored.
+ * <p/>
+ * Total size of snapshot files is limited, least recently written or read snapshots are deleted first. File modification
+ * time is updated on access, so LRU order survives application restart.
+ */
+public class SnapshotStore {
+
+    /**
+     * Default maximum total size of snapshot files
+     */
+    public static final long DEFAULT_MAX_SIZE_BYTES = 5 * 1024 * 1024;
+
+    private static final int SNAPSHOT_MAGIC = 0x4c535331;
+
+    private static final String FILE_SUFFIX = ".snapshot";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final String CHARSET = "UTF-8";
+
+    @NonNull
+    private final File mRootDirectory;
+
+    /**
+     * Codecs for supported types, null values for types, which can't be stored
+     */
+    @NonNull
+    private final Map<Type, SnapshotCodec> mCodecs = new HashMap<Type, SnapshotCodec>();
+
+    /**
+     * Response versions of snapshots, written during this session, used to skip rewriting unchanged ones
+     */
+    @NonNull
+    private final Map<String, String> mStoredVersions = new HashMap<String, String>();
+
+    /**
+     * Sizes of snapshot files by file name, in LRU order. Values are added on writer thread only.
+     */
+    @NonNull
+    private final WeightedLruCache<String, Long> mFiles;
+
+    @NonNull
+    private final ExecutorService mWriteExecutor;
+
+    /**
+     * @param rootDirectory directory to store snapshot files in, mustn't be shared with other caches
+     */
+    public SnapshotStore(@NonNull final File rootDirectory) {
+        this(rootDirectory, DEFAULT_MAX_SIZE_BYTES);
+    }
+
+    /**
+     * @param rootDirectory  directory to store snapshot files in, mustn't be shared with other caches
+     * @param maxSizeInBytes maximum total size of snapshot files
+     */
+    public SnapshotStore(@NonNull final File rootDirectory, final long maxSizeInBytes) {
+        mRootDirectory = rootDirectory;
+        mFiles = new WeightedLruCache<String, Long>(maxSizeInBytes) {
+
+            @Override
+            protected long weightOf(@NonNull final String key, @NonNull final Long value) {
+                return value;
+            }
+
+            @Override
+            protected void entryRemoved(final boolean evicted, @NonNull final String key, @NonNull final Long value) {
+                if (evicted) {
+                    deleteSnapshot(key);
+                }
+            }
+        };
+        mWriteExecutor = Executors.newSingleThreadExecutor(new WriterThreadFactory());
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                restoreIndex();
+            }
+        });
+    }
+
+    /**
+     * Encodes object on calling thread and schedules snapshot writing. Snapshot isn't rewritten if response version (ETag or
+     * Last-Modified header) didn't change since last save.
+     *
+     * @param cacheKey               request cache key
+     * @param responseClassSpecifier Class or Type of the object
+     * @param response               response, object was parsed from
+     * @param data                   object to store
+     */
+    public void save(@NonNull final String cacheKey, @NonNull final Object responseClassSpecifier,
+            @NonNull final NetworkResponse response, @NonNull final Object data) {
+        final SnapshotCodec codec = getCodec(responseClassSpecifier);
+        if (codec == null) {
+            return;
+        }
+
+        final String fileName = getFileName(cacheKey, responseClassSpecifier);
+        final String version = CacheHeaders.getResponseVersion(response.headers);
+        synchronized (mStoredVersions) {
+            if (version != null && version.equals(mStoredVersions.get(fileName))) {
+                return;
+            }
+            mStoredVersions.put(fileName, version);
+        }
+
+        final byte[] snapshot;
+        try {
+            snapshot = encode(codec, cacheKey, data);
+        } catch (IOException e) {
+            L.w("Failed to encode snapshot for " + cacheKey, e);
+            synchronized (mStoredVersions) {
+                mStoredVersions.remove(fileName);
+            }
+            return;
+        }
+
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeSnapshot(fileName, snapshot);
+            }
+        });
+    }
+
+    /**
+     * Synchronously restores object, stored for the request cache key and class specifier given. Reads file, so it shouldn't
+     * be called on the main thread.
+     *
+     * @return restored object or null if there is no valid snapshot
+     */
+    @Nullable
+    public Object read(@NonNull final String cacheKey, @NonNull final Object responseClassSpecifier) {
+        final SnapshotCodec codec = getCodec(responseClassSpecifier);
+        if (codec == null) {
+            return null;
+        }
+
+        final String fileName = getFileName(cacheKey, responseClassSpecifier);
+        final File file = new File(mRootDirectory, fileName);
+        if (!file.exists()) {
+            return null;
+        }
+
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            final FileChannel channel = input.getChannel();
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != SNAPSHOT_MAGIC || buffer.getLong() != codec.getSchemaHash()) {
+                // Snapshot was written for another class version
+                remove(cacheKey, responseClassSpecifier);
+                return null;
+            }
+
+            final byte[] key = cacheKey.getBytes(CHARSET);
+            final int keyLength = buffer.getInt();
+            if (keyLength != key.length || keyLength > buffer.remaining()) {
+                return null;
+            }
+            final byte[] storedKey = new byte[keyLength];
+            buffer.get(storedKey);
+            if (!Arrays.equals(key, storedKey)) {
+                return null;
+            }
+
+            final Object result = codec.read(buffer);
+            if (buffer.hasRemaining()) {
+                throw new IOException("Unexpected snapshot data after the object");
+            }
+
+            mFiles.get(fileName);
+            file.setLastModified(System.currentTimeMillis());
+            return result;
+        } catch (IOException e) {
+            L.w("Failed to read snapshot " + file.getAbsolutePath(), e);
+            remove(cacheKey, responseClassSpecifier);
+            return null;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    L.w("Failed to close snapshot", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if objects of the class or type given can be stored
+     */
+    public boolean isSupported(@NonNull final Object responseClassSpecifier) {
+        return getCodec(responseClassSpecifier) != null;
+    }
+
+    public void remove(@NonNull final String cacheKey, @NonNull final Object responseClassSpecifier) {
+        final String fileName = getFileName(cacheKey, responseClassSpecifier);
+        synchronized (mStoredVersions) {
+            mStoredVersions.remove(fileName);
+        }
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Removed on writer thread, so snapshot, scheduled for writing before, isn't indexed after removal
+                mFiles.remove(fileName);
+                new File(mRootDirectory, fileName).delete();
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (mStoredVersions) {
+            mStoredVersions.clear();
+        }
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mFiles.evictAll();
+                final File[] files = mRootDirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return total size of snapshot files, known to the store. Files of the previous sessions are indexed in background
+     * after creation.
+     */
+    public long getSize() {
+        return mFiles.weight();
+    }
+
+    public long getMaxSize() {
+        return mFiles.maxWeight();
+    }
+
+    /**
+     * Blocks until all scheduled snapshots are written
+     */
+    public void flush() {
+        try {
+            mWriteExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            L.w("Failed to flush snapshots", e);
+        }
+    }
+
+    @Nullable
+    private SnapshotCodec getCodec(@NonNull final Object responseClassSpecifier) {
+        if (!(responseClassSpecifier instanceof Type)) {
+            return null;
+        }
+
+        final Type type = (Type) responseClassSpecifier;
+        synchronized (mCodecs) {
+            if (mCodecs.containsKey(type)) {
+                return mCodecs.get(type);
+            }
+
+            SnapshotCodec codec = null;
+            try {
+                codec = new SnapshotCodec(type);
+            } catch (IllegalArgumentException e) {
+                L.w("Snapshots aren't supported for " + type + ": " + e.getMessage());
+            }
+            mCodecs.put(type, codec);
+            return codec;
+        }
+    }
+
+    @NonNull
+    private static byte[] encode(@NonNull final SnapshotCodec codec, @NonNull final String cacheKey,
+            @NonNull final Object data) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeLong(codec.getSchemaHash());
+        final byte[] key = cacheKey.getBytes(CHARSET);
+        out.writeInt(key.length);
+        out.write(key);
+        try {
+            codec.write(out, data);
+        } catch (ClassCastException e) {
+            throw new IOException("Object doesn't match snapshot type: " + e.getMessage());
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Should be called from write executor thread only
+     */
+    private void writeSnapshot(@NonNull final String fileName, @NonNull final byte[] snapshot) {
+        if (!mRootDirectory.exists() && !mRootDirectory.mkdirs()) {
+            L.e("Unable to create snapshot dir " + mRootDirectory.getAbsolutePath());
+            return;
+        }
+
+        final File file = new File(mRootDirectory, fileName);
+        final File tempFile = new File(mRootDirectory, fileName + TEMP_FILE_SUFFIX);
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(tempFile);
+            out.write(snapshot);
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Unable to rename " + tempFile.getAbsolutePath());
+            }
+            if (!mFiles.put(fileName, (long) snapshot.length)) {
+                // Snapshot is larger than the whole store
+                deleteSnapshot(fileName);
+            }
+        } catch (IOException e) {
+            L.w("Failed to write snapshot " + file.getAbsolutePath(), e);
+            tempFile.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    L.w("Failed to close snapshot", e);
+                }
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Indexes snapshots of the previous sessions, should be called from write executor thread only
+     */
+    private void restoreIndex() {
+        final File[] files = mRootDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        final List<File> snapshots = new ArrayList<File>();
+        for (File file : files) {
+            if (file.getName().endsWith(FILE_SUFFIX)) {
+                snapshots.add(file);
+            } else if (file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                // Left after process was killed during write
+                file.delete();
+            }
+        }
+        Collections.sort(snapshots, new Comparator<File>() {
+            @Override
+            public int compare(final File lhs, final File rhs) {
+                final long lhsModified = lhs.lastModified();
+                final long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (File file : snapshots) {
+            if (!mFiles.put(file.getName(), file.length())) {
+                file.delete();
+            }
+        }
+    }
+
+    private void deleteSnapshot(@NonNull final String fileName) {
+        synchronized (mStoredVersions) {
+            mStoredVersions.remove(fileName);
+        }
+        new File(mRootDirectory, fileName).delete();
+    }
+
+    @NonNull
+    private static String getFileName(@NonNull final String cacheKey, @NonNull final Object responseClassSpecifier) {
+        return JournalDiskCache.getFilenameForKey(cacheKey + "\n" + responseClassSpecifier) + FILE_SUFFIX;
+    }
+
+    private static final class WriterThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "SnapshotStore-writer");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import com.android.volley.Cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Cache} with fast memory tier in front of the persistent one. Hot entries are served from memory without disk IO and
+ * entries, found on disk are promoted to memory.
+ */
+public class TwoTierCache implements Cache {
+
+    public enum WritePolicy {
+        /**
+         * Entries are stored to both tiers immediately
+         */
+        WRITE_THROUGH,
+        /**
+         * Entries are stored to memory and are written to disk after eviction from memory or on {@link #flush()} call.
+         * Not flushed entries will be lost if process is killed.
+         */
+        WRITE_BACK
+    }
+
+    @NonNull
+    private final MemoryCache mMemory;
+
+    @NonNull
+    private final Cache mDisk;
+
+    @NonNull
+    private final WritePolicy mWritePolicy;
+
+    /**
+     * Keys of entries, stored in memory only (write-back policy)
+     */
+    @NonNull
+    private final Set<String> mDirtyKeys = new HashSet<String>();
+
+    private final AtomicLong mMemoryHitCount = new AtomicLong();
+    private final AtomicLong mMemoryMissCount = new AtomicLong();
+    private final AtomicLong mDiskHitCount = new AtomicLong();
+    private final AtomicLong mDiskMissCount = new AtomicLong();
+    private final AtomicLong mWriteBackCount = new AtomicLong();
+
+    public TwoTierCache(@NonNull final MemoryCache memory, @NonNull final Cache disk) {
+        this(memory, disk, WritePolicy.WRITE_THROUGH);
+    }
+
+    public TwoTierCache(@NonNull final MemoryCache memory, @NonNull final Cache disk, @NonNull final WritePolicy writePolicy) {
+        mMemory = memory;
+        mDisk = disk;
+        mWritePolicy = writePolicy;
+        mMemory.setOnEntryEvictedListener(new MemoryCache.OnEntryEvictedListener() {
+
+            @Override
+            public void onEntryEvicted(@NonNull final String key, @NonNull final Entry entry) {
+                if (clearDirty(key)) {
+                    writeBack(key, entry);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void initialize() {
+        mMemory.initialize();
+        mDisk.initialize();
+    }
+
+    @Override
+    @Nullable
+    public Entry get(@NonNull final String key) {
+        Entry entry = mMemory.get(key);
+        if (entry != null) {
+            mMemoryHitCount.incrementAndGet();
+            return entry;
+        }
+        mMemoryMissCount.incrementAndGet();
+
+        entry = mDisk.get(key);
+        if (entry != null) {
+            mDiskHitCount.incrementAndGet();
+            mMemory.put(key, entry);
+        } else {
+            mDiskMissCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+    @Override
+    public void put(@NonNull final String key, @NonNull final Entry entry) {
+        if (mWritePolicy == WritePolicy.WRITE_BACK && mMemory.accepts(key, entry)) {
+            synchronized (mDirtyKeys) {
+                mDirtyKeys.add(key);
+            }
+            mMemory.put(key, entry);
+        } else {
+            clearDirty(key);
+            mMemory.put(key, entry);
+            mDisk.put(key, entry);
+        }
+    }
+
+    @Override
+    public void invalidate(@NonNull final String key, final boolean fullExpire) {
+        mMemory.invalidate(key, fullExpire);
+        mDisk.invalidate(key, fullExpire);
+    }
+
+    @Override
+    public void remove(@NonNull final String key) {
+        clearDirty(key);
+        mMemory.remove(key);
+        mDisk.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mDirtyKeys) {
+            mDirtyKeys.clear();
+        }
+        mMemory.clear();
+        mDisk.clear();
+    }
+
+    /**
+     * Writes all dirty entries to disk tier. Blocks until disk tier stores them if it's {@link JournalDiskCache}.
+     */
+    public void flush() {
+        final Set<String> dirtyKeys;
+        synchronized (mDirtyKeys) {
+            dirtyKeys = new HashSet<String>(mDirtyKeys);
+            mDirtyKeys.clear();
+        }
+        if (!dirtyKeys.isEmpty()) {
+            for (Map.Entry<String, Entry> item : mMemory.snapshot().entrySet()) {
+                if (dirtyKeys.contains(item.getKey())) {
+                    writeBack(item.getKey(), item.getValue());
+                }
+            }
+        }
+        if (mDisk instanceof JournalDiskCache) {
+            ((JournalDiskCache) mDisk).flush();
+        }
+    }
+
+    @NonNull
+    public CacheStats getStats() {
+        return new CacheStats(mMemoryHitCount.get(), mMemoryMissCount.get(), mDiskHitCount.get(), mDiskMissCount.get(),
+                mWriteBackCount.get());
+    }
+
+    public void resetStats() {
+        mMemoryHitCount.set(0);
+        mMemoryMissCount.set(0);
+        mDiskHitCount.set(0);
+        mDiskMissCount.set(0);
+        mWriteBackCount.set(0);
+    }
+
+    @NonNull
+    public MemoryCache getMemoryCache() {
+        return mMemory;
+    }
+
+    @NonNull
+    public Cache getDiskCache() {
+        return mDisk;
+    }
+
+    @NonNull
+    public WritePolicy getWritePolicy() {
+        return mWritePolicy;
+    }
+
+    private boolean clearDirty(@NonNull final String key) {
+        synchronized (mDirtyKeys) {
+            return mDirtyKeys.remove(key);
+        }
+    }
+
+    private void writeBack(@NonNull final String key, @NonNull final Entry entry) {
+        mWriteBackCount.incrementAndGet();
+        mDisk.put(key, entry);
+    }
+}
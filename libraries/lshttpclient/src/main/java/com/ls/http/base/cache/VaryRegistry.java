@@ -0,0 +1,334 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import com.ls.util.L;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps request header names, responses of the resource vary on (learned from "Vary" response header), so they can be
+ * included to the cache key of subsequent requests.
+ * <p/>
+ * Registry, created with a file, is restored from it in background and saved after every change, so cache entries,
+ * stored with vary headers in the key, are found after application restart.
+ */
+public class VaryRegistry {
+
+    private static final String HEADER_VARY = "Vary";
+
+    private static final int DEFAULT_MAX_RESOURCE_COUNT = 512;
+
+    /**
+     * Marker of responses, which can't be cached ("Vary: *")
+     */
+    private static final String[] VARY_ANY = new String[]{"*"};
+
+    private static final String[] VARY_NONE = new String[0];
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    @NonNull
+    private final WeightedLruCache<String, String[]> mResources;
+
+    @Nullable
+    private final File mFile;
+
+    @Nullable
+    private final ExecutorService mWriteExecutor;
+
+    private boolean mWriteScheduled;
+
+    public VaryRegistry() {
+        this(DEFAULT_MAX_RESOURCE_COUNT);
+    }
+
+    /**
+     * @param maxResourceCount maximum count of resources to remember vary headers for
+     */
+    public VaryRegistry(final int maxResourceCount) {
+        this(null, maxResourceCount);
+    }
+
+    /**
+     * @param file file to persist registry to
+     */
+    public VaryRegistry(@NonNull final File file) {
+        this(file, DEFAULT_MAX_RESOURCE_COUNT);
+    }
+
+    /**
+     * @param file             file to persist registry to or null to keep it in memory only
+     * @param maxResourceCount maximum count of resources to remember vary headers for
+     */
+    public VaryRegistry(@Nullable final File file, final int maxResourceCount) {
+        mResources = new WeightedLruCache<String, String[]>(maxResourceCount) {
+            @Override
+            protected long weightOf(@NonNull final String key, @NonNull final String[] value) {
+                return 1;
+            }
+        };
+        mFile = file;
+        if (file != null) {
+            mWriteExecutor = Executors.newSingleThreadExecutor(new WriterThreadFactory());
+            mWriteExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    restore();
+                }
+            });
+        } else {
+            mWriteExecutor = null;
+        }
+    }
+
+    /**
+     * Updates header names for the resource from the response headers
+     *
+     * @return header names, response varies on
+     */
+    @NonNull
+    public String[] update(@NonNull final String url, @Nullable final Map<String, String> responseHeaders) {
+        final String resource = getResource(url);
+        final String vary = responseHeaders != null ? CacheHeaders.getHeader(responseHeaders, HEADER_VARY) : null;
+        if (vary == null || vary.trim().length() == 0) {
+            if (mResources.remove(resource) != null) {
+                scheduleWrite();
+            }
+            return VARY_NONE;
+        }
+
+        final String[] headerNames = parse(vary);
+        final String[] previous = mResources.get(resource);
+        if (previous == null || !Arrays.equals(previous, headerNames)) {
+            mResources.put(resource, headerNames);
+            scheduleWrite();
+        }
+        return headerNames;
+    }
+
+    /**
+     * @return lower case names of request headers, resource responses vary on, sorted alphabetically. Empty array if they
+     * are unknown.
+     */
+    @NonNull
+    public String[] getVaryHeaders(@NonNull final String url) {
+        final String[] headerNames = mResources.get(getResource(url));
+        return headerNames != null ? headerNames : VARY_NONE;
+    }
+
+    /**
+     * @return true if resource responses vary on something, except request headers ("Vary: *"), so they mustn't be cached
+     */
+    public static boolean isUncacheable(@NonNull final String[] varyHeaders) {
+        return varyHeaders == VARY_ANY;
+    }
+
+    public void clear() {
+        mResources.evictAll();
+        scheduleWrite();
+    }
+
+    /**
+     * Blocks until registry is restored from file and all scheduled changes are written
+     */
+    public void flush() {
+        if (mWriteExecutor == null) {
+            return;
+        }
+        try {
+            mWriteExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            L.w("Failed to flush vary registry", e);
+        }
+    }
+
+    private void scheduleWrite() {
+        if (mWriteExecutor == null) {
+            return;
+        }
+        synchronized (this) {
+            if (mWriteScheduled) {
+                return;
+            }
+            mWriteScheduled = true;
+        }
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (VaryRegistry.this) {
+                    mWriteScheduled = false;
+                }
+                write();
+            }
+        });
+    }
+
+    /**
+     * Reads resources from file, should be called from write executor thread only. Resources, learned before restore is
+     * finished, aren't replaced.
+     */
+    private void restore() {
+        if (mFile == null || !mFile.exists()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), "UTF-8"));
+            String resource;
+            while ((resource = reader.readLine()) != null) {
+                final String vary = reader.readLine();
+                if (vary == null) {
+                    throw new IOException("Unexpected end of file");
+                }
+                if (mResources.get(resource) == null) {
+                    mResources.put(resource, parse(vary));
+                }
+            }
+        } catch (IOException e) {
+            L.w("Failed to read vary registry " + mFile.getAbsolutePath(), e);
+            mFile.delete();
+        } finally {
+            closeSilently(reader);
+        }
+    }
+
+    /**
+     * Writes resources to file, least recently used first, should be called from write executor thread only
+     */
+    private void write() {
+        if (mFile == null) {
+            return;
+        }
+        final File tempFile = new File(mFile.getPath() + TEMP_FILE_SUFFIX);
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8");
+            for (Map.Entry<String, String[]> resource : mResources.snapshot().entrySet()) {
+                writer.write(resource.getKey());
+                writer.write('\n');
+                final String[] headerNames = resource.getValue();
+                for (int i = 0; i < headerNames.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(headerNames[i]);
+                }
+                writer.write('\n');
+            }
+            writer.close();
+            writer = null;
+            if (!tempFile.renameTo(mFile)) {
+                throw new IOException("Unable to rename " + tempFile.getAbsolutePath());
+            }
+        } catch (FileNotFoundException e) {
+            L.w("Unable to create vary registry file " + tempFile.getAbsolutePath(), e);
+        } catch (IOException e) {
+            L.w("Failed to write vary registry " + mFile.getAbsolutePath(), e);
+            tempFile.delete();
+        } finally {
+            if (writer != null) {
+                closeSilently(writer);
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static void closeSilently(@Nullable final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                L.w("Failed to close vary registry file", e);
+            }
+        }
+    }
+
+    @NonNull
+    private static String[] parse(@NonNull final String vary) {
+        final List<String> names = new ArrayList<String>();
+        for (String name : vary.split(",")) {
+            name = name.trim().toLowerCase(Locale.US);
+            if ("*".equals(name)) {
+                return VARY_ANY;
+            }
+            if (name.length() > 0 && !names.contains(name)) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * @return url without query and fragment
+     */
+    @NonNull
+    private static String getResource(@NonNull final String url) {
+        int end = url.indexOf('?');
+        final int fragmentStart = url.indexOf('#');
+        if (end < 0 || (fragmentStart >= 0 && fragmentStart < end)) {
+            end = fragmentStart;
+        }
+        return end >= 0 ? url.substring(0, end) : url;
+    }
+
+    private static final class WriterThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "VaryRegistry-writer");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
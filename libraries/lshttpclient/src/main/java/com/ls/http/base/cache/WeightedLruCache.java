@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread safe LRU map, bounded by total weight of stored values (usually - size in bytes) rather than by entry count.
+ *
+ * @param <K> key class
+ * @param <V> value class
+ */
+public abstract class WeightedLruCache<K, V> {
+
+    @NonNull
+    private final LinkedHashMap<K, V> mMap = new LinkedHashMap<K, V>(16, .75f, true);
+
+    private final long mMaxWeight;
+
+    private long mWeight;
+
+    /**
+     * @param maxWeight maximum total weight of values, stored in cache
+     */
+    public WeightedLruCache(final long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight <= 0");
+        }
+        mMaxWeight = maxWeight;
+    }
+
+    /**
+     * @return weight of the value, has to remain the same while value is stored in cache.
+     */
+    protected abstract long weightOf(@NonNull K key, @NonNull V value);
+
+    /**
+     * Called after value was evicted, replaced or removed. Is called outside of the cache lock.
+     *
+     * @param evicted true if value was removed to free space, false if it was replaced or removed explicitly
+     */
+    protected void entryRemoved(final boolean evicted, @NonNull final K key, @NonNull final V value) {
+    }
+
+    /**
+     * @return value, stored for the key, it's moved to the head of the LRU queue. Null if there is no such value.
+     */
+    @Nullable
+    public V get(@NonNull final K key) {
+        synchronized (this) {
+            return mMap.get(key);
+        }
+    }
+
+    /**
+     * Stores the value, evicting least recently used ones if needed. Values, heavier than maximum cache weight are ignored.
+     *
+     * @return true if value was stored
+     */
+    public boolean put(@NonNull final K key, @NonNull final V value) {
+        final long weight = weightOf(key, value);
+        if (weight > mMaxWeight) {
+            remove(key);
+            return false;
+        }
+
+        final V previous;
+        synchronized (this) {
+            previous = mMap.put(key, value);
+            mWeight += weight;
+            if (previous != null) {
+                mWeight -= weightOf(key, previous);
+            }
+        }
+        if (previous != null && previous != value) {
+            entryRemoved(false, key, previous);
+        }
+        trimToWeight(mMaxWeight);
+        return true;
+    }
+
+    /**
+     * @return removed value or null if there was no value for the key
+     */
+    @Nullable
+    public V remove(@NonNull final K key) {
+        final V previous;
+        synchronized (this) {
+            previous = mMap.remove(key);
+            if (previous != null) {
+                mWeight -= weightOf(key, previous);
+            }
+        }
+        if (previous != null) {
+            entryRemoved(false, key, previous);
+        }
+        return previous;
+    }
+
+    /**
+     * Evicts all values
+     */
+    public void evictAll() {
+        trimToWeight(-1);
+    }
+
+    /**
+     * Evicts least recently used values until total weight is below the maximum specified
+     */
+    public void trimToWeight(final long maxWeight) {
+        trim(maxWeight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Evicts least recently used values until number of values is below the maximum specified
+     */
+    public void trimToSize(final int maxSize) {
+        trim(Long.MAX_VALUE, maxSize);
+    }
+
+    private void trim(final long maxWeight, final int maxSize) {
+        List<Map.Entry<K, V>> evicted = null;
+        synchronized (this) {
+            final Iterator<Map.Entry<K, V>> iterator = mMap.entrySet().iterator();
+            while ((mWeight > maxWeight || mMap.size() > maxSize) && iterator.hasNext()) {
+                final Map.Entry<K, V> eldest = iterator.next();
+                iterator.remove();
+                mWeight -= weightOf(eldest.getKey(), eldest.getValue());
+                if (evicted == null) {
+                    evicted = new ArrayList<Map.Entry<K, V>>();
+                }
+                evicted.add(eldest);
+            }
+        }
+        if (evicted != null) {
+            for (Map.Entry<K, V> entry : evicted) {
+                entryRemoved(true, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return snapshot of stored values, least recently used first
+     */
+    @NonNull
+    public synchronized Map<K, V> snapshot() {
+        return new LinkedHashMap<K, V>(mMap);
+    }
+
+    public synchronized long weight() {
+        return mWeight;
+    }
+
+    public long maxWeight() {
+        return mMaxWeight;
+    }
+
+    public synchronized int size() {
+        return mMap.size();
+    }
+}
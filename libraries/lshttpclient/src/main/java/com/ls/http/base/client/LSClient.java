@@ -28,8 +28,16 @@ import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.Volley;
 import com.ls.http.base.BaseRequest;
 import com.ls.http.base.BaseRequest.OnResponseListener;
+import com.ls.http.base.HalResourceCache;
+import com.ls.http.base.ParallelJsonArrayParser;
 import com.ls.http.base.ResponseData;
+import com.ls.http.base.StringPool;
+import com.ls.http.base.cache.MicroCache;
+import com.ls.http.base.cache.ParsedResponseCache;
+import com.ls.http.base.cache.SnapshotStore;
+import com.ls.http.base.cache.VaryRegistry;
 import com.ls.http.base.login.AnonymousLoginManager;
+import com.ls.http.base.login.ICachePartitionProvider;
 import com.ls.http.base.login.ILoginManager;
 import com.ls.util.internal.ContentResolverRequestQueue;
 import com.ls.util.internal.VolleyResponseUtils;
@@ -37,6 +45,8 @@ import com.ls.util.internal.VolleyResponseUtils;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -67,6 +77,26 @@ public class LSClient implements OnResponseListener {
 
     private DuplicateRequestPolicy mDuplicateRequestPolicy = DuplicateRequestPolicy.ATTACH;
 
+    private ParsedResponseCache mParsedResponseCache;
+
+    private SnapshotStore mSnapshotStore;
+
+    @NonNull
+    private VaryRegistry mVaryRegistry = new VaryRegistry();
+
+    private ICachePartitionProvider mCachePartitionProvider;
+
+    private MicroCache mMicroCache;
+
+    private ParallelJsonArrayParser mParallelArrayParser;
+
+    private StringPool mStringPool;
+
+    private HalResourceCache mHalResourceCache;
+
+    @NonNull
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
     public interface OnResponseListener {
 
         void onResponseReceived(@NonNull BaseRequest request, @NonNull ResponseData data, @Nullable Object tag);
@@ -170,7 +200,29 @@ public class LSClient implements OnResponseListener {
         request.setTag(tag);
         request.setResponseListener(this);
         this.mLoginManager.applyLoginDataToRequest(request);
+        applyCacheKeySettings(request);
         request.setSmartComparisonEnabled(this.mDuplicateRequestPolicy != DuplicateRequestPolicy.ALLOW);
+        if (this.mParsedResponseCache != null) {
+            request.setParsedResponseCache(this.mParsedResponseCache);
+        }
+        if (this.mSnapshotStore != null && request.isSnapshotEnabled()) {
+            request.setSnapshotStore(this.mSnapshotStore);
+        }
+        if (this.mParallelArrayParser != null) {
+            request.setParallelArrayParser(this.mParallelArrayParser);
+        }
+        if (this.mStringPool != null && request.getStringPool() == null) {
+            request.setStringPool(this.mStringPool);
+        }
+        if (this.mHalResourceCache != null && request.getHalResourceCache() == null) {
+            request.setHalResourceCache(this.mHalResourceCache);
+        }
+
+        final ResponseData microCachedData = getMicroCachedResponse(request);
+        if (microCachedData != null) {
+            deliverMicroCachedResponse(request, microCachedData, tag, listener);
+            return microCachedData;
+        }
 
         boolean wasRegisterred;
         boolean skipDuplicateRequestListeners = this.mDuplicateRequestPolicy == LSClient.DuplicateRequestPolicy.REJECT;
@@ -189,6 +241,56 @@ public class LSClient implements OnResponseListener {
         }
     }
 
+    private void applyCacheKeySettings(@NonNull final BaseRequest request) {
+        request.setVaryRegistry(mVaryRegistry);
+        final ICachePartitionProvider partitionProvider = getCachePartitionProvider();
+        if (partitionProvider != null) {
+            request.setCachePartition(partitionProvider.getCachePartition(request));
+        }
+    }
+
+    @Nullable
+    private ResponseData getMicroCachedResponse(@NonNull final BaseRequest request) {
+        final MicroCache microCache = this.mMicroCache;
+        if (microCache == null || !request.shouldCache() || request.getItemsBatchListener() != null) {
+            // Batch listener expects elements to be delivered from parsing thread
+            return null;
+        }
+        final String cacheKey = request.getCacheKey();
+        return cacheKey != null ? microCache.get(cacheKey, request.getResponseClasSpecifier()) : null;
+    }
+
+    private void deliverMicroCachedResponse(@NonNull final BaseRequest request, @NonNull final ResponseData data,
+            @Nullable final Object tag, @Nullable final OnResponseListener listener) {
+        if (listener == null) {
+            return;
+        }
+        // Listeners are called on the main thread, the same way volley delivers responses
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onResponseReceived(request, data, tag);
+            }
+        });
+    }
+
+    private void putMicroCachedResponse(@NonNull final BaseRequest request, @NonNull final ResponseData data) {
+        final MicroCache microCache = this.mMicroCache;
+        if (microCache == null) {
+            return;
+        }
+        if (!request.shouldCache()) {
+            // Request could modify data, cached responses depend on
+            microCache.clear();
+            return;
+        }
+        final String cacheKey = request.getCacheKey();
+        // Lazily parsed data could still fail to parse, so only parsed responses are reused
+        if (cacheKey != null && data.isDataParsed() && data.getError() == null) {
+            microCache.put(cacheKey, request.getResponseClasSpecifier(), data, request.getResponseSize());
+        }
+    }
+
     @NonNull
     private RequestQueue getRequestQueueForRequest(@NonNull final Request request) {
         if (mDefaultQueue == null) {
@@ -365,6 +467,7 @@ public class LSClient implements OnResponseListener {
 
     @Override
     public void onResponseReceived(ResponseData data, BaseRequest request) {
+        putMicroCachedResponse(request, data);
         synchronized (listeners) {
             List<ResponseListenersSet.ListenerHolder> listenerList = this.listeners.getListenersForRequest(request);
             this.listeners.removeListenersForRequest(request);
@@ -440,6 +543,146 @@ public class LSClient implements OnResponseListener {
         this.mDuplicateRequestPolicy = duplicateRequestPolicy;
     }
 
+    /**
+     * @return cache of deserialized response objects or null if it isn't used
+     */
+    @Nullable
+    public ParsedResponseCache getParsedResponseCache() {
+        return mParsedResponseCache;
+    }
+
+    /**
+     * @param parsedResponseCache cache, used to skip deserialization of responses, which were already parsed (e.g. received
+     *                            from volley cache). Note: cached objects are shared between requests so they mustn't be modified.
+     */
+    public void setParsedResponseCache(@Nullable final ParsedResponseCache parsedResponseCache) {
+        this.mParsedResponseCache = parsedResponseCache;
+    }
+
+    /**
+     * @return parser of large JSON array responses or null if it isn't used
+     */
+    @Nullable
+    public ParallelJsonArrayParser getParallelArrayParser() {
+        return mParallelArrayParser;
+    }
+
+    /**
+     * @param parallelArrayParser parser, used to bind elements of JSON array responses, exceeding it's threshold, on several threads
+     */
+    public void setParallelArrayParser(@Nullable final ParallelJsonArrayParser parallelArrayParser) {
+        this.mParallelArrayParser = parallelArrayParser;
+    }
+
+    /**
+     * @return pool of repeated response strings or null if strings aren't deduplicated
+     */
+    @Nullable
+    public StringPool getStringPool() {
+        return mStringPool;
+    }
+
+    /**
+     * @param stringPool pool, shared by responses of requests, which don't have their own one, to deduplicate repeated short strings
+     */
+    public void setStringPool(@Nullable final StringPool stringPool) {
+        this.mStringPool = stringPool;
+    }
+
+    /**
+     * @return cache of resources, embedded into HAL responses, or null if they aren't stored
+     */
+    @Nullable
+    public HalResourceCache getHalResourceCache() {
+        return mHalResourceCache;
+    }
+
+    /**
+     * @param halResourceCache cache, used to store resources, embedded into HAL responses, to the queue cache by their self
+     *                         links and to prefetch selected link relations
+     */
+    public void setHalResourceCache(@Nullable final HalResourceCache halResourceCache) {
+        this.mHalResourceCache = halResourceCache;
+    }
+
+    /**
+     * @return store of parsed response snapshots or null if it isn't used
+     */
+    @Nullable
+    public SnapshotStore getSnapshotStore() {
+        return mSnapshotStore;
+    }
+
+    /**
+     * @param snapshotStore store, used to save parsed responses of requests with snapshots enabled (see {@link com.ls.http.base.RequestConfig#setSnapshotEnabled(boolean)})
+     */
+    public void setSnapshotStore(@Nullable final SnapshotStore snapshotStore) {
+        this.mSnapshotStore = snapshotStore;
+    }
+
+    /**
+     * @return provider, set explicitly or login manager if it implements {@link ICachePartitionProvider}, null otherwise
+     */
+    @Nullable
+    public ICachePartitionProvider getCachePartitionProvider() {
+        if (mCachePartitionProvider != null) {
+            return mCachePartitionProvider;
+        }
+        if (mLoginManager instanceof ICachePartitionProvider) {
+            return (ICachePartitionProvider) mLoginManager;
+        }
+        return null;
+    }
+
+    /**
+     * @param cachePartitionProvider defines cache partition of requests, e.g. logged in user identity. If null - login manager
+     *                               is used in case if it implements {@link ICachePartitionProvider}.
+     */
+    public void setCachePartitionProvider(@Nullable final ICachePartitionProvider cachePartitionProvider) {
+        this.mCachePartitionProvider = cachePartitionProvider;
+    }
+
+    /**
+     * @return registry of request headers, responses vary on. Used to build request cache keys.
+     */
+    @NonNull
+    public VaryRegistry getVaryRegistry() {
+        return mVaryRegistry;
+    }
+
+    /**
+     * @return cache of recently completed responses or null if it isn't used
+     */
+    @Nullable
+    public MicroCache getMicroCache() {
+        return mMicroCache;
+    }
+
+    /**
+     * @param microCache cache, used to serve identical requests, performed within a short time window (see {@link MicroCache}),
+     *                   without network access. Null disables it.
+     */
+    public void setMicroCache(@Nullable final MicroCache microCache) {
+        this.mMicroCache = microCache;
+    }
+
+    /**
+     * Synchronously restores response object, saved for the same request earlier, without network access and response parsing.
+     * Login data is applied to the request in order to get the same cache key, request isn't performed. Snapshot file is
+     * read on the calling thread, so it shouldn't be called on the main thread.
+     *
+     * @return restored object or null if snapshots aren't enabled for the request or there is no valid snapshot.
+     */
+    @Nullable
+    public Object readSnapshot(@NonNull final BaseRequest request) {
+        if (mSnapshotStore == null || !request.isSnapshotEnabled() || request.getResponseClasSpecifier() == null) {
+            return null;
+        }
+        this.mLoginManager.applyLoginDataToRequest(request);
+        applyCacheKeySettings(request);
+        return mSnapshotStore.read(request.getCacheKey(), request.getResponseClasSpecifier());
+    }
+
     /**
      * Cancel all requests for given listener with tag
      *
@@ -622,6 +865,22 @@ public class LSClient implements OnResponseListener {
 
         private DuplicateRequestPolicy mDuplicateRequestPolicy = DuplicateRequestPolicy.ATTACH;
 
+        private ParsedResponseCache mParsedResponseCache;
+
+        private SnapshotStore mSnapshotStore;
+
+        private VaryRegistry mVaryRegistry;
+
+        private ICachePartitionProvider mCachePartitionProvider;
+
+        private MicroCache mMicroCache;
+
+        private ParallelJsonArrayParser mParallelArrayParser;
+
+        private StringPool mStringPool;
+
+        private HalResourceCache mHalResourceCache;
+
         public Builder(@NonNull final Context context) {
             mContext = context.getApplicationContext();
         }
@@ -656,6 +915,74 @@ public class LSClient implements OnResponseListener {
             return this;
         }
 
+        /**
+         * @param parsedResponseCache cache, used to skip deserialization of responses, which were already parsed. Cached
+         *                            objects are shared between requests so they mustn't be modified.
+         */
+        public Builder setParsedResponseCache(@NonNull final ParsedResponseCache parsedResponseCache) {
+            this.mParsedResponseCache = parsedResponseCache;
+            return this;
+        }
+
+        /**
+         * @param snapshotStore store, used to save parsed responses of requests with snapshots enabled
+         */
+        public Builder setSnapshotStore(@NonNull final SnapshotStore snapshotStore) {
+            this.mSnapshotStore = snapshotStore;
+            return this;
+        }
+
+        /**
+         * @param varyRegistry registry of request headers, responses vary on. Can be shared between clients, using the same cache.
+         *                     Registry, created with a file, should be used with persistent cache, otherwise responses, stored
+         *                     with vary headers in the key, aren't found after restart.
+         */
+        public Builder setVaryRegistry(@NonNull final VaryRegistry varyRegistry) {
+            this.mVaryRegistry = varyRegistry;
+            return this;
+        }
+
+        /**
+         * @param cachePartitionProvider defines cache partition of requests, e.g. logged in user identity. Login manager is
+         *                               used by default in case if it implements {@link ICachePartitionProvider}.
+         */
+        public Builder setCachePartitionProvider(@NonNull final ICachePartitionProvider cachePartitionProvider) {
+            this.mCachePartitionProvider = cachePartitionProvider;
+            return this;
+        }
+
+        /**
+         * @param microCache cache, used to serve identical requests, performed within a short time window, without network access
+         */
+        public Builder setMicroCache(@NonNull final MicroCache microCache) {
+            this.mMicroCache = microCache;
+            return this;
+        }
+
+        /**
+         * @param parallelArrayParser parser, used to bind elements of large JSON array responses on several threads
+         */
+        public Builder setParallelArrayParser(@NonNull final ParallelJsonArrayParser parallelArrayParser) {
+            this.mParallelArrayParser = parallelArrayParser;
+            return this;
+        }
+
+        /**
+         * @param stringPool pool, used to deduplicate repeated short strings of parsed responses
+         */
+        public Builder setStringPool(@NonNull final StringPool stringPool) {
+            this.mStringPool = stringPool;
+            return this;
+        }
+
+        /**
+         * @param halResourceCache cache, used to store resources, embedded into HAL responses, and to prefetch selected link relations
+         */
+        public Builder setHalResourceCache(@NonNull final HalResourceCache halResourceCache) {
+            this.mHalResourceCache = halResourceCache;
+            return this;
+        }
+
         @NonNull
         public LSClient build() {
             final LSClient client = new LSClient();
@@ -665,6 +992,16 @@ public class LSClient implements OnResponseListener {
             client.mLoginManager = mLoginManager != null ? mLoginManager : new AnonymousLoginManager();
             client.mRequestTimeout = mRequestTimeout;
             client.mDuplicateRequestPolicy = mDuplicateRequestPolicy;
+            client.mParsedResponseCache = mParsedResponseCache;
+            client.mSnapshotStore = mSnapshotStore;
+            if (mVaryRegistry != null) {
+                client.mVaryRegistry = mVaryRegistry;
+            }
+            client.mCachePartitionProvider = mCachePartitionProvider;
+            client.mMicroCache = mMicroCache;
+            client.mParallelArrayParser = mParallelArrayParser;
+            client.mStringPool = mStringPool;
+            client.mHalResourceCache = mHalResourceCache;
 
             client.mContentResolverQueue.start();
             return client;
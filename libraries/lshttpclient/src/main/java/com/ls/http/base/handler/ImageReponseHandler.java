@@ -24,6 +24,7 @@ package com.ls.http.base.handler;
 
 import com.android.volley.NetworkResponse;
 import com.ls.http.base.BaseByteResponseHandler;
+import com.ls.http.base.cache.BlobCache;
 
 import android.content.res.Resources;
 import android.graphics.Bitmap;
@@ -31,6 +32,9 @@ import android.graphics.BitmapFactory;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+
 /**
  * Created on 22.04.2015.
  * Returns image Drawable object as a result
@@ -44,11 +48,24 @@ public class ImageReponseHandler extends BaseByteResponseHandler {
 
     protected Object itemFromResponseWithSpecifier(NetworkResponse response, Object theSpecifier) {
         Object result = null;
-        if (response != null && response.data != null && response.data.length > 0) {
+        if (response == null) {
+            return null;
+        }
 
-            Bitmap imageBitmap = BitmapFactory.decodeByteArray(response.data, 0, response.data.length);
-            Drawable imageDrawable = new BitmapDrawable(Resources.getSystem(), imageBitmap);
+        Bitmap imageBitmap = null;
+        final File blobFile = BlobCache.getBlobFile(response.data);
+        if (blobFile != null) {
+            // Image is decoded from mapped file directly, without loading it to java heap
+            final ByteBuffer buffer = mapBlob(blobFile);
+            if (buffer != null && buffer.hasRemaining()) {
+                imageBitmap = BitmapFactory.decodeStream(BlobCache.newInputStream(buffer));
+            }
+        } else if (response.data != null && response.data.length > 0) {
+            imageBitmap = BitmapFactory.decodeByteArray(response.data, 0, response.data.length);
+        }
 
+        if (imageBitmap != null) {
+            Drawable imageDrawable = new BitmapDrawable(Resources.getSystem(), imageBitmap);
             result = imageDrawable;
         }
         return result;
@@ -22,6 +22,163 @@
 
 package com.ls.http.base.handler;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import com.android.volley.NetworkResponse;
+import com.ls.http.base.BaseRequest;
+import com.ls.http.base.HalResourceCache;
+import com.ls.util.L;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+
 class JSONHALResponseHandler extends JSONResponseHandler {
 
+    private static final String EMBEDDED = "_embedded";
+    private static final String LINKS = "_links";
+    private static final String SELF = "self";
+    private static final String HREF = "href";
+    private static final String TEMPLATED = "templated";
+
+    private static final JsonParser PARSER = new JsonParser();
+
+    /**
+     * Stores embedded resources and prefetches link relations of the response if request has {@link HalResourceCache}.
+     * Document is streamed: only embedded resources and links are read to objects, other properties are skipped.
+     */
+    @Override
+    protected void onNetworkResponse(@NonNull BaseRequest request, @NonNull NetworkResponse response) {
+        final HalResourceCache cache = request.getHalResourceCache();
+        if (cache == null || response.data == null || response.data.length == 0) {
+            return;
+        }
+
+        JsonElement embedded = null;
+        JsonElement links = null;
+        final JsonReader reader = new JsonReader(newResponseReader(response));
+        reader.setLenient(true);
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (EMBEDDED.equals(name)) {
+                    embedded = PARSER.parse(reader);
+                } else if (LINKS.equals(name) && !cache.getPrefetchRelations().isEmpty()) {
+                    links = PARSER.parse(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            L.w("Failed to read HAL resources of " + request.getUrl(), e);
+            return;
+        }
+
+        storeEmbedded(cache, request, response, embedded);
+        if (links != null) {
+            prefetchLinks(cache, request, links);
+        }
+    }
+
+    private static void storeEmbedded(@NonNull HalResourceCache cache, @NonNull BaseRequest request,
+            @NonNull NetworkResponse response, @Nullable JsonElement embedded) {
+        if (embedded == null || !embedded.isJsonObject()) {
+            return;
+        }
+        for (Map.Entry<String, JsonElement> relation : embedded.getAsJsonObject().entrySet()) {
+            final JsonElement value = relation.getValue();
+            if (value.isJsonArray()) {
+                for (JsonElement item : value.getAsJsonArray()) {
+                    storeResource(cache, request, response, item);
+                }
+            } else {
+                storeResource(cache, request, response, value);
+            }
+        }
+    }
+
+    private static void storeResource(@NonNull HalResourceCache cache, @NonNull BaseRequest request,
+            @NonNull NetworkResponse response, @NonNull JsonElement element) {
+        if (!element.isJsonObject()) {
+            return;
+        }
+        final JsonObject resource = element.getAsJsonObject();
+        storeEmbedded(cache, request, response, resource.get(EMBEDDED));
+
+        final String selfHref = getLinkHref(getLink(resource.get(LINKS), SELF));
+        if (selfHref != null) {
+            try {
+                cache.putEmbedded(request, selfHref, resource.toString().getBytes("UTF-8"), response);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static void prefetchLinks(@NonNull HalResourceCache cache, @NonNull BaseRequest request,
+            @NonNull JsonElement links) {
+        for (String relation : cache.getPrefetchRelations()) {
+            final JsonElement link = getLink(links, relation);
+            if (link != null && link.isJsonArray()) {
+                for (JsonElement item : link.getAsJsonArray()) {
+                    prefetchLink(cache, request, item);
+                }
+            } else {
+                prefetchLink(cache, request, link);
+            }
+        }
+    }
+
+    private static void prefetchLink(@NonNull HalResourceCache cache, @NonNull BaseRequest request,
+            @Nullable JsonElement link) {
+        final String href = getLinkHref(link);
+        if (href != null) {
+            cache.prefetch(request, href);
+        }
+    }
+
+    /**
+     * @param links value of the "_links" property
+     * @return link object or array of link objects for the relation, null if there is no such
+     */
+    @Nullable
+    private static JsonElement getLink(@Nullable JsonElement links, @NonNull String relation) {
+        if (links == null || !links.isJsonObject()) {
+            return null;
+        }
+        return links.getAsJsonObject().get(relation);
+    }
+
+    /**
+     * @return href of the link object or the first one of link array, null if it's missing or templated
+     */
+    @Nullable
+    private static String getLinkHref(@Nullable JsonElement link) {
+        if (link != null && link.isJsonArray()) {
+            link = link.getAsJsonArray().size() > 0 ? link.getAsJsonArray().get(0) : null;
+        }
+        if (link == null || !link.isJsonObject()) {
+            return null;
+        }
+        final JsonObject linkObject = link.getAsJsonObject();
+        final JsonElement templated = linkObject.get(TEMPLATED);
+        if (templated != null && templated.isJsonPrimitive() && templated.getAsJsonPrimitive().isBoolean()
+                && templated.getAsBoolean()) {
+            return null;
+        }
+        final JsonElement href = linkObject.get(HREF);
+        return href != null && href.isJsonPrimitive() ? href.getAsString() : null;
+    }
 }
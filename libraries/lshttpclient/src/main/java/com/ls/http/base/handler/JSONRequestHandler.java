@@ -23,11 +23,16 @@
 package com.ls.http.base.handler;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
 
+import com.android.volley.toolbox.PoolingByteArrayOutputStream;
 import com.ls.http.base.IPostableItem;
 import com.ls.http.base.RequestHandler;
 import com.ls.http.base.SharedGson;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 
 
@@ -49,9 +54,34 @@ class JSONRequestHandler extends RequestHandler {
         return Handler.PROTOCOL_REQUEST_APP_TYPE_JSON + Handler.CONTENT_TYPE_CHARSET_PREFIX + getCharset(defaultCharset);
     }
 
+    /**
+     * Objects are written by Gson straight into a pooled byte buffer, {@link IPostableItem} provides its body as string.
+     */
     @Override
     public byte[] getBody(String defaultCharset) throws UnsupportedEncodingException {
-        String content = this.stringBodyFromItem();
-        return content.getBytes(getCharset(defaultCharset));
+        String charset = getCharset(defaultCharset);
+        if (implementsPostableInterface()) {
+            return this.stringBodyFromItem().getBytes(charset);
+        }
+
+        PoolingByteArrayOutputStream bytes = newBodyStream();
+        try {
+            Gson gson = SharedGson.getGson(this.object.getClass());
+            // Writer gets gson settings (html escaping, nulls, pretty printing), so bytes match stringBodyFromItem()
+            JsonWriter writer = gson.newJsonWriter(new OutputStreamWriter(bytes, charset));
+            gson.toJson(this.object, this.object.getClass(), writer);
+            writer.flush();
+            return bytes.toByteArray();
+        } catch (UnsupportedEncodingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        } finally {
+            try {
+                bytes.close();
+            } catch (IOException e) {
+                // Closing in-memory stream only returns its buffer to the pool
+            }
+        }
     }
 }
@@ -23,14 +23,23 @@
 package com.ls.http.base.handler;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import com.ls.http.base.BaseStringResponseHandler;
 import com.ls.http.base.IResponseItem;
+import com.ls.http.base.ItemsBatchDispatcher;
 import com.ls.http.base.SharedGson;
+import com.ls.http.base.StringPool;
 import com.ls.util.internal.ObjectsFactory;
 
 import android.support.annotation.NonNull;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
 
 class JSONResponseHandler extends BaseStringResponseHandler {
@@ -38,7 +47,7 @@ class JSONResponseHandler extends BaseStringResponseHandler {
     protected Object itemFromResponse(@NonNull String json, @NonNull Class<?> theClass) {
         Object result = createInstanceByInterface(json, theClass);
         if (result == null) {
-            Gson gson = SharedGson.getGson();
+            Gson gson = SharedGson.getGson(theClass);
             result = gson.fromJson(json, theClass);
         }
         return result;
@@ -49,12 +58,71 @@ class JSONResponseHandler extends BaseStringResponseHandler {
 
         Object result = createInstanceByInterface(json, theClass);
         if (result == null) {
-            Gson gson = SharedGson.getGson();
+            Gson gson = SharedGson.getGson(theType);
             result = gson.fromJson(json, theType);
         }
         return result;
     }
 
+    /**
+     * Everything except {@link IResponseItem} implementations is deserialized from response bytes directly;
+     * {@link IResponseItem#initWithJSON(String)} requires body string so it's kept as a fallback.
+     */
+    @Override
+    protected boolean isStreamingSupported(@NonNull Object theSpecifier) {
+        return !(theSpecifier instanceof Class && IResponseItem.class.isAssignableFrom((Class<?>) theSpecifier));
+    }
+
+    @Override
+    protected Object itemFromResponse(@NonNull Reader response, @NonNull Type theType) {
+        Gson gson = SharedGson.getGson(theType);
+        StringPool stringPool = getStringPool();
+        if (stringPool == null) {
+            return gson.fromJson(response, theType);
+        }
+
+        JsonReader reader = stringPool.newJsonReader(response);
+        Object result = gson.fromJson(reader, theType);
+        try {
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("JSON document was not fully consumed.");
+            }
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return result;
+    }
+
+    @Override
+    protected void itemsFromResponse(@NonNull Reader response, @NonNull ItemsBatchDispatcher dispatcher) {
+        TypeAdapter<?> adapter = SharedGson.getAdapter(dispatcher.getElementType());
+        StringPool stringPool = getStringPool();
+        JsonReader reader = stringPool != null ? stringPool.newJsonReader(response) : new JsonReader(response);
+        reader.setLenient(true);
+        try {
+            JsonToken token;
+            try {
+                token = reader.peek();
+            } catch (EOFException e) {
+                // Empty document, the same way Gson treats it
+                return;
+            }
+            if (token == JsonToken.NULL) {
+                reader.nextNull();
+                return;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (!dispatcher.add(adapter.read(reader))) {
+                    return;
+                }
+            }
+            reader.endArray();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
     @Override
     protected String getAcceptValueType() {
         return Handler.PROTOCOL_REQUEST_APP_TYPE_JSON;
@@ -22,12 +22,16 @@
 
 package com.ls.http.base.handler;
 
+import com.android.volley.NetworkResponse;
 import com.ls.http.base.BaseStringResponseHandler;
 import com.ls.http.base.IResponseItem;
+import com.ls.http.base.ItemsBatchDispatcher;
 import com.ls.util.internal.ObjectsFactory;
 
 import android.support.annotation.NonNull;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 
 
@@ -36,8 +40,8 @@ class XMLResponseHandler extends BaseStringResponseHandler {
     @Override
     protected Object itemFromResponse(@NonNull String response, @NonNull Class<?> theClass) {
         Object result = createInstanceByInterface(response, theClass);
-        if (result == null) {
-            //TODO: implement some additional handling for that case
+        if (result == null && XmlPullBinder.isSupported(theClass)) {
+            result = XmlPullBinder.bind(new StringReader(response), theClass);
         }
         return result;
     }
@@ -47,12 +51,42 @@ class XMLResponseHandler extends BaseStringResponseHandler {
         Class<?> theClass = theType.getClass();
 
         Object result = createInstanceByInterface(json, theClass);
-        if (result == null) {
-            //TODO: implement some additional handling for that case
+        if (result == null && XmlPullBinder.isSupported(theType)) {
+            result = XmlPullBinder.bind(new StringReader(json), theType);
         }
         return result;
     }
 
+    /**
+     * Types, supported by {@link XmlPullBinder}, are bound from response bytes; {@link IResponseItem#initWithXML(String)}
+     * requires body string so it's kept as a fallback. Other types aren't bound, the same way they weren't before.
+     */
+    @Override
+    protected boolean isStreamingSupported(@NonNull Object theSpecifier) {
+        if (theSpecifier instanceof Class && IResponseItem.class.isAssignableFrom((Class<?>) theSpecifier)) {
+            return false;
+        }
+        return theSpecifier instanceof Type && XmlPullBinder.isSupported((Type) theSpecifier);
+    }
+
+    /**
+     * Parser reads bytes, so charset is taken from Content-Type header or detected from byte order mark and XML
+     * declaration.
+     */
+    @Override
+    protected Object itemFromResponse(@NonNull NetworkResponse response, @NonNull Type theType) {
+        return XmlPullBinder.bind(new ByteArrayInputStream(response.data), getHeaderCharset(response), theType);
+    }
+
+    /**
+     * Children of the root element are bound and delivered one by one, so list items reach the dispatcher while the
+     * rest of the document is still being read.
+     */
+    @Override
+    protected void itemsFromResponse(@NonNull NetworkResponse response, @NonNull ItemsBatchDispatcher dispatcher) {
+        XmlPullBinder.bindItems(new ByteArrayInputStream(response.data), getHeaderCharset(response), dispatcher);
+    }
+
     @Override
     protected String getAcceptValueType() {
         return Handler.PROTOCOL_REQUEST_APP_TYPE_XML;
@@ -0,0 +1,575 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.handler;
+
+import com.google.gson.annotations.SerializedName;
+
+import com.ls.http.base.ItemsBatchDispatcher;
+import com.ls.util.internal.ObjectsFactory;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds XML documents to plain objects with {@link XmlPullParser}, reading the body stream once without building a DOM.
+ * <p/>
+ * Attributes and child elements are matched to fields by field name or {@link SerializedName} value and alternates;
+ * namespace prefixes are ignored if there is no field with the prefixed name. Scalar fields (strings, primitives, boxed
+ * primitives and enums) take attribute value or element text, object fields are bound from the child element. List and
+ * array fields collect every child element with their name. List or array response is bound from the children of the
+ * root element. Static, transient and unmatched fields are left untouched, unmatched elements are skipped.
+ */
+final class XmlPullBinder {
+
+    private static final Map<Class<?>, ClassPlan> PLANS = new ConcurrentHashMap<Class<?>, ClassPlan>();
+
+    private XmlPullBinder() {
+    }
+
+    /**
+     * @return true if the type can be bound: scalars, classes with fields and lists or arrays of them. Interfaces,
+     * abstract classes, Object, maps and other collections aren't supported.
+     */
+    static boolean isSupported(@NonNull final Type type) {
+        final Type elementType = getElementType(type);
+        if (elementType != null) {
+            return isSupported(elementType);
+        }
+        final Class<?> theClass = getRawClass(type);
+        if (theClass == null) {
+            return false;
+        }
+        if (isScalar(theClass)) {
+            return true;
+        }
+        return theClass != Object.class && !theClass.isInterface() && !theClass.isArray()
+                && !Modifier.isAbstract(theClass.getModifiers()) && !Map.class.isAssignableFrom(theClass)
+                && !Collection.class.isAssignableFrom(theClass);
+    }
+
+    /**
+     * @return object of the type given, bound from the document root element, or null if document is empty or type isn't
+     * supported
+     */
+    @Nullable
+    static Object bind(@NonNull final Reader reader, @NonNull final Type type) {
+        if (!isSupported(type)) {
+            return null;
+        }
+        try {
+            final XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(reader);
+            return bind(parser, type);
+        } catch (XmlPullParserException e) {
+            throw new IllegalStateException("Malformed XML response", e);
+        }
+    }
+
+    /**
+     * @param encoding charset from Content-Type header or null to detect it from byte order mark or XML declaration
+     * @return object of the type given, bound from the document root element, or null if document is empty or type isn't
+     * supported
+     */
+    @Nullable
+    static Object bind(@NonNull final InputStream stream, @Nullable final String encoding, @NonNull final Type type) {
+        if (!isSupported(type)) {
+            return null;
+        }
+        try {
+            return bind(newParser(stream, encoding), type);
+        } catch (XmlPullParserException e) {
+            throw new IllegalStateException("Malformed XML response", e);
+        }
+    }
+
+    /**
+     * Binds children of the document root element one by one and passes them to the dispatcher until it is stopped.
+     * Nothing is delivered if element type isn't supported.
+     *
+     * @param encoding charset from Content-Type header or null to detect it from byte order mark or XML declaration
+     */
+    static void bindItems(@NonNull final InputStream stream, @Nullable final String encoding,
+            @NonNull final ItemsBatchDispatcher dispatcher) {
+        if (!isSupported(dispatcher.getElementType())) {
+            return;
+        }
+        try {
+            final XmlPullParser parser = newParser(stream, encoding);
+            if (!moveToRoot(parser)) {
+                return;
+            }
+            final Type elementType = dispatcher.getElementType();
+            while (nextChild(parser)) {
+                if (!dispatcher.add(readValue(parser, elementType))) {
+                    return;
+                }
+            }
+        } catch (XmlPullParserException e) {
+            throw new IllegalStateException("Malformed XML response", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read XML response", e);
+        }
+    }
+
+    @Nullable
+    private static Object bind(@NonNull final XmlPullParser parser, @NonNull final Type type) {
+        try {
+            if (!moveToRoot(parser)) {
+                return null;
+            }
+            return readValue(parser, type);
+        } catch (XmlPullParserException e) {
+            throw new IllegalStateException("Malformed XML response", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read XML response", e);
+        }
+    }
+
+    @NonNull
+    private static XmlPullParser newParser(@NonNull final InputStream stream, @Nullable final String encoding)
+            throws XmlPullParserException {
+        final XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(stream, encoding);
+        return parser;
+    }
+
+    /**
+     * @return true if parser stopped at root element, false if document has none
+     */
+    private static boolean moveToRoot(@NonNull final XmlPullParser parser) throws XmlPullParserException, IOException {
+        int event = parser.getEventType();
+        while (event != XmlPullParser.START_TAG) {
+            if (event == XmlPullParser.END_DOCUMENT) {
+                return false;
+            }
+            event = parser.next();
+        }
+        return true;
+    }
+
+    /**
+     * Moves parser to the next child of the current element
+     *
+     * @return false if the current element ended
+     */
+    private static boolean nextChild(@NonNull final XmlPullParser parser) throws XmlPullParserException, IOException {
+        while (true) {
+            switch (parser.next()) {
+                case XmlPullParser.START_TAG:
+                    return true;
+                case XmlPullParser.END_TAG:
+                    return false;
+                case XmlPullParser.END_DOCUMENT:
+                    throw new XmlPullParserException("Unexpected end of document");
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads value of the element parser is at and leaves parser at its end tag
+     */
+    private static Object readValue(@NonNull final XmlPullParser parser, @NonNull final Type type)
+            throws XmlPullParserException, IOException {
+        final Type elementType = getElementType(type);
+        if (elementType != null) {
+            final List<Object> items = new ArrayList<Object>();
+            while (nextChild(parser)) {
+                items.add(readValue(parser, elementType));
+            }
+            return toCollection(type, elementType, items);
+        }
+
+        final Class<?> theClass = getRawClass(type);
+        if (theClass == null) {
+            throw new IllegalArgumentException("Can't bind XML to " + type);
+        }
+        if (isScalar(theClass)) {
+            return toScalar(theClass, readText(parser));
+        }
+        return readObject(parser, getPlan(theClass));
+    }
+
+    private static Object readObject(@NonNull final XmlPullParser parser, @NonNull final ClassPlan plan)
+            throws XmlPullParserException, IOException {
+        final Object instance = plan.newInstance();
+
+        for (int i = 0, count = parser.getAttributeCount(); i < count; i++) {
+            final BoundField field = plan.getField(parser.getAttributeName(i));
+            if (field != null && field.mElementType == null && isScalar(field.mRawType)) {
+                field.set(instance, toScalar(field.mRawType, parser.getAttributeValue(i)));
+            }
+        }
+
+        Map<BoundField, List<Object>> collected = null;
+        while (nextChild(parser)) {
+            final BoundField field = plan.getField(parser.getName());
+            if (field == null) {
+                skipElement(parser);
+            } else if (field.mElementType != null) {
+                if (collected == null) {
+                    collected = new HashMap<BoundField, List<Object>>();
+                }
+                List<Object> items = collected.get(field);
+                if (items == null) {
+                    items = new ArrayList<Object>();
+                    collected.put(field, items);
+                }
+                items.add(readValue(parser, field.mElementType));
+            } else {
+                field.set(instance, readValue(parser, field.mType));
+            }
+        }
+
+        if (collected != null) {
+            for (Map.Entry<BoundField, List<Object>> entry : collected.entrySet()) {
+                final BoundField field = entry.getKey();
+                field.set(instance, toCollection(field.mType, field.mElementType, entry.getValue()));
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return text content of the current element; text of nested elements is ignored
+     */
+    @NonNull
+    private static String readText(@NonNull final XmlPullParser parser) throws XmlPullParserException, IOException {
+        String text = null;
+        StringBuilder builder = null;
+        while (true) {
+            switch (parser.next()) {
+                case XmlPullParser.TEXT:
+                    if (text == null) {
+                        text = parser.getText();
+                    } else {
+                        if (builder == null) {
+                            builder = new StringBuilder(text);
+                        }
+                        builder.append(parser.getText());
+                    }
+                    break;
+                case XmlPullParser.START_TAG:
+                    skipElement(parser);
+                    break;
+                case XmlPullParser.END_TAG:
+                    return builder != null ? builder.toString() : text != null ? text : "";
+                case XmlPullParser.END_DOCUMENT:
+                    throw new XmlPullParserException("Unexpected end of document");
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void skipElement(@NonNull final XmlPullParser parser) throws XmlPullParserException, IOException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (parser.next()) {
+                case XmlPullParser.START_TAG:
+                    depth++;
+                    break;
+                case XmlPullParser.END_TAG:
+                    depth--;
+                    break;
+                case XmlPullParser.END_DOCUMENT:
+                    throw new XmlPullParserException("Unexpected end of document");
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static boolean isScalar(@NonNull final Class<?> theClass) {
+        return theClass == String.class || theClass.isPrimitive() || theClass.isEnum() || theClass == Integer.class
+                || theClass == Long.class || theClass == Double.class || theClass == Float.class || theClass == Boolean.class
+                || theClass == Short.class || theClass == Byte.class || theClass == Character.class;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object toScalar(@NonNull final Class<?> theClass, @NonNull final String text) {
+        if (theClass == String.class) {
+            return text;
+        }
+        final String value = text.trim();
+        if (theClass == int.class || theClass == Integer.class) {
+            return Integer.valueOf(value);
+        } else if (theClass == long.class || theClass == Long.class) {
+            return Long.valueOf(value);
+        } else if (theClass == double.class || theClass == Double.class) {
+            return Double.valueOf(value);
+        } else if (theClass == float.class || theClass == Float.class) {
+            return Float.valueOf(value);
+        } else if (theClass == boolean.class || theClass == Boolean.class) {
+            return "true".equalsIgnoreCase(value) || "1".equals(value);
+        } else if (theClass == short.class || theClass == Short.class) {
+            return Short.valueOf(value);
+        } else if (theClass == byte.class || theClass == Byte.class) {
+            return Byte.valueOf(value);
+        } else if (theClass == char.class || theClass == Character.class) {
+            if (value.length() != 1) {
+                throw new IllegalStateException("Expected single character, got \"" + value + "\"");
+            }
+            return value.charAt(0);
+        }
+        return Enum.valueOf((Class<? extends Enum>) theClass, value);
+    }
+
+    /**
+     * @return element type for arrays and collections assignable from ArrayList, null for other types
+     */
+    @Nullable
+    private static Type getElementType(@NonNull final Type type) {
+        if (type instanceof Class) {
+            final Class<?> theClass = (Class<?>) type;
+            return theClass.isArray() ? theClass.getComponentType() : null;
+        }
+        if (type instanceof ParameterizedType) {
+            final ParameterizedType parameterized = (ParameterizedType) type;
+            final Class<?> rawType = (Class<?>) parameterized.getRawType();
+            if (Collection.class.isAssignableFrom(rawType) && rawType.isAssignableFrom(ArrayList.class)) {
+                return parameterized.getActualTypeArguments()[0];
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Class<?> getRawClass(@NonNull final Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof WildcardType) {
+            return getRawClass(((WildcardType) type).getUpperBounds()[0]);
+        }
+        return null;
+    }
+
+    private static Object toCollection(@NonNull final Type type, @NonNull final Type elementType,
+            @NonNull final List<Object> items) {
+        if (type instanceof Class && ((Class<?>) type).isArray()) {
+            final Object array = Array.newInstance(getRawClass(elementType), items.size());
+            for (int i = 0; i < items.size(); i++) {
+                Array.set(array, i, items.get(i));
+            }
+            return array;
+        }
+        return items;
+    }
+
+    @NonNull
+    private static ClassPlan getPlan(@NonNull final Class<?> theClass) {
+        ClassPlan plan = PLANS.get(theClass);
+        if (plan == null) {
+            plan = new ClassPlan(theClass);
+            PLANS.put(theClass, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Fields of the class by XML name with generic types of superclass fields resolved
+     */
+    private static final class ClassPlan {
+
+        private final Class<?> mClass;
+        private final Constructor<?> mConstructor;
+        private final Map<String, BoundField> mFields = new HashMap<String, BoundField>();
+
+        ClassPlan(@NonNull final Class<?> theClass) {
+            mClass = theClass;
+            mConstructor = getConstructor(theClass);
+
+            final Map<TypeVariable<?>, Type> typeArguments = new HashMap<TypeVariable<?>, Type>();
+            Class<?> current = theClass;
+            while (current != null && current != Object.class) {
+                for (Field field : current.getDeclaredFields()) {
+                    final int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    final BoundField boundField = BoundField.create(field, resolve(field.getGenericType(), typeArguments));
+                    if (boundField == null) {
+                        continue;
+                    }
+                    for (String name : getNames(field)) {
+                        // Field of subclass hides the one of superclass
+                        if (!mFields.containsKey(name)) {
+                            mFields.put(name, boundField);
+                        }
+                    }
+                }
+
+                final Type superclass = current.getGenericSuperclass();
+                if (superclass instanceof ParameterizedType) {
+                    final ParameterizedType parameterized = (ParameterizedType) superclass;
+                    final TypeVariable<?>[] variables = ((Class<?>) parameterized.getRawType()).getTypeParameters();
+                    final Type[] arguments = parameterized.getActualTypeArguments();
+                    for (int i = 0; i < variables.length; i++) {
+                        typeArguments.put(variables[i], resolve(arguments[i], typeArguments));
+                    }
+                }
+                current = current.getSuperclass();
+            }
+        }
+
+        @Nullable
+        BoundField getField(@NonNull final String name) {
+            final BoundField field = mFields.get(name);
+            if (field != null) {
+                return field;
+            }
+            final int prefixEnd = name.indexOf(':');
+            return prefixEnd >= 0 ? mFields.get(name.substring(prefixEnd + 1)) : null;
+        }
+
+        @NonNull
+        Object newInstance() {
+            if (mConstructor == null) {
+                return ObjectsFactory.newInstance(mClass);
+            }
+            try {
+                return mConstructor.newInstance();
+            } catch (InstantiationException e) {
+                throw new IllegalStateException(e);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @Nullable
+        private static Constructor<?> getConstructor(@NonNull final Class<?> theClass) {
+            try {
+                final Constructor<?> constructor = theClass.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        @NonNull
+        private static List<String> getNames(@NonNull final Field field) {
+            final List<String> names = new ArrayList<String>();
+            final SerializedName serializedName = field.getAnnotation(SerializedName.class);
+            if (serializedName == null) {
+                names.add(field.getName());
+            } else {
+                names.add(serializedName.value());
+                for (String alternate : serializedName.alternate()) {
+                    names.add(alternate);
+                }
+            }
+            return names;
+        }
+
+        @Nullable
+        private static Type resolve(@NonNull final Type type, @NonNull final Map<TypeVariable<?>, Type> typeArguments) {
+            if (type instanceof TypeVariable) {
+                return typeArguments.get(type);
+            }
+            return type;
+        }
+    }
+
+    private static final class BoundField {
+
+        private final Field mField;
+        private final Type mType;
+        private final Class<?> mRawType;
+
+        /**
+         * Type of collected elements for list and array fields, null for others
+         */
+        private final Type mElementType;
+
+        private BoundField(@NonNull final Field field, @NonNull final Type type, @NonNull final Class<?> rawType,
+                @Nullable final Type elementType) {
+            mField = field;
+            mType = type;
+            mRawType = rawType;
+            mElementType = elementType;
+        }
+
+        /**
+         * @return bound field or null if field type can't be bound
+         */
+        @Nullable
+        static BoundField create(@NonNull final Field field, @Nullable final Type type) {
+            if (type == null) {
+                return null;
+            }
+            final Class<?> rawType = getRawClass(type);
+            if (rawType == null) {
+                return null;
+            }
+            final Type elementType = getElementType(type);
+            if (elementType != null && getRawClass(elementType) == null) {
+                return null;
+            }
+            if (elementType == null && (rawType.isInterface() || Modifier.isAbstract(rawType.getModifiers()))
+                    && !isScalar(rawType)) {
+                return null;
+            }
+            field.setAccessible(true);
+            return new BoundField(field, type, rawType, elementType);
+        }
+
+        void set(@NonNull final Object instance, @Nullable final Object value) {
+            try {
+                mField.set(instance, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
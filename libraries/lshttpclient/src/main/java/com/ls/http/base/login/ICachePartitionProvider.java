@@ -0,0 +1,39 @@
+/*
+ * The MIT License (MIT)
+ *  Copyright (c) 2014 Lemberg Solutions Limited
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *   IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *   FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *   AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *   LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *   OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *   SOFTWARE.
+ */
+
+package com.ls.http.base.login;
+
+import com.ls.http.base.BaseRequest;
+
+/**
+ * Defines cache partition of the request, e.g. identity of the logged in user. Responses, received for different partitions
+ * are cached separately, so authenticated responses can be cached safely. {@link ILoginManager} can implement this
+ * interface in order to be used as partition provider by {@link com.ls.http.base.client.LSClient}.
+ */
+public interface ICachePartitionProvider {
+
+    /**
+     * @return value, identifying cache partition (e.g. user id or session token) or null for shared (anonymous) partition.
+     * Value is hashed before it's added to the cache key.
+     */
+    String getCachePartition(BaseRequest request);
+}
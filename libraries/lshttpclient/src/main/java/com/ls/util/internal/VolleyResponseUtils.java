@@ -22,6 +22,7 @@
 
 package com.ls.util.internal;
 
+import com.android.volley.Cache;
 import com.android.volley.Network;
 import com.android.volley.NetworkError;
 import com.android.volley.NoConnectionError;
@@ -29,10 +30,12 @@ import com.android.volley.RequestQueue;
 import com.android.volley.TimeoutError;
 import com.android.volley.VolleyError;
 import com.android.volley.toolbox.BasicNetwork;
-import com.android.volley.toolbox.DiskBasedCache;
 import com.android.volley.toolbox.HttpClientStack;
 import com.android.volley.toolbox.HttpStack;
 import com.android.volley.toolbox.HurlStack;
+import com.ls.http.base.cache.JournalDiskCache;
+import com.ls.http.base.cache.MemoryCache;
+import com.ls.http.base.cache.TwoTierCache;
 
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
@@ -54,6 +57,8 @@ import java.net.HttpURLConnection;
  */
 public class VolleyResponseUtils {
 
+    private static final int DEFAULT_MEMORY_CACHE_SIZE_BYTES = 1024 * 1024;
+
     public static boolean isNetworkingError(VolleyError volleyError)
     {
         if (volleyError.networkResponse == null) {
@@ -88,20 +93,27 @@ public class VolleyResponseUtils {
         final VolleyHelperFactory.IVolleyHelper helper = VolleyHelperFactory.newHelper();
         final File cacheDir = helper.getBestCacheDir(context);
 
-        if (stack == null) {
-            stack = helper.createHttpStack(context);
+        final JournalDiskCache diskCache;
+        if (maxDiskCacheSizeBytes < 0) {
+            diskCache = new JournalDiskCache(cacheDir);
+        } else {
+            diskCache = new JournalDiskCache(cacheDir, maxDiskCacheSizeBytes);
         }
 
-        final Network network = new BasicNetwork(stack);
+        final Cache cache = new TwoTierCache(new MemoryCache(DEFAULT_MEMORY_CACHE_SIZE_BYTES), diskCache);
+        return newRequestQueue(context, stack, cache);
+    }
 
-        final DiskBasedCache diskCache;
-        if (maxDiskCacheSizeBytes < 0) {
-            diskCache = new DiskBasedCache(cacheDir);
-        } else {
-            diskCache = new DiskBasedCache(cacheDir, maxDiskCacheSizeBytes);
+    /**
+     * @param cache cache to be used by queue, e.g. {@link TwoTierCache}
+     */
+    public static RequestQueue newRequestQueue(Context context, HttpStack stack, Cache cache) {
+        if (stack == null) {
+            stack = VolleyHelperFactory.newHelper().createHttpStack(context);
         }
 
-        final RequestQueue queue = new RequestQueue(diskCache, network,1);
+        final Network network = new BasicNetwork(stack);
+        final RequestQueue queue = new RequestQueue(cache, network,1);
         queue.start();
         return queue;
     }